@@ -196,7 +196,7 @@ CREATE TABLE HOSPITAL_INFO (
     available_quota INT DEFAULT 100 COMMENT '剩余配额',
     opening_hours VARCHAR(100) COMMENT '门诊时间',
     status VARCHAR(20) DEFAULT 'enabled' COMMENT '服务状态',
-    INDEX idx_status(status)
+    INDEX idx_status_location(status, latitude, longitude)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='医院信息表';
 
 -- 预约挂号表
@@ -208,15 +208,70 @@ CREATE TABLE RESERVE_ORDER (
     hospital_name VARCHAR(100) NOT NULL COMMENT '医院名称',
     department VARCHAR(50) NOT NULL COMMENT '科室',
     reserve_date VARCHAR(20) NOT NULL COMMENT '预约日期（yyyy-MM-dd）',
+    time_slot VARCHAR(10) NOT NULL DEFAULT 'DAY' COMMENT '时段（AM-上午，PM-下午，DAY-全天）',
     status VARCHAR(20) DEFAULT '已预约' COMMENT '状态',
     create_time BIGINT NOT NULL COMMENT '创建时间',
     FOREIGN KEY (user_id) REFERENCES USER_BASE(user_id) ON DELETE CASCADE,
     FOREIGN KEY (hospital_id) REFERENCES HOSPITAL_INFO(hospital_id) ON DELETE CASCADE,
-    INDEX idx_user_id(user_id),
-    INDEX idx_hospital_id(hospital_id),
+    INDEX idx_user_create(user_id, create_time),
+    INDEX idx_hospital_date_status(hospital_id, reserve_date, status),
     INDEX idx_reserve_date(reserve_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='预约挂号表';
 
+DROP TABLE IF EXISTS RESERVE_ORDER_ARCHIVE;
+CREATE TABLE RESERVE_ORDER_ARCHIVE (
+    order_id VARCHAR(50) PRIMARY KEY COMMENT '订单ID',
+    user_id VARCHAR(50) NOT NULL COMMENT '用户ID',
+    hospital_id VARCHAR(50) NOT NULL COMMENT '医院ID',
+    hospital_name VARCHAR(100) NOT NULL COMMENT '医院名称',
+    department VARCHAR(50) NOT NULL COMMENT '科室',
+    reserve_date VARCHAR(20) NOT NULL COMMENT '预约日期（yyyy-MM-dd）',
+    time_slot VARCHAR(10) NOT NULL DEFAULT 'DAY' COMMENT '时段（AM-上午，PM-下午，DAY-全天）',
+    status VARCHAR(20) DEFAULT '已预约' COMMENT '状态',
+    create_time BIGINT NOT NULL COMMENT '创建时间',
+    archive_time BIGINT NOT NULL COMMENT '归档时间',
+    FOREIGN KEY (user_id) REFERENCES USER_BASE(user_id) ON DELETE CASCADE,
+    INDEX idx_user_create(user_id, create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='预约挂号归档表（预约日期早于保留期的历史挂号）';
+
+DROP TABLE IF EXISTS OUTBOX_EVENT;
+CREATE TABLE OUTBOX_EVENT (
+    event_id BIGINT PRIMARY KEY COMMENT '事件ID',
+    event_type VARCHAR(50) NOT NULL COMMENT '事件类型',
+    aggregate_id VARCHAR(50) COMMENT '业务主键（订单ID/缴费项目ID）',
+    payload TEXT COMMENT '事件内容（JSON）',
+    status VARCHAR(10) NOT NULL DEFAULT 'PENDING' COMMENT '状态（PENDING-待投递，DONE-已投递，FAILED-超过重试次数）',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已投递次数',
+    next_attempt_time BIGINT NOT NULL COMMENT '下次投递时间（投递中时为租约到期时间）',
+    last_error VARCHAR(500) COMMENT '最近一次投递失败原因',
+    create_time BIGINT NOT NULL COMMENT '创建时间',
+    INDEX idx_status_next(status, next_attempt_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='事务发件箱（与业务数据同一事务写入，后台异步投递）';
+
+DROP TABLE IF EXISTS USER_REGISTRATION_STATS;
+CREATE TABLE USER_REGISTRATION_STATS (
+    user_id VARCHAR(50) PRIMARY KEY COMMENT '用户ID',
+    total INT NOT NULL DEFAULT 0 COMMENT '挂号总数',
+    pending INT NOT NULL DEFAULT 0 COMMENT '已预约数',
+    completed INT NOT NULL DEFAULT 0 COMMENT '已完成数',
+    cancelled INT NOT NULL DEFAULT 0 COMMENT '已取消数',
+    update_time BIGINT NOT NULL COMMENT '更新时间',
+    FOREIGN KEY (user_id) REFERENCES USER_BASE(user_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户挂号状态计数表';
+
+DROP TABLE IF EXISTS SLOT_INVENTORY;
+CREATE TABLE SLOT_INVENTORY (
+    hospital_id VARCHAR(50) NOT NULL COMMENT '医院ID',
+    slot_date VARCHAR(20) NOT NULL COMMENT '出诊日期（yyyy-MM-dd）',
+    department VARCHAR(50) NOT NULL DEFAULT '' COMMENT '科室（空串表示不分科室）',
+    time_slot VARCHAR(10) NOT NULL COMMENT '时段（AM-上午，PM-下午，DAY-全天）',
+    capacity INT NOT NULL COMMENT '号源总数',
+    booked INT NOT NULL DEFAULT 0 COMMENT '已预约数',
+    update_time BIGINT NOT NULL COMMENT '更新时间',
+    PRIMARY KEY (hospital_id, slot_date, department, time_slot),
+    FOREIGN KEY (hospital_id) REFERENCES HOSPITAL_INFO(hospital_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='号源库存表（医院+日期+科室+时段）';
+
 -- =====================================================
 -- 5. 健康监控相关表
 -- =====================================================
@@ -0,0 +1,114 @@
+-- =====================================================
+-- 老友助手小程序 - 已有数据库升级脚本
+-- 新装环境直接执行 init_database.sql 即可，无需执行本脚本
+-- 按章节顺序执行，已执行过的章节不要重复执行
+-- =====================================================
+
+USE elderly_assistant;
+
+-- -----------------------------------------------------
+-- 1. 附近医院查询：状态+经纬度复合索引（替代 idx_status）
+--    包围盒条件 status IN (...) AND latitude BETWEEN ... AND longitude BETWEEN ...
+--    可以走索引范围扫描，只对盒内的行计算精确距离
+-- -----------------------------------------------------
+ALTER TABLE HOSPITAL_INFO
+    ADD INDEX idx_status_location(status, latitude, longitude),
+    DROP INDEX idx_status;
+
+-- -----------------------------------------------------
+-- 2. 号源库存：按 医院+日期+科室+时段 管理号源
+--    RESERVE_ORDER 增加时段列；按医院+日期+状态统计预约数的查询走复合索引
+--    （idx_hospital_date_status 的最左前缀可替代 idx_hospital_id）
+-- -----------------------------------------------------
+ALTER TABLE RESERVE_ORDER
+    ADD COLUMN time_slot VARCHAR(10) NOT NULL DEFAULT 'DAY' COMMENT '时段（AM-上午，PM-下午，DAY-全天）' AFTER reserve_date,
+    ADD INDEX idx_hospital_date_status(hospital_id, reserve_date, status),
+    DROP INDEX idx_hospital_id;
+
+CREATE TABLE IF NOT EXISTS SLOT_INVENTORY (
+    hospital_id VARCHAR(50) NOT NULL COMMENT '医院ID',
+    slot_date VARCHAR(20) NOT NULL COMMENT '出诊日期（yyyy-MM-dd）',
+    department VARCHAR(50) NOT NULL DEFAULT '' COMMENT '科室（空串表示不分科室）',
+    time_slot VARCHAR(10) NOT NULL COMMENT '时段（AM-上午，PM-下午，DAY-全天）',
+    capacity INT NOT NULL COMMENT '号源总数',
+    booked INT NOT NULL DEFAULT 0 COMMENT '已预约数',
+    update_time BIGINT NOT NULL COMMENT '更新时间',
+    PRIMARY KEY (hospital_id, slot_date, department, time_slot),
+    FOREIGN KEY (hospital_id) REFERENCES HOSPITAL_INFO(hospital_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='号源库存表（医院+日期+科室+时段）';
+
+-- -----------------------------------------------------
+-- 3. 用户挂号记录游标分页：按 user_id + create_time 排序直接走索引，不再 filesort
+--    （idx_user_create 的最左前缀可替代 idx_user_id）
+-- -----------------------------------------------------
+ALTER TABLE RESERVE_ORDER
+    ADD INDEX idx_user_create(user_id, create_time),
+    DROP INDEX idx_user_id;
+
+-- -----------------------------------------------------
+-- 4. 用户挂号状态计数：随挂号/取消/完成增量维护，统计接口不再逐个 COUNT
+--    建表后按已有挂号记录回填一次
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS USER_REGISTRATION_STATS (
+    user_id VARCHAR(50) PRIMARY KEY COMMENT '用户ID',
+    total INT NOT NULL DEFAULT 0 COMMENT '挂号总数',
+    pending INT NOT NULL DEFAULT 0 COMMENT '已预约数',
+    completed INT NOT NULL DEFAULT 0 COMMENT '已完成数',
+    cancelled INT NOT NULL DEFAULT 0 COMMENT '已取消数',
+    update_time BIGINT NOT NULL COMMENT '更新时间',
+    FOREIGN KEY (user_id) REFERENCES USER_BASE(user_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户挂号状态计数表';
+
+INSERT INTO USER_REGISTRATION_STATS (user_id, total, pending, completed, cancelled, update_time)
+SELECT user_id,
+       COUNT(*),
+       SUM(status = '已预约'),
+       SUM(status = '已完成'),
+       SUM(status = '已取消'),
+       UNIX_TIMESTAMP() * 1000
+FROM RESERVE_ORDER
+GROUP BY user_id
+ON DUPLICATE KEY UPDATE total = VALUES(total), pending = VALUES(pending),
+    completed = VALUES(completed), cancelled = VALUES(cancelled), update_time = VALUES(update_time);
+
+-- -----------------------------------------------------
+-- 5. 挂号记录冷热分离：预约日期早于保留期的挂号由后台任务分段移入归档表，
+--    RESERVE_ORDER 只保留近期和未来的挂号；用户查询历史时合并归档表
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS RESERVE_ORDER_ARCHIVE (
+    order_id VARCHAR(50) PRIMARY KEY COMMENT '订单ID',
+    user_id VARCHAR(50) NOT NULL COMMENT '用户ID',
+    hospital_id VARCHAR(50) NOT NULL COMMENT '医院ID',
+    hospital_name VARCHAR(100) NOT NULL COMMENT '医院名称',
+    department VARCHAR(50) NOT NULL COMMENT '科室',
+    reserve_date VARCHAR(20) NOT NULL COMMENT '预约日期（yyyy-MM-dd）',
+    time_slot VARCHAR(10) NOT NULL DEFAULT 'DAY' COMMENT '时段（AM-上午，PM-下午，DAY-全天）',
+    status VARCHAR(20) DEFAULT '已预约' COMMENT '状态',
+    create_time BIGINT NOT NULL COMMENT '创建时间',
+    archive_time BIGINT NOT NULL COMMENT '归档时间',
+    FOREIGN KEY (user_id) REFERENCES USER_BASE(user_id) ON DELETE CASCADE,
+    INDEX idx_user_create(user_id, create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='预约挂号归档表（预约日期早于保留期的历史挂号）';
+
+-- 归档按 reserve_date 字符串比较，历史数据统一为 yyyy-MM-dd（新挂号写入时已统一）
+UPDATE RESERVE_ORDER
+SET reserve_date = DATE_FORMAT(STR_TO_DATE(REPLACE(reserve_date, '/', '-'), '%Y-%m-%d'), '%Y-%m-%d')
+WHERE reserve_date NOT REGEXP '^[0-9]{4}-[0-9]{2}-[0-9]{2}$'
+  AND STR_TO_DATE(REPLACE(reserve_date, '/', '-'), '%Y-%m-%d') IS NOT NULL;
+
+-- -----------------------------------------------------
+-- 6. 事务发件箱：挂号/取消/完成/缴费只在事务内写业务行 + 事件行，
+--    挂号统计、号源归还等由后台投递，缩短事务和行锁持有时间
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS OUTBOX_EVENT (
+    event_id BIGINT PRIMARY KEY COMMENT '事件ID',
+    event_type VARCHAR(50) NOT NULL COMMENT '事件类型',
+    aggregate_id VARCHAR(50) COMMENT '业务主键（订单ID/缴费项目ID）',
+    payload TEXT COMMENT '事件内容（JSON）',
+    status VARCHAR(10) NOT NULL DEFAULT 'PENDING' COMMENT '状态（PENDING-待投递，DONE-已投递，FAILED-超过重试次数）',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已投递次数',
+    next_attempt_time BIGINT NOT NULL COMMENT '下次投递时间（投递中时为租约到期时间）',
+    last_error VARCHAR(500) COMMENT '最近一次投递失败原因',
+    create_time BIGINT NOT NULL COMMENT '创建时间',
+    INDEX idx_status_next(status, next_attempt_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='事务发件箱（与业务数据同一事务写入，后台异步投递）';
@@ -3,6 +3,7 @@ package com.elderly.assistant;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 老友助手后端服务启动类
@@ -10,6 +11,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  */
 @SpringBootApplication
 @MapperScan("com.elderly.assistant.mapper")
+@EnableScheduling
 public class ElderlyAssistantApplication {
 
     public static void main(String[] args) {
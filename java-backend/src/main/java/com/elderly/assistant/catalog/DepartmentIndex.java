@@ -0,0 +1,174 @@
+package com.elderly.assistant.catalog;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.elderly.assistant.entity.HospitalInfo;
+
+import cn.hutool.core.util.StrUtil;
+
+/**
+ * 科室倒排索引（随快照一起构建，不可变）
+ * 每个科室名分配一个内部ID：
+ * - 科室ID -> 提供该科室的可用医院列表（已按等级排好序）
+ * - 医院ID -> 科室位图，用于 O(1) 判断医院是否有某科室
+ * 科室按精确名称匹配，"内科"不会再匹配到"神经内科"
+ */
+public final class DepartmentIndex {
+
+    private final Map<String, Integer> idByName;
+    private final List<String> departments;
+    private final List<List<HospitalInfo>> hospitalsById;
+    private final Map<String, BitSet> bitsByHospital;
+    private final Map<String, List<String>> namesByHospital;
+
+    private DepartmentIndex(Collection<HospitalInfo> allHospitals, List<HospitalInfo> enabledByLevel) {
+        Map<String, Integer> ids = new HashMap<>();
+        Map<String, BitSet> bits = new HashMap<>(allHospitals.size() * 2);
+        Map<String, List<String>> names = new HashMap<>(allHospitals.size() * 2);
+
+        for (HospitalInfo hospital : allHospitals) {
+            List<String> parsed = parseDepartments(hospital.getDepartments());
+            BitSet set = new BitSet();
+            for (String name : parsed) {
+                Integer id = ids.get(name);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(name, id);
+                }
+                set.set(id);
+            }
+            bits.put(hospital.getHospitalId(), set);
+            names.put(hospital.getHospitalId(), Collections.unmodifiableList(parsed));
+        }
+
+        List<List<HospitalInfo>> lists = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            lists.add(new ArrayList<>());
+        }
+        // 按等级顺序遍历，每个科室下的医院列表天然有序
+        for (HospitalInfo hospital : enabledByLevel) {
+            BitSet set = bits.get(hospital.getHospitalId());
+            for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+                lists.get(id).add(hospital);
+            }
+        }
+
+        List<String> served = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            List<HospitalInfo> list = lists.get(entry.getValue());
+            lists.set(entry.getValue(), Collections.unmodifiableList(list));
+            if (!list.isEmpty()) {
+                served.add(entry.getKey());
+            }
+        }
+        Collections.sort(served);
+
+        this.idByName = Collections.unmodifiableMap(ids);
+        this.departments = Collections.unmodifiableList(served);
+        this.hospitalsById = Collections.unmodifiableList(lists);
+        this.bitsByHospital = Collections.unmodifiableMap(bits);
+        this.namesByHospital = Collections.unmodifiableMap(names);
+    }
+
+    public static DepartmentIndex build(Collection<HospitalInfo> allHospitals, List<HospitalInfo> enabledByLevel) {
+        return new DepartmentIndex(allHospitals, enabledByLevel);
+    }
+
+    private DepartmentIndex(DepartmentIndex base, List<List<HospitalInfo>> hospitalsById) {
+        this.idByName = base.idByName;
+        this.departments = base.departments;
+        this.hospitalsById = hospitalsById;
+        this.bitsByHospital = base.bitsByHospital;
+        this.namesByHospital = base.namesByHospital;
+    }
+
+    /**
+     * 科室不变时替换一家医院的对象，只复制该医院所在科室的列表
+     */
+    public DepartmentIndex withHospital(HospitalInfo old, HospitalInfo latest) {
+        BitSet set = bitsByHospital.get(latest.getHospitalId());
+        if (set == null || set.isEmpty()) {
+            return this;
+        }
+        List<List<HospitalInfo>> lists = new ArrayList<>(hospitalsById);
+        for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+            lists.set(id, HospitalSnapshot.replaced(lists.get(id), old, latest));
+        }
+        return new DepartmentIndex(this, Collections.unmodifiableList(lists));
+    }
+
+    /**
+     * 解析 departments 字段
+     * 库里既有 JSON 数组（["内科","外科"]）也有逗号分隔（内科,外科）两种格式
+     */
+    public static List<String> parseDepartments(String raw) {
+        if (StrUtil.isBlank(raw)) {
+            return new ArrayList<>();
+        }
+        String text = raw.trim();
+        if (text.startsWith("[") && text.endsWith("]")) {
+            text = text.substring(1, text.length() - 1);
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (String part : text.split("[,，]")) {
+            String name = StrUtil.strip(part.trim(), "\"").trim();
+            if (StrUtil.isNotBlank(name)) {
+                result.add(name);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * 科室内部ID，不存在返回 -1
+     */
+    public int idOf(String department) {
+        Integer id = department == null ? null : idByName.get(department.trim());
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 所有可用医院提供的科室（去重、排序）
+     */
+    public List<String> getDepartments() {
+        return departments;
+    }
+
+    /**
+     * 提供某科室的可用医院（按等级排序）
+     */
+    public List<HospitalInfo> getHospitals(String department) {
+        int id = idOf(department);
+        return id < 0 ? Collections.emptyList() : hospitalsById.get(id);
+    }
+
+    /**
+     * 某医院的科室列表，医院不在索引中返回 null
+     */
+    public List<String> getDepartmentsOf(String hospitalId) {
+        return namesByHospital.get(hospitalId);
+    }
+
+    /**
+     * 医院是否有某科室
+     */
+    public boolean hasDepartment(String hospitalId, String department) {
+        return hasDepartment(hospitalId, idOf(department));
+    }
+
+    public boolean hasDepartment(String hospitalId, int departmentId) {
+        if (departmentId < 0) {
+            return false;
+        }
+        BitSet set = bitsByHospital.get(hospitalId);
+        return set != null && set.get(departmentId);
+    }
+}
@@ -0,0 +1,250 @@
+package com.elderly.assistant.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+import com.elderly.assistant.entity.HospitalInfo;
+
+/**
+ * 医院坐标 KD 树（随快照一起构建，不可变）
+ * 按纬度/经度交替切分，支持半径查询和 K 近邻查询：
+ * - 先用包围盒快速排除，再计算球面距离
+ * - 子树到查询点的距离下界超过半径或当前第 K 名时整棵剪掉
+ * - 结果通过容量为 K 的大顶堆收集，不对全量结果排序
+ */
+public final class GeoIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE_LAT = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private final HospitalInfo[] hospitals;
+    private final double[] lats;
+    private final double[] lons;
+
+    private GeoIndex(List<HospitalInfo> source) {
+        List<HospitalInfo> located = new ArrayList<>(source.size());
+        for (HospitalInfo hospital : source) {
+            if (hospital.getLatitude() != null && hospital.getLongitude() != null) {
+                located.add(hospital);
+            }
+        }
+        this.hospitals = located.toArray(new HospitalInfo[0]);
+        build(0, hospitals.length, 0);
+
+        this.lats = new double[hospitals.length];
+        this.lons = new double[hospitals.length];
+        for (int i = 0; i < hospitals.length; i++) {
+            lats[i] = hospitals[i].getLatitude();
+            lons[i] = hospitals[i].getLongitude();
+        }
+    }
+
+    private GeoIndex(HospitalInfo[] hospitals, double[] lats, double[] lons) {
+        this.hospitals = hospitals;
+        this.lats = lats;
+        this.lons = lons;
+    }
+
+    /**
+     * 坐标不变时替换一家医院的对象，树结构和坐标数组共用
+     */
+    public GeoIndex withHospital(HospitalInfo old, HospitalInfo latest) {
+        for (int i = 0; i < hospitals.length; i++) {
+            if (hospitals[i] == old) {
+                HospitalInfo[] copy = hospitals.clone();
+                copy[i] = latest;
+                return new GeoIndex(copy, lats, lons);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 基于可用医院构建索引（没有坐标的医院不参与）
+     */
+    public static GeoIndex build(List<HospitalInfo> hospitals) {
+        return new GeoIndex(hospitals);
+    }
+
+    /**
+     * 递归按中位数切分，数组区间 [lo, hi) 的中点即为该子树的根
+     */
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        Comparator<HospitalInfo> axis = (depth & 1) == 0
+                ? Comparator.comparingDouble(HospitalInfo::getLatitude)
+                : Comparator.comparingDouble(HospitalInfo::getLongitude);
+        Arrays.sort(hospitals, lo, hi, axis);
+        int mid = (lo + hi) >>> 1;
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    public int size() {
+        return hospitals.length;
+    }
+
+    /**
+     * 查询附近医院，结果按距离升序
+     *
+     * @param radiusKm 半径（公里），null 或 &lt;= 0 表示不限
+     * @param limit    最多返回条数，&lt;= 0 表示不限
+     * @param filter   附加过滤条件，可为 null
+     */
+    public List<Neighbor> nearest(double latitude, double longitude, Double radiusKm, int limit,
+                                  Predicate<HospitalInfo> filter) {
+        Query query = new Query(latitude, longitude,
+                radiusKm != null && radiusKm > 0 ? radiusKm : Double.POSITIVE_INFINITY,
+                limit > 0 ? limit : Integer.MAX_VALUE, filter);
+        search(query, 0, hospitals.length, 0);
+
+        List<Neighbor> result = new ArrayList<>(query.heap);
+        Collections.sort(result, Comparator.comparingDouble(Neighbor::getDistanceKm));
+        return result;
+    }
+
+    private void search(Query q, int lo, int hi, int depth) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        q.visit(mid);
+
+        boolean latAxis = (depth & 1) == 0;
+        double delta = latAxis ? q.lat - lats[mid] : q.lon - lons[mid];
+        int nearLo = delta < 0 ? lo : mid + 1;
+        int nearHi = delta < 0 ? mid : hi;
+        int farLo = delta < 0 ? mid + 1 : lo;
+        int farHi = delta < 0 ? hi : mid;
+
+        search(q, nearLo, nearHi, depth + 1);
+        if (q.bound() >= planeDistance(q.lat, delta, latAxis)) {
+            search(q, farLo, farHi, depth + 1);
+        }
+    }
+
+    /**
+     * 查询点到切分线（纬线或经线）的球面距离下界
+     */
+    private static double planeDistance(double lat, double delta, boolean latAxis) {
+        double absDelta = Math.abs(delta);
+        if (latAxis) {
+            return absDelta * KM_PER_DEGREE_LAT;
+        }
+        if (absDelta >= 90) {
+            return 0;
+        }
+        double s = Math.cos(Math.toRadians(lat)) * Math.sin(Math.toRadians(absDelta));
+        return EARTH_RADIUS_KM * Math.asin(Math.min(1.0, s));
+    }
+
+    /**
+     * 半径对应的经度跨度（度），按包围盒内纬度绝对值最大处计算，保证不漏
+     */
+    private static double lonSpan(double lat, double radiusKm) {
+        double latSpan = radiusKm / KM_PER_DEGREE_LAT;
+        double cos = Math.cos(Math.toRadians(Math.min(89.0, Math.abs(lat) + latSpan)));
+        return latSpan / cos;
+    }
+
+    /**
+     * 以查询点为中心、半径为 radiusKm 的经纬度包围盒
+     *
+     * @return {minLat, maxLat, minLon, maxLon}
+     */
+    public static double[] boundingBox(double lat, double lon, double radiusKm) {
+        double latSpan = radiusKm / KM_PER_DEGREE_LAT;
+        double lonSpan = lonSpan(lat, radiusKm);
+        return new double[] {lat - latSpan, lat + latSpan, lon - lonSpan, lon + lonSpan};
+    }
+
+    /**
+     * 两个坐标点之间的球面距离（公里）
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * 单次查询的状态：包围盒 + 大顶堆
+     */
+    private final class Query {
+        final double lat;
+        final double lon;
+        final double radius;
+        final int limit;
+        final Predicate<HospitalInfo> filter;
+        final double minLat;
+        final double maxLat;
+        final double lonSpan;
+        final PriorityQueue<Neighbor> heap;
+
+        Query(double lat, double lon, double radius, int limit, Predicate<HospitalInfo> filter) {
+            this.lat = lat;
+            this.lon = lon;
+            this.radius = radius;
+            this.limit = limit;
+            this.filter = filter;
+            double latSpan = radius / KM_PER_DEGREE_LAT;
+            this.minLat = lat - latSpan;
+            this.maxLat = lat + latSpan;
+            this.lonSpan = Double.isInfinite(radius) ? Double.POSITIVE_INFINITY : lonSpan(lat, radius);
+            this.heap = new PriorityQueue<>(Math.min(limit, 64),
+                    Comparator.comparingDouble(Neighbor::getDistanceKm).reversed());
+        }
+
+        /**
+         * 当前剪枝阈值：堆未满时为半径，堆满时为第 K 名的距离
+         */
+        double bound() {
+            return heap.size() < limit ? radius : Math.min(radius, heap.peek().getDistanceKm());
+        }
+
+        void visit(int i) {
+            if (lats[i] < minLat || lats[i] > maxLat || Math.abs(lons[i] - lon) > lonSpan) {
+                return;
+            }
+            double distance = distanceKm(lat, lon, lats[i], lons[i]);
+            if (distance > bound() || (filter != null && !filter.test(hospitals[i]))) {
+                return;
+            }
+            heap.offer(new Neighbor(hospitals[i], distance));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+    }
+
+    /**
+     * 查询结果：医院 + 距离
+     */
+    public static final class Neighbor {
+        private final HospitalInfo hospital;
+        private final double distanceKm;
+
+        Neighbor(HospitalInfo hospital, double distanceKm) {
+            this.hospital = hospital;
+            this.distanceKm = distanceKm;
+        }
+
+        public HospitalInfo getHospital() {
+            return hospital;
+        }
+
+        public double getDistanceKm() {
+            return distanceKm;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.elderly.assistant.catalog;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+
+import cn.hutool.core.util.StrUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 医院目录内存缓存
+ * 启动时全量加载 HOSPITAL_INFO 构建不可变快照，医院数据变化时整体替换快照，
+ * 所有医院读接口直接从快照读取，不占用数据库连接。
+ * 每次读库前分配一个单调递增的戳，替换快照时比较戳：
+ * 读得比当前快照更早的数据（全量刷新期间慢了一步的单医院刷新等）不会覆盖更新的数据
+ */
+@Slf4j
+@Component
+public class HospitalCatalog {
+
+    private final HospitalInfoMapper hospitalInfoMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<HospitalSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong stampSeq = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Timer refreshTimer;
+
+    public HospitalCatalog(HospitalInfoMapper hospitalInfoMapper, ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry) {
+        this.hospitalInfoMapper = hospitalInfoMapper;
+        this.eventPublisher = eventPublisher;
+        this.hitCounter = meterRegistry.counter("hospital.catalog.lookup", "result", "hit");
+        this.missCounter = meterRegistry.counter("hospital.catalog.lookup", "result", "miss");
+        this.refreshTimer = meterRegistry.timer("hospital.catalog.refresh");
+        Gauge.builder("hospital.catalog.size", snapshot, ref -> ref.get() == null ? 0 : ref.get().size())
+                .register(meterRegistry);
+        Gauge.builder("hospital.catalog.version", snapshot, ref -> ref.get() == null ? 0 : ref.get().getVersion())
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动时构建快照（失败不阻塞启动，首次访问时会重试）
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("医院目录初始化失败，将在首次访问时重试", e);
+        }
+    }
+
+    /**
+     * 定时全量刷新，兜底捕获直接改库等外部变更
+     */
+    @Scheduled(initialDelayString = "${hospital.catalog.refresh-interval-ms:300000}",
+               fixedDelayString = "${hospital.catalog.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("定时刷新医院目录失败，继续使用旧版本", e);
+        }
+    }
+
+    /**
+     * 全量重建快照并原子替换
+     * 读库之后才完成的单医院刷新会在新快照上重新应用，不会被全量数据覆盖
+     */
+    public HospitalSnapshot refresh() {
+        long start = System.nanoTime();
+        long stamp = stampSeq.incrementAndGet();
+        List<HospitalInfo> hospitals = hospitalInfoMapper.selectList(null);
+        HospitalSnapshot built = null;
+        while (true) {
+            HospitalSnapshot current = snapshot.get();
+            if (current != null && current.getBaseStamp() > stamp) {
+                log.info("已有更新的全量快照，放弃本次刷新，当前版本: {}", current.getVersion());
+                return current;
+            }
+            long version = current == null ? 1 : current.getVersion() + 1;
+            built = HospitalSnapshot.build(version, stamp, hospitals);
+            if (current != null) {
+                for (Map.Entry<String, Long> patch : current.getPatchStamps().entrySet()) {
+                    if (patch.getValue() > stamp) {
+                        built = built.withHospital(version, patch.getKey(), current.get(patch.getKey()), patch.getValue());
+                    }
+                }
+            }
+            if (snapshot.compareAndSet(current, built)) {
+                break;
+            }
+        }
+        eventPublisher.publishEvent(new HospitalCatalogChangedEvent(built, null));
+        long elapsed = System.nanoTime() - start;
+        refreshTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("医院目录刷新完成，版本: {}, 医院数: {}, 耗时: {}ms",
+                built.getVersion(), built.size(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return built;
+    }
+
+    /**
+     * 单家医院变化后刷新快照（写时复制，只替换该医院）
+     */
+    public void refreshHospital(String hospitalId) {
+        if (StrUtil.isBlank(hospitalId)) {
+            return;
+        }
+        long start = System.nanoTime();
+        long stamp = stampSeq.incrementAndGet();
+        replace(hospitalId, hospitalInfoMapper.selectById(hospitalId), stamp);
+        refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 替换一家医院；stamp 早于当前快照中该医院的数据时放弃
+     */
+    private void replace(String hospitalId, HospitalInfo latest, long stamp) {
+        while (true) {
+            HospitalSnapshot current = snapshot.get();
+            if (current == null) {
+                return;
+            }
+            Long patched = current.getPatchStamps().get(hospitalId);
+            if (stamp <= current.getBaseStamp() || (patched != null && stamp < patched)) {
+                log.debug("医院 {} 的数据早于当前快照，跳过替换", hospitalId);
+                return;
+            }
+            HospitalSnapshot updated = current.withHospital(current.getVersion() + 1, hospitalId, latest, stamp);
+            if (snapshot.compareAndSet(current, updated)) {
+                eventPublisher.publishEvent(new HospitalCatalogChangedEvent(updated, hospitalId));
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在当前事务提交后刷新单家医院；没有事务时立即刷新
+     */
+    public void refreshHospitalAfterCommit(String hospitalId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshHospital(hospitalId);
+                }
+            });
+        } else {
+            refreshHospital(hospitalId);
+        }
+    }
+
+    /**
+     * 获取当前快照（列表类查询使用）
+     */
+    public HospitalSnapshot snapshot() {
+        HospitalSnapshot current = current();
+        hitCounter.increment();
+        return current;
+    }
+
+    /**
+     * 获取当前快照，尚未加载成功时同步加载一次
+     */
+    private HospitalSnapshot current() {
+        HospitalSnapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot.get();
+            return current != null ? current : refresh();
+        }
+    }
+
+    /**
+     * 按ID获取医院，快照中不存在时回源数据库
+     */
+    public HospitalInfo get(String hospitalId) {
+        if (StrUtil.isBlank(hospitalId)) {
+            return null;
+        }
+        HospitalInfo hospital = current().get(hospitalId);
+        if (hospital != null) {
+            hitCounter.increment();
+            return hospital;
+        }
+
+        missCounter.increment();
+        long stamp = stampSeq.incrementAndGet();
+        hospital = hospitalInfoMapper.selectById(hospitalId);
+        if (hospital != null) {
+            // 快照之后新增的医院，补进快照
+            log.info("医院 {} 不在目录快照中，已从数据库加载", hospitalId);
+            replace(hospitalId, hospital, stamp);
+        }
+        return hospital;
+    }
+
+    /**
+     * 批量按ID获取医院，快照中没有的一次性回源数据库
+     */
+    public Map<String, HospitalInfo> getAll(Collection<String> hospitalIds) {
+        Map<String, HospitalInfo> result = new HashMap<>(hospitalIds.size() * 2);
+        HospitalSnapshot current = current();
+        Set<String> missing = new HashSet<>();
+        for (String hospitalId : hospitalIds) {
+            if (StrUtil.isBlank(hospitalId) || result.containsKey(hospitalId)) {
+                continue;
+            }
+            HospitalInfo hospital = current.get(hospitalId);
+            if (hospital != null) {
+                result.put(hospitalId, hospital);
+            } else {
+                missing.add(hospitalId);
+            }
+        }
+        hitCounter.increment(result.size());
+
+        if (!missing.isEmpty()) {
+            missCounter.increment(missing.size());
+            long stamp = stampSeq.incrementAndGet();
+            for (HospitalInfo hospital : hospitalInfoMapper.selectBatchIds(missing)) {
+                log.info("医院 {} 不在目录快照中，已从数据库加载", hospital.getHospitalId());
+                replace(hospital.getHospitalId(), hospital, stamp);
+                result.put(hospital.getHospitalId(), hospital);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,28 @@
+package com.elderly.assistant.catalog;
+
+/**
+ * 医院目录快照已替换事件
+ * hospitalId 为空表示全量刷新，否则只有该医院发生了变化
+ */
+public class HospitalCatalogChangedEvent {
+
+    private final HospitalSnapshot snapshot;
+    private final String hospitalId;
+
+    public HospitalCatalogChangedEvent(HospitalSnapshot snapshot, String hospitalId) {
+        this.snapshot = snapshot;
+        this.hospitalId = hospitalId;
+    }
+
+    public HospitalSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public String getHospitalId() {
+        return hospitalId;
+    }
+
+    public boolean isFullRefresh() {
+        return hospitalId == null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.elderly.assistant.catalog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.elderly.assistant.entity.HospitalInfo;
+
+import cn.hutool.core.util.StrUtil;
+
+/**
+ * 医院列表字段投影（fields=hospitalId,hospitalName,...）
+ * 只允许白名单内的字段，字段名同时接受驼峰和下划线两种写法
+ */
+public final class HospitalFields {
+
+    private static final Map<String, Function<HospitalInfo, Object>> GETTERS;
+
+    static {
+        Map<String, Function<HospitalInfo, Object>> getters = new LinkedHashMap<>();
+        getters.put("hospitalId", HospitalInfo::getHospitalId);
+        getters.put("hospitalName", HospitalInfo::getHospitalName);
+        getters.put("hospitalLevel", HospitalInfo::getHospitalLevel);
+        getters.put("hospitalType", HospitalInfo::getHospitalType);
+        getters.put("address", HospitalInfo::getAddress);
+        getters.put("phone", HospitalInfo::getPhone);
+        getters.put("emergencyPhone", HospitalInfo::getEmergencyPhone);
+        getters.put("longitude", HospitalInfo::getLongitude);
+        getters.put("latitude", HospitalInfo::getLatitude);
+        getters.put("departments", HospitalInfo::getDepartments);
+        getters.put("dailyQuota", HospitalInfo::getDailyQuota);
+        getters.put("availableQuota", HospitalInfo::getAvailableQuota);
+        getters.put("openingHours", HospitalInfo::getOpeningHours);
+        getters.put("status", HospitalInfo::getStatus);
+        GETTERS = Collections.unmodifiableMap(getters);
+    }
+
+    private HospitalFields() {
+    }
+
+    /**
+     * 解析字段列表，参数可以是逗号分隔的字符串或字符串数组；未指定时返回 null（返回全部字段）
+     */
+    public static List<String> parse(Object fields) {
+        Collection<?> parts;
+        if (fields instanceof Collection) {
+            parts = (Collection<?>) fields;
+        } else if (fields != null && StrUtil.isNotBlank(fields.toString())) {
+            parts = StrUtil.split(fields.toString(), ',');
+        } else {
+            return null;
+        }
+
+        List<String> result = new ArrayList<>();
+        for (Object part : parts) {
+            if (part == null || StrUtil.isBlank(part.toString())) {
+                continue;
+            }
+            String name = StrUtil.toCamelCase(part.toString().trim());
+            if (!GETTERS.containsKey(name)) {
+                throw new IllegalArgumentException("不支持的字段: " + part);
+            }
+            if (!result.contains(name)) {
+                result.add(name);
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+    /**
+     * 按字段列表输出医院信息，fields 为 null 时原样返回实体
+     */
+    public static Object project(HospitalInfo hospital, List<String> fields) {
+        if (fields == null) {
+            return hospital;
+        }
+        Map<String, Object> view = new LinkedHashMap<>(fields.size() * 2);
+        for (String field : fields) {
+            view.put(field, GETTERS.get(field).apply(hospital));
+        }
+        return view;
+    }
+}
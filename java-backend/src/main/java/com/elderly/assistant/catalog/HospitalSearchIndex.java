@@ -0,0 +1,298 @@
+package com.elderly.assistant.catalog;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.elderly.assistant.entity.HospitalInfo;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.extra.pinyin.PinyinUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 医院全文检索倒排索引
+ * 对医院名称、地址、科室按汉字单字+二元组（bigram）切词建倒排表，
+ * 医院名称额外索引拼音首字母（如 "市立医院" -> "slyy"），方便老人用拼音输入。
+ * 快照变化时只重建内容有变化的医院文档，不做全量重建
+ */
+@Slf4j
+@Component
+public class HospitalSearchIndex {
+
+    private static final int WEIGHT_NAME = 4;
+    private static final int WEIGHT_DEPARTMENT = 2;
+    private static final int WEIGHT_ADDRESS = 1;
+    private static final int WEIGHT_PINYIN = 4;
+    private static final int BONUS_NAME_PHRASE = 8;
+
+    // 拼音词项前缀，避免与英文名称的词项混在一起
+    private static final String PINYIN_PREFIX = "#";
+
+    private final HospitalCatalog hospitalCatalog;
+
+    // 词项 -> (医院ID -> 权重)
+    private final Map<String, Map<String, Integer>> postings = new ConcurrentHashMap<>();
+    // 医院ID -> 已索引文档
+    private final Map<String, Document> documents = new ConcurrentHashMap<>();
+
+    public HospitalSearchIndex(HospitalCatalog hospitalCatalog) {
+        this.hospitalCatalog = hospitalCatalog;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            sync(hospitalCatalog.snapshot(), null);
+        } catch (Exception e) {
+            log.error("医院搜索索引初始化失败，将在目录刷新后重建", e);
+        }
+    }
+
+    /**
+     * 目录快照替换后增量同步
+     */
+    @EventListener
+    public void onCatalogChanged(HospitalCatalogChangedEvent event) {
+        sync(event.getSnapshot(), event.getHospitalId());
+    }
+
+    /**
+     * 同步索引：hospitalId 非空时只处理该医院，否则比较全部医院的内容指纹
+     */
+    public synchronized void sync(HospitalSnapshot snapshot, String hospitalId) {
+        long start = System.nanoTime();
+        int changed = 0;
+        if (hospitalId != null) {
+            changed += upsert(hospitalId, snapshot.get(hospitalId));
+        } else {
+            Set<String> stale = new HashSet<>(documents.keySet());
+            for (HospitalInfo hospital : snapshot.getAll()) {
+                stale.remove(hospital.getHospitalId());
+                changed += upsert(hospital.getHospitalId(), hospital);
+            }
+            for (String id : stale) {
+                changed += upsert(id, null);
+            }
+        }
+        if (changed > 0) {
+            log.info("医院搜索索引已更新 {} 个文档，词项数: {}，耗时: {}μs",
+                    changed, postings.size(), (System.nanoTime() - start) / 1000);
+        }
+    }
+
+    /**
+     * 新增/更新/删除一个文档，内容未变化时不做任何事
+     *
+     * @return 实际变化的文档数（0 或 1）
+     */
+    private int upsert(String hospitalId, HospitalInfo hospital) {
+        Document old = documents.get(hospitalId);
+        if (hospital == null) {
+            if (old == null) {
+                return 0;
+            }
+            removeTerms(old);
+            documents.remove(hospitalId);
+            return 1;
+        }
+
+        String fingerprint = fingerprint(hospital);
+        if (old != null && old.fingerprint.equals(fingerprint)) {
+            return 0;
+        }
+        if (old != null) {
+            removeTerms(old);
+        }
+        Document doc = new Document(hospitalId, fingerprint, hospital);
+        doc.terms.forEach((term, weight) -> postings
+                .computeIfAbsent(term, key -> new ConcurrentHashMap<>())
+                .put(hospitalId, weight));
+        documents.put(hospitalId, doc);
+        return 1;
+    }
+
+    private void removeTerms(Document doc) {
+        for (String term : doc.terms.keySet()) {
+            Map<String, Integer> ids = postings.get(term);
+            if (ids != null) {
+                ids.remove(doc.hospitalId);
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * 检索，结果按相关度降序（未过滤医院状态，由调用方过滤）
+     */
+    public List<Hit> search(String keyword) {
+        String query = normalize(keyword);
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, Integer> scores = match(grams(query, ""));
+        // 纯字母输入同时按拼音首字母匹配
+        if (query.chars().allMatch(c -> c >= 'a' && c <= 'z')) {
+            match(grams(query, PINYIN_PREFIX)).forEach((id, score) -> scores.merge(id, score, Math::max));
+        }
+
+        List<Hit> hits = new ArrayList<>(scores.size());
+        scores.forEach((id, score) -> {
+            Document doc = documents.get(id);
+            if (doc != null) {
+                int bonus = doc.normalizedName.contains(query) || doc.initials.startsWith(query)
+                        ? BONUS_NAME_PHRASE : 0;
+                hits.add(new Hit(id, score + bonus));
+            }
+        });
+        hits.sort(Comparator.comparingInt(Hit::getScore).reversed());
+        return hits;
+    }
+
+    /**
+     * 所有查询词项都命中的文档（AND 语义），分数为各词项权重之和
+     */
+    private Map<String, Integer> match(Set<String> queryTerms) {
+        Map<String, Integer> scores = new HashMap<>();
+        List<Map<String, Integer>> lists = new ArrayList<>(queryTerms.size());
+        for (String term : queryTerms) {
+            Map<String, Integer> ids = postings.get(term);
+            if (ids == null) {
+                return scores;
+            }
+            lists.add(ids);
+        }
+        if (lists.isEmpty()) {
+            return scores;
+        }
+        // 从最短的倒排表开始求交集
+        lists.sort(Comparator.comparingInt(Map::size));
+        outer:
+        for (Map.Entry<String, Integer> entry : lists.get(0).entrySet()) {
+            int score = entry.getValue();
+            for (int i = 1; i < lists.size(); i++) {
+                Integer weight = lists.get(i).get(entry.getKey());
+                if (weight == null) {
+                    continue outer;
+                }
+                score += weight;
+            }
+            scores.put(entry.getKey(), score);
+        }
+        return scores;
+    }
+
+    /**
+     * 全角转半角、转小写、去掉空白和标点
+     */
+    static String normalize(String text) {
+        if (StrUtil.isBlank(text)) {
+            return "";
+        }
+        String dbc = Convert.toDBC(text).toLowerCase();
+        StringBuilder sb = new StringBuilder(dbc.length());
+        for (int i = 0; i < dbc.length(); i++) {
+            char c = dbc.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 查询切词：单字查询用单字，否则用二元组
+     */
+    private static Set<String> grams(String text, String prefix) {
+        Set<String> terms = new HashSet<>();
+        if (text.length() == 1) {
+            terms.add(prefix + text);
+            return terms;
+        }
+        for (int i = 0; i + 1 < text.length(); i++) {
+            terms.add(prefix + text.substring(i, i + 2));
+        }
+        return terms;
+    }
+
+    /**
+     * 文档切词：单字 + 二元组都入索引
+     */
+    private static void index(String text, String prefix, int weight, Map<String, Integer> terms) {
+        for (int i = 0; i < text.length(); i++) {
+            terms.merge(prefix + text.charAt(i), weight, Math::max);
+            if (i + 1 < text.length()) {
+                terms.merge(prefix + text.substring(i, i + 2), weight, Math::max);
+            }
+        }
+    }
+
+    private static String fingerprint(HospitalInfo hospital) {
+        return String.join("\u0001",
+                Objects.toString(hospital.getHospitalName(), ""),
+                Objects.toString(hospital.getAddress(), ""),
+                Objects.toString(hospital.getDepartments(), ""));
+    }
+
+    /**
+     * 已索引的医院文档
+     */
+    private static final class Document {
+        final String hospitalId;
+        final String fingerprint;
+        final String normalizedName;
+        final String initials;
+        final Map<String, Integer> terms = new HashMap<>();
+
+        Document(String hospitalId, String fingerprint, HospitalInfo hospital) {
+            this.hospitalId = hospitalId;
+            this.fingerprint = fingerprint;
+            this.normalizedName = normalize(hospital.getHospitalName());
+            this.initials = normalize(StrUtil.isBlank(hospital.getHospitalName())
+                    ? "" : PinyinUtil.getFirstLetter(hospital.getHospitalName(), ""));
+
+            index(normalizedName, "", WEIGHT_NAME, terms);
+            index(initials, PINYIN_PREFIX, WEIGHT_PINYIN, terms);
+            index(normalize(hospital.getAddress()), "", WEIGHT_ADDRESS, terms);
+            for (String department : DepartmentIndex.parseDepartments(hospital.getDepartments())) {
+                index(normalize(department), "", WEIGHT_DEPARTMENT, terms);
+            }
+        }
+    }
+
+    /**
+     * 检索命中：医院ID + 相关度
+     */
+    public static final class Hit {
+        private final String hospitalId;
+        private final int score;
+
+        Hit(String hospitalId, int score) {
+            this.hospitalId = hospitalId;
+            this.score = score;
+        }
+
+        public String getHospitalId() {
+            return hospitalId;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+}
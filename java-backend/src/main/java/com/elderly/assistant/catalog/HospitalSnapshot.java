@@ -0,0 +1,216 @@
+package com.elderly.assistant.catalog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.elderly.assistant.entity.HospitalInfo;
+
+/**
+ * 医院目录快照（不可变）
+ * 每次刷新都会构建一个新的快照并整体替换，读请求始终看到一个完整一致的版本；
+ * 单家医院变化时只替换该医院的条目，排序和索引字段没变就不重建排序列表、科室索引和 KD 树
+ * 注意：快照中的 HospitalInfo 为共享对象，调用方只读，不得修改
+ */
+public final class HospitalSnapshot {
+
+    /**
+     * 列表默认排序：医院等级降序，等级相同按医院ID升序（保证顺序稳定）
+     */
+    public static final Comparator<HospitalInfo> LEVEL_ORDER = Comparator
+            .comparing(HospitalInfo::getHospitalLevel, Comparator.nullsLast(Comparator.<String>reverseOrder()))
+            .thenComparing(HospitalInfo::getHospitalId);
+
+    /**
+     * 按医院名称排序
+     */
+    public static final Comparator<HospitalInfo> NAME_ORDER = Comparator
+            .comparing(HospitalInfo::getHospitalName, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+            .thenComparing(HospitalInfo::getHospitalId);
+
+    private final long version;
+    private final long buildTime;
+    /**
+     * 构建本快照的全量数据读取时的戳（HospitalCatalog 分配，单调递增）
+     */
+    private final long baseStamp;
+    /**
+     * 全量构建之后单独替换过的医院及其数据读取时的戳
+     */
+    private final Map<String, Long> patchStamps;
+    private final Map<String, HospitalInfo> byId;
+    private final List<HospitalInfo> enabledByLevel;
+    private final List<HospitalInfo> enabledByName;
+    private final DepartmentIndex departmentIndex;
+    private final GeoIndex geoIndex;
+
+    private HospitalSnapshot(long version, long baseStamp, Map<String, Long> patchStamps, List<HospitalInfo> hospitals) {
+        this.version = version;
+        this.buildTime = System.currentTimeMillis();
+        this.baseStamp = baseStamp;
+        this.patchStamps = patchStamps;
+
+        Map<String, HospitalInfo> idMap = new HashMap<>(hospitals.size() * 2);
+        List<HospitalInfo> enabled = new ArrayList<>(hospitals.size());
+        for (HospitalInfo hospital : hospitals) {
+            if (hospital == null || hospital.getHospitalId() == null) {
+                continue;
+            }
+            idMap.put(hospital.getHospitalId(), hospital);
+            if (isEnabled(hospital)) {
+                enabled.add(hospital);
+            }
+        }
+        this.byId = Collections.unmodifiableMap(idMap);
+
+        enabled.sort(LEVEL_ORDER);
+        this.enabledByLevel = Collections.unmodifiableList(new ArrayList<>(enabled));
+
+        enabled.sort(NAME_ORDER);
+        this.enabledByName = Collections.unmodifiableList(new ArrayList<>(enabled));
+
+        this.departmentIndex = DepartmentIndex.build(idMap.values(), enabledByLevel);
+        this.geoIndex = GeoIndex.build(enabledByLevel);
+    }
+
+    private HospitalSnapshot(HospitalSnapshot base, long version, Map<String, Long> patchStamps,
+                             Map<String, HospitalInfo> byId, List<HospitalInfo> enabledByLevel,
+                             List<HospitalInfo> enabledByName, DepartmentIndex departmentIndex, GeoIndex geoIndex) {
+        this.version = version;
+        this.buildTime = System.currentTimeMillis();
+        this.baseStamp = base.baseStamp;
+        this.patchStamps = patchStamps;
+        this.byId = byId;
+        this.enabledByLevel = enabledByLevel;
+        this.enabledByName = enabledByName;
+        this.departmentIndex = departmentIndex;
+        this.geoIndex = geoIndex;
+    }
+
+    /**
+     * 根据全量医院数据构建快照
+     */
+    public static HospitalSnapshot build(long version, List<HospitalInfo> hospitals) {
+        return build(version, 0, hospitals);
+    }
+
+    /**
+     * 根据全量医院数据构建快照
+     *
+     * @param baseStamp 读取 hospitals 之前分配的戳
+     */
+    public static HospitalSnapshot build(long version, long baseStamp, List<HospitalInfo> hospitals) {
+        return new HospitalSnapshot(version, baseStamp, Collections.emptyMap(), hospitals);
+    }
+
+    /**
+     * 在当前快照基础上替换（或删除）一家医院，生成新版本
+     * 只有排序和索引用到的字段（状态、等级、名称、科室、坐标）变化时才重建，
+     * 其它字段（号源、电话等）变化只替换各列表和索引中的这一个对象
+     *
+     * @param hospital 新的医院数据，为 null 表示删除
+     * @param stamp    读取 hospital 之前分配的戳
+     */
+    public HospitalSnapshot withHospital(long newVersion, String hospitalId, HospitalInfo hospital, long stamp) {
+        Map<String, Long> stamps = new HashMap<>(patchStamps);
+        stamps.put(hospitalId, stamp);
+        stamps = Collections.unmodifiableMap(stamps);
+
+        Map<String, HospitalInfo> copy = new HashMap<>(byId);
+        HospitalInfo old = hospital == null ? copy.remove(hospitalId) : copy.put(hospitalId, hospital);
+        if (!sameIndexFields(old, hospital)) {
+            return new HospitalSnapshot(newVersion, baseStamp, stamps, new ArrayList<>(copy.values()));
+        }
+        return new HospitalSnapshot(this, newVersion, stamps, Collections.unmodifiableMap(copy),
+                replaced(enabledByLevel, old, hospital), replaced(enabledByName, old, hospital),
+                departmentIndex.withHospital(old, hospital), geoIndex.withHospital(old, hospital));
+    }
+
+    /**
+     * 两个版本的医院在排序和索引上是否等价（都存在且相关字段相同）
+     */
+    private static boolean sameIndexFields(HospitalInfo old, HospitalInfo latest) {
+        return old != null && latest != null
+                && isEnabled(old) == isEnabled(latest)
+                && Objects.equals(old.getHospitalLevel(), latest.getHospitalLevel())
+                && Objects.equals(old.getHospitalName(), latest.getHospitalName())
+                && Objects.equals(old.getDepartments(), latest.getDepartments())
+                && Objects.equals(old.getLatitude(), latest.getLatitude())
+                && Objects.equals(old.getLongitude(), latest.getLongitude());
+    }
+
+    /**
+     * 复制列表并把 old 替换为 latest（位置不变，不重新排序）
+     */
+    static List<HospitalInfo> replaced(List<HospitalInfo> list, HospitalInfo old, HospitalInfo latest) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == old) {
+                List<HospitalInfo> copy = new ArrayList<>(list);
+                copy.set(i, latest);
+                return Collections.unmodifiableList(copy);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 医院是否处于可服务状态
+     * 历史数据中同时存在 enabled 和 正常 两种写法，这里统一兼容
+     */
+    public static boolean isEnabled(HospitalInfo hospital) {
+        return hospital != null
+                && ("enabled".equals(hospital.getStatus()) || "正常".equals(hospital.getStatus()));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    public long getBaseStamp() {
+        return baseStamp;
+    }
+
+    /**
+     * 全量构建之后单独替换过的医院（医院ID -> 读取时的戳）
+     */
+    public Map<String, Long> getPatchStamps() {
+        return patchStamps;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public HospitalInfo get(String hospitalId) {
+        return byId.get(hospitalId);
+    }
+
+    public Collection<HospitalInfo> getAll() {
+        return byId.values();
+    }
+
+    public List<HospitalInfo> getEnabledByLevel() {
+        return enabledByLevel;
+    }
+
+    public List<HospitalInfo> getEnabledByName() {
+        return enabledByName;
+    }
+
+    public DepartmentIndex getDepartmentIndex() {
+        return departmentIndex;
+    }
+
+    public GeoIndex getGeoIndex() {
+        return geoIndex;
+    }
+}
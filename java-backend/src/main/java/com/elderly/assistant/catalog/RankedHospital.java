@@ -0,0 +1,94 @@
+package com.elderly.assistant.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+
+import com.elderly.assistant.entity.HospitalInfo;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+/**
+ * 带相关度的医院，列表排序与游标分页的单元
+ * 游标只记录排序键（相关度、等级、剩余号源、医院ID），解码后得到一个只含排序键的"探针"，
+ * 在排好序的列表中二分定位到它之后即为下一页
+ */
+public final class RankedHospital {
+
+    /**
+     * 按相关度降序，相同再按等级
+     */
+    public static final Comparator<RankedHospital> RELEVANCE_ORDER = Comparator
+            .comparingInt(RankedHospital::getScore).reversed()
+            .thenComparing(RankedHospital::getHospital, HospitalSnapshot.LEVEL_ORDER);
+
+    private final HospitalInfo hospital;
+    private final int score;
+
+    public RankedHospital(HospitalInfo hospital, int score) {
+        this.hospital = hospital;
+        this.score = score;
+    }
+
+    /**
+     * 按医院字段排序（医院ID兜底，保证顺序稳定）
+     */
+    public static Comparator<RankedHospital> by(Comparator<HospitalInfo> order) {
+        return Comparator.comparing(RankedHospital::getHospital, order);
+    }
+
+    /**
+     * 按剩余号源排序（医院ID兜底）
+     */
+    public static Comparator<HospitalInfo> quotaOrder(boolean asc) {
+        Comparator<HospitalInfo> byQuota = Comparator.comparing(HospitalInfo::getAvailableQuota,
+                Comparator.nullsFirst(Comparator.<Integer>naturalOrder()));
+        return (asc ? byQuota : byQuota.reversed()).thenComparing(HospitalInfo::getHospitalId);
+    }
+
+    /**
+     * 生成指向本条之后的游标
+     */
+    public String toCursor() {
+        JSONObject key = JSONUtil.createObj()
+                .set("i", hospital.getHospitalId())
+                .set("l", hospital.getHospitalLevel())
+                .set("q", hospital.getAvailableQuota())
+                .set("s", score);
+        return Base64.encodeUrlSafe(key.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解析游标，空游标返回 null（从第一页开始）
+     */
+    public static RankedHospital fromCursor(String cursor) {
+        if (StrUtil.isBlank(cursor)) {
+            return null;
+        }
+        try {
+            JSONObject key = JSONUtil.parseObj(Base64.decodeStr(cursor.trim(), StandardCharsets.UTF_8));
+            if (StrUtil.isBlank(key.getStr("i"))) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            HospitalInfo probe = new HospitalInfo();
+            probe.setHospitalId(key.getStr("i"));
+            probe.setHospitalLevel(key.getStr("l"));
+            probe.setAvailableQuota(key.getInt("q"));
+            return new RankedHospital(probe, key.getInt("s", 0));
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    public HospitalInfo getHospital() {
+        return hospital;
+    }
+
+    public int getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,344 @@
+package com.elderly.assistant.common;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 第三方接口访问令牌管理（百度语音、微信等）
+ * - 令牌保存在本机内存和 Redis（token:{name}），所有节点共用一份，不再每次调用都去换令牌
+ * - 令牌用掉 refresh-ahead-ratio 的有效期后提前在后台刷新，调用方继续用旧令牌，不用等待
+ * - 同一个令牌本机只有一个线程在刷新（single-flight），多节点之间用 Redis 锁，
+ *   没抢到锁的节点等待持锁节点写回 Redis
+ * Redis 不可用时退化为本机缓存
+ */
+@Slf4j
+@Component
+public class AccessTokenManager {
+
+    private static final String KEY_PREFIX = "token:";
+    private static final String LOCK_SUFFIX = ":lock";
+    private static final Duration LOCK_TTL = Duration.ofSeconds(15);
+    private static final long LOCK_WAIT_MS = 3000;
+    private static final long LOCK_POLL_MS = 100;
+    // 后台刷新失败后，间隔多久再试
+    private static final long RETRY_DELAY_MS = 60 * 1000L;
+
+    /**
+     * 锁的值与自己一致时才删除
+     */
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CachedToken> local = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<CachedToken>> inflight = new ConcurrentHashMap<>();
+    private ExecutorService refresher;
+
+    /**
+     * 令牌用掉多少比例的有效期后开始提前刷新
+     */
+    @Value("${api.token.refresh-ahead-ratio:0.8}")
+    private double refreshAheadRatio;
+
+    public AccessTokenManager(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        refresher = Executors.newFixedThreadPool(2,
+                ThreadFactoryBuilder.create().setNamePrefix("token-refresh-").build());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * 获取令牌
+     *
+     * @param name   令牌名称（如 baidu:voice），同名令牌共用
+     * @param issuer 换取新令牌的调用，失败时返回 null 或抛异常
+     * @return 令牌，换取失败时返回 null
+     */
+    public String getToken(String name, Supplier<IssuedToken> issuer) {
+        long now = System.currentTimeMillis();
+        CachedToken cached = local.get(name);
+        if (cached == null || cached.isExpired(now)) {
+            cached = loadShared(name);
+            // 放入本机缓存：之后不再每次读 Redis，提前刷新失败时的退避也记在这一份上
+            if (cached != null && !cached.isExpired(now)) {
+                local.put(name, cached);
+            }
+        }
+        if (cached != null && !cached.isExpired(now)) {
+            if (cached.shouldRefresh(now)) {
+                refreshAhead(name, issuer);
+            }
+            return cached.token;
+        }
+
+        // 没有可用的令牌，只能等刷新完成
+        long start = System.nanoTime();
+        try {
+            return refresh(name, issuer).join().token;
+        } catch (Exception e) {
+            log.error("获取访问令牌失败: {}", name, e);
+            return null;
+        } finally {
+            meterRegistry.timer("api.token.wait", "name", name)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 接口返回令牌无效时调用，下次获取会重新换取
+     */
+    public void invalidate(String name, String token) {
+        if (StrUtil.isBlank(token)) {
+            return;
+        }
+        CachedToken cached = local.get(name);
+        if (cached != null && token.equals(cached.token)) {
+            local.remove(name, cached);
+        }
+        try {
+            CachedToken shared = loadShared(name);
+            if (shared != null && token.equals(shared.token)) {
+                redisTemplate.delete(KEY_PREFIX + name);
+            }
+        } catch (Exception e) {
+            log.warn("清除共享令牌失败: {}", name, e);
+        }
+        log.info("访问令牌已失效，下次调用重新获取: {}", name);
+    }
+
+    /**
+     * 后台提前刷新，失败时继续使用旧令牌，稍后再试
+     */
+    private void refreshAhead(String name, Supplier<IssuedToken> issuer) {
+        refresh(name, issuer).whenComplete((fresh, e) -> {
+            if (e == null) {
+                return;
+            }
+            log.warn("提前刷新访问令牌失败，继续使用旧令牌: {}", name, e);
+            local.computeIfPresent(name, (key, old) -> old.retryAt(System.currentTimeMillis() + RETRY_DELAY_MS));
+        });
+    }
+
+    /**
+     * 同名令牌同一时刻只有一个刷新任务
+     */
+    private CompletableFuture<CachedToken> refresh(String name, Supplier<IssuedToken> issuer) {
+        return inflight.computeIfAbsent(name, key -> {
+            CompletableFuture<CachedToken> future = new CompletableFuture<>();
+            refresher.execute(() -> {
+                try {
+                    future.complete(doRefresh(name, issuer));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inflight.remove(name, future);
+                }
+            });
+            return future;
+        });
+    }
+
+    private CachedToken doRefresh(String name, Supplier<IssuedToken> issuer) {
+        // 其它节点可能刚刚刷新过
+        CachedToken shared = loadShared(name);
+        if (shared != null && !shared.shouldRefresh(System.currentTimeMillis())) {
+            local.put(name, shared);
+            return shared;
+        }
+
+        String lockValue = IdUtil.fastSimpleUUID();
+        boolean locked = tryLock(name, lockValue);
+        if (!locked) {
+            CachedToken refreshed = awaitShared(name);
+            if (refreshed != null) {
+                local.put(name, refreshed);
+                return refreshed;
+            }
+            log.warn("等待其它节点刷新令牌超时，本节点直接刷新: {}", name);
+        }
+
+        try {
+            IssuedToken issued = issuer.get();
+            if (issued == null || StrUtil.isBlank(issued.getToken())) {
+                throw new IllegalStateException("换取访问令牌失败: " + name);
+            }
+            long now = System.currentTimeMillis();
+            long lifetime = Math.max(1, issued.getExpiresInSeconds()) * 1000L;
+            CachedToken fresh = new CachedToken(issued.getToken(), now + lifetime,
+                    now + (long) (lifetime * refreshAheadRatio));
+            local.put(name, fresh);
+            saveShared(name, fresh);
+            meterRegistry.counter("api.token.refresh", "name", name, "result", "success").increment();
+            log.info("访问令牌已刷新: {}，有效期 {} 秒", name, issued.getExpiresInSeconds());
+            return fresh;
+        } catch (RuntimeException e) {
+            meterRegistry.counter("api.token.refresh", "name", name, "result", "failure").increment();
+            throw e;
+        } finally {
+            if (locked) {
+                unlock(name, lockValue);
+            }
+        }
+    }
+
+    /**
+     * 等待持锁节点把新令牌写回 Redis
+     */
+    private CachedToken awaitShared(String name) {
+        long deadline = System.currentTimeMillis() + LOCK_WAIT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LOCK_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            CachedToken shared = loadShared(name);
+            if (shared != null && !shared.shouldRefresh(System.currentTimeMillis())) {
+                return shared;
+            }
+        }
+        return null;
+    }
+
+    private CachedToken loadShared(String name) {
+        try {
+            String value = redisTemplate.opsForValue().get(KEY_PREFIX + name);
+            if (value == null) {
+                return null;
+            }
+            JSONObject json = JSONUtil.parseObj(value);
+            CachedToken shared = new CachedToken(json.getStr("token"), json.getLong("expireAt", 0L),
+                    json.getLong("refreshAt", 0L));
+            return StrUtil.isBlank(shared.token) ? null : shared;
+        } catch (Exception e) {
+            log.warn("读取共享令牌失败，使用本机缓存: {}", name, e);
+            return null;
+        }
+    }
+
+    private void saveShared(String name, CachedToken token) {
+        long ttl = token.expireAt - System.currentTimeMillis();
+        if (ttl <= 0) {
+            return;
+        }
+        try {
+            JSONObject json = new JSONObject();
+            json.set("token", token.token);
+            json.set("expireAt", token.expireAt);
+            json.set("refreshAt", token.refreshAt);
+            redisTemplate.opsForValue().set(KEY_PREFIX + name, json.toString(), Duration.ofMillis(ttl));
+        } catch (Exception e) {
+            log.warn("保存共享令牌失败，仅本机可用: {}", name, e);
+        }
+    }
+
+    /**
+     * Redis 不可用时视为拿到锁，由本机刷新
+     */
+    private boolean tryLock(String name, String value) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(KEY_PREFIX + name + LOCK_SUFFIX, value, LOCK_TTL));
+        } catch (Exception e) {
+            log.warn("获取令牌刷新锁失败，本机直接刷新: {}", name, e);
+            return true;
+        }
+    }
+
+    private void unlock(String name, String value) {
+        try {
+            redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(KEY_PREFIX + name + LOCK_SUFFIX), value);
+        } catch (Exception e) {
+            log.warn("释放令牌刷新锁失败，将在过期后自动释放: {}", name, e);
+        }
+    }
+
+    /**
+     * 换取到的令牌：令牌 + 有效期（秒）
+     */
+    public static final class IssuedToken {
+        private final String token;
+        private final long expiresInSeconds;
+
+        private IssuedToken(String token, long expiresInSeconds) {
+            this.token = token;
+            this.expiresInSeconds = expiresInSeconds;
+        }
+
+        public static IssuedToken of(String token, long expiresInSeconds) {
+            return new IssuedToken(token, expiresInSeconds);
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public long getExpiresInSeconds() {
+            return expiresInSeconds;
+        }
+    }
+
+    /**
+     * 缓存中的令牌（不可变）
+     */
+    private static final class CachedToken {
+        final String token;
+        final long expireAt;
+        final long refreshAt;
+
+        CachedToken(String token, long expireAt, long refreshAt) {
+            this.token = token;
+            this.expireAt = expireAt;
+            this.refreshAt = refreshAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+
+        boolean shouldRefresh(long now) {
+            return now >= refreshAt;
+        }
+
+        CachedToken retryAt(long time) {
+            return new CachedToken(token, expireAt, Math.min(time, expireAt));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.elderly.assistant.common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ * 按稳定排序键翻页：客户端把上一页返回的 nextCursor 原样带回即可，
+ * 不使用 OFFSET，翻到多深都只需一次二分定位
+ */
+public class CursorPage<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 当前页数据
+     */
+    private List<T> items;
+
+    /**
+     * 下一页游标（没有下一页时为 null）
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private Boolean hasMore;
+
+    /**
+     * 在已按 comparator 排好序的列表中，取排在 after 之后的 limit 条
+     *
+     * @param sorted     已排序的全部数据
+     * @param after      上一页最后一条的排序键（首页为 null）
+     * @param comparator 排序规则，必须与 sorted 的顺序一致且能区分任意两条数据
+     * @param cursorOf   由一条数据生成游标
+     * @param mapper     数据转换为返回对象
+     */
+    public static <S, T> CursorPage<T> slice(List<S> sorted, S after, Comparator<? super S> comparator,
+                                             int limit, Function<S, String> cursorOf, Function<S, T> mapper) {
+        int from = 0;
+        if (after != null) {
+            // 二分查找第一个严格大于 after 的位置
+            int lo = 0;
+            int hi = sorted.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (comparator.compare(sorted.get(mid), after) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            from = lo;
+        }
+        int to = Math.min(sorted.size(), from + limit);
+
+        List<T> items = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            items.add(mapper.apply(sorted.get(i)));
+        }
+
+        CursorPage<T> page = new CursorPage<>();
+        page.setItems(items);
+        page.setHasMore(to < sorted.size());
+        page.setNextCursor(to < sorted.size() && to > from ? cursorOf.apply(sorted.get(to - 1)) : null);
+        return page;
+    }
+
+    public static <T> CursorPage<T> empty() {
+        CursorPage<T> page = new CursorPage<>();
+        page.setItems(Collections.emptyList());
+        page.setHasMore(false);
+        return page;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Boolean getHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(Boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
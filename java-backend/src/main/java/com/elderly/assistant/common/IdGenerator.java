@@ -0,0 +1,199 @@
+package com.elderly.assistant.common;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collections;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import cn.hutool.core.lang.Snowflake;
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 全局ID生成器（雪花算法）
+ * 同一毫秒内不会重复，且按时间递增，主键索引始终追加写入。
+ * 每个节点需要不同的节点号（0-1023）：优先使用配置的 id-generator.node-id，
+ * 未配置时在 Redis 中租用一个空闲节点号并定时续租，Redis 不可用时按本机 MAC/进程号推算。
+ * 租约到期前（留出余量）没能续上时暂停发号：续租或重新租用成功才继续，
+ * 原节点号已被其它节点占用时改租新的节点号，保证同一时刻不会有两个节点用同一个节点号发号
+ */
+@Slf4j
+@Component
+public class IdGenerator {
+
+    private static final int MAX_NODES = 1024;
+    private static final String LEASE_PREFIX = "id:node:";
+    private static final Duration LEASE_TTL = Duration.ofMinutes(10);
+    /**
+     * 本地认为租约有效的时长比 TTL 少一段余量，覆盖命令往返和时钟误差
+     */
+    private static final long LEASE_VALID_NANOS = LEASE_TTL.minus(Duration.ofMinutes(1)).toNanos();
+
+    /**
+     * 持有者一致时才续期
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('EXPIRE', KEYS[1], ARGV[2]) end return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${id-generator.node-id:-1}")
+    private int configuredNodeId;
+
+    private final String owner = NetUtil.getLocalHostName() + "/" + ManagementFactory.getRuntimeMXBean().getName();
+
+    private volatile Snowflake snowflake;
+    private volatile int leasedNodeId = -1;
+    /**
+     * 租约本地有效期（System.nanoTime），过期后续上租约前不再发号
+     */
+    private volatile long leaseDeadline;
+
+    public IdGenerator(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (configuredNodeId >= MAX_NODES) {
+            throw new IllegalStateException("id-generator.node-id 超出范围 0-" + (MAX_NODES - 1) + ": " + configuredNodeId);
+        }
+        long start = System.nanoTime();
+        int nodeId = configuredNodeId >= 0 ? configuredNodeId : leaseNodeId();
+        if (nodeId < 0) {
+            long dataCenterId = IdUtil.getDataCenterId(31);
+            long workerId = IdUtil.getWorkerId(dataCenterId, 31);
+            snowflake = new Snowflake(workerId, dataCenterId);
+            log.warn("未能分配ID节点号，按本机信息推算：dataCenterId={}, workerId={}", dataCenterId, workerId);
+            return;
+        }
+        snowflake = new Snowflake(nodeId & 31, nodeId >> 5);
+        leaseDeadline = start + LEASE_VALID_NANOS;
+        log.info("ID生成器节点号: {}", nodeId);
+    }
+
+    /**
+     * 生成带业务前缀的ID，如 ORDER_1734567890123456789
+     */
+    public String nextId(String prefix) {
+        return prefix + current().nextIdStr();
+    }
+
+    public long nextId() {
+        return current().nextId();
+    }
+
+    /**
+     * 当前可用的雪花生成器；租用的节点号已过本地有效期时先续租，续不上则拒绝发号
+     */
+    private Snowflake current() {
+        if (leasedNodeId >= 0 && System.nanoTime() - leaseDeadline > 0) {
+            ensureLease();
+        }
+        return snowflake;
+    }
+
+    private synchronized void ensureLease() {
+        if (System.nanoTime() - leaseDeadline <= 0) {
+            return;
+        }
+        if (!renewOrReplace()) {
+            throw new IllegalStateException("ID节点号租约已失效且无法重新租用，暂停发号");
+        }
+    }
+
+    /**
+     * 在 Redis 中租用一个空闲节点号，失败返回 -1；租约有效期由调用方在换上新的雪花生成器后设置
+     */
+    private int leaseNodeId() {
+        try {
+            for (int i = 0; i < MAX_NODES; i++) {
+                Boolean ok = redisTemplate.opsForValue().setIfAbsent(LEASE_PREFIX + i, owner, LEASE_TTL);
+                if (Boolean.TRUE.equals(ok)) {
+                    leasedNodeId = i;
+                    return i;
+                }
+            }
+            log.error("ID节点号已全部被占用");
+        } catch (Exception e) {
+            log.warn("Redis 不可用，无法租用ID节点号", e);
+        }
+        return -1;
+    }
+
+    /**
+     * 定时续租节点号
+     */
+    @Scheduled(fixedDelay = 180000, initialDelay = 180000)
+    public void renewLease() {
+        if (leasedNodeId < 0) {
+            return;
+        }
+        if (!renewOrReplace() && System.nanoTime() - leaseDeadline > 0) {
+            log.error("ID节点号租约已失效，恢复前暂停发号");
+        }
+    }
+
+    /**
+     * 续租当前节点号；租约已过期时重新占回，已被其它节点占用时改租新的节点号
+     *
+     * @return 租约是否有效
+     */
+    private synchronized boolean renewOrReplace() {
+        int nodeId = leasedNodeId;
+        long start = System.nanoTime();
+        try {
+            Long renewed = redisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(LEASE_PREFIX + nodeId),
+                    owner, String.valueOf(LEASE_TTL.getSeconds()));
+            if (renewed == null || renewed == 0) {
+                // 租约已过期（例如 Redis 长时间不可用），尝试重新占回同一节点号
+                Boolean ok = redisTemplate.opsForValue().setIfAbsent(LEASE_PREFIX + nodeId, owner, LEASE_TTL);
+                if (!Boolean.TRUE.equals(ok)) {
+                    // 已被其它节点占用：立即停止用这个节点号发号，改租新的
+                    leaseDeadline = start;
+                    int fresh = leaseNodeId();
+                    if (fresh < 0) {
+                        log.error("ID节点号 {} 已被其它节点占用，且没有空闲节点号", nodeId);
+                        return false;
+                    }
+                    // 先换生成器再恢复有效期，其它线程不会在新租约下用旧节点号发号
+                    snowflake = new Snowflake(fresh & 31, fresh >> 5);
+                    leaseDeadline = start + LEASE_VALID_NANOS;
+                    log.warn("ID节点号 {} 已被其它节点占用，改用节点号 {}", nodeId, fresh);
+                    return true;
+                }
+            }
+            leaseDeadline = start + LEASE_VALID_NANOS;
+            return true;
+        } catch (Exception e) {
+            log.warn("续租ID节点号失败，稍后重试", e);
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        int nodeId = leasedNodeId;
+        if (nodeId < 0) {
+            return;
+        }
+        try {
+            if (owner.equals(redisTemplate.opsForValue().get(LEASE_PREFIX + nodeId))) {
+                redisTemplate.delete(LEASE_PREFIX + nodeId);
+            }
+        } catch (Exception e) {
+            log.warn("释放ID节点号失败，将在租约过期后自动释放", e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.elderly.assistant.common;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 幂等接口标记
+ * 请求带 Idempotency-Key 头时，同一个 Key 只执行一次，重复请求直接返回第一次成功的响应；
+ * 不带该请求头时按普通请求处理
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Idempotent {
+
+    /**
+     * 成功响应保留时间（秒）
+     */
+    long ttlSeconds() default 86400;
+}
@@ -0,0 +1,193 @@
+package com.elderly.assistant.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * 出站 HTTP 调用（共用 HttpClientConfig 中的连接池）
+ * 响应体在方法内读完并归还连接，调用方拿到的是完整结果；
+ * 大响应（如合成音频）用带 StreamHandler 的重载边读边处理，不在内存中整体缓冲
+ */
+@Component
+public class OutboundHttpClient {
+
+    private final CloseableHttpClient httpClient;
+    private final RequestConfig defaultConfig;
+
+    public OutboundHttpClient(CloseableHttpClient outboundHttpClient, RequestConfig outboundRequestConfig) {
+        this.httpClient = outboundHttpClient;
+        this.defaultConfig = outboundRequestConfig;
+    }
+
+    public String get(String url) throws IOException {
+        return execute(new HttpGet(url), null).bodyAsString();
+    }
+
+    public String postJson(String url, String json) throws IOException {
+        return postJson(url, json, null).bodyAsString();
+    }
+
+    /**
+     * @param readTimeoutMs 本次请求的读超时，null 使用默认值
+     */
+    public Response postJson(String url, String json, Integer readTimeoutMs) throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        return execute(post, readTimeoutMs);
+    }
+
+    /**
+     * JSON POST，请求体由 writer 直接写到连接上（大请求体不在内存中拼成字符串）
+     *
+     * @param contentLength 请求体字节数，未知时传 -1（使用 chunked 编码）
+     */
+    public Response postJson(String url, BodyWriter writer, long contentLength,
+                             Integer readTimeoutMs) throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setEntity(streamingEntity(writer, contentLength, ContentType.APPLICATION_JSON));
+        return execute(post, readTimeoutMs);
+    }
+
+    public Response postForm(String url, Map<String, ?> params, Integer readTimeoutMs) throws IOException {
+        return execute(formPost(url, params), readTimeoutMs);
+    }
+
+    /**
+     * 表单 POST，响应体交给 handler 流式读取
+     */
+    public <T> T postForm(String url, Map<String, ?> params, Integer readTimeoutMs,
+                          StreamHandler<T> handler) throws IOException {
+        return execute(formPost(url, params), readTimeoutMs, handler);
+    }
+
+    public Response post(String url) throws IOException {
+        return execute(new HttpPost(url), null);
+    }
+
+    private static HttpPost formPost(String url, Map<String, ?> params) {
+        List<NameValuePair> pairs = new ArrayList<>(params.size());
+        params.forEach((key, value) -> pairs.add(new BasicNameValuePair(key, value == null ? null : value.toString())));
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new UrlEncodedFormEntity(pairs, StandardCharsets.UTF_8));
+        return post;
+    }
+
+    private Response execute(HttpRequestBase request, Integer readTimeoutMs) throws IOException {
+        return execute(request, readTimeoutMs, (status, contentType, body) ->
+                new Response(status, contentType, body == null ? new byte[0] : body.readAllBytes()));
+    }
+
+    private <T> T execute(HttpRequestBase request, Integer readTimeoutMs, StreamHandler<T> handler) throws IOException {
+        if (readTimeoutMs != null) {
+            // 在默认配置（连接超时、取连接超时）基础上只改读超时
+            request.setConfig(RequestConfig.copy(defaultConfig).setSocketTimeout(readTimeoutMs).build());
+        }
+        // handler 抛异常时响应体没读完，关闭响应会直接断开连接而不是归还到连接池
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            HttpEntity entity = response.getEntity();
+            Header contentType = entity == null ? null : entity.getContentType();
+            T result = handler.handle(response.getStatusLine().getStatusCode(),
+                    contentType == null ? null : contentType.getValue(),
+                    entity == null ? null : entity.getContent());
+            // 读完剩余响应体，连接归还到连接池
+            EntityUtils.consume(entity);
+            return result;
+        }
+    }
+
+    /**
+     * 流式请求体：发送时写出，可能被调用多次（重试），每次都要写出完整内容
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+
+        /**
+         * @param out 连接输出流，无需关闭
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 流式请求体：发送时由 writer 写出；getContent() 由 EntityTemplate 先写入内存再返回，
+     * 供重试、日志等需要读取请求体的场景使用。已知长度时发送 Content-Length，否则用 chunked
+     */
+    private static HttpEntity streamingEntity(BodyWriter writer, long length, ContentType contentType) {
+        EntityTemplate entity = new EntityTemplate(out -> {
+            writer.writeTo(out);
+            out.flush();
+        }) {
+            @Override
+            public long getContentLength() {
+                return length;
+            }
+        };
+        entity.setContentType(contentType.toString());
+        entity.setChunked(length < 0);
+        return entity;
+    }
+
+    /**
+     * 流式响应处理：在连接归还前读取响应体
+     */
+    @FunctionalInterface
+    public interface StreamHandler<T> {
+
+        /**
+         * @param body 响应体，没有响应体时为 null；无需关闭
+         */
+        T handle(int status, String contentType, InputStream body) throws IOException;
+    }
+
+    /**
+     * 完整响应：状态码 + Content-Type + 响应体
+     */
+    public static final class Response {
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+
+        Response(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String bodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.elderly.assistant.config;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.MicrometerHttpRequestExecutor;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+
+/**
+ * 出站 HTTP 连接池配置（百度语音、微信等第三方接口共用）
+ * 长连接复用，不再每次调用都重新建立 TCP/TLS 连接；
+ * 连接池使用情况和请求耗时通过 Micrometer 暴露（httpcomponents.httpclient.*）
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${http.client.max-total:100}")
+    private int maxTotal;
+
+    @Value("${http.client.max-per-route:20}")
+    private int maxPerRoute;
+
+    @Value("${http.client.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms:30000}")
+    private int readTimeoutMs;
+
+    @Value("${http.client.pool-acquire-timeout-ms:1000}")
+    private int poolAcquireTimeoutMs;
+
+    @Value("${http.client.keep-alive-ms:30000}")
+    private long keepAliveMs;
+
+    @Value("${http.client.idle-evict-ms:60000}")
+    private long idleEvictMs;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager outboundConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        manager.setMaxTotal(maxTotal);
+        manager.setDefaultMaxPerRoute(maxPerRoute);
+        // 空闲超过 2 秒的连接复用前先检查是否已被对端关闭
+        manager.setValidateAfterInactivity(2000);
+        new PoolingHttpClientConnectionManagerMetricsBinder(manager, "outbound").bindTo(meterRegistry);
+        return manager;
+    }
+
+    /**
+     * 默认超时：建立连接 / 读取响应 / 从连接池取连接 分开设置
+     */
+    @Bean
+    public RequestConfig outboundRequestConfig() {
+        return RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(poolAcquireTimeoutMs)
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient outboundHttpClient(PoolingHttpClientConnectionManager outboundConnectionManager,
+                                                  RequestConfig outboundRequestConfig, MeterRegistry meterRegistry) {
+
+        // 请求耗时按 方法 + 目标主机 + 路径（去掉查询参数，避免令牌等进入指标标签）
+        MicrometerHttpRequestExecutor requestExecutor = MicrometerHttpRequestExecutor.builder(meterRegistry)
+                .uriMapper(request -> {
+                    String uri = request.getRequestLine().getUri();
+                    int query = uri.indexOf('?');
+                    return query < 0 ? uri : uri.substring(0, query);
+                })
+                .exportTagsForRoute(true)
+                .tags(Collections.emptyList())
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(outboundConnectionManager)
+                .setDefaultRequestConfig(outboundRequestConfig)
+                .setRequestExecutor(requestExecutor)
+                // 服务端没有声明 Keep-Alive 时按配置时长保持
+                .setKeepAliveStrategy((response, context) -> {
+                    long declared = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return declared > 0 ? declared : keepAliveMs;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+}
@@ -0,0 +1,183 @@
+package com.elderly.assistant.config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.TreeSet;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import com.elderly.assistant.common.Idempotent;
+import com.elderly.assistant.common.Result;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 幂等拦截器
+ * 对标记了 {@link Idempotent} 且带 Idempotency-Key 头的请求，先用 SETNX 占住 Key：
+ * - 占住成功：正常执行，成功响应由 {@link IdempotencyResponseAdvice} 保存
+ * - 已有保存的响应：直接回放，不再进入业务逻辑
+ * - 第一次请求还在处理中：返回 409
+ * - 同一个 Key 换了请求体：返回 422，不回放也不执行
+ * Key 按 接口 + 请求体中的用户ID + Idempotency-Key 区分，不同用户用了相同的 Key 互不影响；
+ * Redis 中的值为 "请求体摘要|PENDING" 或 "请求体摘要|响应"
+ * Redis 不可用时按普通请求放行
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyInterceptor implements HandlerInterceptor {
+
+    public static final String HEADER = "Idempotency-Key";
+    static final String KEY_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".KEY";
+    static final String DIGEST_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".DIGEST";
+    static final String STORED_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".STORED";
+    static final String PENDING = "PENDING";
+    static final char SEPARATOR = '|';
+
+    private static final String KEY_PREFIX = "idem:";
+    private static final int MAX_KEY_LENGTH = 64;
+    /**
+     * 处理中占位的有效期：需长于最慢的幂等接口（批量挂号、排队），
+     * 正常结束时会被响应覆盖或删除，只有进程崩溃时才会等到过期
+     */
+    private static final Duration PROCESSING_TTL = Duration.ofMinutes(10);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (!(handler instanceof HandlerMethod)
+                || !((HandlerMethod) handler).hasMethodAnnotation(Idempotent.class)) {
+            return true;
+        }
+        String idempotencyKey = request.getHeader(HEADER);
+        if (StrUtil.isBlank(idempotencyKey)) {
+            return true;
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            reject(response, HttpStatus.BAD_REQUEST, HEADER + " 过长");
+            return false;
+        }
+
+        byte[] body = body(request);
+        String digest = SecureUtil.sha256().digestHex(body);
+        String key = KEY_PREFIX + request.getRequestURI() + ":" + userScope(body) + ":" + idempotencyKey.trim();
+        try {
+            String stored = null;
+            // 第一次请求失败会释放 Key：SETNX 没成功而 GET 又取不到时再抢一次
+            for (int attempt = 0; attempt < 2 && stored == null; attempt++) {
+                Boolean acquired = redisTemplate.opsForValue().setIfAbsent(key, digest + SEPARATOR + PENDING,
+                        PROCESSING_TTL);
+                if (Boolean.TRUE.equals(acquired)) {
+                    request.setAttribute(KEY_ATTRIBUTE, key);
+                    request.setAttribute(DIGEST_ATTRIBUTE, digest);
+                    return true;
+                }
+                stored = redisTemplate.opsForValue().get(key);
+            }
+            if (stored == null) {
+                reject(response, HttpStatus.CONFLICT, "请求正在处理中，请勿重复提交");
+                return false;
+            }
+            int separator = stored.indexOf(SEPARATOR);
+            if (separator < 0 || !digest.equals(stored.substring(0, separator))) {
+                log.warn("幂等Key重复使用但请求体不同，key: {}", key);
+                reject(response, HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " 已用于不同的请求内容");
+                return false;
+            }
+            String payload = stored.substring(separator + 1);
+            if (PENDING.equals(payload)) {
+                reject(response, HttpStatus.CONFLICT, "请求正在处理中，请勿重复提交");
+            } else {
+                log.info("重复请求，回放已保存的响应，key: {}", key);
+                write(response, payload);
+            }
+            return false;
+        } catch (Exception e) {
+            log.warn("幂等检查失败，按普通请求处理，key: {}", key, e);
+            return true;
+        }
+    }
+
+    /**
+     * 没有保存成功响应（业务失败或异常）时释放 Key，允许用户重试
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object key = request.getAttribute(KEY_ATTRIBUTE);
+        if (key == null || request.getAttribute(STORED_ATTRIBUTE) != null) {
+            return;
+        }
+        try {
+            redisTemplate.delete(key.toString());
+        } catch (Exception e) {
+            log.warn("释放幂等Key失败，将在过期后自动释放，key: {}", key, e);
+        }
+    }
+
+    private static byte[] body(HttpServletRequest request) {
+        IdempotencyBodyFilter.CachedBodyRequest cached =
+                WebUtils.getNativeRequest(request, IdempotencyBodyFilter.CachedBodyRequest.class);
+        return cached == null ? new byte[0] : cached.getBody();
+    }
+
+    /**
+     * 请求体中的用户ID（userId / user_id）；批量请求为各条目用户ID排序后拼接，没有时为空串
+     */
+    private String userScope(byte[] body) {
+        if (body.length == 0) {
+            return "";
+        }
+        try {
+            JsonNode root = objectMapper.readTree(body);
+            TreeSet<String> userIds = new TreeSet<>();
+            if (root != null && root.isArray()) {
+                root.forEach(item -> addUserId(item, userIds));
+            } else {
+                addUserId(root, userIds);
+            }
+            return String.join(",", userIds);
+        } catch (Exception e) {
+            // 非 JSON 请求体只按摘要区分
+            return "";
+        }
+    }
+
+    private static void addUserId(JsonNode node, TreeSet<String> userIds) {
+        if (node == null || !node.isObject()) {
+            return;
+        }
+        JsonNode userId = node.hasNonNull("userId") ? node.get("userId") : node.get("user_id");
+        if (userId != null && !userId.isNull()) {
+            userIds.add(userId.asText());
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws Exception {
+        response.setStatus(status.value());
+        write(response, objectMapper.writeValueAsString(Result.error(status.value(), message)));
+    }
+
+    private static void write(HttpServletResponse response, String body) throws Exception {
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(body);
+    }
+}
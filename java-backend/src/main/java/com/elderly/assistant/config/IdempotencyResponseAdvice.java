@@ -0,0 +1,66 @@
+package com.elderly.assistant.config;
+
+import java.time.Duration;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.elderly.assistant.common.Idempotent;
+import com.elderly.assistant.common.Result;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 保存幂等接口的成功响应（连同请求体摘要），供重复请求回放（失败响应不保存，由拦截器释放 Key）
+ */
+@Slf4j
+@RestControllerAdvice
+@RequiredArgsConstructor
+public class IdempotencyResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.hasMethodAnnotation(Idempotent.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest) || !(body instanceof Result)
+                || !Integer.valueOf(0).equals(((Result<?>) body).getCode())) {
+            return body;
+        }
+        HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+        Object key = servletRequest.getAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE);
+        if (key == null) {
+            return body;
+        }
+
+        try {
+            long ttl = returnType.getMethodAnnotation(Idempotent.class).ttlSeconds();
+            Object digest = servletRequest.getAttribute(IdempotencyInterceptor.DIGEST_ATTRIBUTE);
+            redisTemplate.opsForValue().set(key.toString(),
+                    digest + String.valueOf(IdempotencyInterceptor.SEPARATOR) + objectMapper.writeValueAsString(body),
+                    Duration.ofSeconds(ttl));
+            servletRequest.setAttribute(IdempotencyInterceptor.STORED_ATTRIBUTE, Boolean.TRUE);
+        } catch (Exception e) {
+            log.warn("保存幂等响应失败，key: {}", key, e);
+        }
+        return body;
+    }
+}
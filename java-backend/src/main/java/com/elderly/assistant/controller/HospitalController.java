@@ -12,12 +12,18 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.elderly.assistant.common.Idempotent;
 import com.elderly.assistant.common.Result;
+import com.elderly.assistant.dto.NearbyHospitalDTO;
+import com.elderly.assistant.dto.RegistrationTicketDTO;
+import com.elderly.assistant.dto.SlotAvailabilityDTO;
 import com.elderly.assistant.entity.HospitalInfo;
 import com.elderly.assistant.entity.ReserveOrder;
 import com.elderly.assistant.service.HospitalQueryService;
 import com.elderly.assistant.service.HospitalRegistrationService;
+import com.elderly.assistant.service.RegistrationQueueService;
 
+import cn.hutool.core.util.StrUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -33,6 +39,7 @@ public class HospitalController {
     
     private final HospitalQueryService hospitalQueryService;
     private final HospitalRegistrationService hospitalRegistrationService;
+    private final RegistrationQueueService registrationQueueService;
     
     // ==================== 科室相关接口 ====================
     
@@ -54,13 +61,20 @@ public class HospitalController {
     /**
      * 根据科室查询医院
      * GET /hospital/by-department?department=内科
+     * 可选：limit/cursor 游标分页，fields=hospitalId,hospitalName 只返回指定字段
      */
     @GetMapping("/by-department")
-    public Result<List<HospitalInfo>> getHospitalsByDepartment(
-            @RequestParam("department") String department) {
+    public Result<?> getHospitalsByDepartment(
+            @RequestParam("department") String department,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "fields", required = false) String fields) {
         try {
+            if (limit != null || StrUtil.isNotBlank(cursor)) {
+                return Result.success(hospitalQueryService.pageHospitalsByDepartment(department, cursor, limit, fields));
+            }
             List<HospitalInfo> hospitals = hospitalQueryService.getHospitalsByDepartment(department);
-            return Result.success(hospitals);
+            return Result.success(hospitalQueryService.projectHospitals(hospitals, fields));
         } catch (Exception e) {
             log.error("根据科室查询医院失败", e);
             return Result.error(e.getMessage());
@@ -72,12 +86,19 @@ public class HospitalController {
     /**
      * 获取所有医院
      * GET /hospital/list
+     * 可选：limit/cursor 游标分页，fields=hospitalId,hospitalName 只返回指定字段
      */
     @GetMapping("/list")
-    public Result<List<HospitalInfo>> getAllHospitals() {
+    public Result<?> getAllHospitals(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "fields", required = false) String fields) {
         try {
+            if (limit != null || StrUtil.isNotBlank(cursor)) {
+                return Result.success(hospitalQueryService.pageAllHospitals(cursor, limit, fields));
+            }
             List<HospitalInfo> hospitals = hospitalQueryService.getAllHospitals();
-            return Result.success(hospitals);
+            return Result.success(hospitalQueryService.projectHospitals(hospitals, fields));
         } catch (Exception e) {
             log.error("获取医院列表失败", e);
             return Result.error(e.getMessage());
@@ -120,17 +141,18 @@ public class HospitalController {
     
     /**
      * 获取附近医院（带距离排序和预约情况）
-     * GET /hospital/nearby?longitude=116.40&latitude=39.90&radius=10&department=内科
+     * GET /hospital/nearby?longitude=116.40&latitude=39.90&radius=10&department=内科&limit=10
      */
     @GetMapping("/nearby")
-    public Result<List<Map<String, Object>>> getNearbyHospitals(
+    public Result<List<NearbyHospitalDTO>> getNearbyHospitals(
             @RequestParam(value = "longitude") Double longitude,
             @RequestParam(value = "latitude") Double latitude,
             @RequestParam(value = "radius", required = false) Double radius,
-            @RequestParam(value = "department", required = false) String department) {
+            @RequestParam(value = "department", required = false) String department,
+            @RequestParam(value = "limit", defaultValue = "0") int limit) {
         try {
-            List<Map<String, Object>> hospitals = hospitalQueryService.getNearbyHospitals(
-                longitude, latitude, radius, department);
+            List<NearbyHospitalDTO> hospitals = hospitalQueryService.getNearbyHospitals(
+                longitude, latitude, radius, department, limit);
             return Result.success(hospitals);
         } catch (Exception e) {
             log.error("获取附近医院失败", e);
@@ -156,6 +178,24 @@ public class HospitalController {
         }
     }
     
+    /**
+     * 获取医院某天各时段号源余量
+     * GET /hospital/slots?hospital_id=xxx&date=2025-12-01&department=内科
+     */
+    @GetMapping("/slots")
+    public Result<List<SlotAvailabilityDTO>> getSlotAvailability(
+            @RequestParam("hospital_id") String hospitalId,
+            @RequestParam("date") String date,
+            @RequestParam(value = "department", required = false) String department) {
+        try {
+            List<SlotAvailabilityDTO> slots = hospitalQueryService.getSlotAvailability(hospitalId, date, department);
+            return Result.success(slots);
+        } catch (Exception e) {
+            log.error("查询时段号源失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+    
     /**
      * 获取医院预约详情
      * GET /hospital/appointment-info?hospital_id=xxx
@@ -177,12 +217,16 @@ public class HospitalController {
     /**
      * 搜索医院
      * POST /hospital/search
+     * 请求体可选：limit/cursor 游标分页，fields 只返回指定字段
      */
     @PostMapping("/search")
-    public Result<List<HospitalInfo>> searchHospitals(@RequestBody Map<String, Object> searchParams) {
+    public Result<?> searchHospitals(@RequestBody Map<String, Object> searchParams) {
         try {
+            if (searchParams.get("limit") != null || searchParams.get("cursor") != null) {
+                return Result.success(hospitalQueryService.pageSearchHospitals(searchParams));
+            }
             List<HospitalInfo> hospitals = hospitalQueryService.searchHospitals(searchParams);
-            return Result.success(hospitals);
+            return Result.success(hospitalQueryService.projectHospitals(hospitals, searchParams.get("fields")));
         } catch (Exception e) {
             log.error("搜索医院失败", e);
             return Result.error(e.getMessage());
@@ -196,6 +240,7 @@ public class HospitalController {
      * POST /hospital/registration/create
      */
     @PostMapping("/registration/create")
+    @Idempotent
     public Result<?> createRegistration(@RequestBody Map<String, Object> params) {
         try {
             boolean success = hospitalRegistrationService.createRegistration(params);
@@ -211,6 +256,7 @@ public class HospitalController {
      * POST /hospital/registration/create-order
      */
     @PostMapping("/registration/create-order")
+    @Idempotent
     public Result<?> createRegistrationOrder(@RequestBody ReserveOrder order) {
         try {
             boolean success = hospitalRegistrationService.createRegistration(order);
@@ -221,6 +267,52 @@ public class HospitalController {
         }
     }
     
+    /**
+     * 批量挂号（家属一次为多位老人或多个日期预约），返回每一条的结果
+     * POST /hospital/registration/batch-create
+     */
+    @PostMapping("/registration/batch-create")
+    @Idempotent
+    public Result<List<Map<String, Object>>> createRegistrations(@RequestBody List<ReserveOrder> orders) {
+        try {
+            return Result.success(hospitalRegistrationService.createRegistrations(orders));
+        } catch (Exception e) {
+            log.error("批量挂号失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 排队挂号：立即返回票据，挂号结果通过票据查询
+     * POST /hospital/registration/enqueue
+     */
+    @PostMapping("/registration/enqueue")
+    @Idempotent
+    public Result<RegistrationTicketDTO> enqueueRegistration(@RequestBody ReserveOrder order) {
+        try {
+            return Result.success(registrationQueueService.submit(order));
+        } catch (Exception e) {
+            log.error("挂号排队失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询排队挂号结果
+     * GET /hospital/registration/ticket?ticket_id=xxx
+     */
+    @GetMapping("/registration/ticket")
+    public Result<RegistrationTicketDTO> getRegistrationTicket(
+            @RequestParam("ticket_id") String ticketId) {
+        try {
+            RegistrationTicketDTO ticket = registrationQueueService.getTicket(ticketId);
+            return ticket != null ? Result.success(ticket) : Result.error("票据不存在或已过期");
+        } catch (Exception e) {
+            log.error("查询排队结果失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+    
     /**
      * 查询用户挂号记录
      * GET /hospital/registration/list?user_id=xxx
@@ -240,11 +332,18 @@ public class HospitalController {
     /**
      * 查询用户挂号记录（带医院信息）
      * GET /hospital/registration/detailed-list?user_id=xxx
+     * 可选：limit/cursor 游标分页（按创建时间倒序）
      */
     @GetMapping("/registration/detailed-list")
-    public Result<List<Map<String, Object>>> getUserRegistrationsWithHospital(
-            @RequestParam("user_id") String userId) {
+    public Result<?> getUserRegistrationsWithHospital(
+            @RequestParam("user_id") String userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
         try {
+            if (limit != null || StrUtil.isNotBlank(cursor)) {
+                return Result.success(
+                    hospitalRegistrationService.pageUserRegistrationsWithHospital(userId, cursor, limit));
+            }
             List<Map<String, Object>> orders = 
                 hospitalRegistrationService.getUserRegistrationsWithHospital(userId);
             return Result.success(orders);
@@ -315,4 +414,20 @@ public class HospitalController {
             return Result.error(e.getMessage());
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 按挂号记录重建用户挂号统计（计数异常时修复用）
+     * POST /hospital/registration/stats/rebuild?user_id=xxx
+     */
+    @PostMapping("/registration/stats/rebuild")
+    public Result<Map<String, Integer>> rebuildUserRegistrationStats(
+            @RequestParam("user_id") String userId) {
+        try {
+            hospitalRegistrationService.rebuildUserRegistrationStats(userId);
+            return Result.success(hospitalRegistrationService.getUserRegistrationStats(userId));
+        } catch (Exception e) {
+            log.error("重建挂号统计失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+}
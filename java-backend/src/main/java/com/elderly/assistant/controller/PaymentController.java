@@ -14,6 +14,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.elderly.assistant.common.Idempotent;
 import com.elderly.assistant.common.Result;
 import com.elderly.assistant.entity.PaymentItem;
 import com.elderly.assistant.service.PaymentService;
@@ -122,6 +123,7 @@ public class PaymentController {
      * POST /payment/create-item
      */
     @PostMapping("/create-item")
+    @Idempotent
     public Result<?> createPaymentItem(@RequestBody PaymentItem paymentItem) {
         log.info("创建缴费项目，userId: {}, type: {}", 
                  paymentItem.getUserId(), paymentItem.getItemType());
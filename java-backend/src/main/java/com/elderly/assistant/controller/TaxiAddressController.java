@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.elderly.assistant.common.Idempotent;
 import com.elderly.assistant.common.Result;
 import com.elderly.assistant.entity.TaxiCommonAddress;
 import com.elderly.assistant.service.TaxiAddressService;
@@ -36,6 +37,7 @@ public class TaxiAddressController {
      * POST /taxi/address/add
      */
     @PostMapping("/add")
+    @Idempotent
     public Result<?> addCommonAddress(@RequestBody TaxiCommonAddress address) {
         try {
             log.info("添加常用地址，用户: {}, 名称: {}", address.getUserId(), address.getDisplayName());
@@ -1,5 +1,6 @@
 package com.elderly.assistant.controller;
 
+import com.elderly.assistant.common.RangeFileSender;
 import com.elderly.assistant.common.Result;
 import com.elderly.assistant.service.VoiceService;
 import org.slf4j.Logger;
@@ -8,6 +9,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -22,6 +27,9 @@ public class VoiceController {
 
     private static final Logger log = LoggerFactory.getLogger(VoiceController.class);
 
+    private static final String AUDIO_CONTENT_TYPE = "audio/mp3";
+    private static final String AUDIO_CACHE_CONTROL = "private, max-age=86400";
+
     @Autowired
     private VoiceService voiceService;
 
@@ -59,6 +67,9 @@ public class VoiceController {
 
     /**
      * 语音合成（TTS）
+     * - 同一文本、同一方言的音频不变，以缓存键作为 ETag，客户端带 If-None-Match 时直接返回 304
+     * - 已缓存到磁盘的音频零拷贝发送，支持 Range（小程序播放器拖动进度）
+     * - 未缓存的音频边合成边以 chunked 方式写出，同时写入缓存
      * 
      * @param text    需要合成的文本
      * @param dialect 方言（可选）
@@ -66,19 +77,41 @@ public class VoiceController {
     @GetMapping("/synthesize")
     public void synthesize(@RequestParam("text") String text,
             @RequestParam(value = "dialect", required = false, defaultValue = "普通话") String dialect,
-            javax.servlet.http.HttpServletResponse response) {
+            HttpServletRequest request, HttpServletResponse response) {
         try {
-            byte[] audioData = voiceService.synthesizeVoice(text, dialect);
-            if (audioData != null) {
-                response.setContentType("audio/mp3");
-                response.getOutputStream().write(audioData);
-                response.getOutputStream().flush();
-            } else {
+            String etag = "\"" + voiceService.getTtsCacheKey(text, dialect) + "\"";
+            if (RangeFileSender.notModified(request, etag)) {
+                response.setHeader("ETag", etag);
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            Path file = voiceService.getSynthesizedFile(text, dialect);
+            if (file != null) {
+                try {
+                    RangeFileSender.send(request, response, file, etag, AUDIO_CONTENT_TYPE, AUDIO_CACHE_CONTROL);
+                    return;
+                } catch (NoSuchFileException e) {
+                    // 刚被淘汰，重新合成
+                    log.debug("合成音频缓存文件已被淘汰: {}", file);
+                }
+            }
+
+            boolean written = voiceService.synthesizeVoice(text, dialect, () -> {
+                response.setContentType(AUDIO_CONTENT_TYPE);
+                response.setHeader("ETag", etag);
+                response.setHeader("Cache-Control", AUDIO_CACHE_CONTROL);
+                return response.getOutputStream();
+            });
+            if (!written) {
                 response.setStatus(500);
             }
         } catch (Exception e) {
             log.error("语音合成响应异常", e);
-            response.setStatus(500);
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(500);
+            }
         }
     }
 }
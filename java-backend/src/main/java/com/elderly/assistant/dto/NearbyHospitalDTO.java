@@ -0,0 +1,57 @@
+package com.elderly.assistant.dto;
+
+import java.io.Serializable;
+
+import com.elderly.assistant.entity.HospitalInfo;
+
+import lombok.Data;
+
+/**
+ * 附近医院返回对象
+ * 字段与原先 Map 返回的键名保持一致，前端无需改动
+ */
+@Data
+public class NearbyHospitalDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String hospitalId;
+    private String hospitalName;
+    private String hospitalLevel;
+    private String hospitalType;
+    private String address;
+    private String phone;
+
+    // 距离（公里，保留两位小数）
+    private Double distance;
+
+    private Integer availableQuota;
+    private Integer dailyQuota;
+    private Boolean available;
+
+    private String departments;
+    private String openingHours;
+    private Double longitude;
+    private Double latitude;
+
+    /**
+     * 由已加载的医院数据直接构建，不再额外查库
+     */
+    public static NearbyHospitalDTO of(HospitalInfo hospital, double distanceKm, boolean available) {
+        NearbyHospitalDTO dto = new NearbyHospitalDTO();
+        dto.setHospitalId(hospital.getHospitalId());
+        dto.setHospitalName(hospital.getHospitalName());
+        dto.setHospitalLevel(hospital.getHospitalLevel());
+        dto.setHospitalType(hospital.getHospitalType());
+        dto.setAddress(hospital.getAddress());
+        dto.setPhone(hospital.getPhone());
+        dto.setDistance(Math.round(distanceKm * 100) / 100.0);
+        dto.setAvailableQuota(hospital.getAvailableQuota());
+        dto.setDailyQuota(hospital.getDailyQuota());
+        dto.setAvailable(available);
+        dto.setDepartments(hospital.getDepartments());
+        dto.setOpeningHours(hospital.getOpeningHours());
+        dto.setLongitude(hospital.getLongitude());
+        dto.setLatitude(hospital.getLatitude());
+        return dto;
+    }
+}
@@ -0,0 +1,30 @@
+package com.elderly.assistant.dto;
+
+import java.io.Serializable;
+
+import lombok.Data;
+
+/**
+ * 排队挂号票据
+ */
+@Data
+public class RegistrationTicketDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String QUEUED = "QUEUED";
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+
+    private String ticketId;
+    private String hospitalId;
+
+    // 挂号成功后的订单ID（入队时已预先分配）
+    private String orderId;
+
+    // 状态：QUEUED-排队中，SUCCESS-挂号成功，FAILED-挂号失败
+    private String status;
+
+    private String message;
+    private Long createTime;
+    private Long finishTime;
+}
@@ -0,0 +1,25 @@
+package com.elderly.assistant.dto;
+
+import java.io.Serializable;
+
+import lombok.Data;
+
+/**
+ * 时段号源余量
+ */
+@Data
+public class SlotAvailabilityDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String hospitalId;
+    private String date;
+    private String department;
+
+    // 时段：AM-上午，PM-下午，DAY-全天（上午+下午之和）
+    private String timeSlot;
+
+    private Integer capacity;
+    private Integer booked;
+    private Integer remaining;
+    private Boolean available;
+}
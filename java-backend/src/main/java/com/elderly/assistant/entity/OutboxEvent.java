@@ -0,0 +1,45 @@
+package com.elderly.assistant.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.io.Serializable;
+
+/**
+ * 事务发件箱事件（与业务数据同一事务写入，由 OutboxDispatcher 异步投递）
+ */
+@Data
+@TableName("OUTBOX_EVENT")
+public class OutboxEvent implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @TableId(value = "event_id", type = IdType.INPUT)
+    private Long eventId;
+
+    @TableField("event_type")
+    private String eventType;
+
+    @TableField("aggregate_id")
+    private String aggregateId;
+
+    @TableField("payload")
+    private String payload;
+
+    @TableField("status")
+    private String status;
+
+    @TableField("attempts")
+    private Integer attempts;
+
+    @TableField("next_attempt_time")
+    private Long nextAttemptTime;
+
+    @TableField("last_error")
+    private String lastError;
+
+    @TableField("create_time")
+    private Long createTime;
+}
@@ -29,6 +29,9 @@ public class ReserveOrder implements Serializable {
     @TableField("reserve_date")
     private String reserveDate;
 
+    @TableField("time_slot")
+    private String timeSlot;
+
     @TableField("status")
     private String status;
 
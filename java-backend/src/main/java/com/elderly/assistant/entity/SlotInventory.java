@@ -0,0 +1,36 @@
+package com.elderly.assistant.entity;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import java.io.Serializable;
+
+/**
+ * 号源库存（医院+日期+科室+时段 联合主键）
+ */
+@Data
+@TableName("SLOT_INVENTORY")
+public class SlotInventory implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @TableField("hospital_id")
+    private String hospitalId;
+
+    @TableField("slot_date")
+    private String slotDate;
+
+    @TableField("department")
+    private String department;
+
+    @TableField("time_slot")
+    private String timeSlot;
+
+    @TableField("capacity")
+    private Integer capacity;
+
+    @TableField("booked")
+    private Integer booked;
+
+    @TableField("update_time")
+    private Long updateTime;
+}
@@ -0,0 +1,32 @@
+package com.elderly.assistant.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.io.Serializable;
+
+/**
+ * 用户挂号状态计数（随挂号/取消/完成在同一事务内增量维护）
+ */
+@Data
+@TableName("USER_REGISTRATION_STATS")
+public class UserRegistrationStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @TableId(value = "user_id", type = IdType.INPUT)
+    private String userId;
+
+    @TableField("total")
+    private Integer total;
+
+    @TableField("pending")
+    private Integer pending;
+
+    @TableField("completed")
+    private Integer completed;
+
+    @TableField("cancelled")
+    private Integer cancelled;
+
+    @TableField("update_time")
+    private Long updateTime;
+}
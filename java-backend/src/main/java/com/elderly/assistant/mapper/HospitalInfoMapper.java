@@ -5,6 +5,7 @@ import com.elderly.assistant.entity.HospitalInfo;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 import java.util.Map;  // 添加这个 import
@@ -32,4 +33,74 @@ public interface HospitalInfoMapper extends BaseMapper<HospitalInfo> {
                                                   @Param("latitude") Double latitude,
                                                   @Param("radius") Double radius,
                                                   @Param("limit") Integer limit);
-}
\ No newline at end of file
+    
+    /**
+     * 附近医院（索引版）
+     * 先用经纬度包围盒走 idx_status_location(status, latitude, longitude) 索引缩小范围，
+     * 只对包围盒内的行计算精确距离
+     */
+    @Select("<script>" +
+            "SELECT * FROM HOSPITAL_INFO " +
+            "WHERE status IN ('enabled', '正常') " +
+            "AND latitude BETWEEN #{minLat} AND #{maxLat} " +
+            "AND longitude BETWEEN #{minLng} AND #{maxLng} " +
+            "AND 12742 * ASIN(SQRT(POW(SIN(RADIANS(latitude - #{latitude}) / 2), 2) + " +
+            "COS(RADIANS(#{latitude})) * COS(RADIANS(latitude)) * " +
+            "POW(SIN(RADIANS(longitude - #{longitude}) / 2), 2))) &lt;= #{radius} " +
+            "<if test='department != null and department != \"\"'>" +
+            "  AND departments LIKE CONCAT('%', #{department}, '%') " +
+            "</if>" +
+            "ORDER BY POW(latitude - #{latitude}, 2) + " +
+            "POW((longitude - #{longitude}) * COS(RADIANS(#{latitude})), 2) " +
+            "<if test='limit != null and limit > 0'>LIMIT #{limit}</if>" +
+            "</script>")
+    List<HospitalInfo> findNearbyInBoundingBox(@Param("longitude") double longitude,
+                                               @Param("latitude") double latitude,
+                                               @Param("radius") double radius,
+                                               @Param("minLat") double minLat,
+                                               @Param("maxLat") double maxLat,
+                                               @Param("minLng") double minLng,
+                                               @Param("maxLng") double maxLng,
+                                               @Param("department") String department,
+                                               @Param("limit") Integer limit);
+    
+    /**
+     * 锁定医院行（数据库扣减号源时串行化同一医院的挂号）
+     */
+    @Select("SELECT * FROM HOSPITAL_INFO WHERE hospital_id = #{hospitalId} FOR UPDATE")
+    HospitalInfo selectByIdForUpdate(@Param("hospitalId") String hospitalId);
+    
+    /**
+     * 只更新剩余号源一列（数据库扣减号源时在行锁内写入）
+     */
+    @Update("UPDATE HOSPITAL_INFO SET available_quota = #{availableQuota} WHERE hospital_id = #{hospitalId}")
+    int updateAvailableQuota(@Param("hospitalId") String hospitalId,
+                             @Param("availableQuota") Integer availableQuota);
+    
+    /**
+     * 按订单重算一家医院的剩余号源：daily_quota - date 已预约数
+     */
+    @Update("UPDATE HOSPITAL_INFO h SET h.available_quota = GREATEST(0, h.daily_quota - (" +
+            "SELECT COUNT(*) FROM RESERVE_ORDER o WHERE o.hospital_id = h.hospital_id " +
+            "AND o.reserve_date = #{date} AND o.status = '已预约')) " +
+            "WHERE h.hospital_id = #{hospitalId} AND h.daily_quota IS NOT NULL")
+    int refreshAvailableQuota(@Param("hospitalId") String hospitalId, @Param("date") String date);
+    
+    /**
+     * 按主键顺序取下一段医院ID（每日号源重置分段用）
+     */
+    @Select("SELECT hospital_id FROM HOSPITAL_INFO WHERE hospital_id > #{afterId} " +
+            "ORDER BY hospital_id LIMIT #{limit}")
+    List<String> selectIdsAfter(@Param("afterId") String afterId, @Param("limit") int limit);
+    
+    /**
+     * 主键区间 (afterId, lastId] 内的医院剩余号源重置为 daily_quota - 当天已预约数
+     * （提前预约到当天的订单要扣掉），按主键范围更新只锁这一段行
+     */
+    @Update("UPDATE HOSPITAL_INFO h SET h.available_quota = GREATEST(0, h.daily_quota - (" +
+            "SELECT COUNT(*) FROM RESERVE_ORDER o WHERE o.hospital_id = h.hospital_id " +
+            "AND o.reserve_date = #{date} AND o.status = '已预约')) " +
+            "WHERE h.hospital_id > #{afterId} AND h.hospital_id <= #{lastId} AND h.daily_quota IS NOT NULL")
+    int resetAvailableQuota(@Param("afterId") String afterId, @Param("lastId") String lastId,
+                            @Param("date") String date);
+}
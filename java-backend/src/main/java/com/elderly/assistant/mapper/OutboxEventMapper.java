@@ -0,0 +1,57 @@
+package com.elderly.assistant.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.elderly.assistant.entity.OutboxEvent;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+@Mapper
+public interface OutboxEventMapper extends BaseMapper<OutboxEvent> {
+    
+    /**
+     * 到期待投递的事件，走 idx_status_next(status, next_attempt_time) 索引
+     */
+    @Select("SELECT * FROM OUTBOX_EVENT WHERE status = 'PENDING' AND next_attempt_time <= #{now} " +
+            "ORDER BY next_attempt_time, event_id LIMIT #{limit}")
+    List<OutboxEvent> selectDue(@Param("now") long now, @Param("limit") int limit);
+    
+    /**
+     * 认领事件：把下次投递时间推到租约到期时间，多实例下只有一个实例认领成功；
+     * 投递中途进程退出时租约到期后会被重新投递
+     */
+    @Update("UPDATE OUTBOX_EVENT SET attempts = attempts + 1, next_attempt_time = #{leaseUntil} " +
+            "WHERE event_id = #{eventId} AND status = 'PENDING' AND next_attempt_time <= #{now}")
+    int claim(@Param("eventId") Long eventId, @Param("now") long now, @Param("leaseUntil") long leaseUntil);
+    
+    /**
+     * 标记已投递：只有仍持有认领时租约（next_attempt_time 未被别的实例改写）才更新，
+     * 返回 0 表示租约已过期、事件已被重新认领
+     */
+    @Update("UPDATE OUTBOX_EVENT SET status = 'DONE', last_error = NULL " +
+            "WHERE event_id = #{eventId} AND status = 'PENDING' AND next_attempt_time = #{leaseUntil}")
+    int markDone(@Param("eventId") Long eventId, @Param("leaseUntil") long leaseUntil);
+    
+    /**
+     * 投递失败：status 为 PENDING 时按 nextAttemptTime 重试，为 FAILED 时不再投递
+     * 同样只在仍持有租约时更新，不覆盖别的实例的认领
+     */
+    @Update("UPDATE OUTBOX_EVENT SET status = #{status}, next_attempt_time = #{nextAttemptTime}, " +
+            "last_error = #{lastError} " +
+            "WHERE event_id = #{eventId} AND status = 'PENDING' AND next_attempt_time = #{leaseUntil}")
+    int markFailed(@Param("eventId") Long eventId,
+                   @Param("leaseUntil") long leaseUntil,
+                   @Param("status") String status,
+                   @Param("nextAttemptTime") long nextAttemptTime,
+                   @Param("lastError") String lastError);
+    
+    /**
+     * 分段清理已投递的事件
+     */
+    @Delete("DELETE FROM OUTBOX_EVENT WHERE status = 'DONE' AND create_time < #{before} LIMIT #{limit}")
+    int deleteDone(@Param("before") long before, @Param("limit") int limit);
+}
@@ -54,6 +54,13 @@ public interface PaymentMapper extends BaseMapper<PaymentItem> {
                            @Param("updateTime") Long updateTime,
                            @Param("lastPayTime") Long lastPayTime);
     
+    /**
+     * 标记为已缴清，金额保留为本次缴纳的金额；已是已缴清状态时不更新（返回 0）
+     */
+    @Update("UPDATE PAYMENT_CONFIG SET status = '已缴清', update_time = #{updateTime} " +
+            "WHERE config_id = #{itemId} AND status <> '已缴清'")
+    int markPaid(@Param("itemId") String itemId, @Param("updateTime") long updateTime);
+    
     /**
      * 更新缴费金额
      */
@@ -0,0 +1,73 @@
+package com.elderly.assistant.mapper;
+
+import com.elderly.assistant.entity.ReserveOrder;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 挂号归档表 RESERVE_ORDER_ARCHIVE（列与 RESERVE_ORDER 相同，另加 archive_time）
+ */
+@Mapper
+public interface ReserveOrderArchiveMapper {
+
+    /**
+     * 取一段可归档的订单ID：预约日期早于 beforeDate，走 idx_reserve_date 索引
+     */
+    @Select("SELECT order_id FROM RESERVE_ORDER WHERE reserve_date < #{beforeDate} " +
+            "ORDER BY reserve_date LIMIT #{limit}")
+    List<String> selectArchivableIds(@Param("beforeDate") String beforeDate, @Param("limit") int limit);
+
+    /**
+     * 把指定订单从 RESERVE_ORDER 复制到归档表（重复执行时忽略已归档的）
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO RESERVE_ORDER_ARCHIVE (order_id, user_id, hospital_id, hospital_name, department, " +
+            "reserve_date, time_slot, status, create_time, archive_time) " +
+            "SELECT order_id, user_id, hospital_id, hospital_name, department, " +
+            "reserve_date, time_slot, status, create_time, #{archiveTime} " +
+            "FROM RESERVE_ORDER WHERE order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int copyToArchive(@Param("orderIds") List<String> orderIds, @Param("archiveTime") long archiveTime);
+
+    /**
+     * 删除已复制到归档表的热表订单
+     */
+    @Delete("<script>" +
+            "DELETE o FROM RESERVE_ORDER o JOIN RESERVE_ORDER_ARCHIVE a ON a.order_id = o.order_id " +
+            "WHERE o.order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteArchived(@Param("orderIds") List<String> orderIds);
+
+    @Select("SELECT * FROM RESERVE_ORDER_ARCHIVE WHERE order_id = #{orderId}")
+    ReserveOrder selectById(@Param("orderId") String orderId);
+
+    @Select("SELECT * FROM RESERVE_ORDER_ARCHIVE WHERE user_id = #{userId} ORDER BY create_time DESC")
+    List<ReserveOrder> selectByUserId(@Param("userId") String userId);
+
+    /**
+     * 与 ReserveOrderMapper#selectPageByUserId 相同的游标条件，走归档表 idx_user_create 索引
+     */
+    @Select("<script>" +
+            "SELECT * FROM RESERVE_ORDER_ARCHIVE WHERE user_id = #{userId} " +
+            "<if test='afterTime != null'>" +
+            "  AND (create_time &lt; #{afterTime} OR (create_time = #{afterTime} AND order_id &lt; #{afterOrderId})) " +
+            "</if>" +
+            "ORDER BY create_time DESC, order_id DESC LIMIT #{limit}" +
+            "</script>")
+    List<ReserveOrder> selectPageByUserId(@Param("userId") String userId,
+                                          @Param("afterTime") Long afterTime,
+                                          @Param("afterOrderId") String afterOrderId,
+                                          @Param("limit") int limit);
+
+    @Select("SELECT status, COUNT(*) as count FROM RESERVE_ORDER_ARCHIVE " +
+            "WHERE user_id = #{userId} GROUP BY status")
+    List<Map<String, Object>> countByStatus(@Param("userId") String userId);
+}
@@ -5,6 +5,7 @@ import com.elderly.assistant.entity.ReserveOrder;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 import java.util.Map;
@@ -24,6 +25,39 @@ public interface ReserveOrderMapper extends BaseMapper<ReserveOrder> {
     @Select("SELECT * FROM RESERVE_ORDER WHERE user_id = #{userId} AND status = '已预约' ORDER BY reserve_date ASC")
     List<ReserveOrder> selectActiveByUserId(@Param("userId") String userId);
     
+    /**
+     * 按 (create_time, order_id) 倒序游标分页查询用户挂号记录，走 idx_user_create(user_id, create_time) 索引
+     * afterTime 为空时查第一页
+     */
+    @Select("<script>" +
+            "SELECT * FROM RESERVE_ORDER WHERE user_id = #{userId} " +
+            "<if test='afterTime != null'>" +
+            "  AND (create_time &lt; #{afterTime} OR (create_time = #{afterTime} AND order_id &lt; #{afterOrderId})) " +
+            "</if>" +
+            "ORDER BY create_time DESC, order_id DESC LIMIT #{limit}" +
+            "</script>")
+    List<ReserveOrder> selectPageByUserId(@Param("userId") String userId,
+                                          @Param("afterTime") Long afterTime,
+                                          @Param("afterOrderId") String afterOrderId,
+                                          @Param("limit") int limit);
+    
+    /**
+     * 状态流转：只有当前状态为 fromStatus 时才更新（返回 0 表示记录不存在或状态已变化）
+     */
+    @Update("UPDATE RESERVE_ORDER SET status = #{toStatus} WHERE order_id = #{orderId} AND status = #{fromStatus}")
+    int updateStatus(@Param("orderId") String orderId,
+                     @Param("fromStatus") String fromStatus,
+                     @Param("toStatus") String toStatus);
+    
+    /**
+     * 锁定读取某医院某日期的已预约订单ID（数据库扣减号源时计数用）
+     * 用加锁读而不是快照读，在可重复读隔离级别下也能看到其它事务刚提交的订单
+     */
+    @Select("SELECT order_id FROM RESERVE_ORDER WHERE hospital_id = #{hospitalId} " +
+            "AND reserve_date = #{date} AND status = '已预约' FOR UPDATE")
+    List<String> selectBookedIdsForUpdate(@Param("hospitalId") String hospitalId,
+                                          @Param("date") String date);
+    
     /**
      * 查询挂号详情（关联医院信息）
      */
@@ -0,0 +1,56 @@
+package com.elderly.assistant.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.elderly.assistant.entity.SlotInventory;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+@Mapper
+public interface SlotInventoryMapper extends BaseMapper<SlotInventory> {
+    
+    /**
+     * 按联合主键查询
+     */
+    @Select("SELECT * FROM SLOT_INVENTORY " +
+            "WHERE hospital_id = #{hospitalId} AND slot_date = #{slotDate} " +
+            "AND department = #{department} AND time_slot = #{timeSlot}")
+    SlotInventory selectSlot(@Param("hospitalId") String hospitalId,
+                             @Param("slotDate") String slotDate,
+                             @Param("department") String department,
+                             @Param("timeSlot") String timeSlot);
+    
+    /**
+     * 初始化库存行，已存在时忽略（多个节点同时初始化只有一个生效）
+     */
+    @Insert("INSERT IGNORE INTO SLOT_INVENTORY " +
+            "(hospital_id, slot_date, department, time_slot, capacity, booked, update_time) " +
+            "VALUES (#{hospitalId}, #{slotDate}, #{department}, #{timeSlot}, #{capacity}, #{booked}, #{updateTime})")
+    int insertIgnore(SlotInventory slot);
+    
+    /**
+     * 占用一个号源，已满时不更新（返回 0）
+     */
+    @Update("UPDATE SLOT_INVENTORY SET booked = booked + 1, update_time = #{updateTime} " +
+            "WHERE hospital_id = #{hospitalId} AND slot_date = #{slotDate} " +
+            "AND department = #{department} AND time_slot = #{timeSlot} AND booked < capacity")
+    int reserve(@Param("hospitalId") String hospitalId,
+                @Param("slotDate") String slotDate,
+                @Param("department") String department,
+                @Param("timeSlot") String timeSlot,
+                @Param("updateTime") long updateTime);
+    
+    /**
+     * 归还一个号源
+     */
+    @Update("UPDATE SLOT_INVENTORY SET booked = booked - 1, update_time = #{updateTime} " +
+            "WHERE hospital_id = #{hospitalId} AND slot_date = #{slotDate} " +
+            "AND department = #{department} AND time_slot = #{timeSlot} AND booked > 0")
+    int release(@Param("hospitalId") String hospitalId,
+                @Param("slotDate") String slotDate,
+                @Param("department") String department,
+                @Param("timeSlot") String timeSlot,
+                @Param("updateTime") long updateTime);
+}
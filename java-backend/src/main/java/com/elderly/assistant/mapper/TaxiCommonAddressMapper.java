@@ -2,9 +2,11 @@ package com.elderly.assistant.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.elderly.assistant.entity.TaxiCommonAddress;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -36,8 +38,36 @@ public interface TaxiCommonAddressMapper extends BaseMapper<TaxiCommonAddress> {
     List<TaxiCommonAddress> selectByTag(@Param("userId") String userId, @Param("tag") String tag);
     
     /**
-     * 更新最后使用时间
+     * 更新最后使用时间（同时更新 update_time）
      */
-    @Select("UPDATE TAXI_COMMON_ADDRESS SET last_use_time = #{lastUseTime} WHERE addr_id = #{addrId}")
-    void updateLastUseTime(@Param("addrId") String addrId, @Param("lastUseTime") Long lastUseTime);
+    @Update("UPDATE TAXI_COMMON_ADDRESS SET last_use_time = #{lastUseTime}, update_time = #{lastUseTime} " +
+            "WHERE addr_id = #{addrId}")
+    int updateLastUseTime(@Param("addrId") String addrId, @Param("lastUseTime") Long lastUseTime);
+    
+    /**
+     * 把指定地址设为默认（地址不属于该用户时不更新，返回 0）
+     */
+    @Update("UPDATE TAXI_COMMON_ADDRESS SET is_default = TRUE, update_time = #{updateTime} " +
+            "WHERE addr_id = #{addrId} AND user_id = #{userId}")
+    int markDefault(@Param("userId") String userId,
+                    @Param("addrId") String addrId,
+                    @Param("updateTime") long updateTime);
+    
+    /**
+     * 一条语句清除用户的默认地址，exceptAddrId 非空时保留该地址
+     */
+    @Update("<script>" +
+            "UPDATE TAXI_COMMON_ADDRESS SET is_default = FALSE, update_time = #{updateTime} " +
+            "WHERE user_id = #{userId} AND is_default = TRUE " +
+            "<if test='exceptAddrId != null'>AND addr_id &lt;&gt; #{exceptAddrId} </if>" +
+            "</script>")
+    int clearDefault(@Param("userId") String userId,
+                     @Param("exceptAddrId") String exceptAddrId,
+                     @Param("updateTime") long updateTime);
+    
+    /**
+     * 删除用户自己的地址（地址不属于该用户时不删除，返回 0）
+     */
+    @Delete("DELETE FROM TAXI_COMMON_ADDRESS WHERE addr_id = #{addrId} AND user_id = #{userId}")
+    int deleteByUser(@Param("userId") String userId, @Param("addrId") String addrId);
 }
\ No newline at end of file
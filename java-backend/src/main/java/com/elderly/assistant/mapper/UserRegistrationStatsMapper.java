@@ -0,0 +1,33 @@
+package com.elderly.assistant.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.elderly.assistant.entity.UserRegistrationStats;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface UserRegistrationStatsMapper extends BaseMapper<UserRegistrationStats> {
+    
+    /**
+     * 增量更新计数，用户没有计数行时以增量作为初始值插入
+     */
+    @Insert("INSERT INTO USER_REGISTRATION_STATS (user_id, total, pending, completed, cancelled, update_time) " +
+            "VALUES (#{userId}, #{total}, #{pending}, #{completed}, #{cancelled}, #{updateTime}) " +
+            "ON DUPLICATE KEY UPDATE total = total + VALUES(total), pending = pending + VALUES(pending), " +
+            "completed = completed + VALUES(completed), cancelled = cancelled + VALUES(cancelled), " +
+            "update_time = VALUES(update_time)")
+    int applyDelta(@Param("userId") String userId,
+                   @Param("total") int total,
+                   @Param("pending") int pending,
+                   @Param("completed") int completed,
+                   @Param("cancelled") int cancelled,
+                   @Param("updateTime") long updateTime);
+    
+    /**
+     * 整行覆盖（按 RESERVE_ORDER 重建时使用）
+     */
+    @Insert("REPLACE INTO USER_REGISTRATION_STATS (user_id, total, pending, completed, cancelled, update_time) " +
+            "VALUES (#{userId}, #{total}, #{pending}, #{completed}, #{cancelled}, #{updateTime})")
+    int replace(UserRegistrationStats stats);
+}
@@ -0,0 +1,203 @@
+package com.elderly.assistant.outbox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.elderly.assistant.entity.OutboxEvent;
+import com.elderly.assistant.mapper.OutboxEventMapper;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 发件箱投递
+ * 事务提交后由 OutboxPublisher 唤醒，立即在后台线程投递；定时轮询兜底（进程重启、唤醒丢失、失败重试）。
+ * 每个事件先用条件 UPDATE 认领（多实例只有一个成功），再在一个事务里执行处理器并标记已投递；
+ * 标记已投递带上认领时的租约，处理超过租约、事件已被别的实例重新认领时整个事务回滚，处理器的效果只提交一次；
+ * 失败按指数退避重试，超过最大次数标记为 FAILED 等待人工处理
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000L;
+
+    private final OutboxEventMapper outboxEventMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, List<OutboxEventHandler>> handlers = new HashMap<>();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean wakeRequested = new AtomicBoolean();
+    private ExecutorService executor;
+
+    @Value("${outbox.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 认领后的租约时长，超过后未完成的事件会被重新投递
+     */
+    @Value("${outbox.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    /**
+     * 已投递事件保留时长
+     */
+    @Value("${outbox.retention-ms:86400000}")
+    private long retentionMs;
+
+    public OutboxDispatcher(OutboxEventMapper outboxEventMapper, List<OutboxEventHandler> handlerBeans,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.outboxEventMapper = outboxEventMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        for (OutboxEventHandler handler : handlerBeans) {
+            for (String eventType : handler.eventTypes()) {
+                handlers.computeIfAbsent(eventType, type -> new ArrayList<>()).add(handler);
+            }
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("outbox-dispatcher-").build());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 有新事件提交，尽快投递（已在投递中时由当前轮次继续处理）
+     */
+    public void wakeUp() {
+        wakeRequested.set(true);
+        if (!draining.get()) {
+            try {
+                executor.execute(this::drain);
+            } catch (Exception e) {
+                log.debug("投递线程不可用，等待定时轮询", e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:1000}")
+    public void poll() {
+        drain();
+    }
+
+    /**
+     * 投递所有到期事件，同一时刻本机只有一个线程在投递
+     */
+    public void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            do {
+                wakeRequested.set(false);
+                List<OutboxEvent> due;
+                do {
+                    due = outboxEventMapper.selectDue(System.currentTimeMillis(), batchSize);
+                    for (OutboxEvent event : due) {
+                        long now = System.currentTimeMillis();
+                        long leaseUntil = now + leaseMs;
+                        if (outboxEventMapper.claim(event.getEventId(), now, leaseUntil) == 1) {
+                            dispatch(event, leaseUntil);
+                        }
+                    }
+                } while (due.size() >= batchSize);
+            } while (wakeRequested.get());
+        } catch (Exception e) {
+            log.error("发件箱投递异常，等待下次轮询", e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private void dispatch(OutboxEvent event, long leaseUntil) {
+        List<OutboxEventHandler> eventHandlers = handlers.getOrDefault(event.getEventType(), new ArrayList<>());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (OutboxEventHandler handler : eventHandlers) {
+                    handler.handle(event);
+                }
+                if (outboxEventMapper.markDone(event.getEventId(), leaseUntil) == 0) {
+                    throw new LeaseLostException();
+                }
+            });
+            record(event, "done");
+        } catch (LeaseLostException e) {
+            // 别的实例已重新认领并负责投递，本次处理已回滚
+            record(event, "lease_lost");
+            log.warn("发件箱事件处理超过租约，已被重新认领，本次处理回滚，事件ID: {}, 类型: {}",
+                    event.getEventId(), event.getEventType());
+        } catch (Exception e) {
+            // 认领时已经加过一次
+            int attempts = (event.getAttempts() == null ? 0 : event.getAttempts()) + 1;
+            boolean dead = attempts >= maxAttempts;
+            long backoff = Math.min(MAX_BACKOFF_MS, 1000L << Math.min(attempts, 20));
+            outboxEventMapper.markFailed(event.getEventId(), leaseUntil,
+                    dead ? OutboxEvent.STATUS_FAILED : OutboxEvent.STATUS_PENDING,
+                    System.currentTimeMillis() + backoff, StrUtil.maxLength(e.getMessage(), 480));
+            record(event, dead ? "failed" : "retry");
+            log.error("发件箱事件投递失败，事件ID: {}, 类型: {}, 第 {} 次{}", event.getEventId(),
+                    event.getEventType(), attempts, dead ? "，已停止重试" : "", e);
+        }
+    }
+
+    /**
+     * 清理已投递的事件
+     */
+    @Scheduled(cron = "${outbox.cleanup-cron:0 20 4 * * ?}")
+    public void cleanup() {
+        long before = System.currentTimeMillis() - retentionMs;
+        int deleted = 0;
+        int chunk;
+        do {
+            chunk = outboxEventMapper.deleteDone(before, 1000);
+            deleted += chunk;
+        } while (chunk >= 1000);
+        if (deleted > 0) {
+            log.info("清理已投递的发件箱事件: {} 条", deleted);
+        }
+    }
+
+    private void record(OutboxEvent event, String result) {
+        meterRegistry.counter("outbox.dispatch", "type", event.getEventType(), "result", result).increment();
+    }
+
+    /**
+     * 标记已投递时发现租约已失效，用于回滚处理器事务
+     */
+    private static final class LeaseLostException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        LeaseLostException() {
+            super("发件箱事件租约已失效", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.elderly.assistant.outbox;
+
+import java.util.Set;
+
+import com.elderly.assistant.entity.OutboxEvent;
+
+/**
+ * 发件箱事件处理器
+ * 处理器与"标记已投递"在同一个事务里执行：数据库副作用与投递状态一起提交，
+ * 失败时一起回滚并稍后重试；Redis 等非数据库副作用应注册在事务提交后执行。
+ * 处理超过租约时同一事件可能在两个实例上同时执行，只有仍持有租约的一方能提交，另一方整体回滚
+ */
+public interface OutboxEventHandler {
+
+    /**
+     * 处理的事件类型
+     */
+    Set<String> eventTypes();
+
+    void handle(OutboxEvent event);
+}
@@ -0,0 +1,52 @@
+package com.elderly.assistant.outbox;
+
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.elderly.assistant.common.IdGenerator;
+import com.elderly.assistant.entity.OutboxEvent;
+import com.elderly.assistant.mapper.OutboxEventMapper;
+
+import cn.hutool.json.JSONUtil;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 发件箱写入
+ * 在业务事务内插入事件行，事务提交后唤醒投递线程；事务回滚时事件行一起回滚，不会投递
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxPublisher {
+
+    private final OutboxEventMapper outboxEventMapper;
+    private final OutboxDispatcher outboxDispatcher;
+    private final IdGenerator idGenerator;
+
+    public void publish(String eventType, String aggregateId, Map<String, Object> payload) {
+        long now = System.currentTimeMillis();
+        OutboxEvent event = new OutboxEvent();
+        event.setEventId(idGenerator.nextId());
+        event.setEventType(eventType);
+        event.setAggregateId(aggregateId);
+        event.setPayload(JSONUtil.toJsonStr(payload));
+        event.setStatus(OutboxEvent.STATUS_PENDING);
+        event.setAttempts(0);
+        event.setNextAttemptTime(now);
+        event.setCreateTime(now);
+        outboxEventMapper.insert(event);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxDispatcher.wakeUp();
+                }
+            });
+        } else {
+            outboxDispatcher.wakeUp();
+        }
+    }
+}
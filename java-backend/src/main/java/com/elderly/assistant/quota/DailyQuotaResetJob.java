@@ -0,0 +1,116 @@
+package com.elderly.assistant.quota;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.catalog.HospitalSnapshot;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 每日号源重置
+ * 零点把 HOSPITAL_INFO.available_quota 重置为 daily_quota（扣掉提前预约到当天的订单），
+ * 按主键分段执行集合 UPDATE，每段单独提交，不长时间持有行锁；
+ * 重置后立即重建医院目录快照并预热当天的 Redis 号源计数器，早高峰第一批请求不用回库。
+ * 多实例部署时通过 Redis 锁保证同一天只有一个实例执行
+ */
+@Slf4j
+@Component
+public class DailyQuotaResetJob {
+
+    private static final String LOCK_PREFIX = "quota:reset:";
+    private static final Duration LOCK_TTL = Duration.ofHours(1);
+
+    private final HospitalInfoMapper hospitalInfoMapper;
+    private final HospitalCatalog hospitalCatalog;
+    private final HospitalQuotaCounter hospitalQuotaCounter;
+    private final StringRedisTemplate redisTemplate;
+    private final Timer resetTimer;
+
+    /**
+     * 每段重置的医院数
+     */
+    @Value("${hospital.quota.reset-chunk-size:500}")
+    private int chunkSize;
+
+    public DailyQuotaResetJob(HospitalInfoMapper hospitalInfoMapper, HospitalCatalog hospitalCatalog,
+                              HospitalQuotaCounter hospitalQuotaCounter, StringRedisTemplate redisTemplate,
+                              MeterRegistry meterRegistry) {
+        this.hospitalInfoMapper = hospitalInfoMapper;
+        this.hospitalCatalog = hospitalCatalog;
+        this.hospitalQuotaCounter = hospitalQuotaCounter;
+        this.redisTemplate = redisTemplate;
+        this.resetTimer = meterRegistry.timer("hospital.quota.reset");
+    }
+
+    @Scheduled(cron = "${hospital.quota.reset-cron:0 0 0 * * ?}")
+    public void scheduledReset() {
+        String today = LocalDate.now().toString();
+        if (!tryLock(today)) {
+            log.info("今日号源已由其它实例重置，跳过，日期: {}", today);
+            return;
+        }
+        try {
+            reset(today);
+        } catch (Exception e) {
+            log.error("每日号源重置失败，日期: {}", today, e);
+        }
+    }
+
+    /**
+     * 重置 date 当天的号源并预热缓存
+     *
+     * @return 重置的医院数
+     */
+    public int reset(String date) {
+        long start = System.nanoTime();
+        int updated = 0;
+        int chunks = 0;
+        String afterId = "";
+        while (true) {
+            List<String> ids = hospitalInfoMapper.selectIdsAfter(afterId, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            String lastId = ids.get(ids.size() - 1);
+            updated += hospitalInfoMapper.resetAvailableQuota(afterId, lastId, date);
+            chunks++;
+            if (ids.size() < chunkSize) {
+                break;
+            }
+            afterId = lastId;
+        }
+
+        HospitalSnapshot snapshot = hospitalCatalog.refresh();
+        int warmed = hospitalQuotaCounter.warmUp(snapshot.getAll(), date);
+
+        long elapsed = System.nanoTime() - start;
+        resetTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("每日号源重置完成，日期: {}, 医院数: {}, 分段数: {}, 预热计数器: {}, 耗时: {}ms",
+                date, updated, chunks, warmed, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return updated;
+    }
+
+    /**
+     * Redis 不可用时仍然执行（重置本身可重复执行，多个实例同时跑只是多做一次）
+     */
+    private boolean tryLock(String date) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_PREFIX + date, "1", LOCK_TTL));
+        } catch (Exception e) {
+            log.warn("获取号源重置锁失败，直接执行", e);
+            return true;
+        }
+    }
+}
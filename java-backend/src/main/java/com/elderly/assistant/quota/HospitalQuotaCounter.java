@@ -0,0 +1,501 @@
+package com.elderly.assistant.quota;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.entity.ReserveOrder;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 医院号源计数器（Redis）
+ * 每家医院每个预约日期一个计数器 quota:{hospitalId}:{date}，扣减/归还都在 Lua 脚本里原子完成，
+ * 挂号高峰时不再争抢 HOSPITAL_INFO 的行锁。
+ * 号源以 daily_quota 和 RESERVE_ORDER 为准：计数器只是 daily_quota - 该日期已预约数 - 在途数 的缓存，
+ * 不存在时按订单重建；daily_quota 为空的医院不限量，不建计数器。
+ * 在途数 quota-inflight:{hospitalId}:{date} 是已在 Redis 扣减、事务还未结束的号源数：扣减时加，
+ * 事务提交或回滚后减（回滚时同时归还计数器）。重建时先读在途数再查订单，提交中的挂号最多被算两次，
+ * 重建值只会偏低不会偏高，回滚晚于重建到达时归还的也正是重建时扣掉的那一份；
+ * 进程在事务中途退出时在途数要等过期（预约日期后一天）才清掉，期间该日期少放出这几个号。
+ * Redis 不可用期间走数据库挂号的日期记为失效，Redis 恢复后先删掉计数器再按订单重建，避免恢复后超卖。
+ * HOSPITAL_INFO.available_quota 只是今天剩余号源的展示值，定时按订单重算，不回写 Redis 中的数值
+ */
+@Slf4j
+@Component
+public class HospitalQuotaCounter {
+
+    private static final String KEY_PREFIX = "quota:";
+    private static final String INFLIGHT_PREFIX = "quota-inflight:";
+    private static final String DIRTY_KEY = "quota:dirty";
+
+    /**
+     * 余量足够则扣减 ARGV[1] 个、在途数（KEYS[3]）加 ARGV[1] 并返回剩余量；余量不足返回 -1；计数器不存在返回 -2
+     */
+    private static final RedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]) " +
+            "if not v then return -2 end " +
+            "if tonumber(v) < tonumber(ARGV[1]) then return -1 end " +
+            "local left = redis.call('DECRBY', KEYS[1], ARGV[1]) " +
+            "redis.call('SADD', KEYS[2], KEYS[1]) " +
+            "redis.call('INCRBY', KEYS[3], ARGV[1]) " +
+            "redis.call('EXPIRE', KEYS[3], ARGV[2]) " +
+            "return left", Long.class);
+
+    private static final String SETTLE =
+            "if redis.call('EXISTS', KEYS[3]) == 1 and redis.call('DECRBY', KEYS[3], ARGV[1]) <= 0 then " +
+            "redis.call('DEL', KEYS[3]) end ";
+
+    private static final String RELEASE =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end " +
+            "local left = redis.call('INCRBY', KEYS[1], ARGV[1]) " +
+            "redis.call('SADD', KEYS[2], KEYS[1]) " +
+            "return left";
+
+    /**
+     * 事务提交：在途数减 ARGV[1]
+     */
+    private static final RedisScript<Long> SETTLE_SCRIPT = new DefaultRedisScript<>(SETTLE + "return 0", Long.class);
+
+    /**
+     * 计数器存在则归还 ARGV[1] 个并返回剩余量，不存在返回 -2（下次扣减时会按订单重建）
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(RELEASE, Long.class);
+
+    /**
+     * 事务回滚：在途数减 ARGV[1]，再按 {@link #RELEASE_SCRIPT} 归还
+     */
+    private static final RedisScript<Long> ROLLBACK_SCRIPT = new DefaultRedisScript<>(SETTLE + RELEASE, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final HospitalInfoMapper hospitalInfoMapper;
+    private final ReserveOrderMapper reserveOrderMapper;
+    private final HospitalCatalog hospitalCatalog;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 走过数据库扣减/归还、需要按订单重建的计数器
+     */
+    private final Set<String> staleKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 关闭后挂号直接走数据库扣减
+     */
+    @Value("${hospital.quota.redis-enabled:true}")
+    private boolean redisEnabled;
+
+    public HospitalQuotaCounter(StringRedisTemplate redisTemplate, HospitalInfoMapper hospitalInfoMapper,
+                                ReserveOrderMapper reserveOrderMapper, HospitalCatalog hospitalCatalog,
+                                MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.hospitalInfoMapper = hospitalInfoMapper;
+        this.reserveOrderMapper = reserveOrderMapper;
+        this.hospitalCatalog = hospitalCatalog;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 扣减结果
+     */
+    public enum Outcome {
+        /** 扣减成功 */
+        RESERVED,
+        /** 号源已满 */
+        SOLD_OUT,
+        /** 医院未设置号源，不限量 */
+        UNLIMITED,
+        /** Redis 不可用或未启用，由调用方走数据库 */
+        UNAVAILABLE
+    }
+
+    public boolean isEnabled() {
+        return redisEnabled;
+    }
+
+    /**
+     * 扣减一个号源
+     */
+    public Outcome tryReserve(HospitalInfo hospital, String date) {
+        return tryReserve(hospital, date, 1);
+    }
+
+    /**
+     * 一次扣减 count 个号源（批量挂号），余量不足时一个都不扣
+     * 扣减成功后调用方必须调用 {@link #settleOnCompletion} 结清在途数
+     */
+    public Outcome tryReserve(HospitalInfo hospital, String date, int count) {
+        if (hospital.getDailyQuota() == null) {
+            return record(Outcome.UNLIMITED);
+        }
+        if (!redisEnabled) {
+            return Outcome.UNAVAILABLE;
+        }
+        String key = key(hospital.getHospitalId(), date);
+        try {
+            if (staleKeys.contains(key)) {
+                invalidate(key);
+            }
+            Long left = reserve(hospital.getHospitalId(), date, count);
+            if (left != null && left == -2) {
+                Integer initial = initialQuota(hospital, date);
+                if (initial == null) {
+                    return record(Outcome.UNLIMITED);
+                }
+                redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(initial), ttl(date));
+                left = reserve(hospital.getHospitalId(), date, count);
+            }
+            if (left == null || left == -2) {
+                return record(Outcome.UNAVAILABLE);
+            }
+            return record(left >= 0 ? Outcome.RESERVED : Outcome.SOLD_OUT);
+        } catch (Exception e) {
+            log.warn("Redis 号源扣减失败，改走数据库，key: {}", key, e);
+            return record(Outcome.UNAVAILABLE);
+        }
+    }
+
+    /**
+     * 归还一个号源
+     */
+    public void release(String hospitalId, String date) {
+        release(hospitalId, date, 1);
+    }
+
+    /**
+     * 归还 count 个号源
+     */
+    public void release(String hospitalId, String date, int count) {
+        if (!redisEnabled) {
+            return;
+        }
+        String key = key(hospitalId, date);
+        try {
+            execute(RELEASE_SCRIPT, key, count);
+        } catch (Exception e) {
+            log.warn("Redis 号源归还失败，计数器将按订单重建，key: {}", key, e);
+            staleKeys.add(key);
+        }
+    }
+
+    /**
+     * 数据库扣减过 date 的号源后调用：计数器没有看到这次变化，删掉后由下次扣减按订单重建
+     * 删除失败（Redis 仍不可用）时记在本地，下次扣减或回写时再删
+     */
+    public void markStale(String hospitalId, String date) {
+        if (!redisEnabled) {
+            return;
+        }
+        String key = key(hospitalId, date);
+        staleKeys.add(key);
+        try {
+            invalidate(key);
+        } catch (Exception e) {
+            log.warn("号源计数器失效失败，Redis 恢复后重试，key: {}", key, e);
+        }
+    }
+
+    /**
+     * 数据库归还过 date 的号源后调用（未启用 Redis 时取消挂号）：
+     * 计数器失效，date 是今天时事务提交后按订单重算 available_quota
+     */
+    public void changedInDatabase(String hospitalId, String date) {
+        markStale(hospitalId, date);
+        String day = normalizeDate(date);
+        if (!LocalDate.now().toString().equals(day)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refreshToday(hospitalId, day);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refreshToday(hospitalId, day);
+            }
+        });
+    }
+
+    /**
+     * 结清 {@link #tryReserve} 扣减的 count 个号源：当前事务提交后只减在途数，回滚后同时归还计数器；
+     * 没有事务时按已提交处理
+     */
+    public void settleOnCompletion(String hospitalId, String date, int count) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            settle(SETTLE_SCRIPT, hospitalId, date, count);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                settle(status == STATUS_COMMITTED ? SETTLE_SCRIPT : ROLLBACK_SCRIPT, hospitalId, date, count);
+            }
+        });
+    }
+
+    private void settle(RedisScript<Long> script, String hospitalId, String date, int count) {
+        String key = key(hospitalId, date);
+        try {
+            redisTemplate.execute(script, Arrays.asList(key, DIRTY_KEY, inflightKey(hospitalId, date)),
+                    String.valueOf(count));
+        } catch (Exception e) {
+            // 在途数没减掉只会让重建值偏低；回滚时没归还的号源由重建找回
+            log.warn("Redis 号源结清失败，计数器将按订单重建，key: {}", key, e);
+            staleKeys.add(key);
+        }
+    }
+
+    /**
+     * 当前事务提交后归还号源（取消挂号），没有事务时立即归还
+     */
+    public void releaseAfterCommit(String hospitalId, String date) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(hospitalId, date);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(hospitalId, date);
+            }
+        });
+    }
+
+    /**
+     * 读取剩余号源（只读 Redis，不查库）；计数器不存在或 Redis 不可用时返回 null，由调用方使用目录中的值
+     */
+    public Integer remaining(String hospitalId, String date) {
+        if (!redisEnabled || StrUtil.isBlank(hospitalId)) {
+            return null;
+        }
+        try {
+            String value = redisTemplate.opsForValue().get(key(hospitalId, date));
+            return value == null ? null : Integer.valueOf(value);
+        } catch (Exception e) {
+            log.warn("读取 Redis 号源失败，hospitalId: {}", hospitalId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 今天的剩余号源
+     */
+    public Integer remainingToday(String hospitalId) {
+        return remaining(hospitalId, LocalDate.now().toString());
+    }
+
+    /**
+     * 批量读取今天的剩余号源（一次 MGET，列表页用）；没有计数器的医院不在结果中，Redis 不可用时返回空 Map
+     */
+    public Map<String, Integer> remainingToday(Collection<String> hospitalIds) {
+        Map<String, Integer> result = new HashMap<>();
+        if (!redisEnabled || hospitalIds.isEmpty()) {
+            return result;
+        }
+        String today = LocalDate.now().toString();
+        List<String> ids = new ArrayList<>(hospitalIds);
+        List<String> keys = new ArrayList<>(ids.size());
+        for (String hospitalId : ids) {
+            keys.add(key(hospitalId, today));
+        }
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; values != null && i < ids.size(); i++) {
+                if (values.get(i) != null) {
+                    result.put(ids.get(i), Integer.valueOf(values.get(i)));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("批量读取 Redis 号源失败，使用目录中的值，医院数: {}", ids.size(), e);
+        }
+        return result;
+    }
+
+    /**
+     * 预热计数器：按医院当前剩余号源创建 date 的计数器，已存在的计数器以 Redis 为准不覆盖
+     *
+     * @return 新建的计数器数
+     */
+    public int warmUp(Collection<HospitalInfo> hospitals, String date) {
+        if (!redisEnabled) {
+            return 0;
+        }
+        int created = 0;
+        for (HospitalInfo hospital : hospitals) {
+            if (hospital.getDailyQuota() == null || hospital.getAvailableQuota() == null
+                    || staleKeys.contains(key(hospital.getHospitalId(), date))) {
+                continue;
+            }
+            try {
+                Boolean ok = redisTemplate.opsForValue().setIfAbsent(key(hospital.getHospitalId(), date),
+                        String.valueOf(hospital.getAvailableQuota()), ttl(date));
+                if (Boolean.TRUE.equals(ok)) {
+                    created++;
+                }
+            } catch (Exception e) {
+                log.warn("号源计数器预热失败，将在首次挂号时创建，hospitalId: {}", hospital.getHospitalId(), e);
+                return created;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * 定时删除失效的计数器，并按订单重算今天有变化的医院的 HOSPITAL_INFO.available_quota
+     * 重算以 RESERVE_ORDER 为准，不会覆盖数据库扣减的结果
+     */
+    @Scheduled(fixedDelayString = "${hospital.quota.flush-interval-ms:5000}")
+    public void flush() {
+        if (!redisEnabled) {
+            return;
+        }
+        for (String key : staleKeys) {
+            try {
+                invalidate(key);
+            } catch (Exception e) {
+                log.warn("号源计数器失效失败，稍后重试，key: {}", key, e);
+                return;
+            }
+        }
+        Set<String> dirty;
+        try {
+            dirty = redisTemplate.opsForSet().members(DIRTY_KEY);
+        } catch (Exception e) {
+            log.warn("读取号源脏集合失败，稍后重试", e);
+            return;
+        }
+        if (dirty == null || dirty.isEmpty()) {
+            return;
+        }
+
+        String today = LocalDate.now().toString();
+        int flushed = 0;
+        for (String key : dirty) {
+            try {
+                // 先移出脏集合再重算，重算期间的新变化会重新进入脏集合
+                redisTemplate.opsForSet().remove(DIRTY_KEY, key);
+                int split = key.lastIndexOf(':');
+                if (split <= KEY_PREFIX.length() || !today.equals(key.substring(split + 1))) {
+                    continue;
+                }
+                refreshToday(key.substring(KEY_PREFIX.length(), split), today);
+                flushed++;
+            } catch (Exception e) {
+                log.error("号源回写失败，key: {}", key, e);
+                redisTemplate.opsForSet().add(DIRTY_KEY, key);
+            }
+        }
+        if (flushed > 0) {
+            log.info("号源回写完成，医院数: {}", flushed);
+        }
+    }
+
+    /**
+     * 计数器初始值：daily_quota - 该日期已预约数 - 在途数；没有 daily_quota 则不限量
+     * 先读在途数再查订单：两次读取之间提交的挂号两边都算上，不会两边都漏掉
+     */
+    private Integer initialQuota(HospitalInfo hospital, String date) {
+        HospitalInfo latest = hospitalInfoMapper.selectById(hospital.getHospitalId());
+        if (latest == null) {
+            return 0;
+        }
+        if (latest.getDailyQuota() == null) {
+            return null;
+        }
+        String inflightValue = redisTemplate.opsForValue().get(inflightKey(hospital.getHospitalId(), date));
+        int inflight = inflightValue == null ? 0 : Math.max(0, Integer.parseInt(inflightValue));
+        Long booked = reserveOrderMapper.selectCount(new LambdaQueryWrapper<ReserveOrder>()
+                .eq(ReserveOrder::getHospitalId, latest.getHospitalId())
+                .eq(ReserveOrder::getReserveDate, date)
+                .eq(ReserveOrder::getStatus, "已预约"));
+        return Math.max(0, latest.getDailyQuota() - booked.intValue() - inflight);
+    }
+
+    /**
+     * 按订单重算今天的剩余号源并刷新目录
+     */
+    private void refreshToday(String hospitalId, String today) {
+        hospitalInfoMapper.refreshAvailableQuota(hospitalId, today);
+        hospitalCatalog.refreshHospital(hospitalId);
+    }
+
+    /**
+     * 删除计数器，成功后不再视为失效
+     */
+    private void invalidate(String key) {
+        redisTemplate.delete(key);
+        staleKeys.remove(key);
+    }
+
+    private Long execute(RedisScript<Long> script, String key, int count) {
+        return redisTemplate.execute(script, Arrays.asList(key, DIRTY_KEY), String.valueOf(count));
+    }
+
+    private Long reserve(String hospitalId, String date, int count) {
+        return redisTemplate.execute(RESERVE_SCRIPT,
+                Arrays.asList(key(hospitalId, date), DIRTY_KEY, inflightKey(hospitalId, date)),
+                String.valueOf(count), String.valueOf(ttl(date).getSeconds()));
+    }
+
+    private Outcome record(Outcome outcome) {
+        meterRegistry.counter("hospital.quota.reserve", "result", outcome.name().toLowerCase()).increment();
+        return outcome;
+    }
+
+    private static String key(String hospitalId, String date) {
+        return KEY_PREFIX + hospitalId + ":" + normalizeDate(date);
+    }
+
+    private static String inflightKey(String hospitalId, String date) {
+        return INFLIGHT_PREFIX + hospitalId + ":" + normalizeDate(date);
+    }
+
+    /**
+     * 统一日期格式为 yyyy-MM-dd，保证同一天只对应一个计数器
+     */
+    static String normalizeDate(String date) {
+        try {
+            return DateUtil.parseDate(date.trim()).toDateStr();
+        } catch (Exception e) {
+            return date.trim();
+        }
+    }
+
+    /**
+     * 计数器保留到预约日期之后一天
+     */
+    private static Duration ttl(String date) {
+        try {
+            LocalDateTime expireAt = DateUtil.parseDate(date.trim()).toLocalDateTime().plusDays(2);
+            Duration ttl = Duration.between(LocalDateTime.now(), expireAt);
+            return ttl.isNegative() || ttl.isZero() ? Duration.ofDays(1) : ttl;
+        } catch (Exception e) {
+            return Duration.ofDays(1);
+        }
+    }
+}
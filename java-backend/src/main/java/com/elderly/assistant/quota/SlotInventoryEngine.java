@@ -0,0 +1,452 @@
+package com.elderly.assistant.quota;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.elderly.assistant.catalog.DepartmentIndex;
+import com.elderly.assistant.dto.SlotAvailabilityDTO;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.entity.ReserveOrder;
+import com.elderly.assistant.entity.SlotInventory;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+import com.elderly.assistant.mapper.SlotInventoryMapper;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 号源库存引擎：按 医院+日期+科室+时段 管理号源
+ * 库存常驻内存，占用/归还在分段锁内 O(1) 完成，号源已满时直接拒绝、不查库；
+ * 占用成功后在当前事务里对 SLOT_INVENTORY 做条件更新（booked &lt; capacity），
+ * 多节点部署时以数据库为准，条件更新失败说明其它节点已抢完，重新加载库存后拒绝。
+ * 医院没有设置 daily_quota 时不限量，不建库存。
+ * 容量划分：daily_quota 按医院的科室数平分到各科室（余数给排在前面的科室），未指定科室的挂号按整个医院计；
+ * 每个科室的号源再分成上午/下午两段，全天不单独建库存，余量是上午+下午之和，挂"全天"时从有余量的半天中占用
+ */
+@Slf4j
+@Component
+public class SlotInventoryEngine {
+
+    public static final String SLOT_AM = "AM";
+    public static final String SLOT_PM = "PM";
+    public static final String SLOT_DAY = "DAY";
+
+    private static final int STRIPES = 64;
+
+    private final SlotInventoryMapper slotInventoryMapper;
+    private final ReserveOrderMapper reserveOrderMapper;
+
+    private final Map<SlotKey, Slot> slots = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    /**
+     * 内存显示已满时，距上次加载超过该时间则回库确认一次（其它节点可能有取消）
+     */
+    @Value("${hospital.slot.reload-interval-ms:30000}")
+    private long reloadIntervalMs;
+
+    /**
+     * 可预约的日期范围：今天起多少天内
+     */
+    @Value("${hospital.slot.max-advance-days:30}")
+    private int maxAdvanceDays;
+
+    public SlotInventoryEngine(SlotInventoryMapper slotInventoryMapper, ReserveOrderMapper reserveOrderMapper) {
+        this.slotInventoryMapper = slotInventoryMapper;
+        this.reserveOrderMapper = reserveOrderMapper;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 统一时段写法：AM/上午、PM/下午，未指定为全天
+     */
+    public static String normalizeSlot(String timeSlot) {
+        if (StrUtil.isBlank(timeSlot)) {
+            return SLOT_DAY;
+        }
+        String value = timeSlot.trim();
+        if (SLOT_AM.equalsIgnoreCase(value) || "上午".equals(value)) {
+            return SLOT_AM;
+        }
+        if (SLOT_PM.equalsIgnoreCase(value) || "下午".equals(value)) {
+            return SLOT_PM;
+        }
+        if (SLOT_DAY.equalsIgnoreCase(value) || "全天".equals(value)) {
+            return SLOT_DAY;
+        }
+        throw new IllegalArgumentException("无效的时段: " + timeSlot);
+    }
+
+    /**
+     * 校验预约日期：格式正确且在 今天 ~ 今天+maxAdvanceDays 之内
+     *
+     * @return 统一为 yyyy-MM-dd 的日期
+     */
+    public String checkDate(String date) {
+        LocalDate day;
+        try {
+            day = DateUtil.parseDate(date.trim()).toLocalDateTime().toLocalDate();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的预约日期: " + date);
+        }
+        LocalDate today = LocalDate.now();
+        if (day.isBefore(today) || day.isAfter(today.plusDays(maxAdvanceDays))) {
+            throw new IllegalArgumentException("只能预约今天起 " + maxAdvanceDays + " 天内的号源");
+        }
+        return day.toString();
+    }
+
+    /**
+     * 占用一个号源（需在事务中调用，事务回滚时自动归还内存库存）
+     * 全天先占上午，上午已满再占下午
+     *
+     * @return 实际占用的时段（AM/PM），号源已满返回 null；医院不限量时返回原时段
+     */
+    public String tryReserve(HospitalInfo hospital, String department, String date, String timeSlot) {
+        String slotName = normalizeSlot(timeSlot);
+        if (hospital.getDailyQuota() == null) {
+            return slotName;
+        }
+        List<String> candidates = SLOT_DAY.equals(slotName) ? Arrays.asList(SLOT_AM, SLOT_PM)
+                : Arrays.asList(slotName);
+        for (String candidate : candidates) {
+            if (tryReserve(SlotKey.of(hospital.getHospitalId(), department, date, candidate), hospital)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private boolean tryReserve(SlotKey key, HospitalInfo hospital) {
+        Slot slot = slotOf(key, hospital);
+        if (slot == null) {
+            return true;
+        }
+
+        if (!take(key, slot)) {
+            // 内存已满且数据较旧时回库确认一次
+            if (System.currentTimeMillis() - slot.loadedAt < reloadIntervalMs) {
+                return false;
+            }
+            slots.remove(key, slot);
+            slot = slotOf(key, hospital);
+            if (slot == null || !take(key, slot)) {
+                return false;
+            }
+        }
+
+        int updated;
+        try {
+            updated = slotInventoryMapper.reserve(key.hospitalId, key.date, key.department, key.timeSlot,
+                    System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            giveBack(key, slot);
+            throw e;
+        }
+        if (updated == 0) {
+            // 其它节点已占满，丢弃内存副本，下次重新加载
+            log.info("号源已被其它节点占满: {}", key);
+            slots.remove(key, slot);
+            return false;
+        }
+
+        final Slot taken = slot;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        giveBack(key, taken);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * 归还一个号源（取消挂号，需在事务中调用，提交后更新内存库存）
+     */
+    public void release(String hospitalId, String department, String date, String timeSlot) {
+        SlotKey key = SlotKey.of(hospitalId, department, date, timeSlot);
+        int updated = slotInventoryMapper.release(key.hospitalId, key.date, key.department, key.timeSlot,
+                System.currentTimeMillis());
+        if (updated == 0) {
+            return;
+        }
+        Runnable applyInMemory = () -> {
+            Slot slot = slots.get(key);
+            if (slot != null) {
+                giveBack(key, slot);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyInMemory.run();
+                }
+            });
+        } else {
+            applyInMemory.run();
+        }
+    }
+
+    /**
+     * 某医院某天各时段的余量（上午、下午、全天=上午+下午）；医院不限量时返回空列表
+     * 只读：没有库存时按默认容量和已有订单计算，不写 SLOT_INVENTORY 也不缓存
+     * 科室和日期需由调用方校验（见 {@link #checkDate}）
+     */
+    public List<SlotAvailabilityDTO> getAvailability(HospitalInfo hospital, String department, String date) {
+        List<SlotAvailabilityDTO> result = new ArrayList<>();
+        if (hospital.getDailyQuota() == null) {
+            return result;
+        }
+        int dayCapacity = 0;
+        int dayBooked = 0;
+        for (String timeSlot : Arrays.asList(SLOT_AM, SLOT_PM)) {
+            SlotKey key = SlotKey.of(hospital.getHospitalId(), department, date, timeSlot);
+            int[] counts = peek(key, hospital);
+            result.add(availability(key, counts[0], counts[1]));
+            dayCapacity += counts[0];
+            dayBooked += counts[1];
+        }
+        SlotKey day = SlotKey.of(hospital.getHospitalId(), department, date, SLOT_DAY);
+        result.add(availability(day, dayCapacity, dayBooked));
+        return result;
+    }
+
+    private static SlotAvailabilityDTO availability(SlotKey key, int capacity, int booked) {
+        SlotAvailabilityDTO dto = new SlotAvailabilityDTO();
+        dto.setHospitalId(key.hospitalId);
+        dto.setDate(key.date);
+        dto.setDepartment(key.department);
+        dto.setTimeSlot(key.timeSlot);
+        dto.setCapacity(capacity);
+        dto.setBooked(booked);
+        dto.setRemaining(Math.max(0, capacity - booked));
+        dto.setAvailable(booked < capacity);
+        return dto;
+    }
+
+    /**
+     * 读取 [容量, 已占用]：内存有则读内存，其次读 SLOT_INVENTORY，都没有时按默认容量和订单数计算
+     */
+    private int[] peek(SlotKey key, HospitalInfo hospital) {
+        Slot slot = slots.get(key);
+        if (slot != null) {
+            ReentrantLock lock = lockOf(key);
+            lock.lock();
+            try {
+                return new int[] {slot.capacity, slot.booked};
+            } finally {
+                lock.unlock();
+            }
+        }
+        SlotInventory row = slotInventoryMapper.selectSlot(key.hospitalId, key.date, key.department, key.timeSlot);
+        if (row != null) {
+            return new int[] {row.getCapacity(), row.getBooked()};
+        }
+        return new int[] {defaultCapacity(hospital, key.department, key.timeSlot), countBooked(key)};
+    }
+
+    /**
+     * 每天凌晨清理已过期日期的内存库存
+     */
+    @Scheduled(cron = "0 10 0 * * ?")
+    public void evictExpired() {
+        String today = LocalDate.now().toString();
+        int before = slots.size();
+        slots.keySet().removeIf(key -> key.date.compareTo(today) < 0);
+        log.info("清理过期号源库存 {} 条", before - slots.size());
+    }
+
+    private boolean take(SlotKey key, Slot slot) {
+        ReentrantLock lock = lockOf(key);
+        lock.lock();
+        try {
+            if (slot.booked >= slot.capacity) {
+                return false;
+            }
+            slot.booked++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void giveBack(SlotKey key, Slot slot) {
+        ReentrantLock lock = lockOf(key);
+        lock.lock();
+        try {
+            if (slot.booked > 0) {
+                slot.booked--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockOf(SlotKey key) {
+        return locks[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    /**
+     * 取内存库存，没有时从 SLOT_INVENTORY 加载；表里也没有时按医院号源和已有订单初始化
+     */
+    private Slot slotOf(SlotKey key, HospitalInfo hospital) {
+        Slot slot = slots.get(key);
+        if (slot != null) {
+            return slot;
+        }
+        if (hospital.getDailyQuota() == null) {
+            return null;
+        }
+
+        SlotInventory row = slotInventoryMapper.selectSlot(key.hospitalId, key.date, key.department, key.timeSlot);
+        boolean created = row == null;
+        if (created) {
+            row = new SlotInventory();
+            row.setHospitalId(key.hospitalId);
+            row.setSlotDate(key.date);
+            row.setDepartment(key.department);
+            row.setTimeSlot(key.timeSlot);
+            row.setCapacity(defaultCapacity(hospital, key.department, key.timeSlot));
+            row.setBooked(countBooked(key));
+            row.setUpdateTime(System.currentTimeMillis());
+            slotInventoryMapper.insertIgnore(row);
+            row = slotInventoryMapper.selectSlot(key.hospitalId, key.date, key.department, key.timeSlot);
+        }
+        Slot loaded = new Slot(row.getCapacity(), row.getBooked());
+        Slot existing = slots.putIfAbsent(key, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        if (created && TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 库存行随当前事务插入，回滚后行不存在，内存副本也要丢弃，否则下次扣减会误判为已占满
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        slots.remove(key, loaded);
+                    }
+                }
+            });
+        }
+        return loaded;
+    }
+
+    /**
+     * 默认号源：科室份额（未指定科室时为 daily_quota）分成上午/下午两段，上午多分余数
+     */
+    private static int defaultCapacity(HospitalInfo hospital, String department, String timeSlot) {
+        int share = departmentShare(hospital, department);
+        return SLOT_AM.equals(timeSlot) ? (share + 1) / 2 : share / 2;
+    }
+
+    /**
+     * 科室份额：daily_quota 按科室数平分，余数依次给排在前面的科室；未指定科室或医院没有科室列表时为整个 daily_quota
+     */
+    private static int departmentShare(HospitalInfo hospital, String department) {
+        int daily = hospital.getDailyQuota();
+        if (department.isEmpty()) {
+            return daily;
+        }
+        List<String> departments = DepartmentIndex.parseDepartments(hospital.getDepartments());
+        int index = departments.indexOf(department);
+        if (index < 0) {
+            return daily;
+        }
+        int n = departments.size();
+        return daily / n + (index < daily % n ? 1 : 0);
+    }
+
+    private int countBooked(SlotKey key) {
+        LambdaQueryWrapper<ReserveOrder> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ReserveOrder::getHospitalId, key.hospitalId)
+                   .eq(ReserveOrder::getReserveDate, key.date)
+                   .eq(ReserveOrder::getStatus, "已预约")
+                   .eq(ReserveOrder::getTimeSlot, key.timeSlot);
+        if (key.department.isEmpty()) {
+            queryWrapper.and(w -> w.isNull(ReserveOrder::getDepartment).or().eq(ReserveOrder::getDepartment, ""));
+        } else {
+            queryWrapper.eq(ReserveOrder::getDepartment, key.department);
+        }
+        return reserveOrderMapper.selectCount(queryWrapper).intValue();
+    }
+
+    /**
+     * 内存库存，capacity/booked 在对应分段锁内读写
+     */
+    private static final class Slot {
+        final int capacity;
+        final long loadedAt = System.currentTimeMillis();
+        int booked;
+
+        Slot(int capacity, int booked) {
+            this.capacity = capacity;
+            this.booked = booked;
+        }
+    }
+
+    /**
+     * 库存键：医院 + 日期 + 科室 + 时段
+     */
+    private static final class SlotKey {
+        final String hospitalId;
+        final String date;
+        final String department;
+        final String timeSlot;
+
+        private SlotKey(String hospitalId, String date, String department, String timeSlot) {
+            this.hospitalId = hospitalId;
+            this.date = date;
+            this.department = department;
+            this.timeSlot = timeSlot;
+        }
+
+        static SlotKey of(String hospitalId, String department, String date, String timeSlot) {
+            return new SlotKey(hospitalId, HospitalQuotaCounter.normalizeDate(date),
+                    StrUtil.nullToEmpty(StrUtil.trim(department)), normalizeSlot(timeSlot));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SlotKey)) {
+                return false;
+            }
+            SlotKey other = (SlotKey) o;
+            return hospitalId.equals(other.hospitalId) && date.equals(other.date)
+                    && department.equals(other.department) && timeSlot.equals(other.timeSlot);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hospitalId, date, department, timeSlot);
+        }
+
+        @Override
+        public String toString() {
+            return hospitalId + "/" + date + "/" + department + "/" + timeSlot;
+        }
+    }
+}
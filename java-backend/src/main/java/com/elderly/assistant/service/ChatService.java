@@ -15,9 +15,21 @@ import java.util.*;
 @Service
 public class ChatService {
 
+    // 没听清时的提示
+    private static final String NOT_HEARD_REPLY = "我有点没听清，您可以再慢慢说一遍吗？";
+
     // 关键词和回复模板库
     private static final Map<String, List<String>> REPLY_TEMPLATES = new HashMap<>();
 
+    // 没有匹配到关键词时的通用回复
+    private static final List<String> DEFAULT_REPLIES = Arrays.asList(
+            "您说的很有道理，我也是这么想的。",
+            "嗯嗯，我在听着呢，您接着说。",
+            "真的吗？跟我详细说说呗。",
+            "我明白您的意思，这个话题挺有意思的。",
+            "是这样啊，那您当时是怎么想的呢？",
+            "您慢慢说，我一直在听着。");
+
     static {
         // 思念孙子
         REPLY_TEMPLATES.put("想孙子|想念孙子|孙子|想孩子", Arrays.asList(
@@ -108,7 +120,7 @@ public class ChatService {
         log.info("处理对话，用户ID: {}, 消息: {}", userId, userMessage);
 
         if (userMessage == null || userMessage.trim().isEmpty()) {
-            return "我有点没听清，您可以再慢慢说一遍吗？";
+            return NOT_HEARD_REPLY;
         }
 
         String message = userMessage.trim();
@@ -135,15 +147,18 @@ public class ChatService {
      * 获取默认回复
      */
     private String getDefaultReply(String message) {
-        List<String> defaultReplies = Arrays.asList(
-                "您说的很有道理，我也是这么想的。",
-                "嗯嗯，我在听着呢，您接着说。",
-                "真的吗？跟我详细说说呗。",
-                "我明白您的意思，这个话题挺有意思的。",
-                "是这样啊，那您当时是怎么想的呢？",
-                "您慢慢说，我一直在听着。");
-
         Random random = new Random();
-        return defaultReplies.get(random.nextInt(defaultReplies.size()));
+        return DEFAULT_REPLIES.get(random.nextInt(DEFAULT_REPLIES.size()));
+    }
+
+    /**
+     * 所有固定回复（模板回复、通用回复、提示语），用于预先合成语音
+     */
+    public Set<String> getStaticReplies() {
+        Set<String> replies = new LinkedHashSet<>();
+        replies.add(NOT_HEARD_REPLY);
+        REPLY_TEMPLATES.values().forEach(replies::addAll);
+        replies.addAll(DEFAULT_REPLIES);
+        return replies;
     }
 }
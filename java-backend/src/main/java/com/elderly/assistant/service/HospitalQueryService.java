@@ -1,23 +1,32 @@
 package com.elderly.assistant.service;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.elderly.assistant.catalog.DepartmentIndex;
+import com.elderly.assistant.catalog.GeoIndex;
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.catalog.HospitalFields;
+import com.elderly.assistant.catalog.HospitalSearchIndex;
+import com.elderly.assistant.catalog.HospitalSnapshot;
+import com.elderly.assistant.catalog.RankedHospital;
+import com.elderly.assistant.common.CursorPage;
+import com.elderly.assistant.dto.NearbyHospitalDTO;
+import com.elderly.assistant.dto.SlotAvailabilityDTO;
 import com.elderly.assistant.entity.HospitalInfo;
 import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.quota.HospitalQuotaCounter;
+import com.elderly.assistant.quota.SlotInventoryEngine;
 
+import cn.hutool.core.convert.Convert;
 import cn.hutool.core.util.StrUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +41,31 @@ import lombok.extern.slf4j.Slf4j;
 public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, HospitalInfo> {
     
     private final HospitalInfoMapper hospitalInfoMapper;
+    private final HospitalCatalog hospitalCatalog;
+    private final HospitalSearchIndex hospitalSearchIndex;
+    private final HospitalQuotaCounter hospitalQuotaCounter;
+    private final SlotInventoryEngine slotInventoryEngine;
+    
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    /**
+     * 附近医院查询方式：memory（内存KD树，默认）/ database（包围盒+索引）
+     */
+    @Value("${hospital.nearby.mode:memory}")
+    private String nearbyMode;
+    
+    /**
+     * 未传半径时的默认半径（公里），两种查询方式共用
+     */
+    @Value("${hospital.nearby.default-radius-km:50}")
+    private double nearbyDefaultRadiusKm;
+    
+    /**
+     * 单次最多返回条数，两种查询方式共用
+     */
+    @Value("${hospital.nearby.max-results:200}")
+    private int nearbyMaxResults;
     
     // ==================== 科室相关接口 ====================
     
@@ -42,22 +76,7 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
         log.info("获取所有科室列表");
         
         try {
-            List<HospitalInfo> hospitals = this.list();
-            Set<String> departmentSet = new HashSet<>();
-            
-            for (HospitalInfo hospital : hospitals) {
-                if (StrUtil.isNotBlank(hospital.getDepartments())) {
-                    String[] depts = hospital.getDepartments().split(",");
-                    for (String dept : depts) {
-                        if (StrUtil.isNotBlank(dept.trim())) {
-                            departmentSet.add(dept.trim());
-                        }
-                    }
-                }
-            }
-            
-            List<String> departments = new ArrayList<>(departmentSet);
-            Collections.sort(departments);
+            List<String> departments = hospitalCatalog.snapshot().getDepartmentIndex().getDepartments();
             log.info("获取到 {} 个科室", departments.size());
             
             return departments;
@@ -79,12 +98,7 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
         }
         
         try {
-            LambdaQueryWrapper<HospitalInfo> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.like(HospitalInfo::getDepartments, department)
-                       .eq(HospitalInfo::getStatus, "正常")
-                       .orderByDesc(HospitalInfo::getHospitalLevel);
-            
-            List<HospitalInfo> hospitals = this.list(queryWrapper);
+            List<HospitalInfo> hospitals = hospitalCatalog.snapshot().getDepartmentIndex().getHospitals(department);
             log.info("查询到 {} 家医院提供 {} 科室", hospitals.size(), department);
             
             return hospitals;
@@ -106,16 +120,15 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
         }
         
         try {
-            HospitalInfo hospital = this.getById(hospitalId);
-            if (hospital == null || StrUtil.isBlank(hospital.getDepartments())) {
+            HospitalInfo hospital = hospitalCatalog.get(hospitalId);
+            if (hospital == null) {
                 return new ArrayList<>();
             }
             
-            String[] depts = hospital.getDepartments().split(",");
-            List<String> departments = Arrays.stream(depts)
-                    .map(String::trim)
-                    .filter(StrUtil::isNotBlank)
-                    .collect(Collectors.toList());
+            List<String> departments = hospitalCatalog.snapshot().getDepartmentIndex().getDepartmentsOf(hospitalId);
+            if (departments == null) {
+                departments = DepartmentIndex.parseDepartments(hospital.getDepartments());
+            }
             
             log.info("医院 {} 有 {} 个科室", hospital.getHospitalName(), departments.size());
             
@@ -136,11 +149,7 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
         log.info("获取所有医院列表");
         
         try {
-            LambdaQueryWrapper<HospitalInfo> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(HospitalInfo::getStatus, "enabled")
-                       .orderByDesc(HospitalInfo::getHospitalLevel);
-            
-            List<HospitalInfo> hospitals = this.list(queryWrapper);
+            List<HospitalInfo> hospitals = hospitalCatalog.snapshot().getEnabledByLevel();
             log.info("获取到 {} 家医院", hospitals.size());
             
             return hospitals;
@@ -162,7 +171,7 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
         }
         
         try {
-            HospitalInfo hospital = this.getById(hospitalId);
+            HospitalInfo hospital = hospitalCatalog.get(hospitalId);
             if (hospital != null) {
                 log.info("获取到医院详情: {}", hospital.getHospitalName());
             } else {
@@ -182,61 +191,62 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
     /**
      * 根据距离获取附近的医院
      */
-    public List<Map<String, Object>> getNearbyHospitals(Double longitude, Double latitude, 
-                                                        Double radius, String department) {
-        log.info("查询附近医院，位置: ({}, {}), 半径: {}km, 科室: {}", 
-                longitude, latitude, radius, department);
+    public List<NearbyHospitalDTO> getNearbyHospitals(Double longitude, Double latitude, 
+                                                      Double radius, String department) {
+        return getNearbyHospitals(longitude, latitude, radius, department, 0);
+    }
+    
+    /**
+     * 根据距离获取附近的医院（KD树索引，limit > 0 时只取最近的 limit 家）
+     * 未传半径时使用 hospital.nearby.default-radius-km，条数不超过 hospital.nearby.max-results
+     */
+    public List<NearbyHospitalDTO> getNearbyHospitals(Double longitude, Double latitude, 
+                                                      Double radius, String department, int limit) {
+        log.info("查询附近医院，位置: ({}, {}), 半径: {}km, 科室: {}, 数量: {}", 
+                longitude, latitude, radius, department, limit);
         
         if (longitude == null || latitude == null) {
             return new ArrayList<>();
         }
         
+        // 两种查询方式使用相同的默认半径和条数上限，同一请求结果一致
+        double searchRadius = radius != null && radius > 0 ? radius : nearbyDefaultRadiusKm;
+        int maxResults = limit > 0 ? Math.min(limit, nearbyMaxResults) : nearbyMaxResults;
+        
+        if ("database".equalsIgnoreCase(nearbyMode)) {
+            return getNearbyHospitalsFromDatabase(longitude, latitude, searchRadius, department, maxResults);
+        }
+        
         try {
-            LambdaQueryWrapper<HospitalInfo> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(HospitalInfo::getStatus, "正常");
+            HospitalSnapshot snapshot = hospitalCatalog.snapshot();
             
+            Predicate<HospitalInfo> filter = null;
             if (StrUtil.isNotBlank(department)) {
-                queryWrapper.like(HospitalInfo::getDepartments, department);
+                DepartmentIndex departmentIndex = snapshot.getDepartmentIndex();
+                int departmentId = departmentIndex.idOf(department);
+                if (departmentId < 0) {
+                    return new ArrayList<>();
+                }
+                filter = hospital -> departmentIndex.hasDepartment(hospital.getHospitalId(), departmentId);
             }
             
-            List<HospitalInfo> hospitals = this.list(queryWrapper);
-            log.info("查询到 {} 家符合条件的医院", hospitals.size());
-            
-            List<Map<String, Object>> result = new ArrayList<>();
+            List<GeoIndex.Neighbor> neighbors = snapshot.getGeoIndex()
+                    .nearest(latitude, longitude, searchRadius, maxResults, filter);
             
-            for (HospitalInfo hospital : hospitals) {
-                if (hospital.getLongitude() == null || hospital.getLatitude() == null) {
-                    continue;
-                }
-                
-                double distance = calculateDistance(latitude, longitude, 
-                                                  hospital.getLatitude(), hospital.getLongitude());
-                
-                if (radius != null && radius > 0 && distance > radius) {
-                    continue;
-                }
-                boolean available = checkAppointmentAvailable(hospital.getHospitalId());
-                
-                Map<String, Object> hospitalInfo = new HashMap<>();
-                hospitalInfo.put("hospitalId", hospital.getHospitalId());
-                hospitalInfo.put("hospitalName", hospital.getHospitalName());
-                hospitalInfo.put("hospitalLevel", hospital.getHospitalLevel());
-                hospitalInfo.put("hospitalType", hospital.getHospitalType());
-                hospitalInfo.put("address", hospital.getAddress());
-                hospitalInfo.put("phone", hospital.getPhone());
-                hospitalInfo.put("distance", Math.round(distance * 100) / 100.0);
-                hospitalInfo.put("availableQuota", hospital.getAvailableQuota());
-                hospitalInfo.put("dailyQuota", hospital.getDailyQuota());
-                hospitalInfo.put("available", available);
-                hospitalInfo.put("departments", hospital.getDepartments());
-                hospitalInfo.put("openingHours", hospital.getOpeningHours());
-                hospitalInfo.put("longitude", hospital.getLongitude());
-                hospitalInfo.put("latitude", hospital.getLatitude());
-                
-                result.add(hospitalInfo);
+            List<String> hospitalIds = new ArrayList<>(neighbors.size());
+            for (GeoIndex.Neighbor neighbor : neighbors) {
+                hospitalIds.add(neighbor.getHospital().getHospitalId());
+            }
+            Map<String, Integer> quotas = hospitalQuotaCounter.remainingToday(hospitalIds);
+            
+            List<NearbyHospitalDTO> result = new ArrayList<>(neighbors.size());
+            for (GeoIndex.Neighbor neighbor : neighbors) {
+                HospitalInfo hospital = neighbor.getHospital();
+                NearbyHospitalDTO dto = NearbyHospitalDTO.of(hospital, neighbor.getDistanceKm(), false);
+                applyCurrentQuota(dto, hospital, quotas);
+                result.add(dto);
             }
             
-            result.sort(Comparator.comparingDouble(h -> (Double) h.get("distance")));
             log.info("找到 {} 家附近的医院", result.size());
             
             return result;
@@ -248,21 +258,58 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
     }
     
     /**
-     * 计算两个坐标点之间的距离（公里）
+     * 附近医院（数据库版）：包围盒走复合索引，再算精确距离
+     * 不省内存（医院目录快照照常加载），结果直接反映库中当前数据，
+     * 不受快照刷新间隔影响（如直接改库后），hospital.nearby.mode=database 时使用
      */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371;
-        
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return R * c;
+    private List<NearbyHospitalDTO> getNearbyHospitalsFromDatabase(double longitude, double latitude,
+                                                                   double searchRadius, String department,
+                                                                   int maxResults) {
+        try {
+            double[] box = GeoIndex.boundingBox(latitude, longitude, searchRadius);
+            boolean filterDepartment = StrUtil.isNotBlank(department);
+            
+            // SQL 中的科室条件只是粗过滤（LIKE 会命中子串），精确匹配在下面完成，因此有科室条件时不在 SQL 里截断
+            List<HospitalInfo> hospitals = hospitalInfoMapper.findNearbyInBoundingBox(
+                    longitude, latitude, searchRadius, box[0], box[1], box[2], box[3],
+                    filterDepartment ? department.trim() : null, filterDepartment ? null : maxResults);
+            
+            List<NearbyHospitalDTO> result = new ArrayList<>(hospitals.size());
+            for (HospitalInfo hospital : hospitals) {
+                if (filterDepartment && !DepartmentIndex.parseDepartments(hospital.getDepartments())
+                        .contains(department.trim())) {
+                    continue;
+                }
+                double distance = GeoIndex.distanceKm(latitude, longitude,
+                        hospital.getLatitude(), hospital.getLongitude());
+                result.add(NearbyHospitalDTO.of(hospital, distance, false));
+            }
+            
+            result.sort(Comparator.comparingDouble(NearbyHospitalDTO::getDistance));
+            if (result.size() > maxResults) {
+                result = new ArrayList<>(result.subList(0, maxResults));
+            }
+            // 截断后再读号源，只读返回的医院
+            List<String> hospitalIds = new ArrayList<>(result.size());
+            for (NearbyHospitalDTO dto : result) {
+                hospitalIds.add(dto.getHospitalId());
+            }
+            Map<String, Integer> quotas = hospitalQuotaCounter.remainingToday(hospitalIds);
+            Map<String, HospitalInfo> byId = new HashMap<>();
+            for (HospitalInfo hospital : hospitals) {
+                byId.put(hospital.getHospitalId(), hospital);
+            }
+            for (NearbyHospitalDTO dto : result) {
+                applyCurrentQuota(dto, byId.get(dto.getHospitalId()), quotas);
+            }
+            log.info("数据库查询找到 {} 家附近的医院", result.size());
+            
+            return result;
+            
+        } catch (Exception e) {
+            log.error("查询附近医院失败", e);
+            return new ArrayList<>();
+        }
     }
     
     // ==================== 预约相关接口 ====================
@@ -276,14 +323,13 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
         }
         
         try {
-            HospitalInfo hospital = this.getById(hospitalId);
+            HospitalInfo hospital = hospitalCatalog.get(hospitalId);
             if (hospital == null) {
                 return false;
             }
             
-            boolean available = "enabled".equals(hospital.getStatus()) 
-                    && hospital.getAvailableQuota() != null 
-                    && hospital.getAvailableQuota() > 0;
+            Integer quota = currentQuota(hospital);
+            boolean available = HospitalSnapshot.isEnabled(hospital) && quota != null && quota > 0;
             
             log.info("医院 {} 预约状态: {}", hospital.getHospitalName(), available);
             
@@ -295,6 +341,58 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
         }
     }
     
+    /**
+     * 附近医院条目的剩余号源和可预约状态与详情、预约检查一样取当前值（quotas 为批量读取的 Redis 计数器）
+     */
+    private static void applyCurrentQuota(NearbyHospitalDTO dto, HospitalInfo hospital,
+                                          Map<String, Integer> quotas) {
+        Integer quota = currentQuota(hospital, quotas);
+        dto.setAvailableQuota(quota);
+        dto.setAvailable(isAppointmentAvailable(hospital, quota));
+    }
+    
+    private static boolean isAppointmentAvailable(HospitalInfo hospital, Integer quota) {
+        return HospitalSnapshot.isEnabled(hospital) && quota != null && quota > 0;
+    }
+    
+    /**
+     * 今天的剩余号源：优先读 Redis 计数器，没有计数器时使用目录中的值（都不查库）
+     */
+    private Integer currentQuota(HospitalInfo hospital) {
+        Integer remaining = hospitalQuotaCounter.remainingToday(hospital.getHospitalId());
+        return remaining != null ? remaining : hospital.getAvailableQuota();
+    }
+    
+    /**
+     * 同上，计数器已批量读出
+     */
+    private static Integer currentQuota(HospitalInfo hospital, Map<String, Integer> quotas) {
+        Integer remaining = quotas.get(hospital.getHospitalId());
+        return remaining != null ? remaining : hospital.getAvailableQuota();
+    }
+    
+    /**
+     * 查询医院某天各时段号源余量（可按科室）
+     */
+    public List<SlotAvailabilityDTO> getSlotAvailability(String hospitalId, String date, String department) {
+        log.info("查询时段号源，hospitalId: {}, 日期: {}, 科室: {}", hospitalId, date, department);
+        
+        if (StrUtil.isBlank(hospitalId) || StrUtil.isBlank(date)) {
+            return new ArrayList<>();
+        }
+        
+        HospitalInfo hospital = hospitalCatalog.get(hospitalId);
+        if (hospital == null || !HospitalSnapshot.isEnabled(hospital)) {
+            return new ArrayList<>();
+        }
+        if (StrUtil.isNotBlank(department)
+                && !hospitalCatalog.snapshot().getDepartmentIndex().hasDepartment(hospitalId, department)) {
+            throw new IllegalArgumentException("医院无此科室: " + department);
+        }
+        
+        return slotInventoryEngine.getAvailability(hospital, department, slotInventoryEngine.checkDate(date));
+    }
+    
     /**
      * 获取医院预约信息（包含详细配额）
      */
@@ -310,7 +408,7 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
         }
         
         try {
-            HospitalInfo hospital = this.getById(hospitalId);
+            HospitalInfo hospital = hospitalCatalog.get(hospitalId);
             if (hospital == null) {
                 result.put("available", false);
                 result.put("message", "医院不存在");
@@ -325,14 +423,15 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
             result.put("openingHours", hospital.getOpeningHours());
             
             Integer dailyQuota = hospital.getDailyQuota();
-            Integer availableQuota = hospital.getAvailableQuota();
+            Integer availableQuota = currentQuota(hospital);
             
             result.put("dailyQuota", dailyQuota);
             result.put("availableQuota", availableQuota);
             result.put("bookedQuota", dailyQuota != null && availableQuota != null ? 
                        dailyQuota - availableQuota : 0);
             
-            boolean available = checkAppointmentAvailable(hospitalId);
+            boolean available = HospitalSnapshot.isEnabled(hospital) 
+                    && availableQuota != null && availableQuota > 0;
             result.put("available", available);
             
             if (available) {
@@ -365,55 +464,12 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
         log.info("搜索医院，参数: {}", searchParams);
         
         try {
-            LambdaQueryWrapper<HospitalInfo> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(HospitalInfo::getStatus, "正常");
-            
-            if (searchParams.containsKey("keyword") && 
-                StrUtil.isNotBlank((String) searchParams.get("keyword"))) {
-                String keyword = (String) searchParams.get("keyword");
-                queryWrapper.like(HospitalInfo::getHospitalName, keyword)
-                           .or()
-                           .like(HospitalInfo::getAddress, keyword);
-            }
-            
-            if (searchParams.containsKey("level") && 
-                StrUtil.isNotBlank((String) searchParams.get("level"))) {
-                queryWrapper.eq(HospitalInfo::getHospitalLevel, searchParams.get("level"));
-            }
-            
-            if (searchParams.containsKey("type") && 
-                StrUtil.isNotBlank((String) searchParams.get("type"))) {
-                queryWrapper.eq(HospitalInfo::getHospitalType, searchParams.get("type"));
-            }
-            
-            if (searchParams.containsKey("hasQuota")) {
-                Boolean hasQuota = (Boolean) searchParams.get("hasQuota");
-                if (hasQuota != null && hasQuota) {
-                    queryWrapper.gt(HospitalInfo::getAvailableQuota, 0);
-                }
+            List<RankedHospital> ranked = rankSearchResults(searchParams);
+            List<HospitalInfo> hospitals = new ArrayList<>(ranked.size());
+            for (RankedHospital item : ranked) {
+                hospitals.add(item.getHospital());
             }
             
-            String sortField = (String) searchParams.get("sortField");
-            String sortOrder = (String) searchParams.get("sortOrder");
-            
-            if (StrUtil.isNotBlank(sortField)) {
-                boolean isAsc = "asc".equalsIgnoreCase(sortOrder);
-                
-                switch (sortField) {
-                    case "level":
-                        queryWrapper.orderBy(true, isAsc, HospitalInfo::getHospitalLevel);
-                        break;
-                    case "quota":
-                        queryWrapper.orderBy(true, isAsc, HospitalInfo::getAvailableQuota);
-                        break;
-                    default:
-                        queryWrapper.orderByDesc(HospitalInfo::getHospitalLevel);
-                }
-            } else {
-                queryWrapper.orderByDesc(HospitalInfo::getHospitalLevel);
-            }
-            
-            List<HospitalInfo> hospitals = this.list(queryWrapper);
             log.info("搜索到 {} 家医院", hospitals.size());
             
             return hospitals;
@@ -424,13 +480,153 @@ public class HospitalQueryService extends ServiceImpl<HospitalInfoMapper, Hospit
         }
     }
     
+    /**
+     * 按搜索条件过滤并排序，排序规则见 {@link #searchOrder(Map)}
+     */
+    private List<RankedHospital> rankSearchResults(Map<String, Object> searchParams) {
+        HospitalSnapshot snapshot = hospitalCatalog.snapshot();
+        String keyword = (String) searchParams.get("keyword");
+        String level = (String) searchParams.get("level");
+        String type = (String) searchParams.get("type");
+        boolean hasQuota = Boolean.TRUE.equals(searchParams.get("hasQuota"));
+        
+        // 有关键字时走倒排索引带上相关度；否则为按等级排序的全部可用医院
+        List<RankedHospital> candidates = new ArrayList<>();
+        if (StrUtil.isNotBlank(keyword)) {
+            for (HospitalSearchIndex.Hit hit : hospitalSearchIndex.search(keyword)) {
+                HospitalInfo hospital = snapshot.get(hit.getHospitalId());
+                if (hospital != null) {
+                    candidates.add(new RankedHospital(hospital, hit.getScore()));
+                }
+            }
+        } else {
+            for (HospitalInfo hospital : snapshot.getEnabledByLevel()) {
+                candidates.add(new RankedHospital(hospital, 0));
+            }
+        }
+        
+        List<RankedHospital> ranked = new ArrayList<>();
+        for (RankedHospital item : candidates) {
+            HospitalInfo hospital = item.getHospital();
+            if (!HospitalSnapshot.isEnabled(hospital)) {
+                continue;
+            }
+            if (StrUtil.isNotBlank(level) && !level.equals(hospital.getHospitalLevel())) {
+                continue;
+            }
+            if (StrUtil.isNotBlank(type) && !type.equals(hospital.getHospitalType())) {
+                continue;
+            }
+            ranked.add(item);
+        }
+        if (hasQuota) {
+            // 有号筛选与预约检查一样看当前号源，其它条件过滤完再批量读计数器
+            List<String> hospitalIds = new ArrayList<>(ranked.size());
+            for (RankedHospital item : ranked) {
+                hospitalIds.add(item.getHospital().getHospitalId());
+            }
+            Map<String, Integer> quotas = hospitalQuotaCounter.remainingToday(hospitalIds);
+            ranked.removeIf(item -> {
+                Integer quota = currentQuota(item.getHospital(), quotas);
+                return quota == null || quota <= 0;
+            });
+        }
+        
+        ranked.sort(searchOrder(searchParams));
+        return ranked;
+    }
+    
+    /**
+     * 搜索结果排序：指定 sortField 时按等级/号源，否则有关键字按相关度、无关键字按等级。
+     * 每种排序最后都以医院ID兜底，保证游标分页时顺序稳定。
+     * 按号源排序用的是目录中的值（定时按订单重算）而不是 Redis 当前值：翻页期间排序键不变，游标才能定位
+     */
+    private Comparator<RankedHospital> searchOrder(Map<String, Object> searchParams) {
+        String sortField = (String) searchParams.get("sortField");
+        String sortOrder = (String) searchParams.get("sortOrder");
+        
+        if (StrUtil.isBlank(sortField)) {
+            return StrUtil.isNotBlank((String) searchParams.get("keyword"))
+                    ? RankedHospital.RELEVANCE_ORDER : RankedHospital.by(HospitalSnapshot.LEVEL_ORDER);
+        }
+        
+        boolean isAsc = "asc".equalsIgnoreCase(sortOrder);
+        switch (sortField) {
+            case "level":
+                return RankedHospital.by(isAsc ? HospitalSnapshot.LEVEL_ORDER.reversed() : HospitalSnapshot.LEVEL_ORDER);
+            case "quota":
+                return RankedHospital.by(RankedHospital.quotaOrder(isAsc));
+            default:
+                return RankedHospital.by(HospitalSnapshot.LEVEL_ORDER);
+        }
+    }
+    
+    // ==================== 分页与字段投影 ====================
+    
+    /**
+     * 获取所有医院（游标分页，按等级排序）
+     */
+    public CursorPage<Object> pageAllHospitals(String cursor, Integer limit, String fields) {
+        List<RankedHospital> ranked = new ArrayList<>();
+        for (HospitalInfo hospital : hospitalCatalog.snapshot().getEnabledByLevel()) {
+            ranked.add(new RankedHospital(hospital, 0));
+        }
+        return page(ranked, RankedHospital.by(HospitalSnapshot.LEVEL_ORDER), cursor, limit, fields);
+    }
+    
+    /**
+     * 根据科室查询医院（游标分页，按等级排序）
+     */
+    public CursorPage<Object> pageHospitalsByDepartment(String department, String cursor, Integer limit,
+                                                        String fields) {
+        if (StrUtil.isBlank(department)) {
+            return CursorPage.empty();
+        }
+        List<RankedHospital> ranked = new ArrayList<>();
+        for (HospitalInfo hospital : hospitalCatalog.snapshot().getDepartmentIndex().getHospitals(department)) {
+            ranked.add(new RankedHospital(hospital, 0));
+        }
+        return page(ranked, RankedHospital.by(HospitalSnapshot.LEVEL_ORDER), cursor, limit, fields);
+    }
+    
+    /**
+     * 搜索医院（游标分页），cursor/limit/fields 与其它搜索条件一起放在请求体中
+     */
+    public CursorPage<Object> pageSearchHospitals(Map<String, Object> searchParams) {
+        log.info("分页搜索医院，参数: {}", searchParams);
+        
+        Object cursor = searchParams.get("cursor");
+        Object limit = searchParams.get("limit");
+        return page(rankSearchResults(searchParams), searchOrder(searchParams),
+                cursor != null ? cursor.toString() : null,
+                limit != null ? Convert.toInt(limit) : null,
+                searchParams.get("fields"));
+    }
+    
+    /**
+     * 只投影字段、不分页（兼容未传 limit/cursor 的老客户端）
+     */
+    public List<Object> projectHospitals(List<HospitalInfo> hospitals, Object fields) {
+        List<String> fieldList = HospitalFields.parse(fields);
+        List<Object> result = new ArrayList<>(hospitals.size());
+        for (HospitalInfo hospital : hospitals) {
+            result.add(HospitalFields.project(hospital, fieldList));
+        }
+        return result;
+    }
+    
+    private CursorPage<Object> page(List<RankedHospital> sorted, Comparator<RankedHospital> order,
+                                    String cursor, Integer limit, Object fields) {
+        List<String> fieldList = HospitalFields.parse(fields);
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        return CursorPage.slice(sorted, RankedHospital.fromCursor(cursor), order, pageSize,
+                RankedHospital::toCursor, item -> HospitalFields.project(item.getHospital(), fieldList));
+    }
+    
     /**
      * 获取医院列表（简化版）
      */
     public List<HospitalInfo> getHospitals() {
-        LambdaQueryWrapper<HospitalInfo> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(HospitalInfo::getStatus, "正常")
-                   .orderByAsc(HospitalInfo::getHospitalName);
-        return this.list(queryWrapper);
+        return hospitalCatalog.snapshot().getEnabledByName();
     }
 }
\ No newline at end of file
@@ -1,21 +1,40 @@
 package com.elderly.assistant.service;
 
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.catalog.HospitalSnapshot;
+import com.elderly.assistant.common.CursorPage;
+import com.elderly.assistant.common.IdGenerator;
 import com.elderly.assistant.entity.HospitalInfo;
 import com.elderly.assistant.entity.ReserveOrder;
+import com.elderly.assistant.entity.UserBase;
 import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.mapper.ReserveOrderArchiveMapper;
 import com.elderly.assistant.mapper.ReserveOrderMapper;
+import com.elderly.assistant.mapper.UserMapper;
+import com.elderly.assistant.outbox.OutboxPublisher;
+import com.elderly.assistant.quota.HospitalQuotaCounter;
+import com.elderly.assistant.quota.SlotInventoryEngine;
 
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.StrUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -31,7 +50,30 @@ public class HospitalRegistrationService
     extends ServiceImpl<ReserveOrderMapper, ReserveOrder> {
     
     private final ReserveOrderMapper reserveOrderMapper;
+    private final ReserveOrderArchiveMapper reserveOrderArchiveMapper;
     private final HospitalInfoMapper hospitalInfoMapper;
+    private final UserMapper userMapper;
+    private final HospitalCatalog hospitalCatalog;
+    private final HospitalQuotaCounter hospitalQuotaCounter;
+    private final SlotInventoryEngine slotInventoryEngine;
+    private final IdGenerator idGenerator;
+    private final RegistrationStatsService registrationStatsService;
+    private final OutboxPublisher outboxPublisher;
+    
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 20;
+    
+    // 挂号记录倒序：创建时间 + 订单ID，与游标分页的排序一致
+    private static final Comparator<ReserveOrder> NEWEST_FIRST = Comparator
+            .comparing(ReserveOrder::getCreateTime, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(ReserveOrder::getOrderId, Comparator.nullsLast(Comparator.reverseOrder()));
+    
+    /**
+     * 热表保留的天数，与 {@link RegistrationArchiveService} 一致
+     */
+    @Value("${hospital.archive.retention-days:90}")
+    private int archiveRetentionDays;
     
     // ==================== 挂号相关接口 ====================
     
@@ -43,6 +85,169 @@ public class HospitalRegistrationService
         log.info("创建挂号记录，用户: {}, 医院: {}", 
                 order.getUserId(), order.getHospitalId());
         
+        HospitalInfo hospital = validateOrder(order, hospitalCatalog.get(order.getHospitalId()));
+        
+        // 扣减号源：优先走 Redis 计数器，Redis 不可用时走数据库
+        if (!reserveHospitalQuota(hospital, order.getReserveDate(), 1)) {
+            throw new RuntimeException("该日期号源已满，请选择其他日期");
+        }
+        
+        // 占用科室时段号源（失败时事务回滚，上面扣减的医院号源一并归还）
+        String timeSlot = slotInventoryEngine.tryReserve(hospital, order.getDepartment(), 
+                order.getReserveDate(), order.getTimeSlot());
+        if (timeSlot == null) {
+            throw new RuntimeException("该时段号源已满，请选择其他时段");
+        }
+        order.setTimeSlot(timeSlot);
+        
+        fillDefaults(order, hospital);
+        
+        // 保存到数据库
+        boolean result = this.save(order);
+        
+        if (result) {
+            log.info("挂号成功，订单ID: {}", order.getOrderId());
+            publishCreated(order.getOrderId(), order.getUserId(), 1);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * 批量创建挂号记录（家属一次为多位老人或多个日期预约）
+     * 先逐条校验，再逐条占用时段号源，同一医院同一日期的医院号源合并为一次扣减，
+     * 最后用 JDBC 批量写入；单条失败不影响其它条目，返回每一条的结果
+     * 占号前按医院目录校验医院、一次查库校验用户，避免批量写入因外键约束失败；
+     * 写入仍失败（如用户刚被删除）时整批回滚并抛出异常，不返回与库中不一致的逐条结果
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<Map<String, Object>> createRegistrations(List<ReserveOrder> orders) {
+        if (orders == null || orders.isEmpty()) {
+            throw new IllegalArgumentException("挂号信息不能为空");
+        }
+        if (orders.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("一次最多预约 " + MAX_BATCH_SIZE + " 个号");
+        }
+        log.info("批量创建挂号记录，数量: {}", orders.size());
+        
+        List<Map<String, Object>> results = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("index", i);
+            item.put("success", false);
+            results.add(item);
+        }
+        
+        // 1. 校验，并按 医院+日期 分组
+        Map<String, HospitalInfo> hospitals = hospitalCatalog.getAll(orders.stream()
+                .filter(order -> order != null && StrUtil.isNotEmpty(order.getHospitalId()))
+                .map(ReserveOrder::getHospitalId).collect(Collectors.toSet()));
+        Set<String> users = existingUsers(orders);
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            ReserveOrder order = orders.get(i);
+            try {
+                validateOrder(order, order == null ? null : hospitals.get(order.getHospitalId()));
+                if (!users.contains(order.getUserId())) {
+                    throw new RuntimeException("用户不存在");
+                }
+            } catch (RuntimeException e) {
+                results.get(i).put("message", e.getMessage());
+                continue;
+            }
+            groups.computeIfAbsent(order.getHospitalId() + "|" + order.getReserveDate(), 
+                    key -> new ArrayList<>()).add(i);
+        }
+        
+        List<ReserveOrder> accepted = new ArrayList<>();
+        for (List<Integer> group : groups.values()) {
+            HospitalInfo hospital = hospitals.get(orders.get(group.get(0)).getHospitalId());
+            String date = orders.get(group.get(0)).getReserveDate();
+            
+            // 2. 逐条占用时段号源
+            List<Integer> slotted = new ArrayList<>(group.size());
+            for (Integer index : group) {
+                ReserveOrder order = orders.get(index);
+                String timeSlot = slotInventoryEngine.tryReserve(hospital, order.getDepartment(), date, 
+                        order.getTimeSlot());
+                if (timeSlot != null) {
+                    order.setTimeSlot(timeSlot);
+                    slotted.add(index);
+                } else {
+                    results.get(index).put("message", "该时段号源已满，请选择其他时段");
+                }
+            }
+            if (slotted.isEmpty()) {
+                continue;
+            }
+            
+            // 3. 医院号源整组一次扣减，不足时整组失败并归还已占的时段号源
+            if (!reserveHospitalQuota(hospital, date, slotted.size())) {
+                for (Integer index : slotted) {
+                    ReserveOrder order = orders.get(index);
+                    slotInventoryEngine.release(order.getHospitalId(), order.getDepartment(), 
+                            date, order.getTimeSlot());
+                    results.get(index).put("message", "该日期号源不足，请选择其他日期");
+                }
+                continue;
+            }
+            
+            for (Integer index : slotted) {
+                ReserveOrder order = orders.get(index);
+                fillDefaults(order, hospital);
+                accepted.add(order);
+                results.get(index).put("orderId", order.getOrderId());
+            }
+        }
+        
+        // 4. JDBC 批量写入
+        if (!accepted.isEmpty()) {
+            this.saveBatch(accepted);
+            accepted.stream()
+                    .collect(Collectors.groupingBy(ReserveOrder::getUserId, Collectors.counting()))
+                    .forEach((userId, count) -> publishCreated(null, userId, count.intValue()));
+            for (Map<String, Object> item : results) {
+                if (item.containsKey("orderId")) {
+                    item.put("success", true);
+                    item.put("message", "挂号成功");
+                }
+            }
+        }
+        
+        log.info("批量挂号完成，成功: {}，失败: {}", accepted.size(), orders.size() - accepted.size());
+        return results;
+    }
+    
+    /**
+     * 批量挂号涉及的用户中实际存在的用户ID（一次查询）
+     */
+    private Set<String> existingUsers(List<ReserveOrder> orders) {
+        Set<String> userIds = orders.stream()
+                .filter(order -> order != null && StrUtil.isNotEmpty(order.getUserId()))
+                .map(ReserveOrder::getUserId).collect(Collectors.toSet());
+        if (userIds.isEmpty()) {
+            return userIds;
+        }
+        return userMapper.selectList(new LambdaQueryWrapper<UserBase>()
+                        .select(UserBase::getUserId)
+                        .in(UserBase::getUserId, userIds))
+                .stream().map(UserBase::getUserId).collect(Collectors.toSet());
+    }
+    
+    /**
+     * 写入挂号成功事件（统计计数由发件箱异步更新），批量挂号时同一用户合并为一条
+     */
+    private void publishCreated(String orderId, String userId, int count) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", userId);
+        payload.put("count", count);
+        outboxPublisher.publish(RegistrationEventHandler.REGISTRATION_CREATED, orderId, payload);
+    }
+    
+    /**
+     * 校验挂号信息，返回挂号的医院
+     */
+    private HospitalInfo validateOrder(ReserveOrder order, HospitalInfo hospital) {
         if (order == null) {
             throw new IllegalArgumentException("挂号信息不能为空");
         }
@@ -55,64 +260,62 @@ public class HospitalRegistrationService
         if (StrUtil.isEmpty(order.getReserveDate())) {
             throw new IllegalArgumentException("预约日期不能为空");
         }
+        // 统一为 yyyy-MM-dd，按日期统计号源和归档时按字符串比较
+        order.setReserveDate(slotInventoryEngine.checkDate(order.getReserveDate()));
         
         // 检查医院是否存在且可用
-        HospitalInfo hospital = hospitalInfoMapper.selectById(order.getHospitalId());
         if (hospital == null) {
             throw new RuntimeException("医院不存在");
         }
-        if (!"正常".equals(hospital.getStatus())) {
+        if (!HospitalSnapshot.isEnabled(hospital)) {
             throw new RuntimeException("医院暂不可用");
         }
         
         // 检查科室是否存在
         if (StrUtil.isNotEmpty(order.getDepartment())) {
-            boolean hasDepartment = false;
-            if (StrUtil.isNotEmpty(hospital.getDepartments())) {
-                List<String> departments = Arrays.asList(hospital.getDepartments().split(","));
-                hasDepartment = departments.contains(order.getDepartment());
-            }
+            boolean hasDepartment = hospitalCatalog.snapshot().getDepartmentIndex()
+                    .hasDepartment(order.getHospitalId(), order.getDepartment());
             if (!hasDepartment) {
                 throw new RuntimeException("医院无此科室: " + order.getDepartment());
             }
         }
         
-        // 检查号源
-        if (!checkHospitalQuota(order.getHospitalId(), order.getReserveDate())) {
-            throw new RuntimeException("该日期号源已满，请选择其他日期");
-        }
-        
-        // 生成订单ID
+        order.setTimeSlot(SlotInventoryEngine.normalizeSlot(order.getTimeSlot()));
+        return hospital;
+    }
+    
+    /**
+     * 设置订单ID、状态等默认值
+     */
+    private void fillDefaults(ReserveOrder order, HospitalInfo hospital) {
         if (StrUtil.isEmpty(order.getOrderId())) {
-            order.setOrderId("ORDER_" + System.currentTimeMillis());
+            order.setOrderId(idGenerator.nextId("ORDER_"));
         }
-        
-        // 设置默认值
         if (StrUtil.isEmpty(order.getStatus())) {
             order.setStatus("已预约");
         }
         if (StrUtil.isEmpty(order.getHospitalName())) {
             order.setHospitalName(hospital.getHospitalName());
         }
-        
         order.setCreateTime(System.currentTimeMillis());
-        
-        // 保存到数据库
-        boolean result = this.save(order);
-        
-        if (result) {
-            log.info("挂号成功，订单ID: {}", order.getOrderId());
-            
-            // 更新医院配额（如果医院设置了配额）
-            if (hospital.getAvailableQuota() != null && hospital.getAvailableQuota() > 0) {
-                hospital.setAvailableQuota(hospital.getAvailableQuota() - 1);
-                hospitalInfoMapper.updateById(hospital);
-                log.info("更新医院配额，医院: {}，剩余配额: {}", 
-                        hospital.getHospitalName(), hospital.getAvailableQuota());
-            }
+    }
+    
+    /**
+     * 扣减 count 个医院号源：优先走 Redis 计数器，Redis 不可用时走数据库
+     */
+    private boolean reserveHospitalQuota(HospitalInfo hospital, String date, int count) {
+        HospitalQuotaCounter.Outcome quota = hospitalQuotaCounter.tryReserve(hospital, date, count);
+        switch (quota) {
+            case RESERVED:
+                hospitalQuotaCounter.settleOnCompletion(hospital.getHospitalId(), date, count);
+                return true;
+            case UNLIMITED:
+                return true;
+            case SOLD_OUT:
+                return false;
+            default:
+                return reserveInDatabase(hospital, date, count);
         }
-        
-        return result;
     }
     
     /**
@@ -122,12 +325,13 @@ public class HospitalRegistrationService
     public boolean createRegistration(Map<String, Object> params) {
         try {
             ReserveOrder order = new ReserveOrder();
-            order.setOrderId("ORDER_" + System.currentTimeMillis());
+            order.setOrderId(idGenerator.nextId("ORDER_"));
             order.setUserId((String) params.get("user_id"));
             order.setHospitalId((String) params.get("hospital_id"));
             order.setHospitalName((String) params.get("hospital_name"));
             order.setDepartment((String) params.get("department"));
             order.setReserveDate((String) params.get("reserve_date"));
+            order.setTimeSlot((String) params.get("time_slot"));
             order.setStatus("已预约");
             order.setCreateTime(System.currentTimeMillis());
             
@@ -139,7 +343,7 @@ public class HospitalRegistrationService
     }
     
     /**
-     * 查询用户的挂号记录
+     * 查询用户的挂号记录（含已归档的历史挂号）
      */
     public List<ReserveOrder> getUserRegistrations(String userId) {
         if (StrUtil.isEmpty(userId)) {
@@ -150,14 +354,96 @@ public class HospitalRegistrationService
         queryWrapper.eq(ReserveOrder::getUserId, userId)
                    .orderByDesc(ReserveOrder::getCreateTime);
         
-        return this.list(queryWrapper);
+        List<ReserveOrder> orders = this.list(queryWrapper);
+        List<ReserveOrder> archived = reserveOrderArchiveMapper.selectByUserId(userId);
+        if (!archived.isEmpty()) {
+            orders = new ArrayList<>(orders);
+            orders.addAll(archived);
+            orders.sort(NEWEST_FIRST);
+        }
+        return orders;
     }
     
     /**
      * 查询用户的挂号记录（带医院信息）
+     * 医院信息从目录快照获取，不逐条查库；挂号记录两次查询（RESERVE_ORDER 和归档表各一次）
      */
     public List<Map<String, Object>> getUserRegistrationsWithHospital(String userId) {
-        List<ReserveOrder> orders = getUserRegistrations(userId);
+        return withHospitals(getUserRegistrations(userId));
+    }
+    
+    /**
+     * 游标分页查询用户的挂号记录（带医院信息），按创建时间倒序
+     * 先取热表；只有热表这一页没取满或已翻到归档保留期以前时，才用同一个游标查归档表再归并，
+     * 翻到归档的历史挂号时对调用方透明
+     */
+    public CursorPage<Map<String, Object>> pageUserRegistrationsWithHospital(String userId, String cursor,
+                                                                           Integer limit) {
+        if (StrUtil.isEmpty(userId)) {
+            throw new IllegalArgumentException("用户ID不能为空");
+        }
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        
+        Long afterTime = null;
+        String afterOrderId = null;
+        if (StrUtil.isNotBlank(cursor)) {
+            String decoded = Base64.decodeStr(cursor.trim(), StandardCharsets.UTF_8);
+            int split = decoded.indexOf(':');
+            if (split <= 0 || !NumberUtil.isLong(decoded.substring(0, split))) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            afterTime = Long.parseLong(decoded.substring(0, split));
+            afterOrderId = decoded.substring(split + 1);
+        }
+        
+        // 多取一条用于判断是否还有下一页
+        List<ReserveOrder> orders = reserveOrderMapper.selectPageByUserId(userId, afterTime, afterOrderId, pageSize + 1);
+        if (mayReachArchive(orders, pageSize + 1)) {
+            List<ReserveOrder> archived = reserveOrderArchiveMapper.selectPageByUserId(userId, afterTime, 
+                    afterOrderId, pageSize + 1);
+            if (!archived.isEmpty()) {
+                orders = new ArrayList<>(orders);
+                orders.addAll(archived);
+                orders.sort(NEWEST_FIRST);
+            }
+        }
+        boolean hasMore = orders.size() > pageSize;
+        if (hasMore) {
+            orders = orders.subList(0, pageSize);
+        }
+        
+        CursorPage<Map<String, Object>> page = new CursorPage<>();
+        page.setItems(withHospitals(orders));
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            ReserveOrder last = orders.get(orders.size() - 1);
+            page.setNextCursor(Base64.encodeUrlSafe(last.getCreateTime() + ":" + last.getOrderId(),
+                    StandardCharsets.UTF_8));
+        }
+        return page;
+    }
+    
+    /**
+     * 归档表中是否可能有排在这一页热表记录之间的挂号
+     * 归档的挂号预约日期早于保留期边界，创建时间也都早于边界当天零点；
+     * 热表这一页取满且最后一条创建于边界之后时，归档表不会有更新的记录
+     */
+    private boolean mayReachArchive(List<ReserveOrder> hotPage, int wanted) {
+        if (hotPage.size() < wanted) {
+            return true;
+        }
+        long boundary = LocalDate.now().minusDays(archiveRetentionDays)
+                .atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        Long oldest = hotPage.get(hotPage.size() - 1).getCreateTime();
+        return oldest == null || oldest < boundary;
+    }
+    
+    /**
+     * 挂号记录附加医院信息
+     */
+    private List<Map<String, Object>> withHospitals(List<ReserveOrder> orders) {
+        Set<String> hospitalIds = orders.stream().map(ReserveOrder::getHospitalId).collect(Collectors.toSet());
+        Map<String, HospitalInfo> hospitals = hospitalCatalog.getAll(hospitalIds);
         
         return orders.stream().map(order -> {
             Map<String, Object> map = new HashMap<>();
@@ -165,12 +451,12 @@ public class HospitalRegistrationService
             map.put("hospitalName", order.getHospitalName());
             map.put("department", order.getDepartment());
             map.put("reserveDate", order.getReserveDate());
+            map.put("timeSlot", order.getTimeSlot());
             map.put("status", order.getStatus());
             map.put("createTime", order.getCreateTime());
             map.put("hospitalId", order.getHospitalId());
             
-            // 获取医院详情
-            HospitalInfo hospital = hospitalInfoMapper.selectById(order.getHospitalId());
+            HospitalInfo hospital = hospitals.get(order.getHospitalId());
             if (hospital != null) {
                 map.put("hospitalAddress", hospital.getAddress());
                 map.put("hospitalPhone", hospital.getPhone());
@@ -193,41 +479,25 @@ public class HospitalRegistrationService
             throw new IllegalArgumentException("订单ID不能为空");
         }
         
-        ReserveOrder order = this.getById(orderId);
-        if (order == null) {
-            throw new RuntimeException("挂号记录不存在，ID: " + orderId);
-        }
-        
-        // 检查是否已经是取消状态
-        if ("已取消".equals(order.getStatus())) {
-            throw new RuntimeException("挂号记录已取消，无需重复操作");
-        }
-        
-        // 检查是否已完成
-        if ("已完成".equals(order.getStatus())) {
-            throw new RuntimeException("已完成挂号，不能取消");
-        }
-        
-        // 检查是否可以取消（如提前多久可以取消）
-        // 这里可以根据业务需求添加更多验证
-        
-        order.setStatus("已取消");
-        boolean result = this.updateById(order);
-        
-        if (result) {
-            log.info("取消挂号成功，订单ID: {}", orderId);
-            
-            // 恢复医院配额
-            HospitalInfo hospital = hospitalInfoMapper.selectById(order.getHospitalId());
-            if (hospital != null && hospital.getAvailableQuota() != null) {
-                hospital.setAvailableQuota(hospital.getAvailableQuota() + 1);
-                hospitalInfoMapper.updateById(hospital);
-                log.info("恢复医院配额，医院: {}，恢复后配额: {}", 
-                        hospital.getHospitalName(), hospital.getAvailableQuota());
+        // 一条条件 UPDATE 完成状态校验和更新，没更新到时再查原因
+        if (reserveOrderMapper.updateStatus(orderId, "已预约", "已取消") == 0) {
+            ReserveOrder order = this.getById(orderId);
+            if (order == null) {
+                throw new RuntimeException("挂号记录不存在，ID: " + orderId);
+            }
+            if ("已取消".equals(order.getStatus())) {
+                throw new RuntimeException("挂号记录已取消，无需重复操作");
+            }
+            if ("已完成".equals(order.getStatus())) {
+                throw new RuntimeException("已完成挂号，不能取消");
             }
+            throw new RuntimeException("当前状态不能取消: " + order.getStatus());
         }
         
-        return result;
+        log.info("取消挂号成功，订单ID: {}", orderId);
+        // 统计更新和号源归还由发件箱异步完成
+        publishStatusChanged(RegistrationEventHandler.REGISTRATION_CANCELLED, orderId, "已预约");
+        return true;
     }
     
     /**
@@ -237,17 +507,24 @@ public class HospitalRegistrationService
     public boolean completeRegistration(String orderId) {
         log.info("完成挂号，订单ID: {}", orderId);
         
-        ReserveOrder order = this.getById(orderId);
-        if (order == null) {
-            throw new RuntimeException("挂号记录不存在");
-        }
-        
-        if (!"已预约".equals(order.getStatus())) {
+        if (reserveOrderMapper.updateStatus(orderId, "已预约", "已完成") == 0) {
+            if (this.getById(orderId) == null) {
+                throw new RuntimeException("挂号记录不存在");
+            }
             throw new RuntimeException("只能完成已预约状态的挂号");
         }
         
-        order.setStatus("已完成");
-        return this.updateById(order);
+        publishStatusChanged(RegistrationEventHandler.REGISTRATION_COMPLETED, orderId, "已预约");
+        return true;
+    }
+    
+    /**
+     * 写入挂号状态变化事件（事件处理时按订单ID读取挂号记录）
+     */
+    private void publishStatusChanged(String eventType, String orderId, String fromStatus) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("fromStatus", fromStatus);
+        outboxPublisher.publish(eventType, orderId, payload);
     }
     
     /**
@@ -258,7 +535,8 @@ public class HospitalRegistrationService
             throw new IllegalArgumentException("订单ID不能为空");
         }
         
-        return this.getById(orderId);
+        ReserveOrder order = this.getById(orderId);
+        return order != null ? order : reserveOrderArchiveMapper.selectById(orderId);
     }
     
     /**
@@ -267,7 +545,7 @@ public class HospitalRegistrationService
     public Map<String, Object> getRegistrationDetail(String orderId) {
         Map<String, Object> result = new HashMap<>();
         
-        ReserveOrder order = this.getById(orderId);
+        ReserveOrder order = getRegistrationById(orderId);
         if (order == null) {
             result.put("found", false);
             result.put("message", "挂号记录不存在");
@@ -287,77 +565,76 @@ public class HospitalRegistrationService
     }
     
     /**
-     * 统计用户挂号状态
+     * 统计用户挂号状态（增量维护的计数，常规情况下不查库）
      */
     public Map<String, Integer> getUserRegistrationStats(String userId) {
-        Map<String, Integer> stats = new HashMap<>();
-        stats.put("total", 0);
-        stats.put("pending", 0);   // 已预约
-        stats.put("completed", 0); // 已完成
-        stats.put("cancelled", 0); // 已取消
-        
-        // 使用Lambda查询统计
-        LambdaQueryWrapper<ReserveOrder> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(ReserveOrder::getUserId, userId);
-        
-        long total = this.count(queryWrapper);
-        stats.put("total", (int) total);
-        
-        queryWrapper.clear();
-        queryWrapper.eq(ReserveOrder::getUserId, userId)
-                   .eq(ReserveOrder::getStatus, "已预约");
-        long pending = this.count(queryWrapper);
-        stats.put("pending", (int) pending);
-        
-        queryWrapper.clear();
-        queryWrapper.eq(ReserveOrder::getUserId, userId)
-                   .eq(ReserveOrder::getStatus, "已完成");
-        long completed = this.count(queryWrapper);
-        stats.put("completed", (int) completed);
-        
-        queryWrapper.clear();
-        queryWrapper.eq(ReserveOrder::getUserId, userId)
-                   .eq(ReserveOrder::getStatus, "已取消");
-        long cancelled = this.count(queryWrapper);
-        stats.put("cancelled", (int) cancelled);
-        
-        log.info("用户 {} 挂号统计: 总计={}, 待就诊={}, 已完成={}, 已取消={}", 
-                userId, total, pending, completed, cancelled);
-        
+        if (StrUtil.isEmpty(userId)) {
+            throw new IllegalArgumentException("用户ID不能为空");
+        }
+        Map<String, Integer> stats = registrationStatsService.getStats(userId);
+        log.info("用户 {} 挂号统计: {}", userId, stats);
         return stats;
     }
     
     /**
-     * 检查医院是否有号源
+     * 按挂号记录重建用户挂号统计
      */
-    public boolean checkHospitalQuota(String hospitalId, String date) {
-        HospitalInfo hospital = hospitalInfoMapper.selectById(hospitalId);
-        if (hospital == null) {
+    public void rebuildUserRegistrationStats(String userId) {
+        if (StrUtil.isEmpty(userId)) {
+            throw new IllegalArgumentException("用户ID不能为空");
+        }
+        registrationStatsService.rebuild(userId);
+    }
+    
+    /**
+     * 数据库扣减号源（Redis 不可用时）
+     * 锁住医院行串行化同一医院的挂号，按 daily_quota - 该日期已预约数 判断余量，与 Redis 计数器同一口径；
+     * 扣减后让该日期的计数器失效，Redis 恢复后按订单重建
+     */
+    private boolean reserveInDatabase(HospitalInfo hospital, String date, int count) {
+        HospitalInfo latest = hospitalInfoMapper.selectByIdForUpdate(hospital.getHospitalId());
+        if (latest == null) {
             return false;
         }
-        
-        // 检查医院状态
-        if (!"enabled".equals(hospital.getStatus())) {
+        if (latest.getDailyQuota() == null) {
+            return true;
+        }
+        int booked = reserveOrderMapper.selectBookedIdsForUpdate(latest.getHospitalId(), date).size();
+        if (booked + count > latest.getDailyQuota()) {
             return false;
         }
-        
-        // 检查剩余配额
-        if (hospital.getAvailableQuota() != null && hospital.getAvailableQuota() > 0) {
+        hospitalQuotaCounter.markStale(latest.getHospitalId(), date);
+        // 今天的展示值在持有行锁时直接写入，提交顺序与扣减顺序一致，不会被并发的重算覆盖成旧值
+        if (LocalDate.now().toString().equals(date)) {
+            hospitalInfoMapper.updateAvailableQuota(latest.getHospitalId(), 
+                    latest.getDailyQuota() - booked - count);
+            hospitalCatalog.refreshHospitalAfterCommit(latest.getHospitalId());
+        }
+        log.info("扣减医院配额，医院: {}", hospital.getHospitalName());
+        return true;
+    }
+    
+    /**
+     * 检查医院某日期是否还有号源（只做展示用的预判，不占号；真正占号见 reserveHospitalQuota，并发下不会超卖）
+     * 与扣减同一口径：daily_quota - 该日期已预约数，daily_quota 为空不限量
+     */
+    public boolean checkHospitalQuota(String hospitalId, String date) {
+        HospitalInfo hospital = hospitalCatalog.get(hospitalId);
+        if (hospital == null || !HospitalSnapshot.isEnabled(hospital)) {
+            return false;
+        }
+        if (hospital.getDailyQuota() == null) {
             return true;
         }
-        // 检查该日期是否已有太多预约
+        Integer remaining = hospitalQuotaCounter.remaining(hospitalId, date);
+        if (remaining != null) {
+            return remaining > 0;
+        }
+        
         LambdaQueryWrapper<ReserveOrder> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(ReserveOrder::getHospitalId, hospitalId)
                    .eq(ReserveOrder::getReserveDate, date)
                    .eq(ReserveOrder::getStatus, "已预约");
-        
-        long todayReservations = this.count(queryWrapper);
-        
-        // 如果医院有配额设置，检查是否超限
-        if (hospital.getDailyQuota() != null) {
-            return todayReservations < hospital.getDailyQuota();
-        }
-        
-        return true;
+        return this.count(queryWrapper) < hospital.getDailyQuota();
     }
 }
\ No newline at end of file
@@ -1,18 +1,21 @@
 package com.elderly.assistant.service;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.elderly.assistant.common.IdGenerator;
 import com.elderly.assistant.entity.PaymentItem;
 import com.elderly.assistant.mapper.PaymentMapper;
+import com.elderly.assistant.outbox.OutboxPublisher;
 
-import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 
 /**
@@ -26,9 +29,20 @@ public class PaymentService {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentService.class);
 
+    /**
+     * 缴费完成事件类型（与状态更新同一事务写入发件箱）
+     */
+    public static final String PAYMENT_PAID = "PAYMENT_PAID";
+
     @Autowired
     private PaymentMapper paymentMapper;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
     /**
      * 获取用户待缴费项目
      *
@@ -75,7 +89,7 @@ public class PaymentService {
     public boolean createPaymentItem(PaymentItem paymentItem) {
         // 生成ID
         if (StrUtil.isEmpty(paymentItem.getItemId())) {
-            paymentItem.setItemId("PAY_ITEM_" + IdUtil.getSnowflakeNextIdStr());
+            paymentItem.setItemId(idGenerator.nextId("PAY_ITEM_"));
         }
 
         // 设置创建时间
@@ -104,23 +118,24 @@ public class PaymentService {
     }
 
     /**
-     * 标记为已缴清
+     * 标记为已缴清（一条条件 UPDATE），同时写入缴费完成事件，由发件箱异步通知
+     * 金额不清零，事件处理按项目ID读取时仍能拿到缴纳的金额
      *
      * @param itemId 缴费项目ID
      * @return 是否成功
      */
+    @Transactional(rollbackFor = Exception.class)
     public boolean markAsPaid(String itemId) {
-        PaymentItem item = paymentMapper.selectById(itemId);
-        if (item == null) {
-            throw new RuntimeException("缴费项目不存在");
+        if (paymentMapper.markPaid(itemId, System.currentTimeMillis()) > 0) {
+            outboxPublisher.publish(PAYMENT_PAID, itemId, new HashMap<>());
+            return true;
         }
 
-        item.setStatus("已缴清");
-        item.setAmount(BigDecimal.ZERO);
-        item.setUpdateTime(System.currentTimeMillis());
-
-        int result = paymentMapper.updateById(item);
-        return result > 0;
+        // 没有更新到：项目不存在，或者已经是已缴清
+        if (paymentMapper.selectById(itemId) == null) {
+            throw new RuntimeException("缴费项目不存在");
+        }
+        return true;
     }
 
     /**
@@ -0,0 +1,134 @@
+package com.elderly.assistant.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.elderly.assistant.mapper.ReserveOrderArchiveMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 挂号记录归档
+ * 每天凌晨把预约日期早于保留期的挂号从 RESERVE_ORDER 分段移入 RESERVE_ORDER_ARCHIVE，
+ * 每段"复制 + 删除"在一个短事务里完成，段与段之间稍作停顿，不影响白天的挂号写入；
+ * 热表只保留近期和未来的挂号，号源统计、用户最近记录都只扫热表
+ */
+@Slf4j
+@Service
+public class RegistrationArchiveService {
+
+    private static final String LOCK_PREFIX = "reserve:archive:";
+    private static final Duration LOCK_TTL = Duration.ofHours(2);
+
+    private final ReserveOrderArchiveMapper archiveMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer archiveTimer;
+
+    /**
+     * 热表保留的天数（按预约日期）
+     */
+    @Value("${hospital.archive.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${hospital.archive.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * 段与段之间的停顿（毫秒）
+     */
+    @Value("${hospital.archive.pause-ms:50}")
+    private long pauseMs;
+
+    public RegistrationArchiveService(ReserveOrderArchiveMapper archiveMapper, StringRedisTemplate redisTemplate,
+                                      PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.archiveMapper = archiveMapper;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveTimer = meterRegistry.timer("hospital.registration.archive");
+    }
+
+    @Scheduled(cron = "${hospital.archive.cron:0 30 3 * * ?}")
+    public void scheduledArchive() {
+        String today = LocalDate.now().toString();
+        if (!tryLock(today)) {
+            log.info("今日挂号归档已由其它实例执行，跳过，日期: {}", today);
+            return;
+        }
+        try {
+            archive(LocalDate.now().minusDays(retentionDays).toString());
+        } catch (Exception e) {
+            log.error("挂号记录归档失败", e);
+        }
+    }
+
+    /**
+     * 归档预约日期早于 beforeDate 的挂号
+     *
+     * @return 归档的挂号数
+     */
+    public int archive(String beforeDate) {
+        long start = System.nanoTime();
+        int archived = 0;
+        int chunks = 0;
+        while (true) {
+            List<String> ids = archiveMapper.selectArchivableIds(beforeDate, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            long now = System.currentTimeMillis();
+            Integer moved = transactionTemplate.execute(status -> {
+                archiveMapper.copyToArchive(ids, now);
+                return archiveMapper.deleteArchived(ids);
+            });
+            chunks++;
+            if (moved == null || moved == 0) {
+                log.warn("挂号归档本段没有移动任何记录，停止本次归档，首个订单: {}", ids.get(0));
+                break;
+            }
+            archived += moved;
+            if (ids.size() < chunkSize) {
+                break;
+            }
+            if (pauseMs > 0) {
+                try {
+                    Thread.sleep(pauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        archiveTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        if (archived > 0) {
+            log.info("挂号记录归档完成，预约日期早于: {}, 归档数: {}, 分段数: {}, 耗时: {}ms",
+                    beforeDate, archived, chunks, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+        return archived;
+    }
+
+    /**
+     * Redis 不可用时仍然执行（归档可重复执行，INSERT IGNORE + 按归档表删除保证不丢不重）
+     */
+    private boolean tryLock(String date) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_PREFIX + date, "1", LOCK_TTL));
+        } catch (Exception e) {
+            log.warn("获取挂号归档锁失败，直接执行", e);
+            return true;
+        }
+    }
+}
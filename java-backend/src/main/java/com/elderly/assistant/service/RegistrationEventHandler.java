@@ -0,0 +1,94 @@
+package com.elderly.assistant.service;
+
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import com.elderly.assistant.entity.OutboxEvent;
+import com.elderly.assistant.entity.ReserveOrder;
+import com.elderly.assistant.mapper.ReserveOrderArchiveMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+import com.elderly.assistant.outbox.OutboxEventHandler;
+import com.elderly.assistant.quota.HospitalQuotaCounter;
+import com.elderly.assistant.quota.SlotInventoryEngine;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 挂号事件处理（由发件箱异步投递）
+ * 挂号请求的事务里只写挂号记录和事件，统计计数、取消后的号源归还在这里完成
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistrationEventHandler implements OutboxEventHandler {
+
+    public static final String REGISTRATION_CREATED = "REGISTRATION_CREATED";
+    public static final String REGISTRATION_CANCELLED = "REGISTRATION_CANCELLED";
+    public static final String REGISTRATION_COMPLETED = "REGISTRATION_COMPLETED";
+
+    private final RegistrationStatsService registrationStatsService;
+    private final SlotInventoryEngine slotInventoryEngine;
+    private final HospitalQuotaCounter hospitalQuotaCounter;
+    private final ReserveOrderMapper reserveOrderMapper;
+    private final ReserveOrderArchiveMapper reserveOrderArchiveMapper;
+
+    @Override
+    public Set<String> eventTypes() {
+        return Set.of(REGISTRATION_CREATED, REGISTRATION_CANCELLED, REGISTRATION_COMPLETED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        JSONObject payload = JSONUtil.parseObj(event.getPayload());
+        if (REGISTRATION_CREATED.equals(event.getEventType())) {
+            registrationStatsService.onStatusChange(payload.getStr("userId"), null,
+                    RegistrationStatsService.STATUS_PENDING, payload.getInt("count", 1));
+            return;
+        }
+
+        // 状态变化事件只带订单ID，挂号记录在这里读取；投递前可能已被归档
+        ReserveOrder order = reserveOrderMapper.selectById(event.getAggregateId());
+        if (order == null) {
+            order = reserveOrderArchiveMapper.selectById(event.getAggregateId());
+        }
+        if (order == null) {
+            log.warn("挂号记录不存在，忽略事件，订单ID: {}, 类型: {}", event.getAggregateId(), event.getEventType());
+            return;
+        }
+        String fromStatus = payload.getStr("fromStatus");
+        switch (event.getEventType()) {
+            case REGISTRATION_COMPLETED:
+                registrationStatsService.onStatusChange(order.getUserId(), fromStatus,
+                        RegistrationStatsService.STATUS_COMPLETED);
+                break;
+            case REGISTRATION_CANCELLED:
+                onCancelled(order, fromStatus);
+                break;
+            default:
+                log.warn("未知的挂号事件类型: {}", event.getEventType());
+        }
+    }
+
+    /**
+     * 取消挂号：更新统计，归还科室时段号源和医院号源
+     */
+    private void onCancelled(ReserveOrder order, String fromStatus) {
+        String hospitalId = order.getHospitalId();
+        String reserveDate = order.getReserveDate();
+        registrationStatsService.onStatusChange(order.getUserId(), fromStatus,
+                RegistrationStatsService.STATUS_CANCELLED);
+
+        slotInventoryEngine.release(hospitalId, order.getDepartment(), reserveDate, order.getTimeSlot());
+
+        // 未启用 Redis 时号源直接按订单计算，订单状态变化即已归还，只需重算今天的展示值
+        if (hospitalQuotaCounter.isEnabled()) {
+            hospitalQuotaCounter.releaseAfterCommit(hospitalId, reserveDate);
+        } else {
+            hospitalQuotaCounter.changedInDatabase(hospitalId, reserveDate);
+        }
+    }
+}
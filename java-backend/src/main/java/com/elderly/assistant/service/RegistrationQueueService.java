@@ -0,0 +1,326 @@
+package com.elderly.assistant.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.catalog.HospitalSnapshot;
+import com.elderly.assistant.common.IdGenerator;
+import com.elderly.assistant.dto.RegistrationTicketDTO;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.entity.ReserveOrder;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 挂号排队服务（放号高峰削峰）
+ * 每家医院一个有界队列，同一时刻只有一个写线程消费，挂号请求不再同时争抢同一行；
+ * 写线程每次取一小批在一个事务里提交，批内某一条失败时整批回滚，去掉这一条后其余的重新作为一批提交；
+ * 挂号会改写传入的订单（全天改为上午/下午、补默认值），每次提交都用入队时订单的新副本。
+ * 调用方入队后立即拿到票据，再凭票据查询结果。
+ * 只支持单节点语义：队列和票据都只在本机内存中，其它节点看不到，
+ * 多节点部署时入队和查询票据都需按医院ID粘性路由到同一节点；
+ * 正常停机时先停止入队并等待队列消费完，超时未处理的请求标记为失败，进程崩溃时排队中的请求会丢失。
+ * 医院必须存在且可用才会建队列，空闲的队列定时回收
+ */
+@Slf4j
+@Service
+public class RegistrationQueueService {
+
+    private final HospitalRegistrationService hospitalRegistrationService;
+    private final IdGenerator idGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final HospitalCatalog hospitalCatalog;
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final Map<String, RegistrationTicketDTO> tickets = new ConcurrentHashMap<>();
+
+    @Value("${hospital.admission.queue-capacity:2000}")
+    private int queueCapacity;
+
+    @Value("${hospital.admission.batch-size:20}")
+    private int batchSize;
+
+    @Value("${hospital.admission.writer-threads:4}")
+    private int writerThreads;
+
+    @Value("${hospital.admission.ticket-ttl-ms:600000}")
+    private long ticketTtlMs;
+
+    @Value("${hospital.admission.lane-idle-ms:600000}")
+    private long laneIdleMs;
+
+    @Value("${hospital.admission.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private ExecutorService writers;
+    private volatile boolean closing;
+
+    public RegistrationQueueService(HospitalRegistrationService hospitalRegistrationService,
+                                    IdGenerator idGenerator, PlatformTransactionManager transactionManager,
+                                    HospitalCatalog hospitalCatalog) {
+        this.hospitalRegistrationService = hospitalRegistrationService;
+        this.idGenerator = idGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hospitalCatalog = hospitalCatalog;
+    }
+
+    @PostConstruct
+    public void init() {
+        writers = Executors.newFixedThreadPool(writerThreads,
+                ThreadFactoryBuilder.create().setNamePrefix("registration-writer-").build());
+    }
+
+    /**
+     * 停机：停止入队，等待已排队的请求处理完；超时仍未处理的标记为失败
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        closing = true;
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        while (busy() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        writers.shutdown();
+        writers.awaitTermination(10, TimeUnit.SECONDS);
+
+        int abandoned = 0;
+        for (Lane lane : lanes.values()) {
+            Entry entry;
+            while ((entry = lane.queue.poll()) != null) {
+                finish(entry.ticket, false, "服务正在重启，请重新挂号");
+                abandoned++;
+            }
+        }
+        if (abandoned > 0) {
+            log.warn("停机时仍有 {} 个挂号请求未处理，已标记为失败", abandoned);
+        }
+    }
+
+    private boolean busy() {
+        for (Lane lane : lanes.values()) {
+            if (!lane.queue.isEmpty() || lane.draining.get()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 挂号请求入队，立即返回票据；队列已满时直接拒绝
+     */
+    public RegistrationTicketDTO submit(ReserveOrder order) {
+        if (order == null || StrUtil.isEmpty(order.getHospitalId())) {
+            throw new IllegalArgumentException("医院ID不能为空");
+        }
+        if (closing) {
+            throw new RuntimeException("服务正在重启，请稍后再试");
+        }
+        // 先校验医院，避免为任意ID建队列
+        HospitalInfo hospital = hospitalCatalog.get(order.getHospitalId());
+        if (hospital == null) {
+            throw new RuntimeException("医院不存在");
+        }
+        if (!HospitalSnapshot.isEnabled(hospital)) {
+            throw new RuntimeException("医院暂不可用");
+        }
+        if (StrUtil.isEmpty(order.getOrderId())) {
+            order.setOrderId(idGenerator.nextId("ORDER_"));
+        }
+
+        RegistrationTicketDTO ticket = new RegistrationTicketDTO();
+        ticket.setTicketId(idGenerator.nextId("TICKET_"));
+        ticket.setHospitalId(order.getHospitalId());
+        ticket.setOrderId(order.getOrderId());
+        ticket.setStatus(RegistrationTicketDTO.QUEUED);
+        ticket.setMessage("排队中");
+        ticket.setCreateTime(System.currentTimeMillis());
+
+        Entry entry = new Entry(ticket, BeanUtil.copyProperties(order, ReserveOrder.class));
+        AtomicBoolean accepted = new AtomicBoolean();
+        tickets.put(ticket.getTicketId(), ticket);
+        // 在 compute 内入队，与空闲回收互斥，入队的队列不会刚好被回收
+        Lane lane = lanes.compute(order.getHospitalId(), (id, current) -> {
+            Lane target = current != null ? current : new Lane(queueCapacity);
+            target.lastUsed = System.currentTimeMillis();
+            accepted.set(target.queue.offer(entry));
+            return target;
+        });
+        if (!accepted.get()) {
+            tickets.remove(ticket.getTicketId());
+            throw new RuntimeException("当前挂号人数较多，请稍后再试");
+        }
+        schedule(lane);
+
+        log.info("挂号请求入队，票据: {}, 医院: {}, 排队数: {}", ticket.getTicketId(),
+                order.getHospitalId(), lane.queue.size());
+        return ticket;
+    }
+
+    /**
+     * 查询票据状态，不存在或已过期返回 null
+     */
+    public RegistrationTicketDTO getTicket(String ticketId) {
+        return StrUtil.isEmpty(ticketId) ? null : tickets.get(ticketId);
+    }
+
+    /**
+     * 清理已完成且过期的票据
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredTickets() {
+        long expireBefore = System.currentTimeMillis() - ticketTtlMs;
+        tickets.values().removeIf(ticket -> ticket.getFinishTime() != null && ticket.getFinishTime() < expireBefore);
+    }
+
+    /**
+     * 回收空闲的医院队列
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleLanes() {
+        long idleBefore = System.currentTimeMillis() - laneIdleMs;
+        for (String hospitalId : lanes.keySet()) {
+            lanes.computeIfPresent(hospitalId, (id, lane) -> lane.queue.isEmpty() && !lane.draining.get()
+                    && lane.lastUsed < idleBefore ? null : lane);
+        }
+    }
+
+    /**
+     * 保证每条队列同一时刻最多一个写线程
+     */
+    private void schedule(Lane lane) {
+        if (lane.draining.compareAndSet(false, true)) {
+            try {
+                writers.execute(() -> drain(lane));
+            } catch (RejectedExecutionException e) {
+                // 已停机，剩余请求由 shutdown 标记为失败
+                lane.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Lane lane) {
+        try {
+            List<Entry> batch = new ArrayList<>(batchSize);
+            while (lane.queue.drainTo(batch, batchSize) > 0) {
+                commit(batch);
+                batch.clear();
+            }
+        } finally {
+            lane.draining.set(false);
+            // 释放标记后可能有新请求入队，补一次调度
+            if (!lane.queue.isEmpty()) {
+                schedule(lane);
+            }
+        }
+    }
+
+    /**
+     * 整批在一个事务里提交；某一条失败时整批回滚（号源扣减随之归还），
+     * 这一条记为失败，其余的重新作为一批提交，事务数为失败条数 + 1
+     */
+    private void commit(List<Entry> batch) {
+        List<Entry> pending = new ArrayList<>(batch);
+        while (!pending.isEmpty()) {
+            int[] current = {-1};
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (int i = 0; i < pending.size(); i++) {
+                        current[0] = i;
+                        if (!hospitalRegistrationService.createRegistration(pending.get(i).freshOrder())) {
+                            throw new IllegalStateException("挂号失败");
+                        }
+                    }
+                    current[0] = -1;
+                });
+                for (Entry entry : pending) {
+                    finish(entry.ticket, true, "挂号成功");
+                }
+                return;
+            } catch (Exception e) {
+                if (current[0] < 0) {
+                    // 提交阶段失败（如死锁、连接中断），无法定位到某一条，整批失败
+                    log.warn("批量挂号提交失败，批大小: {}", pending.size(), e);
+                    for (Entry entry : pending) {
+                        finish(entry.ticket, false, "挂号失败，请重试");
+                    }
+                    return;
+                }
+                Entry failed = pending.remove(current[0]);
+                finish(failed.ticket, false, userMessage(e));
+                if (!pending.isEmpty()) {
+                    log.info("批量挂号中一条失败，其余 {} 条重新提交，原因: {}", pending.size(), e.getMessage());
+                } else {
+                    log.info("排队挂号失败，票据: {}, 原因: {}", failed.ticket.getTicketId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 票据里只放业务提示（挂号服务直接抛出的 RuntimeException / IllegalArgumentException），
+     * 数据库、驱动等异常的原文不给用户看
+     */
+    private static String userMessage(Exception e) {
+        boolean business = e.getClass() == RuntimeException.class || e.getClass() == IllegalArgumentException.class;
+        return business && StrUtil.isNotBlank(e.getMessage()) ? e.getMessage() : "挂号失败，请重试";
+    }
+
+    private void finish(RegistrationTicketDTO ticket, boolean success, String message) {
+        ticket.setMessage(message);
+        ticket.setFinishTime(System.currentTimeMillis());
+        ticket.setStatus(success ? RegistrationTicketDTO.SUCCESS : RegistrationTicketDTO.FAILED);
+        // 重新放入，保证查询线程能看到最新状态
+        tickets.put(ticket.getTicketId(), ticket);
+    }
+
+    /**
+     * 单家医院的排队队列
+     */
+    private static final class Lane {
+        // 按需分配的有界队列，空队列不预占容量
+        final BlockingQueue<Entry> queue;
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Lane(int capacity) {
+            this.queue = new LinkedBlockingQueue<>(capacity);
+        }
+    }
+
+    private static final class Entry {
+        final RegistrationTicketDTO ticket;
+        // 入队时的订单，只用来复制，不直接交给挂号服务
+        final ReserveOrder order;
+
+        Entry(RegistrationTicketDTO ticket, ReserveOrder order) {
+            this.ticket = ticket;
+            this.order = order;
+        }
+
+        ReserveOrder freshOrder() {
+            return BeanUtil.copyProperties(order, ReserveOrder.class);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.elderly.assistant.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.elderly.assistant.entity.UserRegistrationStats;
+import com.elderly.assistant.mapper.ReserveOrderArchiveMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+import com.elderly.assistant.mapper.UserRegistrationStatsMapper;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.StrUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 用户挂号统计
+ * USER_REGISTRATION_STATS 由发件箱投递挂号/取消/完成事件时增量更新（{@link RegistrationEventHandler}），
+ * 挂号提交后到事件投递前的短时间内计数会滞后；
+ * 读取时优先命中 Redis 哈希 reg:stats:{userId}，未命中才查计数表（一次主键查询）；
+ * 计数有误时可通过修复接口按 RESERVE_ORDER 分组统计重建（{@link #rebuild}），读取时不自动重建。
+ * 缓存一致性：计数变化提交后递增版本号 reg:stats:ver:{userId} 并删除缓存；
+ * 读取未命中时先记下版本号再查库，回填时版本号未变且缓存不存在才写入，
+ * 避免查库之后提交的变化被旧数据覆盖
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RegistrationStatsService {
+
+    private static final String CACHE_PREFIX = "reg:stats:";
+    private static final String VERSION_PREFIX = "reg:stats:ver:";
+    private static final Duration CACHE_TTL = Duration.ofHours(12);
+
+    public static final String STATUS_PENDING = "已预约";
+    public static final String STATUS_COMPLETED = "已完成";
+    public static final String STATUS_CANCELLED = "已取消";
+
+    /**
+     * 计数已变化：递增版本号并删除缓存，下次读取从计数表加载
+     */
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('INCR', KEYS[2]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return v", Long.class);
+
+    /**
+     * 回填缓存：版本号仍为 ARGV[1] 且缓存不存在时写入 ARGV[3..] 的字段/值，返回是否写入
+     */
+    private static final RedisScript<Long> FILL_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return 0 end " +
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "for i = 3, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    private final UserRegistrationStatsMapper statsMapper;
+    private final ReserveOrderMapper reserveOrderMapper;
+    private final ReserveOrderArchiveMapper reserveOrderArchiveMapper;
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * 记录一次状态变化（在事件处理事务中调用），fromStatus 为 null 表示新建挂号
+     */
+    public void onStatusChange(String userId, String fromStatus, String toStatus) {
+        onStatusChange(userId, fromStatus, toStatus, 1);
+    }
+
+    /**
+     * 记录 count 条挂号的同一状态变化（批量挂号时合并为一次更新）
+     */
+    public void onStatusChange(String userId, String fromStatus, String toStatus, int count) {
+        if (StrUtil.isEmpty(userId) || count <= 0) {
+            return;
+        }
+        int[] delta = new int[4];
+        if (fromStatus == null) {
+            delta[0] = count;
+        } else {
+            add(delta, fromStatus, -count);
+        }
+        add(delta, toStatus, count);
+        if (delta[0] == 0 && delta[1] == 0 && delta[2] == 0 && delta[3] == 0) {
+            return;
+        }
+
+        statsMapper.applyDelta(userId, delta[0], delta[1], delta[2], delta[3], System.currentTimeMillis());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateCache(userId);
+                }
+            });
+        } else {
+            invalidateCache(userId);
+        }
+    }
+
+    /**
+     * 查询用户挂号统计：total / pending / completed / cancelled
+     */
+    public Map<String, Integer> getStats(String userId) {
+        String key = CACHE_PREFIX + userId;
+        String version = null;
+        try {
+            Map<Object, Object> cached = redisTemplate.opsForHash().entries(key);
+            if (!cached.isEmpty()) {
+                Map<String, Integer> stats = new HashMap<>();
+                cached.forEach((field, value) -> stats.put(field.toString(), Convert.toInt(value, 0)));
+                return stats;
+            }
+            version = StrUtil.nullToDefault(redisTemplate.opsForValue().get(VERSION_PREFIX + userId), "0");
+        } catch (Exception e) {
+            log.warn("读取挂号统计缓存失败，userId: {}", userId, e);
+        }
+
+        // 升级时已按挂号记录回填，之后每次挂号都会建行：没有计数行说明该用户的挂号事件都还未投递，
+        // 此时按订单重建会把随后投递的增量再算一遍，因此按 0 返回，等事件投递后自然更新
+        UserRegistrationStats row = statsMapper.selectById(userId);
+        Map<String, Integer> stats = row != null ? toMap(row) : toMap(empty(userId));
+        if (version != null) {
+            fillCache(userId, version, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * 按 RESERVE_ORDER 及归档表分组统计重建计数（修复用）
+     * 重建时仍未投递的挂号事件会在投递后再加一次，应在发件箱积压投递完后执行
+     */
+    public UserRegistrationStats rebuild(String userId) {
+        UserRegistrationStats stats = empty(userId);
+
+        List<Map<String, Object>> rows = new ArrayList<>(reserveOrderMapper.countByStatus(userId));
+        rows.addAll(reserveOrderArchiveMapper.countByStatus(userId));
+        for (Map<String, Object> row : rows) {
+            String status = (String) row.get("status");
+            int count = Convert.toInt(row.get("count"), 0);
+            stats.setTotal(stats.getTotal() + count);
+            if (STATUS_PENDING.equals(status)) {
+                stats.setPending(stats.getPending() + count);
+            } else if (STATUS_COMPLETED.equals(status)) {
+                stats.setCompleted(stats.getCompleted() + count);
+            } else if (STATUS_CANCELLED.equals(status)) {
+                stats.setCancelled(stats.getCancelled() + count);
+            }
+        }
+        stats.setUpdateTime(System.currentTimeMillis());
+        statsMapper.replace(stats);
+        invalidateCache(userId);
+        log.info("重建用户 {} 挂号统计: 总计={}, 待就诊={}, 已完成={}, 已取消={}", userId,
+                stats.getTotal(), stats.getPending(), stats.getCompleted(), stats.getCancelled());
+        return stats;
+    }
+
+    private static UserRegistrationStats empty(String userId) {
+        UserRegistrationStats stats = new UserRegistrationStats();
+        stats.setUserId(userId);
+        stats.setTotal(0);
+        stats.setPending(0);
+        stats.setCompleted(0);
+        stats.setCancelled(0);
+        return stats;
+    }
+
+    private static void add(int[] delta, String status, int value) {
+        if (STATUS_PENDING.equals(status)) {
+            delta[1] += value;
+        } else if (STATUS_COMPLETED.equals(status)) {
+            delta[2] += value;
+        } else if (STATUS_CANCELLED.equals(status)) {
+            delta[3] += value;
+        }
+    }
+
+    private void invalidateCache(String userId) {
+        try {
+            redisTemplate.execute(INVALIDATE_SCRIPT, Arrays.asList(CACHE_PREFIX + userId, VERSION_PREFIX + userId),
+                    String.valueOf(CACHE_TTL.getSeconds()));
+        } catch (Exception e) {
+            log.warn("清除挂号统计缓存失败，userId: {}", userId, e);
+        }
+    }
+
+    private void fillCache(String userId, String version, Map<String, Integer> stats) {
+        try {
+            List<String> args = new ArrayList<>();
+            args.add(version);
+            args.add(String.valueOf(CACHE_TTL.getSeconds()));
+            stats.forEach((field, value) -> {
+                args.add(field);
+                args.add(String.valueOf(value));
+            });
+            redisTemplate.execute(FILL_SCRIPT, Arrays.asList(CACHE_PREFIX + userId, VERSION_PREFIX + userId),
+                    args.toArray());
+        } catch (Exception e) {
+            log.warn("写入挂号统计缓存失败", e);
+        }
+    }
+
+    private static Map<String, Integer> toMap(UserRegistrationStats row) {
+        Map<String, Integer> stats = new HashMap<>();
+        stats.put("total", row.getTotal());
+        stats.put("pending", row.getPending());     // 已预约
+        stats.put("completed", row.getCompleted()); // 已完成
+        stats.put("cancelled", row.getCancelled()); // 已取消
+        return stats;
+    }
+}
@@ -10,12 +10,11 @@ import java.util.stream.Collectors;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.elderly.assistant.common.IdGenerator;
 import com.elderly.assistant.entity.TaxiCommonAddress;
 import com.elderly.assistant.mapper.TaxiCommonAddressMapper;
 
-import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -30,6 +29,7 @@ import lombok.extern.slf4j.Slf4j;
 public class TaxiAddressService extends ServiceImpl<TaxiCommonAddressMapper, TaxiCommonAddress> {
     
     private final TaxiCommonAddressMapper taxiAddressMapper;
+    private final IdGenerator idGenerator;
     
     /**
      * 添加常用地址
@@ -54,7 +54,7 @@ public class TaxiAddressService extends ServiceImpl<TaxiCommonAddressMapper, Tax
         
         // 生成地址ID
         if (StrUtil.isEmpty(address.getAddrId())) {
-            address.setAddrId("ADDR_" + IdUtil.getSnowflakeNextIdStr());
+            address.setAddrId(idGenerator.nextId("ADDR_"));
         }
         
         // 设置默认值
@@ -75,7 +75,7 @@ public class TaxiAddressService extends ServiceImpl<TaxiCommonAddressMapper, Tax
         
         // 如果设置为默认地址，需要清除其他默认地址
         if (Boolean.TRUE.equals(address.getIsDefault())) {
-            clearOtherDefaultAddress(address.getUserId());
+            clearOtherDefaultAddress(address.getUserId(), null);
         }
         
         boolean result = this.save(address);
@@ -87,21 +87,11 @@ public class TaxiAddressService extends ServiceImpl<TaxiCommonAddressMapper, Tax
     }
     
     /**
-     * 清除用户的其他默认地址
+     * 清除用户的其他默认地址（一条 UPDATE），exceptAddrId 为保留的地址
      */
-    @Transactional(rollbackFor = Exception.class)
-    private void clearOtherDefaultAddress(String userId) {
-        LambdaQueryWrapper<TaxiCommonAddress> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(TaxiCommonAddress::getUserId, userId)
-               .eq(TaxiCommonAddress::getIsDefault, true);
-        
-        List<TaxiCommonAddress> defaultAddresses = this.list(wrapper);
-        for (TaxiCommonAddress addr : defaultAddresses) {
-            addr.setIsDefault(false);
-            addr.setUpdateTime(System.currentTimeMillis());
-            this.updateById(addr);
-        }
-        log.info("清除用户 {} 的其他默认地址，共 {} 个", userId, defaultAddresses.size());
+    private void clearOtherDefaultAddress(String userId, String exceptAddrId) {
+        int cleared = taxiAddressMapper.clearDefault(userId, exceptAddrId, System.currentTimeMillis());
+        log.info("清除用户 {} 的其他默认地址，共 {} 个", userId, cleared);
     }
     
     /**
@@ -181,25 +171,16 @@ public class TaxiAddressService extends ServiceImpl<TaxiCommonAddressMapper, Tax
     public boolean setDefaultAddress(String userId, String addrId) {
         log.info("设置默认地址，用户: {}, 地址ID: {}", userId, addrId);
         
-        // 验证地址是否存在且属于该用户
-        TaxiCommonAddress address = this.getById(addrId);
-        if (address == null || !userId.equals(address.getUserId())) {
+        // 设置新默认地址，条件中校验地址属于该用户
+        if (taxiAddressMapper.markDefault(userId, addrId, System.currentTimeMillis()) == 0) {
             throw new RuntimeException("地址不存在或不属于该用户");
         }
         
         // 清除其他默认地址
-        clearOtherDefaultAddress(userId);
-        
-        // 设置新默认地址
-        address.setIsDefault(true);
-        address.setUpdateTime(System.currentTimeMillis());
-        
-        boolean result = this.updateById(address);
-        if (result) {
-            log.info("设置默认地址成功: {}", address.getDisplayName());
-        }
+        clearOtherDefaultAddress(userId, addrId);
+        log.info("设置默认地址成功，地址ID: {}", addrId);
         
-        return result;
+        return true;
     }
     
     /**
@@ -212,16 +193,7 @@ public class TaxiAddressService extends ServiceImpl<TaxiCommonAddressMapper, Tax
         }
         
         try {
-            long currentTime = System.currentTimeMillis();
-            taxiAddressMapper.updateLastUseTime(addrId, currentTime);
-            
-            // 同时更新update_time
-            TaxiCommonAddress address = this.getById(addrId);
-            if (address != null) {
-                address.setUpdateTime(currentTime);
-                this.updateById(address);
-            }
-            
+            taxiAddressMapper.updateLastUseTime(addrId, System.currentTimeMillis());
             log.info("更新地址使用时间成功，地址ID: {}", addrId);
         } catch (Exception e) {
             log.error("更新地址使用时间失败", e);
@@ -280,18 +252,13 @@ public class TaxiAddressService extends ServiceImpl<TaxiCommonAddressMapper, Tax
     public boolean deleteAddress(String userId, String addrId) {
         log.info("删除常用地址，用户: {}, 地址ID: {}", userId, addrId);
         
-        // 验证地址是否存在且属于该用户
-        TaxiCommonAddress address = this.getById(addrId);
-        if (address == null || !userId.equals(address.getUserId())) {
+        // 条件中校验地址属于该用户
+        if (taxiAddressMapper.deleteByUser(userId, addrId) == 0) {
             throw new RuntimeException("地址不存在或不属于该用户");
         }
+        log.info("删除地址成功，地址ID: {}", addrId);
         
-        boolean result = this.removeById(addrId);
-        if (result) {
-            log.info("删除地址成功: {}", address.getDisplayName());
-        }
-        
-        return result;
+        return true;
     }
     
     /**
@@ -1,13 +1,17 @@
 package com.elderly.assistant.service;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HttpUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
+import com.elderly.assistant.common.AccessTokenManager;
+import com.elderly.assistant.common.OutboundHttpClient;
 import com.elderly.assistant.common.Result;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,20 +25,25 @@ public class UserService {
     @Value("${api.wechat.app-secret}")
     private String appSecret;
 
+    // 微信 access_token 默认有效期 2 小时
+    private static final long DEFAULT_TOKEN_EXPIRES_IN = 7200L;
+
+    @Autowired
+    private AccessTokenManager accessTokenManager;
+
+    @Autowired
+    private OutboundHttpClient outboundHttpClient;
+
     public Result<Map<String, Object>> bindPhone(String code) {
         log.info("收到绑定手机号请求，code: {}", code);
         
         // 检查是否配置了AppSecret
         if (StrUtil.isNotBlank(appSecret) && !appSecret.contains("请在此处")) {
             try {
-                // 1. 获取 Access Token
-                String tokenUrl = String.format("https://api.weixin.qq.com/cgi-bin/token?grant_type=client_credential&appid=%s&secret=%s", appId, appSecret);
-                String tokenResp = HttpUtil.get(tokenUrl);
-                JSONObject tokenObj = JSONUtil.parseObj(tokenResp);
-                String accessToken = tokenObj.getStr("access_token");
+                // 1. 获取 Access Token（共享缓存，过期前自动刷新）
+                String accessToken = accessTokenManager.getToken(tokenName(), this::requestAccessToken);
                 
                 if (StrUtil.isBlank(accessToken)) {
-                    log.error("获取Access Token失败: {}", tokenResp);
                     return Result.error("获取微信授权失败");
                 }
 
@@ -43,7 +52,7 @@ public class UserService {
                 Map<String, Object> paramMap = new HashMap<>();
                 paramMap.put("code", code);
                 
-                String phoneResp = HttpUtil.post(phoneUrl, JSONUtil.toJsonStr(paramMap));
+                String phoneResp = outboundHttpClient.postJson(phoneUrl, JSONUtil.toJsonStr(paramMap));
                 JSONObject phoneObj = JSONUtil.parseObj(phoneResp);
                 
                 if (phoneObj.getInt("errcode") == 0) {
@@ -55,6 +64,11 @@ public class UserService {
                     log.info("获取真实手机号成功: {}", phoneNumber);
                     return Result.success(data);
                 } else {
+                    // 40001/42001：令牌无效或已过期
+                    int errcode = phoneObj.getInt("errcode");
+                    if (errcode == 40001 || errcode == 42001) {
+                        accessTokenManager.invalidate(tokenName(), accessToken);
+                    }
                     log.error("获取手机号失败: {}", phoneResp);
                     // 降级处理，返回模拟数据
                 }
@@ -72,4 +86,28 @@ public class UserService {
         log.info("返回模拟手机号: {}", "13800138000");
         return Result.success(data);
     }
+
+    private String tokenName() {
+        return "wechat:" + appId;
+    }
+
+    /**
+     * 向微信换取新的 access_token（该接口每日调用次数有限）
+     */
+    private AccessTokenManager.IssuedToken requestAccessToken() {
+        String tokenUrl = String.format("https://api.weixin.qq.com/cgi-bin/token?grant_type=client_credential&appid=%s&secret=%s", appId, appSecret);
+        String tokenResp;
+        try {
+            tokenResp = outboundHttpClient.get(tokenUrl);
+        } catch (IOException e) {
+            throw new UncheckedIOException("获取Access Token请求失败", e);
+        }
+        JSONObject tokenObj = JSONUtil.parseObj(tokenResp);
+        String accessToken = tokenObj.getStr("access_token");
+        if (StrUtil.isBlank(accessToken)) {
+            log.error("获取Access Token失败: {}", tokenResp);
+            return null;
+        }
+        return AccessTokenManager.IssuedToken.of(accessToken, tokenObj.getLong("expires_in", DEFAULT_TOKEN_EXPIRES_IN));
+    }
 }
@@ -1,15 +1,25 @@
 package com.elderly.assistant.service;
 
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.elderly.assistant.common.AccessTokenManager;
+import com.elderly.assistant.common.OutboundHttpClient;
+import com.elderly.assistant.voice.TtsAudioCache;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
@@ -25,6 +35,22 @@ public class VoiceService {
 
     private static final Logger log = LoggerFactory.getLogger(VoiceService.class);
 
+    private static final String TOKEN_NAME = "baidu:voice";
+    // 百度令牌默认有效期 30 天
+    private static final long DEFAULT_TOKEN_EXPIRES_IN = 30 * 24 * 3600L;
+    // 百度语音接口的令牌无效错误码
+    private static final int ERR_TOKEN_INVALID = 3302;
+    private static final String TTS_URL = "http://tsn.baidu.com/text2audio";
+
+    @Autowired
+    private AccessTokenManager accessTokenManager;
+
+    @Autowired
+    private OutboundHttpClient outboundHttpClient;
+
+    @Autowired
+    private TtsAudioCache ttsAudioCache;
+
     @Value("${api.baidu.voice.app-id}")
     private String appId;
 
@@ -46,39 +72,42 @@ public class VoiceService {
             // 1. 获取访问令牌
             String accessToken = getAccessToken();
 
-            // 2. 将音频文件转为 Base64
-            byte[] audioData = audioFile.getBytes();
-            String base64Audio = Base64.getEncoder().encodeToString(audioData);
-
-            // 3. 根据方言选择dev_pid（语言模型）
+            // 2. 根据方言选择dev_pid（语言模型）
             int devPid = getDevPidByDialect(dialect);
 
-            // 4. 调用百度语音识别 API
+            // 3. 调用百度语音识别 API
             String url = "https://vop.baidu.com/server_api";
 
             // 根据上传文件名自动判断音频格式（wav/pcm/amr等）
             String audioFormat = getAudioFormat(audioFile.getOriginalFilename());
+            long audioSize = audioFile.getSize();
 
-            // 构建请求参数（百度标准版API支持pcm/wav/amr格式）
+            // 构建请求参数（百度标准版API支持pcm/wav/amr格式），音频 speech 字段在发送时流式编码
             JSONObject requestBody = new JSONObject();
             requestBody.set("format", audioFormat);
             requestBody.set("rate", 16000); // 采样率16000
             requestBody.set("channel", 1); // 单声道
             requestBody.set("cuid", "elderly_assistant");
             requestBody.set("token", accessToken);
-            requestBody.set("speech", base64Audio);
-            requestBody.set("len", audioData.length);
+            requestBody.set("len", audioSize);
             requestBody.set("dev_pid", devPid); // 根据方言选择语言模型
 
-            log.info("调用百度语音识别API，文件大小: {} bytes", audioData.length);
+            String json = requestBody.toString();
+            byte[] head = (json.substring(0, json.length() - 1) + ",\"speech\":\"").getBytes(StandardCharsets.UTF_8);
+            byte[] tail = "\"}".getBytes(StandardCharsets.UTF_8);
+            long contentLength = head.length + base64Length(audioSize) + tail.length;
 
-            HttpResponse response = HttpRequest.post(url)
-                    .header("Content-Type", "application/json")
-                    .body(requestBody.toString())
-                    .timeout(30000)
-                    .execute();
+            log.info("调用百度语音识别API，文件大小: {} bytes", audioSize);
 
-            String responseBody = response.body();
+            // 音频从上传文件（大文件已落盘）边读边做 Base64 编码写到请求体，不整体读入内存
+            String responseBody = outboundHttpClient.postJson(url, out -> {
+                out.write(head);
+                try (InputStream audio = audioFile.getInputStream();
+                     OutputStream base64 = Base64.getEncoder().wrap(nonClosing(out))) {
+                    audio.transferTo(base64);
+                }
+                out.write(tail);
+            }, contentLength, 30000).bodyAsString();
             log.info("百度语音识别响应: {}", responseBody);
 
             JSONObject result = JSONUtil.parseObj(responseBody);
@@ -99,6 +128,9 @@ public class VoiceService {
                     return "";
                 }
             } else {
+                if (result.getInt("err_no") == ERR_TOKEN_INVALID) {
+                    accessTokenManager.invalidate(TOKEN_NAME, accessToken);
+                }
                 log.error("语音识别失败: {}", result.getStr("err_msg"));
                 return "识别失败：" + result.getStr("err_msg");
             }
@@ -110,15 +142,50 @@ public class VoiceService {
     }
 
     /**
-     * 获取百度 API 访问令牌
+     * 关闭时只 flush，用于结束 Base64 编码而不关闭连接输出流
+     */
+    private static OutputStream nonClosing(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * n 字节数据 Base64 编码（带填充）后的长度
+     */
+    private static long base64Length(long n) {
+        return (n + 2) / 3 * 4;
+    }
+
+    /**
+     * 获取百度 API 访问令牌（共享缓存，过期前自动刷新）
      */
     private String getAccessToken() {
+        return accessTokenManager.getToken(TOKEN_NAME, this::requestAccessToken);
+    }
+
+    /**
+     * 向百度换取新的访问令牌
+     */
+    private AccessTokenManager.IssuedToken requestAccessToken() {
         String url = String.format(
                 "https://aip.baidubce.com/oauth/2.0/token?grant_type=client_credentials&client_id=%s&client_secret=%s",
                 apiKey, secretKey);
 
-        HttpResponse response = HttpRequest.post(url).execute();
-        String body = response.body();
+        String body;
+        try {
+            body = outboundHttpClient.post(url).bodyAsString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("获取AccessToken请求失败", e);
+        }
         log.info("获取AccessToken响应: {}", body);
         JSONObject result = JSONUtil.parseObj(body);
 
@@ -127,7 +194,8 @@ public class VoiceService {
             return null;
         }
 
-        return result.getStr("access_token");
+        return AccessTokenManager.IssuedToken.of(result.getStr("access_token"),
+                result.getLong("expires_in", DEFAULT_TOKEN_EXPIRES_IN));
     }
 
     /**
@@ -200,52 +268,110 @@ public class VoiceService {
 
     /**
      * 语音合成（TTS）
+     * 同一段文字、同一音色的音频只合成一次，之后从缓存读取
      * 
      * @param text    需要合成的文本
      * @param dialect 方言
      * @return 音频二进制数据
      */
     public byte[] synthesizeVoice(String text, String dialect) {
-        try {
-            String accessToken = getAccessToken();
-            String url = "http://tsn.baidu.com/text2audio";
-
-            // 构建请求参数
-            Map<String, Object> params = new HashMap<>();
-            params.put("tex", text);
-            params.put("tok", accessToken);
-            params.put("cuid", "elderly_assistant");
-            params.put("ctp", 1);
-
-            // 处理方言设置
-            if ("粤语".equals(dialect)) {
-                params.put("lan", "cto"); // 粤语
-                params.put("per", 0); // 默认女声
-            } else {
-                params.put("lan", "zh"); // 普通话
-                // 根据方言选择不同的音色（模拟方言感，百度标准版TTS不支持直接方言合成，除了粤语）
-                if ("四川话".equals(dialect)) {
-                    params.put("per", 3); // 度逍遥（情感男声）- 稍微活泼一点
-                } else if ("东北话".equals(dialect)) {
-                    params.put("per", 4); // 度丫丫（情感女声）
-                } else {
-                    params.put("per", 0); // 默认女声
-                }
-            }
+        String lan = getTtsLanguage(dialect);
+        int per = getTtsPerson(dialect);
+        String cacheKey = TtsAudioCache.key(text, lan, per);
+        byte[] cached = ttsAudioCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        byte[] audio = requestSynthesis(text, lan, per, dialect);
+        if (audio != null) {
+            ttsAudioCache.put(cacheKey, audio);
+        }
+        return audio;
+    }
+
+    /**
+     * 语音合成（流式）
+     * 内存缓存命中时直接写出；否则把百度返回的音频边读边写给 sink，同时写入缓存，
+     * 整段音频不在内存中缓冲
+     *
+     * @param sink 确认有音频可写时才调用，用于设置响应头并取得输出流
+     * @return 是否写出了音频；false 时 sink 未被调用
+     * @throws IOException 写出过程中失败（此时响应可能已部分写出）
+     */
+    public boolean synthesizeVoice(String text, String dialect, AudioSink sink) throws IOException {
+        String lan = getTtsLanguage(dialect);
+        int per = getTtsPerson(dialect);
+        String cacheKey = TtsAudioCache.key(text, lan, per);
+        byte[] cached = ttsAudioCache.getFromMemory(cacheKey);
+        if (cached != null) {
+            OutputStream out = sink.open();
+            out.write(cached);
+            out.flush();
+            return true;
+        }
 
+        log.info("调用百度语音合成API（流式），文本: {}, 方言: {}", text, dialect);
+        return outboundHttpClient.postForm(TTS_URL, buildTtsParams(text, lan, per), 10000,
+                (status, contentType, body) -> {
+                    if (status != 200 || contentType == null || !contentType.contains("audio") || body == null) {
+                        log.error("语音合成失败，状态: {}, 响应: {}", status,
+                                body == null ? "" : new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                        return false;
+                    }
+                    try (TtsAudioCache.PendingEntry entry = ttsAudioCache.newEntry(cacheKey)) {
+                        OutputStream out = sink.open();
+                        OutputStream cache = entry.stream();
+                        byte[] buffer = new byte[8192];
+                        int read;
+                        while ((read = body.read(buffer)) != -1) {
+                            out.write(buffer, 0, read);
+                            cache.write(buffer, 0, read);
+                        }
+                        out.flush();
+                        entry.commit();
+                    }
+                    return true;
+                });
+    }
+
+    /**
+     * 已缓存到磁盘的合成音频文件，没有时返回 null
+     */
+    public Path getSynthesizedFile(String text, String dialect) {
+        return ttsAudioCache.cachedFile(getTtsCacheKey(text, dialect));
+    }
+
+    /**
+     * 合成音频的缓存键（同一文本、同一音色的音频不变，也用作 ETag）
+     */
+    public String getTtsCacheKey(String text, String dialect) {
+        return TtsAudioCache.key(text, getTtsLanguage(dialect), getTtsPerson(dialect));
+    }
+
+    /**
+     * 该文本在该方言下是否已有缓存的合成音频
+     */
+    public boolean isSynthesized(String text, String dialect) {
+        return ttsAudioCache.contains(TtsAudioCache.key(text, getTtsLanguage(dialect), getTtsPerson(dialect)));
+    }
+
+    /**
+     * 调用百度语音合成API
+     */
+    private byte[] requestSynthesis(String text, String lan, int per, String dialect) {
+        try {
             log.info("调用百度语音合成API，文本: {}, 方言: {}", text, dialect);
 
-            HttpResponse response = HttpRequest.post(url)
-                    .form(params)
-                    .timeout(10000)
-                    .execute();
+            OutboundHttpClient.Response response = outboundHttpClient.postForm(TTS_URL,
+                    buildTtsParams(text, lan, per), 10000);
 
             if (response.getStatus() == 200) {
-                String contentType = response.header("Content-Type");
+                String contentType = response.getContentType();
                 if (contentType != null && contentType.contains("audio")) {
-                    return response.bodyBytes();
+                    return response.getBody();
                 } else {
-                    log.error("语音合成失败，响应非音频: {}", response.body());
+                    log.error("语音合成失败，响应非音频: {}", response.bodyAsString());
                     return null;
                 }
             } else {
@@ -258,4 +384,50 @@ public class VoiceService {
             return null;
         }
     }
+
+    /**
+     * 构建语音合成请求参数
+     */
+    private Map<String, Object> buildTtsParams(String text, String lan, int per) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("tex", text);
+        params.put("tok", getAccessToken());
+        params.put("cuid", "elderly_assistant");
+        params.put("ctp", 1);
+        params.put("lan", lan);
+        params.put("per", per);
+        return params;
+    }
+
+    /**
+     * 语音合成的语言：粤语为 cto，其它为 zh
+     */
+    private String getTtsLanguage(String dialect) {
+        return "粤语".equals(dialect) ? "cto" : "zh";
+    }
+
+    /**
+     * 语音合成的音色
+     * 百度标准版TTS不支持直接方言合成（除了粤语），根据方言选择不同的音色模拟方言感
+     */
+    private int getTtsPerson(String dialect) {
+        if ("四川话".equals(dialect)) {
+            return 3; // 度逍遥（情感男声）- 稍微活泼一点
+        } else if ("东北话".equals(dialect)) {
+            return 4; // 度丫丫（情感女声）
+        }
+        return 0; // 默认女声
+    }
+
+    /**
+     * 流式合成音频的输出目标
+     */
+    @FunctionalInterface
+    public interface AudioSink {
+
+        /**
+         * 有音频可写时调用一次，返回写出音频的输出流
+         */
+        OutputStream open() throws IOException;
+    }
 }
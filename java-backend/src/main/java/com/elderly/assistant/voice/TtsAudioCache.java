@@ -0,0 +1,342 @@
+package com.elderly.assistant.voice;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import cn.hutool.crypto.SecureUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 语音合成音频缓存（按内容寻址）
+ * 键为 SHA-256(lan|per|text)，同一段文字同一音色只合成一次：
+ * - 内存层：按字节数限定容量的 LRU，命中时不访问磁盘
+ * - 磁盘层：每段音频一个文件，写入时同时落盘，重启后仍然有效；超过容量时按最后访问时间淘汰
+ */
+@Slf4j
+@Component
+public class TtsAudioCache {
+
+    private static final String SUFFIX = ".mp3";
+    private static final String TMP_SUFFIX = ".tmp";
+    // 进程异常退出时遗留的临时文件，超过该时长后清理
+    private static final long STALE_TMP_MS = 3600 * 1000L;
+
+    private final Map<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+
+    @Value("${voice.tts-cache.dir:./data/tts-cache}")
+    private String dir;
+
+    @Value("${voice.tts-cache.max-memory-bytes:33554432}")
+    private long maxMemoryBytes;
+
+    @Value("${voice.tts-cache.max-disk-bytes:1073741824}")
+    private long maxDiskBytes;
+
+    private Path root;
+
+    public TtsAudioCache(MeterRegistry meterRegistry) {
+        this.memoryHits = meterRegistry.counter("voice.tts.cache", "result", "memory");
+        this.diskHits = meterRegistry.counter("voice.tts.cache", "result", "disk");
+        this.misses = meterRegistry.counter("voice.tts.cache", "result", "miss");
+        Gauge.builder("voice.tts.cache.memory.bytes", this, cache -> cache.memoryBytes).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        root = Paths.get(dir).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(root);
+            log.info("语音合成缓存目录: {}", root);
+        } catch (IOException e) {
+            log.error("创建语音合成缓存目录失败，只使用内存缓存: {}", root, e);
+            root = null;
+        }
+    }
+
+    /**
+     * 缓存键
+     */
+    public static String key(String text, String lan, Object per) {
+        return SecureUtil.sha256(lan + "|" + per + "|" + text);
+    }
+
+    /**
+     * 读取缓存音频，未命中返回 null
+     */
+    public byte[] get(String key) {
+        synchronized (this) {
+            byte[] audio = memory.get(key);
+            if (audio != null) {
+                memoryHits.increment();
+                return audio;
+            }
+        }
+        Path file = file(key);
+        if (file != null) {
+            try {
+                byte[] audio = Files.readAllBytes(file);
+                touch(file);
+                remember(key, audio);
+                diskHits.increment();
+                return audio;
+            } catch (NoSuchFileException e) {
+                // 未缓存
+            } catch (IOException e) {
+                log.warn("读取语音合成缓存失败: {}", file, e);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public boolean contains(String key) {
+        synchronized (this) {
+            if (memory.containsKey(key)) {
+                return true;
+            }
+        }
+        Path file = file(key);
+        return file != null && Files.exists(file);
+    }
+
+    /**
+     * 写入缓存：内存 + 磁盘（先写临时文件再原子改名，读到的文件总是完整的）
+     */
+    public void put(String key, byte[] audio) {
+        if (audio == null || audio.length == 0) {
+            return;
+        }
+        remember(key, audio);
+        Path file = file(key);
+        if (file == null) {
+            return;
+        }
+        Path tmp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            tmp = Files.createTempFile(file.getParent(), key, TMP_SUFFIX);
+            Files.write(tmp, audio);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("写入语音合成缓存失败: {}", file, e);
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // 忽略
+                }
+            }
+        }
+    }
+
+    /**
+     * 只查内存层，未命中返回 null（不计入未命中，由调用方随后的 newEntry 计入）
+     */
+    public synchronized byte[] getFromMemory(String key) {
+        byte[] audio = memory.get(key);
+        if (audio != null) {
+            memoryHits.increment();
+        }
+        return audio;
+    }
+
+    /**
+     * 已缓存的音频文件，不存在时返回 null（供零拷贝发送，不经过内存层）
+     */
+    public Path cachedFile(String key) {
+        Path file = file(key);
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        touch(file);
+        diskHits.increment();
+        return file;
+    }
+
+    /**
+     * 边写边缓存：音频一边发给客户端一边写入临时文件，commit 后才对读者可见
+     * 用法：try (PendingEntry entry = cache.newEntry(key)) { ...写 entry.stream()...; entry.commit(); }
+     */
+    public PendingEntry newEntry(String key) throws IOException {
+        misses.increment();
+        Path file = file(key);
+        if (file == null) {
+            return new PendingEntry(key, null, null, new ByteArrayOutputStream());
+        }
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), key, TMP_SUFFIX);
+        return new PendingEntry(key, file, tmp, Files.newOutputStream(tmp));
+    }
+
+    /**
+     * 缓存文件路径（按键前两位分目录），磁盘层不可用时返回 null
+     */
+    public Path file(String key) {
+        return root == null ? null : root.resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+    }
+
+    private synchronized void remember(String key, byte[] audio) {
+        // 单个过大的音频不进内存，只走磁盘
+        if (audio.length > maxMemoryBytes / 4) {
+            return;
+        }
+        byte[] old = memory.put(key, audio);
+        memoryBytes += audio.length - (old == null ? 0 : old.length);
+        Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            memoryBytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // 只影响淘汰顺序
+        }
+    }
+
+    private static void deleteIfStale(Path tmp, long staleBefore) {
+        try {
+            if (Files.getLastModifiedTime(tmp).toMillis() < staleBefore) {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            // 下次再清理
+        }
+    }
+
+    /**
+     * 磁盘层超过容量时删除最久未访问的文件
+     */
+    @Scheduled(fixedDelayString = "${voice.tts-cache.trim-interval-ms:3600000}")
+    public void trimDisk() {
+        if (root == null) {
+            return;
+        }
+        List<Path> files;
+        long staleBefore = System.currentTimeMillis() - STALE_TMP_MS;
+        try (Stream<Path> stream = Files.walk(root)) {
+            files = stream.filter(path -> {
+                if (path.toString().endsWith(TMP_SUFFIX)) {
+                    deleteIfStale(path, staleBefore);
+                    return false;
+                }
+                return path.toString().endsWith(SUFFIX);
+            }).collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("扫描语音合成缓存目录失败", e);
+            return;
+        }
+
+        long total = 0;
+        List<Object[]> entries = new ArrayList<>(files.size());
+        for (Path path : files) {
+            try {
+                long size = Files.size(path);
+                total += size;
+                entries.add(new Object[] {path, size, Files.getLastModifiedTime(path).toMillis()});
+            } catch (IOException e) {
+                // 文件已被删除
+            }
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(entry -> (Long) entry[2]));
+        int deleted = 0;
+        for (Object[] entry : entries) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists((Path) entry[0]);
+                total -= (Long) entry[1];
+                deleted++;
+            } catch (IOException e) {
+                log.warn("删除语音合成缓存失败: {}", entry[0], e);
+            }
+        }
+        log.info("语音合成磁盘缓存淘汰 {} 个文件，剩余 {} 字节", deleted, total);
+    }
+
+    /**
+     * 正在写入的缓存项；未 commit 就 close 时丢弃
+     */
+    public final class PendingEntry implements Closeable {
+        private final String key;
+        private final Path file;
+        private final Path tmp;
+        private final OutputStream out;
+        private boolean committed;
+
+        private PendingEntry(String key, Path file, Path tmp, OutputStream out) {
+            this.key = key;
+            this.file = file;
+            this.tmp = tmp;
+            this.out = out;
+        }
+
+        public OutputStream stream() {
+            return out;
+        }
+
+        public void commit() throws IOException {
+            out.close();
+            if (tmp == null) {
+                remember(key, ((ByteArrayOutputStream) out).toByteArray());
+            } else {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            committed = true;
+        }
+
+        @Override
+        public void close() {
+            if (committed) {
+                return;
+            }
+            try {
+                out.close();
+                if (tmp != null) {
+                    Files.deleteIfExists(tmp);
+                }
+            } catch (IOException e) {
+                log.warn("清理未完成的语音合成缓存失败: {}", tmp, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.elderly.assistant.voice;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.elderly.assistant.service.ChatService;
+import com.elderly.assistant.service.VoiceService;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 启动后预先合成陪聊的固定回复
+ * 模板回复、通用回复和提示语在启动完成后于后台逐条合成并写入 TtsAudioCache，
+ * 已在磁盘缓存中的跳过，所以只有第一次部署（或回复文案变更）时才真正调用百度接口；
+ * 不阻塞启动，合成失败（如未配置密钥）时停止本轮预热
+ */
+@Slf4j
+@Component
+public class TtsPrewarmer {
+
+    private final ChatService chatService;
+    private final VoiceService voiceService;
+    private final Timer prewarmTimer;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            ThreadFactoryBuilder.create().setNamePrefix("tts-prewarm-").setDaemon(true).build());
+
+    @Value("${voice.tts-cache.prewarm-enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 需要预热的方言（每种方言对应一种音色）
+     */
+    @Value("${voice.tts-cache.prewarm-dialects:普通话}")
+    private List<String> dialects;
+
+    /**
+     * 两次合成调用之间的间隔（毫秒），避免触发接口限流
+     */
+    @Value("${voice.tts-cache.prewarm-interval-ms:200}")
+    private long intervalMs;
+
+    public TtsPrewarmer(ChatService chatService, VoiceService voiceService, MeterRegistry meterRegistry) {
+        this.chatService = chatService;
+        this.voiceService = voiceService;
+        this.prewarmTimer = meterRegistry.timer("voice.tts.prewarm");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            executor.execute(this::prewarm);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 合成所有尚未缓存的固定回复
+     *
+     * @return 本次新合成的条数
+     */
+    public int prewarm() {
+        long start = System.nanoTime();
+        Set<String> replies = chatService.getStaticReplies();
+        int synthesized = 0;
+        int skipped = 0;
+        outer:
+        for (String dialect : dialects) {
+            for (String text : replies) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break outer;
+                }
+                if (voiceService.isSynthesized(text, dialect)) {
+                    skipped++;
+                    continue;
+                }
+                if (voiceService.synthesizeVoice(text, dialect) == null) {
+                    log.warn("预合成固定回复失败，停止本轮预热，方言: {}, 文本: {}", dialect, text);
+                    break outer;
+                }
+                synthesized++;
+                if (intervalMs > 0) {
+                    try {
+                        Thread.sleep(intervalMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break outer;
+                    }
+                }
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        prewarmTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("固定回复语音预热完成，方言: {}, 新合成: {}, 已缓存: {}, 耗时: {}ms",
+                dialects, synthesized, skipped, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return synthesized;
+    }
+}
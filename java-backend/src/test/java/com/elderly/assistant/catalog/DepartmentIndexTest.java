@@ -0,0 +1,121 @@
+package com.elderly.assistant.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.elderly.assistant.entity.HospitalInfo;
+
+import cn.hutool.core.bean.BeanUtil;
+
+/**
+ * 科室索引：位图按精确科室名判断，快照单医院替换后位图和科室医院列表仍然正确，
+ * 只改号源时只替换列表中的对象，改科室、停用、删除时重建
+ */
+class DepartmentIndexTest {
+
+    private HospitalSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = HospitalSnapshot.build(1, List.of(
+                hospital("H1", "三级甲等", "enabled", "[\"内科\",\"外科\"]"),
+                hospital("H2", "三级乙等", "正常", "内科，儿科"),
+                hospital("H3", "二级甲等", "enabled", "神经内科"),
+                hospital("H4", "三级甲等", "disabled", "内科")));
+    }
+
+    @Test
+    void bitsetMatchesExactDepartmentNames() {
+        DepartmentIndex index = snapshot.getDepartmentIndex();
+
+        assertTrue(index.hasDepartment("H1", "外科"));
+        assertTrue(index.hasDepartment("H2", " 儿科 "));
+        assertFalse(index.hasDepartment("H3", "内科"));
+        assertTrue(index.hasDepartment("H3", "神经内科"));
+        assertFalse(index.hasDepartment("H1", "眼科"));
+        assertFalse(index.hasDepartment("H_MISSING", "内科"));
+        assertEquals(-1, index.idOf("眼科"));
+
+        // 停用医院有位图，但不出现在科室医院列表中；列表按等级排序
+        assertTrue(index.hasDepartment("H4", "内科"));
+        assertEquals(List.of("H1", "H2"), ids(index.getHospitals("内科")));
+        assertEquals(List.of("儿科", "内科", "外科", "神经内科"), index.getDepartments());
+        assertEquals(List.of("内科", "儿科"), index.getDepartmentsOf("H2"));
+    }
+
+    @Test
+    void quotaPatchReplacesObjectAndKeepsBitset() {
+        HospitalInfo old = snapshot.get("H1");
+        HospitalInfo latest = BeanUtil.copyProperties(old, HospitalInfo.class);
+        latest.setAvailableQuota(3);
+
+        HospitalSnapshot patched = snapshot.withHospital(2, "H1", latest, 1);
+        DepartmentIndex index = patched.getDepartmentIndex();
+
+        assertTrue(index.hasDepartment("H1", "内科"));
+        assertTrue(index.hasDepartment("H1", "外科"));
+        assertTrue(index.hasDepartment("H2", "内科"));
+        assertSame(latest, index.getHospitals("内科").get(0));
+        assertSame(latest, index.getHospitals("外科").get(0));
+        // 没有 H1 的科室列表不复制
+        assertSame(snapshot.getDepartmentIndex().getHospitals("儿科"), index.getHospitals("儿科"));
+        // 旧快照不受影响
+        assertSame(old, snapshot.getDepartmentIndex().getHospitals("内科").get(0));
+    }
+
+    @Test
+    void departmentChangeRebuildsBitset() {
+        HospitalInfo latest = BeanUtil.copyProperties(snapshot.get("H2"), HospitalInfo.class);
+        latest.setDepartments("儿科,眼科");
+
+        DepartmentIndex index = snapshot.withHospital(2, "H2", latest, 1).getDepartmentIndex();
+
+        assertFalse(index.hasDepartment("H2", "内科"));
+        assertTrue(index.hasDepartment("H2", "眼科"));
+        assertTrue(index.hasDepartment("H1", "内科"));
+        assertEquals(List.of("H1"), ids(index.getHospitals("内科")));
+        assertEquals(List.of("H2"), ids(index.getHospitals("眼科")));
+        assertTrue(index.getDepartments().contains("眼科"));
+    }
+
+    @Test
+    void disableAndDeletePatchesUpdateLists() {
+        HospitalInfo disabled = BeanUtil.copyProperties(snapshot.get("H1"), HospitalInfo.class);
+        disabled.setStatus("disabled");
+        HospitalSnapshot patched = snapshot.withHospital(2, "H1", disabled, 1).withHospital(3, "H3", null, 2);
+        DepartmentIndex index = patched.getDepartmentIndex();
+
+        assertEquals(List.of("H2"), ids(index.getHospitals("内科")));
+        assertEquals(List.of(), index.getHospitals("外科"));
+        assertFalse(index.getDepartments().contains("外科"));
+        assertFalse(index.hasDepartment("H3", "神经内科"));
+        assertNull(index.getDepartmentsOf("H3"));
+        assertFalse(index.getDepartments().contains("神经内科"));
+    }
+
+    private static List<String> ids(List<HospitalInfo> hospitals) {
+        return hospitals.stream().map(HospitalInfo::getHospitalId).collect(Collectors.toList());
+    }
+
+    private static HospitalInfo hospital(String hospitalId, String level, String status, String departments) {
+        HospitalInfo hospital = new HospitalInfo();
+        hospital.setHospitalId(hospitalId);
+        hospital.setHospitalName("医院" + hospitalId);
+        hospital.setHospitalLevel(level);
+        hospital.setStatus(status);
+        hospital.setDepartments(departments);
+        hospital.setLatitude(39.9);
+        hospital.setLongitude(116.4);
+        hospital.setAvailableQuota(10);
+        return hospital;
+    }
+}
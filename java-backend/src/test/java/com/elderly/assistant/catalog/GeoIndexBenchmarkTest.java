@@ -0,0 +1,94 @@
+package com.elderly.assistant.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.elderly.assistant.entity.HospitalInfo;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 附近医院查询：KD 树与原实现（全表算距离、按半径过滤、整表排序）的吞吐对比
+ * 默认不运行：mvn test -Dtest=GeoIndexBenchmarkTest -Dbenchmark=true
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class GeoIndexBenchmarkTest {
+
+    private static final int HOSPITALS = 50_000;
+    private static final int WARMUP = 500;
+    private static final int QUERIES = 2_000;
+    private static final double RADIUS_KM = 10;
+    private static final int LIMIT = 20;
+
+    @Test
+    void kdTreeOutperformsLinearScan() {
+        Random random = new Random(7);
+        List<HospitalInfo> hospitals = new ArrayList<>(HOSPITALS);
+        for (int i = 0; i < HOSPITALS; i++) {
+            HospitalInfo hospital = new HospitalInfo();
+            hospital.setHospitalId("H" + i);
+            hospital.setLatitude(20 + random.nextDouble() * 25);
+            hospital.setLongitude(100 + random.nextDouble() * 25);
+            hospitals.add(hospital);
+        }
+        GeoIndex index = GeoIndex.build(hospitals);
+        double[][] points = new double[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            points[i] = new double[] {20 + random.nextDouble() * 25, 100 + random.nextDouble() * 25};
+        }
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += index.nearest(points[i][0], points[i][1], RADIUS_KM, LIMIT, null).size();
+            sink += linearScan(hospitals, points[i][0], points[i][1]);
+        }
+
+        long start = System.nanoTime();
+        for (double[] point : points) {
+            sink += index.nearest(point[0], point[1], RADIUS_KM, LIMIT, null).size();
+        }
+        long kdNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (double[] point : points) {
+            sink += linearScan(hospitals, point[0], point[1]);
+        }
+        long linearNanos = System.nanoTime() - start;
+
+        log.info("医院数 {}，查询 {} 次：KD 树 {} 次/秒，原实现 {} 次/秒（{}）", HOSPITALS, QUERIES,
+                Math.round(QUERIES * 1e9 / kdNanos), Math.round(QUERIES * 1e9 / linearNanos), sink);
+        assertTrue(kdNanos < linearNanos, "KD 树应快于原实现");
+    }
+
+    /**
+     * 原实现的内存部分：逐个计算距离，半径内的每家医院组装成 Map，整个列表按距离排序后全部返回
+     * （原实现还要整表查库、逐家查询可预约状态，这里不计入）
+     */
+    private static int linearScan(List<HospitalInfo> hospitals, double lat, double lon) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (HospitalInfo hospital : hospitals) {
+            double distance = GeoIndex.distanceKm(lat, lon, hospital.getLatitude(), hospital.getLongitude());
+            if (distance > RADIUS_KM) {
+                continue;
+            }
+            Map<String, Object> hospitalInfo = new HashMap<>();
+            hospitalInfo.put("hospitalId", hospital.getHospitalId());
+            hospitalInfo.put("distance", Math.round(distance * 100) / 100.0);
+            hospitalInfo.put("longitude", hospital.getLongitude());
+            hospitalInfo.put("latitude", hospital.getLatitude());
+            result.add(hospitalInfo);
+        }
+        result.sort(Comparator.comparingDouble(h -> (Double) h.get("distance")));
+        return result.size();
+    }
+}
@@ -0,0 +1,139 @@
+package com.elderly.assistant.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.elderly.assistant.entity.HospitalInfo;
+
+/**
+ * GeoIndex 与全量线性扫描的结果对比
+ */
+class GeoIndexTest {
+
+    private static final int HOSPITALS = 5000;
+    private static final int QUERIES = 300;
+
+    private final Random random = new Random(20240701L);
+
+    @Test
+    void radiusQueryMatchesLinearScan() {
+        List<HospitalInfo> hospitals = randomHospitals(HOSPITALS);
+        GeoIndex index = GeoIndex.build(hospitals);
+        for (int i = 0; i < QUERIES; i++) {
+            double lat = 30 + random.nextDouble() * 12;
+            double lon = 110 + random.nextDouble() * 12;
+            double radius = 5 + random.nextDouble() * 200;
+            assertSameNeighbors(linearScan(hospitals, lat, lon, radius, 0, null),
+                    index.nearest(lat, lon, radius, 0, null),
+                    "radius query at " + lat + "," + lon + " r=" + radius);
+        }
+    }
+
+    @Test
+    void nearestKMatchesLinearScan() {
+        List<HospitalInfo> hospitals = randomHospitals(HOSPITALS);
+        GeoIndex index = GeoIndex.build(hospitals);
+        for (int i = 0; i < QUERIES; i++) {
+            double lat = 30 + random.nextDouble() * 12;
+            double lon = 110 + random.nextDouble() * 12;
+            int k = 1 + random.nextInt(50);
+            assertSameNeighbors(linearScan(hospitals, lat, lon, null, k, null),
+                    index.nearest(lat, lon, null, k, null),
+                    "k-nearest at " + lat + "," + lon + " k=" + k);
+        }
+    }
+
+    @Test
+    void radiusWithLimitAndFilterMatchesLinearScan() {
+        List<HospitalInfo> hospitals = randomHospitals(HOSPITALS);
+        GeoIndex index = GeoIndex.build(hospitals);
+        Predicate<HospitalInfo> filter = hospital -> hospital.getHospitalId().hashCode() % 3 == 0;
+        for (int i = 0; i < QUERIES; i++) {
+            double lat = 30 + random.nextDouble() * 12;
+            double lon = 110 + random.nextDouble() * 12;
+            double radius = 20 + random.nextDouble() * 300;
+            int k = 1 + random.nextInt(20);
+            assertSameNeighbors(linearScan(hospitals, lat, lon, radius, k, filter),
+                    index.nearest(lat, lon, radius, k, filter),
+                    "filtered query at " + lat + "," + lon + " r=" + radius + " k=" + k);
+        }
+    }
+
+    @Test
+    void hospitalsWithoutCoordinatesAreSkipped() {
+        List<HospitalInfo> hospitals = randomHospitals(10);
+        HospitalInfo unlocated = hospital("no-location", null, null);
+        hospitals.add(unlocated);
+        GeoIndex index = GeoIndex.build(hospitals);
+        assertEquals(10, index.size());
+        assertEquals(10, index.nearest(35, 115, null, 0, null).size());
+    }
+
+    private List<HospitalInfo> randomHospitals(int count) {
+        List<HospitalInfo> hospitals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // 部分医院坐标重复，覆盖切分时的相等情况
+            double lat = i % 50 == 0 ? 35.0 : 30 + random.nextDouble() * 12;
+            double lon = i % 50 == 0 ? 115.0 : 110 + random.nextDouble() * 12;
+            hospitals.add(hospital(String.format("H%05d", i), lat, lon));
+        }
+        return hospitals;
+    }
+
+    private static HospitalInfo hospital(String id, Double lat, Double lon) {
+        HospitalInfo hospital = new HospitalInfo();
+        hospital.setHospitalId(id);
+        hospital.setLatitude(lat);
+        hospital.setLongitude(lon);
+        return hospital;
+    }
+
+    private static void assertSameNeighbors(List<Object[]> expected, List<GeoIndex.Neighbor> actual, String message) {
+        List<Double> expectedDistances = expected.stream().map(hit -> (Double) hit[1]).collect(Collectors.toList());
+        List<Double> actualDistances = actual.stream().map(GeoIndex.Neighbor::getDistanceKm).collect(Collectors.toList());
+        assertEquals(expectedDistances, actualDistances, message);
+
+        // 与截断位置距离相同的医院谁入选都正确，只比较严格更近的部分
+        double cutoff = expectedDistances.isEmpty() ? 0 : expectedDistances.get(expectedDistances.size() - 1);
+        assertEquals(closerThan(expected.stream().map(hit -> (String) hit[0]), expectedDistances, cutoff),
+                closerThan(actual.stream().map(neighbor -> neighbor.getHospital().getHospitalId()), actualDistances, cutoff),
+                message);
+    }
+
+    private static List<String> closerThan(Stream<String> ids, List<Double> distances, double cutoff) {
+        List<String> idList = ids.collect(Collectors.toList());
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i++) {
+            if (distances.get(i) < cutoff) {
+                result.add(idList.get(i));
+            }
+        }
+        result.sort(null);
+        return result;
+    }
+
+    /**
+     * 线性扫描：逐个计算距离、过滤、按距离排序、截断
+     */
+    private static List<Object[]> linearScan(List<HospitalInfo> hospitals, double lat, double lon,
+                                             Double radius, int limit, Predicate<HospitalInfo> filter) {
+        List<Object[]> hits = new ArrayList<>();
+        for (HospitalInfo hospital : hospitals) {
+            double distance = GeoIndex.distanceKm(lat, lon, hospital.getLatitude(), hospital.getLongitude());
+            if ((radius == null || distance <= radius) && (filter == null || filter.test(hospital))) {
+                hits.add(new Object[] {hospital.getHospitalId(), distance});
+            }
+        }
+        hits.sort(Comparator.comparingDouble(hit -> (Double) hit[1]));
+        return limit > 0 && hits.size() > limit ? hits.subList(0, limit) : hits;
+    }
+}
@@ -0,0 +1,107 @@
+package com.elderly.assistant.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 医院检索：名称拼音首字母、汉字二元组（名称、地址、科室）都能命中；
+ * 索引跟随目录快照增量更新
+ */
+class HospitalSearchIndexTest {
+
+    private final Map<String, HospitalInfo> rows = new LinkedHashMap<>();
+    private HospitalCatalog hospitalCatalog;
+    private HospitalSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        put("H1", "市立医院", "北京市东城区", "内科,外科");
+        put("H2", "儿童医院", "北京市西城区", "儿科");
+        put("H3", "市立第二医院", "北京市朝阳区三里屯路", "内科");
+        put("H4", "三里屯医院", "北京市朝阳区", "口腔科");
+
+        HospitalInfoMapper hospitalInfoMapper = mock(HospitalInfoMapper.class);
+        when(hospitalInfoMapper.selectList(isNull())).thenAnswer(inv -> new ArrayList<>(rows.values()));
+        when(hospitalInfoMapper.selectById(anyString())).thenAnswer(inv -> rows.get(inv.<String>getArgument(0)));
+        // 目录事件直接交给索引，与 Spring 的事件分发一致
+        hospitalCatalog = new HospitalCatalog(hospitalInfoMapper,
+                event -> index.onCatalogChanged((HospitalCatalogChangedEvent) event), new SimpleMeterRegistry());
+        index = new HospitalSearchIndex(hospitalCatalog);
+        index.init();
+    }
+
+    @Test
+    void pinyinInitialsMatchHospitalName() {
+        assertEquals(List.of("H1"), ids("slyy"));
+        // 全角、大写、带空格的输入统一处理
+        assertEquals(List.of("H1"), ids("ＳＬ ＹＹ"));
+        // 首字母前缀："三里屯医院"也是 sl 开头
+        assertEquals(Set.of("H1", "H3", "H4"), Set.copyOf(ids("sl")));
+        assertEquals(List.of("H4"), ids("slt"));
+    }
+
+    @Test
+    void chineseBigramsMatchNameAddressAndDepartment() {
+        assertEquals(Set.of("H1", "H3"), Set.copyOf(ids("市立")));
+        // 二元组要求相邻："市立第二医院"里没有"立医"
+        assertEquals(List.of("H1"), ids("立医"));
+        assertEquals(List.of(), ids("医市"));
+        assertEquals(List.of("H1"), ids("东城"));
+        assertEquals(List.of("H2"), ids("儿科"));
+        assertEquals(Set.of("H3", "H4"), Set.copyOf(ids("朝阳")));
+        // 单字查询按单字匹配
+        assertEquals(List.of("H2"), ids("儿"));
+        // 名称命中排在只有地址命中之前
+        assertEquals(List.of("H4", "H3"), ids("三里屯"));
+    }
+
+    @Test
+    void indexFollowsCatalogPatches() {
+        put("H2", "妇幼保健院", "北京市西城区", "妇科,儿科");
+        hospitalCatalog.refreshHospital("H2");
+
+        assertEquals(List.of(), ids("儿童"));
+        assertEquals(List.of(), ids("etyy"));
+        assertEquals(List.of("H2"), ids("fybjy"));
+        assertEquals(List.of("H2"), ids("保健"));
+        assertEquals(List.of("H2"), ids("妇科"));
+
+        rows.remove("H1");
+        hospitalCatalog.refresh();
+        assertEquals(List.of(), ids("slyy"));
+        assertEquals(List.of("H3"), ids("立第"));
+    }
+
+    private List<String> ids(String keyword) {
+        return index.search(keyword).stream().map(HospitalSearchIndex.Hit::getHospitalId)
+                .collect(Collectors.toList());
+    }
+
+    private void put(String hospitalId, String name, String address, String departments) {
+        HospitalInfo hospital = new HospitalInfo();
+        hospital.setHospitalId(hospitalId);
+        hospital.setHospitalName(name);
+        hospital.setAddress(address);
+        hospital.setDepartments(departments);
+        hospital.setStatus("enabled");
+        rows.put(hospitalId, hospital);
+    }
+}
@@ -0,0 +1,103 @@
+package com.elderly.assistant.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import cn.hutool.json.JSONObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 访问令牌：从 Redis 读到的共享令牌放入本机缓存，提前刷新失败后按间隔退避
+ */
+class AccessTokenManagerTest {
+
+    private ValueOperations<String, String> valueOperations;
+    private AccessTokenManager manager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        manager = new AccessTokenManager(redisTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(manager, "refreshAheadRatio", 0.8);
+        manager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void sharedTokenIsCachedLocally() {
+        long now = System.currentTimeMillis();
+        when(valueOperations.get("token:test")).thenReturn(shared("T1", now + 3_600_000, now + 3_000_000));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("T1", manager.getToken("test", () -> {
+                throw new AssertionError("不应换取新令牌");
+            }));
+        }
+        verify(valueOperations, times(1)).get("token:test");
+    }
+
+    @Test
+    void failedRefreshAheadBacksOff() throws Exception {
+        long now = System.currentTimeMillis();
+        // 共享令牌仍有效，但已过提前刷新时间
+        when(valueOperations.get("token:test")).thenReturn(shared("T1", now + 3_600_000, now - 1));
+        AtomicInteger issued = new AtomicInteger();
+        Supplier<AccessTokenManager.IssuedToken> failing = () -> {
+            issued.incrementAndGet();
+            throw new IllegalStateException("接口不可用");
+        };
+
+        assertEquals("T1", manager.getToken("test", failing));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (issued.get() == 0 || inflight() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("后台刷新未执行");
+            }
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("T1", manager.getToken("test", failing));
+        }
+        Thread.sleep(100);
+        assertEquals(1, issued.get());
+    }
+
+    private int inflight() {
+        return ((Map<?, ?>) ReflectionTestUtils.getField(manager, "inflight")).size();
+    }
+
+    private static String shared(String token, long expireAt, long refreshAt) {
+        JSONObject json = new JSONObject();
+        json.set("token", token);
+        json.set("expireAt", expireAt);
+        json.set("refreshAt", refreshAt);
+        return json.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package com.elderly.assistant.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.elderly.assistant.catalog.HospitalSnapshot;
+import com.elderly.assistant.catalog.RankedHospital;
+import com.elderly.assistant.entity.HospitalInfo;
+
+/**
+ * 游标分页：逐页翻完不重不漏（包括排序键相同的数据跨页），最后一页没有游标；
+ * 上一页最后一条被删除后游标仍然定位到它之后
+ */
+class CursorPageTest {
+
+    @Test
+    void walksAllPagesAcrossBoundaries() {
+        List<Integer> sorted = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sorted.add(i);
+        }
+        for (int limit = 1; limit <= 11; limit++) {
+            List<List<Integer>> pages = walk(sorted, Comparator.naturalOrder(), limit, String::valueOf,
+                    Integer::valueOf, Function.identity());
+            assertEquals(sorted, pages.stream().flatMap(List::stream).collect(Collectors.toList()),
+                    "limit " + limit);
+            assertEquals((sorted.size() + limit - 1) / limit, pages.size(), "limit " + limit);
+        }
+    }
+
+    @Test
+    void lastFullPageHasNoCursor() {
+        List<Integer> sorted = List.of(1, 2, 3, 4);
+
+        CursorPage<Integer> first = CursorPage.slice(sorted, null, Comparator.naturalOrder(), 2,
+                String::valueOf, Function.identity());
+        assertTrue(first.getHasMore());
+        assertEquals("2", first.getNextCursor());
+
+        CursorPage<Integer> last = CursorPage.slice(sorted, 2, Comparator.naturalOrder(), 2,
+                String::valueOf, Function.identity());
+        assertEquals(List.of(3, 4), last.getItems());
+        assertFalse(last.getHasMore());
+        assertNull(last.getNextCursor());
+
+        CursorPage<Integer> beyond = CursorPage.slice(sorted, 4, Comparator.naturalOrder(), 2,
+                String::valueOf, Function.identity());
+        assertEquals(List.of(), beyond.getItems());
+        assertFalse(beyond.getHasMore());
+    }
+
+    @Test
+    void tiedSortKeysSplitAcrossPagesWithoutDuplicates() {
+        // 全部同等级、同号源：排序键只有医院ID能区分
+        List<RankedHospital> sorted = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            sorted.add(new RankedHospital(hospital(String.format("H%02d", i), "三级甲等", 5), 0));
+        }
+        Comparator<RankedHospital> order = RankedHospital.by(RankedHospital.quotaOrder(false));
+        sorted.sort(order);
+
+        for (int limit = 1; limit <= 7; limit++) {
+            List<List<String>> pages = walk(sorted, order, limit, RankedHospital::toCursor,
+                    RankedHospital::fromCursor, CursorPageTest::id);
+            assertEquals(ids(sorted), pages.stream().flatMap(List::stream).collect(Collectors.toList()),
+                    "limit " + limit);
+        }
+    }
+
+    @Test
+    void tiedRelevanceScoresFallBackToLevelThenId() {
+        List<RankedHospital> sorted = new ArrayList<>(List.of(
+                new RankedHospital(hospital("H3", "三级甲等", 1), 8),
+                new RankedHospital(hospital("H1", "三级乙等", 1), 8),
+                new RankedHospital(hospital("H2", "三级甲等", 1), 8),
+                new RankedHospital(hospital("H4", "三级甲等", 1), 12),
+                new RankedHospital(hospital("H0", "三级甲等", 1), 4)));
+        sorted.sort(RankedHospital.RELEVANCE_ORDER);
+
+        List<List<String>> pages = walk(sorted, RankedHospital.RELEVANCE_ORDER, 2, RankedHospital::toCursor,
+                RankedHospital::fromCursor, CursorPageTest::id);
+
+        assertEquals(List.of(List.of("H4", "H2"), List.of("H3", "H1"), List.of("H0")), pages);
+    }
+
+    @Test
+    void cursorStillWorksWhenItsItemIsRemoved() {
+        List<RankedHospital> sorted = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            sorted.add(new RankedHospital(hospital("H" + i, "三级甲等", 5), 0));
+        }
+        Comparator<RankedHospital> order = RankedHospital.by(HospitalSnapshot.LEVEL_ORDER);
+        CursorPage<String> first = CursorPage.slice(sorted, null, order, 3, RankedHospital::toCursor,
+                CursorPageTest::id);
+        assertEquals(List.of("H0", "H1", "H2"), first.getItems());
+
+        // 翻页之间 H2（上一页最后一条）被停用
+        sorted.remove(2);
+        CursorPage<String> second = CursorPage.slice(sorted, RankedHospital.fromCursor(first.getNextCursor()),
+                order, 3, RankedHospital::toCursor, CursorPageTest::id);
+
+        assertEquals(List.of("H3", "H4", "H5"), second.getItems());
+        assertFalse(second.getHasMore());
+    }
+
+    /**
+     * 从首页开始按游标翻到最后一页，游标经过字符串往返
+     */
+    private static <S, T> List<List<T>> walk(List<S> sorted, Comparator<? super S> order, int limit,
+                                             Function<S, String> cursorOf, Function<String, S> parse,
+                                             Function<S, T> mapper) {
+        List<List<T>> pages = new ArrayList<>();
+        S after = null;
+        while (true) {
+            CursorPage<T> page = CursorPage.slice(sorted, after, order, limit, cursorOf, mapper);
+            pages.add(page.getItems());
+            assertTrue(page.getItems().size() <= limit);
+            if (!page.getHasMore()) {
+                assertNull(page.getNextCursor());
+                return pages;
+            }
+            after = parse.apply(page.getNextCursor());
+        }
+    }
+
+    private static List<String> ids(List<RankedHospital> ranked) {
+        return ranked.stream().map(CursorPageTest::id).collect(Collectors.toList());
+    }
+
+    private static String id(RankedHospital item) {
+        return item.getHospital().getHospitalId();
+    }
+
+    private static HospitalInfo hospital(String hospitalId, String level, int quota) {
+        HospitalInfo hospital = new HospitalInfo();
+        hospital.setHospitalId(hospitalId);
+        hospital.setHospitalLevel(level);
+        hospital.setAvailableQuota(quota);
+        return hospital;
+    }
+}
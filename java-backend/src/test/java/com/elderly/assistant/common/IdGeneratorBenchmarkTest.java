@@ -0,0 +1,81 @@
+package com.elderly.assistant.common;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * ID生成吞吐：多个节点（不同节点号）各自多线程发号，所有ID不重复
+ * 默认不运行：mvn test -Dtest=IdGeneratorBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class IdGeneratorBenchmarkTest {
+
+    private static final int NODES = 8;
+    private static final int THREADS_PER_NODE = 4;
+    private static final int IDS_PER_THREAD = 200_000;
+
+    @Test
+    void multiNodeMultiThreadIdsAreUnique() throws Exception {
+        IdGenerator[] generators = new IdGenerator[NODES];
+        for (int node = 0; node < NODES; node++) {
+            generators[node] = new IdGenerator(mock(StringRedisTemplate.class));
+            ReflectionTestUtils.setField(generators[node], "configuredNodeId", node);
+            generators[node].init();
+        }
+
+        // 单线程基线
+        long begin = System.nanoTime();
+        for (int i = 0; i < IDS_PER_THREAD; i++) {
+            generators[0].nextId();
+        }
+        double single = IDS_PER_THREAD * 1e9 / (System.nanoTime() - begin);
+
+        int threads = NODES * THREADS_PER_NODE;
+        long[][] ids = new long[threads][IDS_PER_THREAD];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            IdGenerator generator = generators[t % NODES];
+            long[] out = ids[t];
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = generator.nextId();
+                }
+            });
+        }
+        begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - begin;
+
+        long[] all = new long[threads * IDS_PER_THREAD];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(ids[t], 0, all, t * IDS_PER_THREAD, IDS_PER_THREAD);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i], "重复ID");
+        }
+        System.out.printf("ID生成：单线程 %.0f 个/秒；%d 节点 x %d 线程共 %d 个，%.0f 个/秒，无重复%n",
+                single, NODES, THREADS_PER_NODE, all.length, all.length * 1e9 / elapsed);
+    }
+}
@@ -0,0 +1,116 @@
+package com.elderly.assistant.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * ID生成器的节点号校验和租约失效处理
+ */
+class IdGeneratorTest {
+
+    private StringRedisTemplate redisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private IdGenerator idGenerator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        idGenerator = new IdGenerator(redisTemplate);
+        ReflectionTestUtils.setField(idGenerator, "configuredNodeId", -1);
+    }
+
+    @Test
+    void rejectsOutOfRangeNodeId() {
+        ReflectionTestUtils.setField(idGenerator, "configuredNodeId", 1024);
+        assertThrows(IllegalStateException.class, idGenerator::init);
+    }
+
+    @Test
+    void configuredNodeIdIsEncodedInIds() {
+        ReflectionTestUtils.setField(idGenerator, "configuredNodeId", 37);
+        idGenerator.init();
+        assertEquals(37, nodeOf(idGenerator.nextId()));
+    }
+
+    @Test
+    void renewsLeaseOnSameNode() {
+        leaseNode(0);
+        expireLocally();
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(1L);
+
+        assertEquals(0, nodeOf(idGenerator.nextId()));
+    }
+
+    @Test
+    void stopsIssuingWhenLeaseIsLostAndNoNodeIsFree() {
+        leaseNode(0);
+        expireLocally();
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(0L);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> idGenerator.nextId("ORDER_"));
+    }
+
+    @Test
+    void stopsIssuingWhileRedisIsUnreachable() {
+        leaseNode(0);
+        expireLocally();
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any()))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        assertThrows(IllegalStateException.class, idGenerator::nextId);
+    }
+
+    @Test
+    void leasesFreshNodeWhenTakenOver() {
+        leaseNode(0);
+        expireLocally();
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(0L);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        when(valueOperations.setIfAbsent(eq("id:node:1"), anyString(), any(Duration.class))).thenReturn(true);
+
+        assertEquals(1, nodeOf(idGenerator.nextId()));
+    }
+
+    /**
+     * 启动时租到 nodeId
+     */
+    private void leaseNode(int nodeId) {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        when(valueOperations.setIfAbsent(eq("id:node:" + nodeId), anyString(), any(Duration.class))).thenReturn(true);
+        idGenerator.init();
+        assertEquals(nodeId, nodeOf(idGenerator.nextId()));
+    }
+
+    /**
+     * 模拟本地租约有效期已过（例如 Redis 长时间不可用，定时续租一直失败）
+     */
+    private void expireLocally() {
+        ReflectionTestUtils.setField(idGenerator, "leaseDeadline", System.nanoTime() - 1);
+    }
+
+    /**
+     * 雪花ID中的节点号：dataCenterId（5 位）<< 5 | workerId（5 位）
+     */
+    private static long nodeOf(long id) {
+        return (id >> 12) & 0x3FF;
+    }
+}
@@ -0,0 +1,97 @@
+package com.elderly.assistant.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 流式请求体：已知长度时发送 Content-Length，未知时 chunked；请求体可通过 getContent() 重复读取
+ */
+class OutboundHttpClientTest {
+
+    private static final byte[] BODY = "{\"text\":\"你好\"}".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private final AtomicReference<String> contentLength = new AtomicReference<>();
+    private final AtomicReference<String> transferEncoding = new AtomicReference<>();
+    private final AtomicReference<byte[]> received = new AtomicReference<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            contentLength.set(exchange.getRequestHeaders().getFirst("Content-Length"));
+            transferEncoding.set(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+            received.set(exchange.getRequestBody().readAllBytes());
+            exchange.sendResponseHeaders(200, 2);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("ok".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void knownLengthIsSentAsContentLength() throws IOException {
+        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+            OutboundHttpClient client = new OutboundHttpClient(httpClient, RequestConfig.DEFAULT);
+            client.postJson(url(), out -> out.write(BODY), BODY.length, null);
+        }
+        assertEquals(String.valueOf(BODY.length), contentLength.get());
+        assertNull(transferEncoding.get());
+        assertArrayEquals(BODY, received.get());
+    }
+
+    @Test
+    void unknownLengthIsChunked() throws IOException {
+        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+            OutboundHttpClient client = new OutboundHttpClient(httpClient, RequestConfig.DEFAULT);
+            client.postJson(url(), out -> out.write(BODY), -1, null);
+        }
+        assertEquals("chunked", transferEncoding.get());
+        assertArrayEquals(BODY, received.get());
+    }
+
+    @Test
+    void bodyCanBeReadBeforeSending() throws IOException {
+        AtomicReference<byte[]> inspected = new AtomicReference<>();
+        // 例如请求日志拦截器在发送前读取请求体
+        HttpRequestInterceptor inspector = (request, context) -> {
+            if (request instanceof HttpEntityEnclosingRequest) {
+                inspected.set(((HttpEntityEnclosingRequest) request).getEntity().getContent().readAllBytes());
+            }
+        };
+        try (CloseableHttpClient httpClient = HttpClients.custom().addInterceptorFirst(inspector).build()) {
+            OutboundHttpClient client = new OutboundHttpClient(httpClient, RequestConfig.DEFAULT);
+            assertEquals("ok", client.postJson(url(), out -> out.write(BODY), BODY.length, null).bodyAsString());
+        }
+        assertArrayEquals(BODY, inspected.get());
+        assertArrayEquals(BODY, received.get());
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+    }
+}
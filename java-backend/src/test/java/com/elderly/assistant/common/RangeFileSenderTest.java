@@ -0,0 +1,155 @@
+package com.elderly.assistant.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * 文件响应：单段 Range 返回 206，无法满足返回 416，If-Range 不匹配和多段 Range 按完整文件返回，
+ * If-None-Match 命中返回 304
+ */
+class RangeFileSenderTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final String CONTENT = "0123456789";
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.write(dir.resolve("audio.mp3"), CONTENT.getBytes(StandardCharsets.US_ASCII));
+        request = new MockHttpServletRequest("GET", "/audio.mp3");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void singleRangeReturnsPartialContent() throws IOException {
+        request.addHeader("Range", "bytes=2-5");
+
+        send();
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertEquals(4, response.getContentLengthLong());
+        assertEquals("2345", body());
+    }
+
+    @Test
+    void openEndedRangeIsClampedToFileLength() throws IOException {
+        request.addHeader("Range", "bytes=7-100");
+
+        send();
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 7-9/10", response.getHeader("Content-Range"));
+        assertEquals("789", body());
+    }
+
+    @Test
+    void suffixRangeReturnsLastBytes() throws IOException {
+        request.addHeader("Range", "bytes=-3");
+
+        send();
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 7-9/10", response.getHeader("Content-Range"));
+        assertEquals("789", body());
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416WithLength() throws IOException {
+        request.addHeader("Range", "bytes=10-20");
+
+        send();
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+        assertEquals("", body());
+    }
+
+    @Test
+    void ifRangeMismatchFallsBackToFullContent() throws IOException {
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", "\"v0\"");
+
+        send();
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader("Content-Range"));
+        assertEquals(CONTENT, body());
+    }
+
+    @Test
+    void ifRangeMatchKeepsRange() throws IOException {
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", ETAG);
+
+        send();
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", body());
+    }
+
+    @Test
+    void ifNoneMatchReturns304WithoutBody() throws IOException {
+        request.addHeader("If-None-Match", "\"other\", W/" + ETAG);
+        request.addHeader("Range", "bytes=2-5");
+
+        send();
+
+        assertEquals(304, response.getStatus());
+        assertEquals(ETAG, response.getHeader("ETag"));
+        assertNull(response.getHeader("Content-Range"));
+        assertEquals("", body());
+    }
+
+    @Test
+    void multiRangeIsIgnored() throws IOException {
+        request.addHeader("Range", "bytes=0-1,4-5");
+
+        send();
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader("Content-Range"));
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals(CONTENT, body());
+    }
+
+    @Test
+    void sendfileSupportHandsRangeToContainer() throws IOException {
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=2-5");
+
+        send();
+
+        assertEquals(206, response.getStatus());
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(6L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertArrayEquals(new byte[0], response.getContentAsByteArray());
+    }
+
+    private void send() throws IOException {
+        RangeFileSender.send(request, response, file, ETAG, "audio/mpeg", "public, max-age=86400");
+    }
+
+    private String body() {
+        return new String(response.getContentAsByteArray(), StandardCharsets.US_ASCII);
+    }
+}
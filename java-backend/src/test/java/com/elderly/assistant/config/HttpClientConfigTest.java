@@ -0,0 +1,154 @@
+package com.elderly.assistant.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 出站连接池：本地桩服务验证连接复用，以及读超时、取连接超时按配置生效
+ */
+@SpringJUnitConfig(HttpClientConfigTest.Config.class)
+@TestPropertySource(properties = {"http.client.max-per-route=1", "http.client.connect-timeout-ms=700",
+        "http.client.read-timeout-ms=300", "http.client.pool-acquire-timeout-ms=200"})
+class HttpClientConfigTest {
+
+    @Configuration
+    @Import(HttpClientConfig.class)
+    static class Config {
+        @Bean
+        SimpleMeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private CloseableHttpClient outboundHttpClient;
+    @Autowired
+    private RequestConfig outboundRequestConfig;
+
+    private HttpServer server;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            respond(exchange, "ok");
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "slow");
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void connectionIsReused() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            try (CloseableHttpResponse response = outboundHttpClient.execute(new HttpGet(url("/ok")))) {
+                assertEquals("ok", EntityUtils.toString(response.getEntity()));
+            }
+        }
+        // 10 次请求来自同一个客户端端口，即同一条 TCP 连接
+        assertEquals(1, clientPorts.size(), () -> "客户端端口: " + clientPorts);
+    }
+
+    @Test
+    void configuredTimeoutsAreApplied() {
+        assertEquals(700, outboundRequestConfig.getConnectTimeout());
+        assertEquals(300, outboundRequestConfig.getSocketTimeout());
+        assertEquals(200, outboundRequestConfig.getConnectionRequestTimeout());
+    }
+
+    @Test
+    void readTimeoutIsEnforced() {
+        long start = System.nanoTime();
+        assertThrows(SocketTimeoutException.class, () -> outboundHttpClient.execute(new HttpGet(url("/slow"))));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs >= 250 && elapsedMs < 2000, () -> "读超时耗时 " + elapsedMs + "ms");
+    }
+
+    @Test
+    void poolAcquireTimeoutIsEnforced() throws Exception {
+        // 每个主机只有 1 个连接，先用一个慢请求占住
+        CountDownLatch holding = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            HttpGet slow = new HttpGet(url("/slow"));
+            slow.setConfig(RequestConfig.copy(outboundRequestConfig).setSocketTimeout(5000).build());
+            holding.countDown();
+            try (CloseableHttpResponse response = outboundHttpClient.execute(slow)) {
+                EntityUtils.consume(response.getEntity());
+            } catch (Exception ignored) {
+                // 测试结束时桩服务关闭
+            }
+        });
+        holder.start();
+        holding.await();
+        Thread.sleep(200);
+
+        long start = System.nanoTime();
+        assertThrows(ConnectionPoolTimeoutException.class, () -> outboundHttpClient.execute(new HttpGet(url("/ok"))));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs >= 150 && elapsedMs < 2000, () -> "取连接超时耗时 " + elapsedMs + "ms");
+
+        release.countDown();
+        holder.join(5000);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
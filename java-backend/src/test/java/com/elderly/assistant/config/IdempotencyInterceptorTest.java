@@ -0,0 +1,156 @@
+package com.elderly.assistant.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import com.elderly.assistant.common.Idempotent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 幂等拦截器：Key 按用户区分，请求体不同返回 422，处理中返回 409，完成后回放；
+ * 第一次请求已释放 Key 时重新占用；过滤器拒绝超长请求体
+ */
+class IdempotencyInterceptorTest {
+
+    private final Map<String, String> store = new ConcurrentHashMap<>();
+    private ValueOperations<String, String> valueOperations;
+    private IdempotencyInterceptor interceptor;
+    private HandlerMethod handler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(inv -> store.putIfAbsent(inv.getArgument(0), inv.getArgument(1)) == null);
+        when(valueOperations.get(anyString())).thenAnswer(inv -> store.get(inv.<String>getArgument(0)));
+        interceptor = new IdempotencyInterceptor(redisTemplate, new ObjectMapper());
+        handler = new HandlerMethod(this, getClass().getDeclaredMethod("endpoint"));
+    }
+
+    @Idempotent
+    void endpoint() {
+    }
+
+    @Test
+    void inFlightDuplicateGets409() throws Exception {
+        assertEquals(200, handle("{\"userId\":\"U1\"}", "k1").getStatus());
+        MockHttpServletResponse duplicate = handle("{\"userId\":\"U1\"}", "k1");
+        assertEquals(409, duplicate.getStatus());
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyGets422() throws Exception {
+        handle("{\"userId\":\"U1\",\"hospitalId\":\"H1\"}", "k1");
+        MockHttpServletResponse mismatch = handle("{\"userId\":\"U1\",\"hospitalId\":\"H2\"}", "k1");
+        assertEquals(422, mismatch.getStatus());
+    }
+
+    @Test
+    void completedRequestIsReplayed() throws Exception {
+        HttpServletRequest first = request("{\"userId\":\"U1\"}", "k1");
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), handler));
+        String key = (String) first.getAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE);
+        String digest = (String) first.getAttribute(IdempotencyInterceptor.DIGEST_ATTRIBUTE);
+        store.put(key, digest + IdempotencyInterceptor.SEPARATOR + "{\"code\":0,\"message\":\"挂号成功\"}");
+
+        MockHttpServletResponse replay = handle("{\"userId\":\"U1\"}", "k1");
+        assertEquals(200, replay.getStatus());
+        assertEquals("{\"code\":0,\"message\":\"挂号成功\"}", replay.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void sameKeyFromDifferentUsersDoesNotCollide() throws Exception {
+        HttpServletRequest first = request("{\"userId\":\"U1\"}", "k1");
+        HttpServletRequest second = request("{\"user_id\":\"U2\"}", "k1");
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), handler));
+        assertTrue(interceptor.preHandle(second, new MockHttpServletResponse(), handler));
+        assertFalse(first.getAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE)
+                .equals(second.getAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE)));
+    }
+
+    @Test
+    void keyReleasedBetweenSetIfAbsentAndGetIsAcquiredAgain() throws Exception {
+        // 第一次 SETNX 时 Key 还在，GET 时第一次请求已失败释放
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenReturn(false)
+                .thenAnswer(inv -> store.putIfAbsent(inv.getArgument(0), inv.getArgument(1)) == null);
+        HttpServletRequest retry = request("{\"userId\":\"U1\"}", "k1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(retry, response, handler));
+        assertEquals(200, response.getStatus());
+        assertTrue(store.containsKey((String) retry.getAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE)));
+    }
+
+    @Test
+    void storedValueWithoutDigestIsRejected() throws Exception {
+        HttpServletRequest first = request("{\"userId\":\"U1\"}", "k1");
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), handler));
+        store.put((String) first.getAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE), "{\"code\":0}");
+
+        assertEquals(422, handle("{\"userId\":\"U1\"}", "k1").getStatus());
+    }
+
+    @Test
+    void oversizedBodyIsRejectedByFilter() throws Exception {
+        IdempotencyBodyFilter filter = new IdempotencyBodyFilter(new ObjectMapper());
+        ReflectionTestUtils.setField(filter, "maxBodyBytes", 16);
+
+        MockHttpServletRequest small = new MockHttpServletRequest("POST", "/api/hospital/registration/create-order");
+        small.addHeader(IdempotencyInterceptor.HEADER, "k1");
+        small.setContent("{\"userId\":\"U1\"}".getBytes(StandardCharsets.UTF_8));
+        MockFilterChain smallChain = new MockFilterChain();
+        filter.doFilter(small, new MockHttpServletResponse(), smallChain);
+        assertTrue(smallChain.getRequest() instanceof IdempotencyBodyFilter.CachedBodyRequest);
+
+        MockHttpServletRequest large = new MockHttpServletRequest("POST", "/api/hospital/registration/create-order");
+        large.addHeader(IdempotencyInterceptor.HEADER, "k2");
+        large.setContent("{\"userId\":\"U1\",\"note\":\"0123456789\"}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockFilterChain largeChain = new MockFilterChain();
+        filter.doFilter(large, rejected, largeChain);
+        assertEquals(413, rejected.getStatus());
+        assertNull(largeChain.getRequest());
+    }
+
+    private MockHttpServletResponse handle(String body, String idempotencyKey) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request(body, idempotencyKey), response, handler);
+        return response;
+    }
+
+    /**
+     * 与过滤器一样包装一层，拦截器通过包装读取请求体
+     */
+    private static HttpServletRequest request(String body, String idempotencyKey) throws Exception {
+        MockHttpServletRequest raw = new MockHttpServletRequest("POST", "/api/hospital/registration/create-order");
+        raw.addHeader(IdempotencyInterceptor.HEADER, idempotencyKey);
+        raw.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return new IdempotencyBodyFilter.CachedBodyRequest(raw, raw.getContentAsByteArray());
+    }
+}
@@ -0,0 +1,185 @@
+package com.elderly.assistant.quota;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 号源计数器重建：在途（已扣减未提交）的挂号计入重建值，重建后到达的回滚不会把计数器抬高
+ * Redis 用内存 Map 模拟，Lua 脚本按同样的语义执行
+ */
+class HospitalQuotaCounterTest {
+
+    private static final String HOSPITAL_ID = "H_COUNTER";
+
+    private final Map<String, Long> redis = new ConcurrentHashMap<>();
+    private final AtomicLong committed = new AtomicLong();
+    private final String date = LocalDate.now().plusDays(1).toString();
+    private HospitalQuotaCounter counter;
+    private HospitalInfo hospital;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(valueOperations.get(anyString())).thenAnswer(inv -> {
+            Long value = redis.get(inv.<String>getArgument(0));
+            return value == null ? null : value.toString();
+        });
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenAnswer(
+                inv -> redis.putIfAbsent(inv.getArgument(0), Long.valueOf(inv.getArgument(1))) == null);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class, inv -> redis(inv, valueOperations));
+
+        hospital = new HospitalInfo();
+        hospital.setHospitalId(HOSPITAL_ID);
+        hospital.setDailyQuota(10);
+        HospitalInfoMapper hospitalInfoMapper = mock(HospitalInfoMapper.class);
+        when(hospitalInfoMapper.selectById(HOSPITAL_ID)).thenReturn(hospital);
+        ReserveOrderMapper reserveOrderMapper = mock(ReserveOrderMapper.class);
+        when(reserveOrderMapper.selectCount(any())).thenAnswer(inv -> committed.get());
+
+        counter = new HospitalQuotaCounter(redisTemplate, hospitalInfoMapper, reserveOrderMapper,
+                mock(HospitalCatalog.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(counter, "redisEnabled", true);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rebuildCountsInflightAndLateRollbackDoesNotInflate() throws Exception {
+        committed.set(1);
+
+        // 事务一：扣减成功，尚未提交
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(HospitalQuotaCounter.Outcome.RESERVED, counter.tryReserve(hospital, date));
+        counter.settleOnCompletion(HOSPITAL_ID, date, 1);
+        assertEquals(8L, redis.get(quotaKey()));
+
+        // 计数器被删掉（如走过数据库扣减），另一个线程的挂号触发重建并提交
+        counter.markStale(HOSPITAL_ID, date);
+        CompletableFuture.runAsync(() -> {
+            assertEquals(HospitalQuotaCounter.Outcome.RESERVED, counter.tryReserve(hospital, date));
+            committed.incrementAndGet();
+            counter.settleOnCompletion(HOSPITAL_ID, date, 1);
+        }).get();
+        // 10 - 已提交 1 - 在途 1 = 8，再扣 1
+        assertEquals(7L, redis.get(quotaKey()));
+
+        // 事务一在重建之后回滚
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // 已提交 2 个，剩余 8
+        assertEquals(8L, redis.get(quotaKey()));
+        assertFalse(redis.containsKey(inflightKey()));
+    }
+
+    @Test
+    void commitOnlyClearsInflight() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(HospitalQuotaCounter.Outcome.RESERVED, counter.tryReserve(hospital, date, 3));
+        counter.settleOnCompletion(HOSPITAL_ID, date, 3);
+        assertEquals(3L, redis.get(inflightKey()));
+
+        committed.addAndGet(3);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(7L, redis.get(quotaKey()));
+        assertFalse(redis.containsKey(inflightKey()));
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private String quotaKey() {
+        return "quota:" + HOSPITAL_ID + ":" + date;
+    }
+
+    private String inflightKey() {
+        return "quota-inflight:" + HOSPITAL_ID + ":" + date;
+    }
+
+    /**
+     * 模拟 StringRedisTemplate：值操作交给 valueOperations，脚本按 HospitalQuotaCounter 中的 Lua 语义执行
+     */
+    private Object redis(InvocationOnMock inv, ValueOperations<String, String> valueOperations) {
+        switch (inv.getMethod().getName()) {
+            case "opsForValue":
+                return valueOperations;
+            case "delete":
+                return redis.remove(inv.<String>getArgument(0)) != null;
+            case "execute":
+                List<String> keys = inv.getArgument(1);
+                Object[] args = Arrays.copyOfRange(inv.getArguments(), 2, inv.getArguments().length);
+                if (args.length == 1 && args[0] instanceof Object[]) {
+                    args = (Object[]) args[0];
+                }
+                return script(inv.getArgument(0), keys, Long.parseLong(args[0].toString()));
+            default:
+                return null;
+        }
+    }
+
+    private Long script(RedisScript<?> script, List<String> keys, long count) {
+        if (script == script("RESERVE_SCRIPT")) {
+            Long value = redis.get(keys.get(0));
+            if (value == null) {
+                return -2L;
+            }
+            if (value < count) {
+                return -1L;
+            }
+            redis.merge(keys.get(2), count, Long::sum);
+            return redis.merge(keys.get(0), -count, Long::sum);
+        }
+        if (script == script("SETTLE_SCRIPT") || script == script("ROLLBACK_SCRIPT")) {
+            redis.computeIfPresent(keys.get(2), (key, inflight) -> inflight - count <= 0 ? null : inflight - count);
+            if (script == script("SETTLE_SCRIPT")) {
+                return 0L;
+            }
+        }
+        Long value = redis.computeIfPresent(keys.get(0), (key, left) -> left + count);
+        return value == null ? -2L : value;
+    }
+
+    private static RedisScript<?> script(String name) {
+        return (RedisScript<?>) ReflectionTestUtils.getField(HospitalQuotaCounter.class, name);
+    }
+}
@@ -0,0 +1,148 @@
+package com.elderly.assistant.quota;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.elderly.assistant.dto.SlotAvailabilityDTO;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.entity.SlotInventory;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+import com.elderly.assistant.mapper.SlotInventoryMapper;
+
+import cn.hutool.core.bean.BeanUtil;
+
+/**
+ * 号源库存引擎：daily_quota 先按科室平分、再分上午/下午；全天挂号上午满后落到下午；取消归还到原来的半天
+ * SLOT_INVENTORY 用内存 Map 模拟，条件更新按 Mapper 中 SQL 的语义执行
+ */
+class SlotInventoryEngineTest {
+
+    private static final String HOSPITAL_ID = "H_SLOT";
+
+    private final Map<String, SlotInventory> table = new ConcurrentHashMap<>();
+    private final String date = LocalDate.now().plusDays(1).toString();
+    private SlotInventoryEngine engine;
+    private HospitalInfo hospital;
+
+    @BeforeEach
+    void setUp() {
+        SlotInventoryMapper slotInventoryMapper = mock(SlotInventoryMapper.class);
+        when(slotInventoryMapper.selectSlot(anyString(), anyString(), anyString(), anyString())).thenAnswer(inv -> {
+            SlotInventory row = table.get(key(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2),
+                    inv.getArgument(3)));
+            return row == null ? null : BeanUtil.copyProperties(row, SlotInventory.class);
+        });
+        when(slotInventoryMapper.insertIgnore(any(SlotInventory.class))).thenAnswer(inv -> {
+            SlotInventory row = BeanUtil.copyProperties(inv.getArgument(0), SlotInventory.class);
+            String key = key(row.getHospitalId(), row.getSlotDate(), row.getDepartment(), row.getTimeSlot());
+            return table.putIfAbsent(key, row) == null ? 1 : 0;
+        });
+        when(slotInventoryMapper.reserve(anyString(), anyString(), anyString(), anyString(), anyLong()))
+                .thenAnswer(inv -> {
+                    SlotInventory row = table.get(key(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2),
+                            inv.getArgument(3)));
+                    if (row == null || row.getBooked() >= row.getCapacity()) {
+                        return 0;
+                    }
+                    row.setBooked(row.getBooked() + 1);
+                    return 1;
+                });
+        when(slotInventoryMapper.release(anyString(), anyString(), anyString(), anyString(), anyLong()))
+                .thenAnswer(inv -> {
+                    SlotInventory row = table.get(key(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2),
+                            inv.getArgument(3)));
+                    if (row == null || row.getBooked() <= 0) {
+                        return 0;
+                    }
+                    row.setBooked(row.getBooked() - 1);
+                    return 1;
+                });
+        ReserveOrderMapper reserveOrderMapper = mock(ReserveOrderMapper.class);
+        when(reserveOrderMapper.selectCount(any())).thenReturn(0L);
+
+        engine = new SlotInventoryEngine(slotInventoryMapper, reserveOrderMapper);
+        ReflectionTestUtils.setField(engine, "reloadIntervalMs", 30_000L);
+
+        hospital = new HospitalInfo();
+        hospital.setHospitalId(HOSPITAL_ID);
+        hospital.setDailyQuota(7);
+        hospital.setDepartments("内科,外科");
+    }
+
+    @Test
+    void capacityIsSplitByDepartmentThenHalfDay() {
+        // 7 个号两个科室：内科 4（余数给排在前面的科室）、外科 3；每科再分上午/下午，上午多分余数
+        assertEquals(Map.of("AM", 2, "PM", 2, "DAY", 4), capacities("内科"));
+        assertEquals(Map.of("AM", 2, "PM", 1, "DAY", 3), capacities("外科"));
+        // 未指定科室按整个医院计
+        assertEquals(Map.of("AM", 4, "PM", 3, "DAY", 7), capacities(null));
+
+        // 外科下午只有 1 个号，内科不受影响
+        assertEquals("PM", engine.tryReserve(hospital, "外科", date, "下午"));
+        assertNull(engine.tryReserve(hospital, "外科", date, "下午"));
+        assertEquals("PM", engine.tryReserve(hospital, "内科", date, "PM"));
+        assertEquals(1, table.get(key(HOSPITAL_ID, date, "外科", "PM")).getCapacity());
+        assertEquals(2, table.get(key(HOSPITAL_ID, date, "内科", "PM")).getCapacity());
+    }
+
+    @Test
+    void dayBookingFallsFromMorningToAfternoon() {
+        assertEquals("AM", engine.tryReserve(hospital, "外科", date, "全天"));
+        assertEquals("AM", engine.tryReserve(hospital, "外科", date, null));
+        // 上午已满，全天落到下午
+        assertEquals("PM", engine.tryReserve(hospital, "外科", date, "DAY"));
+        assertNull(engine.tryReserve(hospital, "外科", date, "DAY"));
+
+        assertEquals(2, table.get(key(HOSPITAL_ID, date, "外科", "AM")).getBooked());
+        assertEquals(1, table.get(key(HOSPITAL_ID, date, "外科", "PM")).getBooked());
+        assertEquals(0, remaining("外科").get("DAY"));
+    }
+
+    @Test
+    void releaseGivesBackToTheBookedHalf() {
+        for (int i = 0; i < 3; i++) {
+            engine.tryReserve(hospital, "外科", date, "DAY");
+        }
+
+        // 取消的是落到下午的那一单
+        engine.release(HOSPITAL_ID, "外科", date, "PM");
+
+        assertEquals(2, table.get(key(HOSPITAL_ID, date, "外科", "AM")).getBooked());
+        assertEquals(0, table.get(key(HOSPITAL_ID, date, "外科", "PM")).getBooked());
+        assertEquals(Map.of("AM", 0, "PM", 1, "DAY", 1), remaining("外科"));
+        assertNull(engine.tryReserve(hospital, "外科", date, "AM"));
+        assertEquals("PM", engine.tryReserve(hospital, "外科", date, "DAY"));
+
+        // 再取消一个上午的号，上午又可以挂
+        engine.release(HOSPITAL_ID, "外科", date, "上午");
+        assertEquals("AM", engine.tryReserve(hospital, "外科", date, "DAY"));
+    }
+
+    private Map<String, Integer> capacities(String department) {
+        return engine.getAvailability(hospital, department, date).stream()
+                .collect(Collectors.toMap(SlotAvailabilityDTO::getTimeSlot, SlotAvailabilityDTO::getCapacity));
+    }
+
+    private Map<String, Integer> remaining(String department) {
+        return engine.getAvailability(hospital, department, date).stream()
+                .collect(Collectors.toMap(SlotAvailabilityDTO::getTimeSlot, SlotAvailabilityDTO::getRemaining));
+    }
+
+    private static String key(String hospitalId, String date, String department, String timeSlot) {
+        return hospitalId + "/" + date + "/" + department + "/" + timeSlot;
+    }
+}
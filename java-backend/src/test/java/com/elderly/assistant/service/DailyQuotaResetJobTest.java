@@ -0,0 +1,144 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+import com.elderly.assistant.quota.DailyQuotaResetJob;
+import com.elderly.assistant.quota.HospitalQuotaCounter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 每日号源重置：分段 UPDATE 覆盖所有医院，available_quota 恢复为 daily_quota 减去提前预约到当天的订单；
+ * 重置后目录快照读到新值，当天的计数器按新值预热，已存在的计数器不覆盖
+ * 计数器的 Redis 用内存 Map 模拟
+ */
+@SpringJUnitConfig(RegistrationTestConfig.class)
+@TestPropertySource(properties = "hospital.quota.redis-enabled=false")
+class DailyQuotaResetJobTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    @Autowired
+    private HospitalInfoMapper hospitalInfoMapper;
+    @Autowired
+    private ReserveOrderMapper reserveOrderMapper;
+    @Autowired
+    private HospitalCatalog hospitalCatalog;
+    @Autowired
+    private DataSource dataSource;
+
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void chunkedResetRestoresQuotaRefreshesCatalogAndWarmsCounters() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        String today = LocalDate.now().toString();
+        for (int i = 1; i <= 5; i++) {
+            insertHospital("H_RESET_" + i);
+        }
+        // 昨天的号已用完；H_RESET_1 有一个提前预约到今天的订单和一个已取消的订单；H_RESET_5 不限量
+        jdbc.update("UPDATE HOSPITAL_INFO SET available_quota = 0 WHERE hospital_id LIKE 'H_RESET_%'");
+        jdbc.update("UPDATE HOSPITAL_INFO SET daily_quota = NULL, available_quota = 3 "
+                + "WHERE hospital_id = 'H_RESET_5'");
+        insertOrder("ORDER_RESET_BOOKED", "H_RESET_1", today, "已预约");
+        insertOrder("ORDER_RESET_CANCELLED", "H_RESET_1", today, "已取消");
+        hospitalCatalog.refresh();
+        assertEquals(0, hospitalCatalog.get("H_RESET_2").getAvailableQuota());
+        // H_RESET_2 的计数器已由其它实例建好
+        redis.put(quotaKey("H_RESET_2", today), "4");
+
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(inv -> redis.putIfAbsent(inv.getArgument(0), inv.getArgument(1)) == null);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        HospitalQuotaCounter counter = new HospitalQuotaCounter(redisTemplate, hospitalInfoMapper,
+                reserveOrderMapper, hospitalCatalog, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(counter, "redisEnabled", true);
+        HospitalInfoMapper mapper = mock(HospitalInfoMapper.class, delegatesTo(hospitalInfoMapper));
+        DailyQuotaResetJob job = new DailyQuotaResetJob(mapper, hospitalCatalog, counter, redisTemplate,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(job, "chunkSize", CHUNK_SIZE);
+
+        int updated = job.reset(today);
+
+        int limited = jdbc.queryForObject("SELECT COUNT(*) FROM HOSPITAL_INFO WHERE daily_quota IS NOT NULL",
+                Integer.class);
+        int total = jdbc.queryForObject("SELECT COUNT(*) FROM HOSPITAL_INFO", Integer.class);
+        assertEquals(limited, updated);
+        verify(mapper, times((total + CHUNK_SIZE - 1) / CHUNK_SIZE)).resetAvailableQuota(anyString(), anyString(),
+                anyString());
+
+        assertEquals(9, quota(jdbc, "H_RESET_1"));
+        for (int i = 2; i <= 4; i++) {
+            assertEquals(10, quota(jdbc, "H_RESET_" + i));
+        }
+        assertEquals(3, quota(jdbc, "H_RESET_5"));
+
+        assertEquals(9, hospitalCatalog.get("H_RESET_1").getAvailableQuota());
+        assertEquals(10, hospitalCatalog.get("H_RESET_2").getAvailableQuota());
+
+        assertEquals("9", redis.get(quotaKey("H_RESET_1", today)));
+        assertEquals("4", redis.get(quotaKey("H_RESET_2", today)));
+        assertEquals("10", redis.get(quotaKey("H_RESET_3", today)));
+        assertFalse(redis.containsKey(quotaKey("H_RESET_5", today)));
+    }
+
+    private static int quota(JdbcTemplate jdbc, String hospitalId) {
+        return jdbc.queryForObject("SELECT available_quota FROM HOSPITAL_INFO WHERE hospital_id = ?", Integer.class,
+                hospitalId);
+    }
+
+    private static String quotaKey(String hospitalId, String date) {
+        return "quota:" + hospitalId + ":" + date;
+    }
+
+    private void insertOrder(String orderId, String hospitalId, String date, String status) {
+        new JdbcTemplate(dataSource).update("INSERT INTO RESERVE_ORDER (order_id, user_id, hospital_id, "
+                + "hospital_name, department, reserve_date, time_slot, status, create_time) "
+                + "VALUES (?, 'U_RESET', ?, ?, '内科', ?, 'AM', ?, ?)",
+                orderId, hospitalId, hospitalId, date, status, System.currentTimeMillis());
+    }
+
+    private void insertHospital(String hospitalId) {
+        HospitalInfo hospital = new HospitalInfo();
+        hospital.setHospitalId(hospitalId);
+        hospital.setHospitalName(hospitalId);
+        hospital.setAddress("测试地址");
+        hospital.setLongitude(116.4);
+        hospital.setLatitude(39.9);
+        hospital.setDepartments("内科");
+        hospital.setDailyQuota(10);
+        hospital.setStatus("enabled");
+        hospitalInfoMapper.insert(hospital);
+    }
+}
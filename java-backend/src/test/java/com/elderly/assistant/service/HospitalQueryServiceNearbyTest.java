@@ -0,0 +1,200 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.catalog.HospitalSearchIndex;
+import com.elderly.assistant.dto.NearbyHospitalDTO;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.quota.HospitalQuotaCounter;
+import com.elderly.assistant.quota.SlotInventoryEngine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 附近医院查询的数据库访问次数：每家医院的可预约状态都取自已加载的医院数据，不逐家查询；
+ * 剩余号源与预约检查一样优先取 Redis 计数器，整页一次批量读取
+ */
+class HospitalQueryServiceNearbyTest {
+
+    private static final int HOSPITALS = 30;
+
+    private HospitalInfoMapper hospitalInfoMapper;
+    private HospitalQuotaCounter hospitalQuotaCounter;
+    private SlotInventoryEngine slotInventoryEngine;
+    private HospitalQueryService service;
+    private List<HospitalInfo> hospitals;
+
+    @BeforeEach
+    void setUp() {
+        hospitals = new ArrayList<>();
+        for (int i = 0; i < HOSPITALS; i++) {
+            HospitalInfo hospital = new HospitalInfo();
+            hospital.setHospitalId(String.format("H%03d", i));
+            hospital.setHospitalName("医院" + i);
+            hospital.setStatus("enabled");
+            hospital.setDepartments(i % 2 == 0 ? "内科,外科" : "儿科");
+            hospital.setLatitude(39.90 + i * 0.01);
+            hospital.setLongitude(116.40);
+            hospital.setAvailableQuota(i % 3 == 0 ? 0 : 10);
+            hospitals.add(hospital);
+        }
+
+        hospitalInfoMapper = mock(HospitalInfoMapper.class);
+        when(hospitalInfoMapper.selectList(isNull())).thenReturn(hospitals);
+        when(hospitalInfoMapper.findNearbyInBoundingBox(anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), anyDouble(), anyDouble(), any(), any())).thenReturn(hospitals);
+
+        HospitalCatalog hospitalCatalog = new HospitalCatalog(hospitalInfoMapper,
+                mock(ApplicationEventPublisher.class), new SimpleMeterRegistry());
+        hospitalQuotaCounter = mock(HospitalQuotaCounter.class);
+        slotInventoryEngine = mock(SlotInventoryEngine.class);
+        service = new HospitalQueryService(hospitalInfoMapper, hospitalCatalog,
+                mock(HospitalSearchIndex.class), hospitalQuotaCounter, slotInventoryEngine);
+        ReflectionTestUtils.setField(service, "nearbyMode", "memory");
+        ReflectionTestUtils.setField(service, "nearbyDefaultRadiusKm", 50.0);
+        ReflectionTestUtils.setField(service, "nearbyMaxResults", 200);
+    }
+
+    @Test
+    void memoryModeIssuesNoPerHospitalQuery() {
+        List<NearbyHospitalDTO> result = service.getNearbyHospitals(116.40, 39.90, 100.0, null);
+
+        assertEquals(HOSPITALS, result.size());
+        assertAvailabilityFromLoadedRows(result);
+        // 只有目录首次加载的一次全量查询
+        verify(hospitalInfoMapper).selectList(isNull());
+        verifyNoMoreInteractions(hospitalInfoMapper);
+        verify(hospitalQuotaCounter).remainingToday(anyCollection());
+        verifyNoInteractions(slotInventoryEngine);
+    }
+
+    @Test
+    void memoryModeWithDepartmentIssuesNoPerHospitalQuery() {
+        List<NearbyHospitalDTO> result = service.getNearbyHospitals(116.40, 39.90, 100.0, "内科");
+
+        assertEquals(HOSPITALS / 2, result.size());
+        verify(hospitalInfoMapper).selectList(isNull());
+        verifyNoMoreInteractions(hospitalInfoMapper);
+        verify(hospitalQuotaCounter).remainingToday(anyCollection());
+        verifyNoInteractions(slotInventoryEngine);
+    }
+
+    @Test
+    void databaseModeIssuesOneQuery() {
+        ReflectionTestUtils.setField(service, "nearbyMode", "database");
+
+        List<NearbyHospitalDTO> result = service.getNearbyHospitals(116.40, 39.90, 100.0, null);
+
+        assertEquals(HOSPITALS, result.size());
+        assertAvailabilityFromLoadedRows(result);
+        verify(hospitalInfoMapper).findNearbyInBoundingBox(anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), anyDouble(), anyDouble(), any(), any());
+        verifyNoMoreInteractions(hospitalInfoMapper);
+        verify(hospitalQuotaCounter).remainingToday(anyCollection());
+        verifyNoInteractions(slotInventoryEngine);
+    }
+
+    @Test
+    void bothModesApplySameDefaults() {
+        ReflectionTestUtils.setField(service, "nearbyDefaultRadiusKm", 12.0);
+        ReflectionTestUtils.setField(service, "nearbyMaxResults", 5);
+
+        List<String> memory = ids(service.getNearbyHospitals(116.40, 39.90, null, null));
+        ReflectionTestUtils.setField(service, "nearbyMode", "database");
+        List<String> database = ids(service.getNearbyHospitals(116.40, 39.90, null, null));
+
+        assertEquals(List.of("H000", "H001", "H002", "H003", "H004"), memory);
+        assertEquals(memory, database);
+        verify(hospitalInfoMapper).findNearbyInBoundingBox(anyDouble(), anyDouble(), eq(12.0), anyDouble(),
+                anyDouble(), anyDouble(), anyDouble(), any(), eq(5));
+    }
+
+    @Test
+    void memoryModeAppliesDefaultRadius() {
+        ReflectionTestUtils.setField(service, "nearbyDefaultRadiusKm", 5.0);
+
+        // 相邻医院纬度相差 0.01 度（约 1.1 公里），5 公里内只有前 5 家
+        assertEquals(5, service.getNearbyHospitals(116.40, 39.90, null, null).size());
+    }
+
+    @Test
+    void listViewsUseLiveCounterLikeAppointmentCheck() {
+        // H000 目录中为 0、计数器还有号；H001 目录中有号、计数器已满
+        when(hospitalQuotaCounter.remainingToday(anyCollection())).thenAnswer(inv -> {
+            Map<String, Integer> live = new HashMap<>();
+            for (Object id : inv.<Collection<?>>getArgument(0)) {
+                if ("H000".equals(id)) {
+                    live.put("H000", 5);
+                } else if ("H001".equals(id)) {
+                    live.put("H001", 0);
+                }
+            }
+            return live;
+        });
+        when(hospitalQuotaCounter.remainingToday("H000")).thenReturn(5);
+        when(hospitalQuotaCounter.remainingToday("H001")).thenReturn(0);
+
+        for (String mode : List.of("memory", "database")) {
+            ReflectionTestUtils.setField(service, "nearbyMode", mode);
+            List<NearbyHospitalDTO> nearby = service.getNearbyHospitals(116.40, 39.90, 100.0, null);
+            NearbyHospitalDTO first = nearby.get(0);
+            NearbyHospitalDTO second = nearby.get(1);
+            assertEquals("H000", first.getHospitalId());
+            assertTrue(first.getAvailable(), mode);
+            assertEquals(5, first.getAvailableQuota());
+            assertFalse(second.getAvailable(), mode);
+            assertEquals(0, second.getAvailableQuota());
+            assertEquals(service.checkAppointmentAvailable("H000"), first.getAvailable());
+            assertEquals(service.checkAppointmentAvailable("H001"), second.getAvailable());
+        }
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("hasQuota", true);
+        List<String> withQuota = service.searchHospitals(params).stream()
+                .map(HospitalInfo::getHospitalId).collect(Collectors.toList());
+        assertTrue(withQuota.contains("H000"));
+        assertFalse(withQuota.contains("H001"));
+        assertTrue(withQuota.contains("H002"));
+    }
+
+    private static List<String> ids(List<NearbyHospitalDTO> result) {
+        return result.stream().map(NearbyHospitalDTO::getHospitalId).collect(Collectors.toList());
+    }
+
+    private static void assertAvailabilityFromLoadedRows(List<NearbyHospitalDTO> result) {
+        for (NearbyHospitalDTO dto : result) {
+            int index = Integer.parseInt(dto.getHospitalId().substring(1));
+            if (index % 3 == 0) {
+                assertFalse(dto.getAvailable(), dto.getHospitalId());
+            } else {
+                assertTrue(dto.getAvailable(), dto.getHospitalId());
+            }
+        }
+    }
+}
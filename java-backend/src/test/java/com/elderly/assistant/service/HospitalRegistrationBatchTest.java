@@ -0,0 +1,101 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.entity.ReserveOrder;
+import com.elderly.assistant.entity.UserBase;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+import com.elderly.assistant.mapper.UserMapper;
+
+/**
+ * 批量挂号：不存在的用户或医院只让对应条目失败，其它条目照常写入，逐条结果与库中一致
+ */
+@SpringJUnitConfig(RegistrationTestConfig.class)
+@TestPropertySource(properties = "hospital.quota.redis-enabled=false")
+class HospitalRegistrationBatchTest {
+
+    @Autowired
+    private HospitalRegistrationService hospitalRegistrationService;
+    @Autowired
+    private HospitalInfoMapper hospitalInfoMapper;
+    @Autowired
+    private ReserveOrderMapper reserveOrderMapper;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private HospitalCatalog hospitalCatalog;
+
+    @Test
+    void unknownUserAndHospitalFailOnlyTheirItems() {
+        insertHospital("H_BATCH", 10);
+        insertUser("U_BATCH_1");
+        insertUser("U_BATCH_2");
+
+        List<Map<String, Object>> results = hospitalRegistrationService.createRegistrations(Arrays.asList(
+                order("U_BATCH_1", "H_BATCH"),
+                order("U_BATCH_MISSING", "H_BATCH"),
+                order("U_BATCH_2", "H_BATCH_MISSING"),
+                order("U_BATCH_2", "H_BATCH")));
+
+        assertEquals(true, results.get(0).get("success"));
+        assertEquals(false, results.get(1).get("success"));
+        assertEquals("用户不存在", results.get(1).get("message"));
+        assertEquals(false, results.get(2).get("success"));
+        assertEquals("医院不存在", results.get(2).get("message"));
+        assertEquals(true, results.get(3).get("success"));
+
+        assertEquals(2, reserveOrderMapper.selectCount(new LambdaQueryWrapper<ReserveOrder>()
+                .eq(ReserveOrder::getHospitalId, "H_BATCH")));
+        for (int i : new int[] {0, 3}) {
+            String orderId = (String) results.get(i).get("orderId");
+            assertEquals(orderId, reserveOrderMapper.selectById(orderId).getOrderId());
+        }
+    }
+
+    private static ReserveOrder order(String userId, String hospitalId) {
+        ReserveOrder order = new ReserveOrder();
+        order.setUserId(userId);
+        order.setHospitalId(hospitalId);
+        order.setDepartment("内科");
+        order.setReserveDate(LocalDate.now().plusDays(1).toString());
+        order.setTimeSlot("AM");
+        return order;
+    }
+
+    private void insertUser(String userId) {
+        UserBase user = new UserBase();
+        user.setUserId(userId);
+        user.setUserName(userId);
+        user.setPhone("13800000000");
+        user.setCreateTime(System.currentTimeMillis());
+        userMapper.insert(user);
+    }
+
+    private void insertHospital(String hospitalId, int dailyQuota) {
+        HospitalInfo hospital = new HospitalInfo();
+        hospital.setHospitalId(hospitalId);
+        hospital.setHospitalName(hospitalId);
+        hospital.setAddress("测试地址");
+        hospital.setLongitude(116.4);
+        hospital.setLatitude(39.9);
+        hospital.setDepartments("内科");
+        hospital.setDailyQuota(dailyQuota);
+        hospital.setStatus("enabled");
+        hospitalInfoMapper.insert(hospital);
+        hospitalCatalog.refreshHospital(hospitalId);
+    }
+}
@@ -0,0 +1,157 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.entity.ReserveOrder;
+import com.elderly.assistant.entity.SlotInventory;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+import com.elderly.assistant.mapper.SlotInventoryMapper;
+
+/**
+ * 并发挂号不超卖：Redis 不可用时走数据库扣减，多线程同时抢同一医院同一天的号
+ * 时段库存放宽到远大于每日号源，只验证医院号源这一层
+ */
+@SpringJUnitConfig(RegistrationTestConfig.class)
+@TestPropertySource(properties = "hospital.quota.redis-enabled=false")
+class HospitalRegistrationOversellTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 200;
+
+    @Autowired
+    private HospitalRegistrationService hospitalRegistrationService;
+    @Autowired
+    private HospitalInfoMapper hospitalInfoMapper;
+    @Autowired
+    private ReserveOrderMapper reserveOrderMapper;
+    @Autowired
+    private SlotInventoryMapper slotInventoryMapper;
+    @Autowired
+    private HospitalCatalog hospitalCatalog;
+
+    @Test
+    void nullAvailableQuotaDoesNotOversell() throws Exception {
+        String date = LocalDate.now().plusDays(1).toString();
+        insertHospital("H_NULL_AVAILABLE", 20, null, date);
+
+        assertEquals(20, bookConcurrently("H_NULL_AVAILABLE", date, ATTEMPTS));
+        assertEquals(20, countBooked("H_NULL_AVAILABLE", date));
+    }
+
+    @Test
+    void futureDateIsLimitedByItsOwnBookings() throws Exception {
+        String today = LocalDate.now().toString();
+        String nextWeek = LocalDate.now().plusDays(7).toString();
+        insertHospital("H_PER_DATE", 10, 10, today, nextWeek);
+
+        assertEquals(10, bookConcurrently("H_PER_DATE", nextWeek, ATTEMPTS));
+        // 其它日期的预约不占用今天的号源
+        assertEquals(10, hospitalInfoMapper.selectById("H_PER_DATE").getAvailableQuota());
+        assertEquals(10, bookConcurrently("H_PER_DATE", today, ATTEMPTS));
+        assertEquals(10, countBooked("H_PER_DATE", today));
+        assertEquals(0, hospitalInfoMapper.selectById("H_PER_DATE").getAvailableQuota());
+    }
+
+    @Test
+    void unlimitedHospitalAcceptsEveryBooking() throws Exception {
+        String date = LocalDate.now().plusDays(1).toString();
+        insertHospital("H_UNLIMITED", null, null, date);
+
+        assertEquals(50, bookConcurrently("H_UNLIMITED", date, 50));
+    }
+
+    /**
+     * 多线程挂号，返回成功数；除"号源已满"外的任何异常都视为测试失败
+     */
+    private int bookConcurrently(String hospitalId, String date, int attempts) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Throwable> unexpected = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < attempts; i++) {
+            ReserveOrder order = new ReserveOrder();
+            order.setUserId("U" + i);
+            order.setHospitalId(hospitalId);
+            order.setDepartment("内科");
+            order.setReserveDate(date);
+            order.setTimeSlot(i % 2 == 0 ? "AM" : "PM");
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    if (hospitalRegistrationService.createRegistration(order)) {
+                        succeeded.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    if (!String.valueOf(e.getMessage()).contains("号源已满")) {
+                        unexpected.add(e);
+                    }
+                } catch (Throwable e) {
+                    unexpected.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        assertTrue(unexpected.isEmpty(), () -> "意外异常: " + unexpected);
+        return succeeded.get();
+    }
+
+    /**
+     * 新增医院，并把 dates 的上午/下午时段库存放宽，使医院号源成为唯一限制
+     */
+    private void insertHospital(String hospitalId, Integer dailyQuota, Integer availableQuota, String... dates) {
+        HospitalInfo hospital = new HospitalInfo();
+        hospital.setHospitalId(hospitalId);
+        hospital.setHospitalName(hospitalId);
+        hospital.setAddress("测试地址");
+        hospital.setLongitude(116.4);
+        hospital.setLatitude(39.9);
+        hospital.setDepartments("内科");
+        hospital.setDailyQuota(dailyQuota);
+        hospital.setAvailableQuota(availableQuota);
+        hospital.setStatus("enabled");
+        hospitalInfoMapper.insert(hospital);
+        hospitalCatalog.refreshHospital(hospitalId);
+
+        for (String date : dates) {
+            for (String timeSlot : new String[] {"AM", "PM"}) {
+                SlotInventory slot = new SlotInventory();
+                slot.setHospitalId(hospitalId);
+                slot.setSlotDate(date);
+                slot.setDepartment("内科");
+                slot.setTimeSlot(timeSlot);
+                slot.setCapacity(10_000);
+                slot.setBooked(0);
+                slot.setUpdateTime(System.currentTimeMillis());
+                slotInventoryMapper.insertIgnore(slot);
+            }
+        }
+    }
+
+    private long countBooked(String hospitalId, String date) {
+        return reserveOrderMapper.selectCount(new LambdaQueryWrapper<ReserveOrder>()
+                .eq(ReserveOrder::getHospitalId, hospitalId)
+                .eq(ReserveOrder::getReserveDate, date)
+                .eq(ReserveOrder::getStatus, "已预约"));
+    }
+}
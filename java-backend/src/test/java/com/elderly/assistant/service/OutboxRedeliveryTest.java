@@ -0,0 +1,117 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.elderly.assistant.entity.OutboxEvent;
+import com.elderly.assistant.mapper.OutboxEventMapper;
+import com.elderly.assistant.outbox.OutboxDispatcher;
+import com.elderly.assistant.outbox.OutboxEventHandler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 同一事件被投递两次（处理超过租约后被另一个实例重新认领）：只有持有当前租约的一次提交，
+ * 取消挂号只归还一次时段号源
+ */
+@SpringJUnitConfig(RegistrationTestConfig.class)
+@TestPropertySource(properties = "hospital.quota.redis-enabled=false")
+class OutboxRedeliveryTest {
+
+    private static final String HOSPITAL_ID = "H_REDELIVER";
+    private static final String ORDER_ID = "ORDER_REDELIVER";
+    private static final long EVENT_ID = 9_001L;
+
+    @Autowired
+    private RegistrationEventHandler registrationEventHandler;
+    @Autowired
+    private OutboxEventMapper outboxEventMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void cancelledEventDeliveredTwiceReleasesOnce() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        String date = LocalDate.now().plusDays(1).toString();
+        jdbc.update("INSERT INTO RESERVE_ORDER (order_id, user_id, hospital_id, hospital_name, department, "
+                + "reserve_date, time_slot, status, create_time) VALUES (?, 'U_REDELIVER', ?, ?, '内科', ?, 'AM', "
+                + "'已取消', ?)", ORDER_ID, HOSPITAL_ID, HOSPITAL_ID, date, System.currentTimeMillis());
+        jdbc.update("INSERT INTO SLOT_INVENTORY (hospital_id, slot_date, department, time_slot, capacity, booked, "
+                + "update_time) VALUES (?, ?, '内科', 'AM', 10, 2, 0)", HOSPITAL_ID, date);
+        jdbc.update("INSERT INTO OUTBOX_EVENT (event_id, event_type, aggregate_id, payload, status, attempts, "
+                + "next_attempt_time, create_time) VALUES (?, ?, ?, '{\"fromStatus\":\"已预约\"}', 'PENDING', 0, 0, 0)",
+                EVENT_ID, RegistrationEventHandler.REGISTRATION_CANCELLED, ORDER_ID);
+
+        // 第二个实例：租约正常
+        AtomicInteger deliveries = new AtomicInteger();
+        OutboxDispatcher second = dispatcher(new StallingHandler(deliveries, null), 60_000L);
+        // 第一个实例：租约立即到期，处理期间第二个实例认领并完成同一事件
+        OutboxDispatcher first = dispatcher(new StallingHandler(deliveries, second), 0L);
+
+        first.drain();
+
+        assertEquals(2, deliveries.get());
+        assertEquals(1, jdbc.queryForObject("SELECT booked FROM SLOT_INVENTORY WHERE hospital_id = ? "
+                + "AND slot_date = ? AND department = '内科' AND time_slot = 'AM'", Integer.class, HOSPITAL_ID, date));
+        OutboxEvent event = outboxEventMapper.selectById(EVENT_ID);
+        assertEquals(OutboxEvent.STATUS_DONE, event.getStatus());
+        assertEquals(2, event.getAttempts());
+        assertEquals(1.0, meterRegistry.counter("outbox.dispatch", "type",
+                RegistrationEventHandler.REGISTRATION_CANCELLED, "result", "lease_lost").count());
+    }
+
+    private OutboxDispatcher dispatcher(OutboxEventHandler stalling, long leaseMs) {
+        OutboxDispatcher dispatcher = new OutboxDispatcher(outboxEventMapper,
+                List.of(stalling, registrationEventHandler), transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 100);
+        ReflectionTestUtils.setField(dispatcher, "leaseMs", leaseMs);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 10);
+        return dispatcher;
+    }
+
+    /**
+     * 排在真实处理器之前：记录投递次数；第一个实例处理时让另一个实例在别的线程里投递同一事件
+     * （真实处理器还没锁住时段库存行，两边不会互相等待）
+     */
+    private static final class StallingHandler implements OutboxEventHandler {
+        private final AtomicInteger deliveries;
+        private final OutboxDispatcher other;
+
+        StallingHandler(AtomicInteger deliveries, OutboxDispatcher other) {
+            this.deliveries = deliveries;
+            this.other = other;
+        }
+
+        @Override
+        public Set<String> eventTypes() {
+            return Set.of(RegistrationEventHandler.REGISTRATION_CANCELLED);
+        }
+
+        @Override
+        public void handle(OutboxEvent event) {
+            deliveries.incrementAndGet();
+            if (other != null) {
+                CompletableFuture.runAsync(other::drain).join();
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.common.CursorPage;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.entity.ReserveOrder;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+
+/**
+ * 挂号历史：预约日期写入时统一格式；游标分页只在热表不够一页时才查归档表
+ */
+@SpringJUnitConfig(RegistrationTestConfig.class)
+@TestPropertySource(properties = "hospital.quota.redis-enabled=false")
+class RegistrationHistoryTest {
+
+    private static final long DAY = 86_400_000L;
+
+    @Autowired
+    private HospitalRegistrationService hospitalRegistrationService;
+    @Autowired
+    private HospitalInfoMapper hospitalInfoMapper;
+    @Autowired
+    private ReserveOrderMapper reserveOrderMapper;
+    @Autowired
+    private HospitalCatalog hospitalCatalog;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void reserveDateIsNormalizedOnWrite() {
+        insertHospital("H_HISTORY_DATE");
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        ReserveOrder order = new ReserveOrder();
+        order.setUserId("U_HISTORY_DATE");
+        order.setHospitalId("H_HISTORY_DATE");
+        order.setDepartment("内科");
+        order.setReserveDate(tomorrow.format(DateTimeFormatter.ofPattern("yyyy/M/d")));
+
+        assertTrue(hospitalRegistrationService.createRegistration(order));
+        assertEquals(tomorrow.toString(), reserveOrderMapper.selectById(order.getOrderId()).getReserveDate());
+    }
+
+    @Test
+    void archiveIsReadOnlyWhenHotPageRunsShort() {
+        String userId = "U_HISTORY_PAGE";
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            insertHot(userId, "HOT_" + i, now - i * 1000L);
+        }
+        // 归档记录都早于保留期边界
+        for (int i = 0; i < 3; i++) {
+            insertArchived(userId, "OLD_" + i, now - (200 + i) * DAY);
+        }
+
+        CursorPage<Map<String, Object>> first = hospitalRegistrationService.pageUserRegistrationsWithHospital(
+                userId, null, 2);
+        assertEquals(List.of("HOT_0", "HOT_1"), orderIds(first));
+        assertTrue(first.getHasMore());
+
+        CursorPage<Map<String, Object>> second = hospitalRegistrationService.pageUserRegistrationsWithHospital(
+                userId, first.getNextCursor(), 2);
+        assertEquals(List.of("HOT_2", "OLD_0"), orderIds(second));
+
+        CursorPage<Map<String, Object>> third = hospitalRegistrationService.pageUserRegistrationsWithHospital(
+                userId, second.getNextCursor(), 2);
+        assertEquals(List.of("OLD_1", "OLD_2"), orderIds(third));
+        assertFalse(third.getHasMore());
+    }
+
+    @Test
+    void fullHotPageInsideRetentionSkipsArchive() {
+        String userId = "U_HISTORY_SKIP";
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            insertHot(userId, "SKIP_HOT_" + i, now - i * 1000L);
+        }
+        // 违反归档不变式的记录（创建时间在保留期内），用来确认整页热表时没有查归档表
+        insertArchived(userId, "SKIP_ARCHIVED", now);
+
+        CursorPage<Map<String, Object>> page = hospitalRegistrationService.pageUserRegistrationsWithHospital(
+                userId, null, 2);
+        assertEquals(List.of("SKIP_HOT_0", "SKIP_HOT_1"), orderIds(page));
+    }
+
+    private static List<String> orderIds(CursorPage<Map<String, Object>> page) {
+        return page.getItems().stream().map(item -> (String) item.get("orderId")).collect(Collectors.toList());
+    }
+
+    private void insertHot(String userId, String orderId, long createTime) {
+        new JdbcTemplate(dataSource).update("INSERT INTO RESERVE_ORDER (order_id, user_id, hospital_id, hospital_name, department, "
+                + "reserve_date, time_slot, status, create_time) VALUES (?, ?, 'H1', 'H1', '内科', ?, 'AM', '已预约', ?)",
+                orderId, userId, LocalDate.now().toString(), createTime);
+    }
+
+    private void insertArchived(String userId, String orderId, long createTime) {
+        new JdbcTemplate(dataSource).update("INSERT INTO RESERVE_ORDER_ARCHIVE (order_id, user_id, hospital_id, hospital_name, "
+                + "department, reserve_date, time_slot, status, create_time, archive_time) "
+                + "VALUES (?, ?, 'H1', 'H1', '内科', '2000-01-01', 'AM', '已完成', ?, ?)",
+                orderId, userId, createTime, System.currentTimeMillis());
+    }
+
+    private void insertHospital(String hospitalId) {
+        HospitalInfo hospital = new HospitalInfo();
+        hospital.setHospitalId(hospitalId);
+        hospital.setHospitalName(hospitalId);
+        hospital.setAddress("测试地址");
+        hospital.setLongitude(116.4);
+        hospital.setLatitude(39.9);
+        hospital.setDepartments("内科");
+        hospital.setDailyQuota(10);
+        hospital.setStatus("enabled");
+        hospitalInfoMapper.insert(hospital);
+        hospitalCatalog.refreshHospital(hospitalId);
+    }
+}
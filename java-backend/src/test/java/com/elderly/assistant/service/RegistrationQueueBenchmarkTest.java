@@ -0,0 +1,131 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.dto.RegistrationTicketDTO;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.entity.ReserveOrder;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+
+/**
+ * 排队挂号的吞吐和延迟：多线程入队，写线程批量提交；统计入队耗时和从入队到出结果的耗时，
+ * 所有票据都要出结果且不超卖
+ * 手动运行：mvn test -Dtest=RegistrationQueueBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringJUnitConfig(RegistrationTestConfig.class)
+@TestPropertySource(properties = "hospital.quota.redis-enabled=false")
+class RegistrationQueueBenchmarkTest {
+
+    private static final int HOSPITALS = 20;
+    private static final int DAILY_QUOTA = 300;
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS = 10_000;
+
+    @Autowired
+    private RegistrationQueueService registrationQueueService;
+    @Autowired
+    private HospitalInfoMapper hospitalInfoMapper;
+    @Autowired
+    private ReserveOrderMapper reserveOrderMapper;
+    @Autowired
+    private HospitalCatalog hospitalCatalog;
+
+    @Test
+    void queuedBookingThroughput() throws Exception {
+        String date = LocalDate.now().plusDays(1).toString();
+        for (int i = 0; i < HOSPITALS; i++) {
+            HospitalInfo hospital = new HospitalInfo();
+            hospital.setHospitalId("QBENCH_" + i);
+            hospital.setHospitalName("QBENCH_" + i);
+            hospital.setAddress("测试地址");
+            hospital.setLongitude(116.4);
+            hospital.setLatitude(39.9);
+            hospital.setDepartments("内科");
+            hospital.setDailyQuota(DAILY_QUOTA);
+            hospital.setStatus("enabled");
+            hospitalInfoMapper.insert(hospital);
+        }
+        hospitalCatalog.refresh();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        RegistrationTicketDTO[] tickets = new RegistrationTicketDTO[ATTEMPTS];
+        long[] submitLatencies = new long[ATTEMPTS];
+        for (int i = 0; i < ATTEMPTS; i++) {
+            int index = i;
+            ReserveOrder order = new ReserveOrder();
+            order.setUserId("U" + i);
+            order.setHospitalId("QBENCH_" + (i % HOSPITALS));
+            order.setDepartment("内科");
+            order.setReserveDate(date);
+            order.setTimeSlot("DAY");
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long begin = System.nanoTime();
+                tickets[index] = registrationQueueService.submit(order);
+                submitLatencies[index] = System.nanoTime() - begin;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.MINUTES));
+
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5);
+        for (RegistrationTicketDTO ticket : tickets) {
+            while (RegistrationTicketDTO.QUEUED.equals(ticket.getStatus())) {
+                assertTrue(System.currentTimeMillis() < deadline, "票据未在 5 分钟内完成");
+                Thread.sleep(10);
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        int succeeded = 0;
+        long[] completionLatencies = new long[ATTEMPTS];
+        for (int i = 0; i < ATTEMPTS; i++) {
+            if (RegistrationTicketDTO.SUCCESS.equals(tickets[i].getStatus())) {
+                succeeded++;
+            }
+            completionLatencies[i] = tickets[i].getFinishTime() - tickets[i].getCreateTime();
+        }
+        Arrays.sort(submitLatencies);
+        Arrays.sort(completionLatencies);
+        System.out.printf("排队挂号 %d 次（%d 线程，%d 家医院 x %d 号）：成功 %d，%.0f 次/秒；"
+                        + "入队 p99 %.3fms；出结果 p50 %dms，p99 %dms%n",
+                ATTEMPTS, THREADS, HOSPITALS, DAILY_QUOTA, succeeded, ATTEMPTS * 1e9 / elapsed,
+                submitLatencies[ATTEMPTS * 99 / 100] / 1e6,
+                completionLatencies[ATTEMPTS / 2], completionLatencies[ATTEMPTS * 99 / 100]);
+
+        assertEquals(HOSPITALS * DAILY_QUOTA, succeeded);
+        for (int i = 0; i < HOSPITALS; i++) {
+            long booked = reserveOrderMapper.selectCount(new LambdaQueryWrapper<ReserveOrder>()
+                    .eq(ReserveOrder::getHospitalId, "QBENCH_" + i)
+                    .eq(ReserveOrder::getReserveDate, date)
+                    .eq(ReserveOrder::getStatus, "已预约"));
+            assertEquals(DAILY_QUOTA, booked);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.common.IdGenerator;
+import com.elderly.assistant.dto.RegistrationTicketDTO;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.entity.ReserveOrder;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+
+/**
+ * 挂号排队：医院校验、批内失败隔离（重试用未改动的订单、票据不含异常原文）、空闲队列回收和停机排空
+ */
+@SpringJUnitConfig(RegistrationTestConfig.class)
+@TestPropertySource(properties = "hospital.quota.redis-enabled=false")
+class RegistrationQueueServiceTest {
+
+    @Autowired
+    private RegistrationQueueService registrationQueueService;
+    @Autowired
+    private HospitalRegistrationService hospitalRegistrationService;
+    @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private HospitalInfoMapper hospitalInfoMapper;
+    @Autowired
+    private HospitalCatalog hospitalCatalog;
+
+    @Test
+    void unknownHospitalIsRejectedWithoutCreatingLane() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> registrationQueueService.submit(order("H_NOT_EXIST", 0)));
+        assertEquals("医院不存在", e.getMessage());
+        assertFalse(lanes(registrationQueueService).containsKey("H_NOT_EXIST"));
+    }
+
+    @Test
+    void soldOutEntryFailsAloneAndOthersCommit() throws Exception {
+        insertHospital("H_QUEUE_QUOTA", 5);
+
+        List<RegistrationTicketDTO> tickets = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            tickets.add(registrationQueueService.submit(order("H_QUEUE_QUOTA", i)));
+        }
+        awaitFinished(tickets);
+
+        long succeeded = tickets.stream().filter(t -> RegistrationTicketDTO.SUCCESS.equals(t.getStatus())).count();
+        assertEquals(5, succeeded);
+        assertEquals(7, tickets.stream().filter(t -> RegistrationTicketDTO.FAILED.equals(t.getStatus())).count());
+    }
+
+    @Test
+    void retriedEntriesGetUntouchedOrderAndOnlyBusinessMessages() throws Exception {
+        insertHospital("H_QUEUE_RETRY", 100);
+        // 挂号服务像真实实现一样改写订单，第二、三条分别抛业务异常和数据库异常
+        List<ReserveOrder> received = new ArrayList<>();
+        List<String> receivedSlots = new ArrayList<>();
+        HospitalRegistrationService registrationService = mock(HospitalRegistrationService.class);
+        when(registrationService.createRegistration(any(ReserveOrder.class))).thenAnswer(inv -> {
+            ReserveOrder order = inv.getArgument(0);
+            if ("U_BIZ".equals(order.getUserId())) {
+                throw new RuntimeException("医院无此科室: 外科");
+            }
+            if ("U_SQL".equals(order.getUserId())) {
+                throw new DataIntegrityViolationException("Duplicate entry 'ORDER_1' for key 'PRIMARY'");
+            }
+            received.add(order);
+            receivedSlots.add(order.getTimeSlot() + "/" + order.getStatus());
+            order.setTimeSlot("AM");
+            order.setStatus("已预约");
+            return true;
+        });
+        RegistrationQueueService queue = new RegistrationQueueService(registrationService, idGenerator,
+                transactionManager, hospitalCatalog);
+        ReflectionTestUtils.setField(queue, "queueCapacity", 10);
+        ReflectionTestUtils.setField(queue, "batchSize", 20);
+        ReflectionTestUtils.setField(queue, "shutdownTimeoutMs", 30000L);
+        // 写线程先被占住，三条请求进同一批
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        CountDownLatch hold = new CountDownLatch(1);
+        writer.execute(() -> {
+            try {
+                hold.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ReflectionTestUtils.setField(queue, "writers", writer);
+
+        ReserveOrder dayOrder = order("H_QUEUE_RETRY", 0);
+        dayOrder.setUserId("U_DAY");
+        dayOrder.setTimeSlot("DAY");
+        ReserveOrder bizOrder = order("H_QUEUE_RETRY", 1);
+        bizOrder.setUserId("U_BIZ");
+        ReserveOrder sqlOrder = order("H_QUEUE_RETRY", 2);
+        sqlOrder.setUserId("U_SQL");
+        RegistrationTicketDTO dayTicket = queue.submit(dayOrder);
+        RegistrationTicketDTO bizTicket = queue.submit(bizOrder);
+        RegistrationTicketDTO sqlTicket = queue.submit(sqlOrder);
+        hold.countDown();
+        awaitFinished(List.of(dayTicket, bizTicket, sqlTicket));
+        queue.shutdown();
+
+        // 三次提交（两次回滚），每次拿到的都是入队时的全天订单
+        assertEquals(List.of("DAY/null", "DAY/null", "DAY/null"), receivedSlots);
+        assertEquals("DAY", dayOrder.getTimeSlot());
+        for (int i = 0; i < received.size(); i++) {
+            assertNotSame(dayOrder, received.get(i));
+            for (int j = 0; j < i; j++) {
+                assertNotSame(received.get(j), received.get(i));
+            }
+        }
+        assertEquals(RegistrationTicketDTO.SUCCESS, dayTicket.getStatus());
+        assertEquals("医院无此科室: 外科", bizTicket.getMessage());
+        assertEquals(RegistrationTicketDTO.FAILED, sqlTicket.getStatus());
+        assertEquals("挂号失败，请重试", sqlTicket.getMessage());
+    }
+
+    @Test
+    void idleLaneIsEvicted() throws Exception {
+        insertHospital("H_QUEUE_IDLE", 10);
+        RegistrationTicketDTO ticket = registrationQueueService.submit(order("H_QUEUE_IDLE", 0));
+        awaitFinished(List.of(ticket));
+        assertTrue(lanes(registrationQueueService).containsKey("H_QUEUE_IDLE"));
+
+        ReflectionTestUtils.setField(registrationQueueService, "laneIdleMs", -1L);
+        try {
+            registrationQueueService.evictIdleLanes();
+        } finally {
+            ReflectionTestUtils.setField(registrationQueueService, "laneIdleMs", 600000L);
+        }
+        assertFalse(lanes(registrationQueueService).containsKey("H_QUEUE_IDLE"));
+    }
+
+    @Test
+    void shutdownDrainsQueueAndRejectsNewRequests() throws Exception {
+        insertHospital("H_QUEUE_SHUTDOWN", 1000);
+        RegistrationQueueService queue = new RegistrationQueueService(hospitalRegistrationService, idGenerator,
+                transactionManager, hospitalCatalog);
+        ReflectionTestUtils.setField(queue, "queueCapacity", 2000);
+        ReflectionTestUtils.setField(queue, "batchSize", 20);
+        ReflectionTestUtils.setField(queue, "writerThreads", 1);
+        ReflectionTestUtils.setField(queue, "shutdownTimeoutMs", 30000L);
+        queue.init();
+
+        List<RegistrationTicketDTO> tickets = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tickets.add(queue.submit(order("H_QUEUE_SHUTDOWN", i)));
+        }
+        queue.shutdown();
+
+        for (RegistrationTicketDTO ticket : tickets) {
+            assertEquals(RegistrationTicketDTO.SUCCESS, ticket.getStatus());
+        }
+        assertThrows(RuntimeException.class, () -> queue.submit(order("H_QUEUE_SHUTDOWN", 200)));
+    }
+
+    @Test
+    void shutdownTimeoutFailsLeftoverRequests() throws Exception {
+        insertHospital("H_QUEUE_TIMEOUT", 1000);
+        RegistrationQueueService queue = new RegistrationQueueService(hospitalRegistrationService, idGenerator,
+                transactionManager, hospitalCatalog);
+        ReflectionTestUtils.setField(queue, "queueCapacity", 2000);
+        ReflectionTestUtils.setField(queue, "batchSize", 1);
+        ReflectionTestUtils.setField(queue, "writerThreads", 1);
+        ReflectionTestUtils.setField(queue, "shutdownTimeoutMs", 0L);
+        queue.init();
+
+        List<RegistrationTicketDTO> tickets = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            tickets.add(queue.submit(order("H_QUEUE_TIMEOUT", i)));
+        }
+        queue.shutdown();
+
+        for (RegistrationTicketDTO ticket : tickets) {
+            assertNotEquals(RegistrationTicketDTO.QUEUED, ticket.getStatus());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> lanes(RegistrationQueueService queue) {
+        return (Map<String, ?>) ReflectionTestUtils.getField(queue, "lanes");
+    }
+
+    private static void awaitFinished(List<RegistrationTicketDTO> tickets) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (tickets.stream().anyMatch(t -> RegistrationTicketDTO.QUEUED.equals(t.getStatus()))) {
+            assertTrue(System.currentTimeMillis() < deadline, "票据未在 30 秒内完成");
+            Thread.sleep(20);
+        }
+    }
+
+    private static ReserveOrder order(String hospitalId, int index) {
+        ReserveOrder order = new ReserveOrder();
+        order.setUserId("U" + index);
+        order.setHospitalId(hospitalId);
+        order.setDepartment("内科");
+        order.setReserveDate(LocalDate.now().plusDays(1).toString());
+        order.setTimeSlot(index % 2 == 0 ? "AM" : "PM");
+        return order;
+    }
+
+    private void insertHospital(String hospitalId, int dailyQuota) {
+        HospitalInfo hospital = new HospitalInfo();
+        hospital.setHospitalId(hospitalId);
+        hospital.setHospitalName(hospitalId);
+        hospital.setAddress("测试地址");
+        hospital.setLongitude(116.4);
+        hospital.setLatitude(39.9);
+        hospital.setDepartments("内科");
+        hospital.setDailyQuota(dailyQuota);
+        hospital.setStatus("enabled");
+        hospitalInfoMapper.insert(hospital);
+        hospitalCatalog.refreshHospital(hospitalId);
+    }
+}
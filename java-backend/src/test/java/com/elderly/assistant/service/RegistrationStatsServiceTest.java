@@ -0,0 +1,72 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import com.elderly.assistant.entity.UserRegistrationStats;
+import com.elderly.assistant.mapper.ReserveOrderArchiveMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+import com.elderly.assistant.mapper.UserRegistrationStatsMapper;
+
+/**
+ * 挂号统计：没有计数行时不按订单自动重建，避免与随后投递的挂号事件重复计数
+ */
+class RegistrationStatsServiceTest {
+
+    private UserRegistrationStatsMapper statsMapper;
+    private ReserveOrderMapper reserveOrderMapper;
+    private ReserveOrderArchiveMapper reserveOrderArchiveMapper;
+    private RegistrationStatsService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        statsMapper = mock(UserRegistrationStatsMapper.class);
+        reserveOrderMapper = mock(ReserveOrderMapper.class);
+        reserveOrderArchiveMapper = mock(ReserveOrderArchiveMapper.class);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(hashOperations.entries(anyString())).thenReturn(Map.of());
+        service = new RegistrationStatsService(statsMapper, reserveOrderMapper, reserveOrderArchiveMapper,
+                redisTemplate);
+    }
+
+    @Test
+    void missingRowReadsAsZeroWithoutRebuild() {
+        Map<String, Integer> stats = service.getStats("U_NEW");
+
+        assertEquals(Map.of("total", 0, "pending", 0, "completed", 0, "cancelled", 0), stats);
+        verifyNoInteractions(reserveOrderMapper, reserveOrderArchiveMapper);
+        verify(statsMapper, never()).replace(any(UserRegistrationStats.class));
+    }
+
+    @Test
+    void existingRowIsReturned() {
+        UserRegistrationStats row = new UserRegistrationStats();
+        row.setUserId("U_OLD");
+        row.setTotal(3);
+        row.setPending(1);
+        row.setCompleted(1);
+        row.setCancelled(1);
+        when(statsMapper.selectById("U_OLD")).thenReturn(row);
+
+        assertEquals(Map.of("total", 3, "pending", 1, "completed", 1, "cancelled", 1), service.getStats("U_OLD"));
+    }
+}
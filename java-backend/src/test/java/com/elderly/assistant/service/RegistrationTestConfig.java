@@ -0,0 +1,62 @@
+package com.elderly.assistant.service;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.common.IdGenerator;
+import com.elderly.assistant.outbox.OutboxPublisher;
+import com.elderly.assistant.quota.HospitalQuotaCounter;
+import com.elderly.assistant.quota.SlotInventoryEngine;
+import com.elderly.assistant.support.H2MapperTestConfig;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 挂号集成测试装配：真实的挂号、排队、缴费服务和事件处理、医院目录、号源计数器和时段库存跑在 H2 上，
+ * Redis、发件箱、统计和ID生成用 mock 代替
+ * 所有 H2 集成测试共用这一套装配（同样的 @TestPropertySource），Spring 只建一个上下文：
+ * MyBatis-Plus 的 saveBatch 按实体类从全局缓存取 SqlSessionFactory，多个上下文时会写到别的库
+ */
+@Configuration
+@Import({H2MapperTestConfig.class, HospitalCatalog.class, HospitalQuotaCounter.class,
+        SlotInventoryEngine.class, HospitalRegistrationService.class, RegistrationQueueService.class,
+        PaymentService.class, RegistrationEventHandler.class})
+class RegistrationTestConfig {
+
+    @Bean
+    SimpleMeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    StringRedisTemplate redisTemplate() {
+        return mock(StringRedisTemplate.class);
+    }
+
+    @Bean
+    IdGenerator idGenerator() {
+        AtomicLong seq = new AtomicLong();
+        IdGenerator idGenerator = mock(IdGenerator.class);
+        when(idGenerator.nextId(anyString())).thenAnswer(inv -> inv.<String>getArgument(0) + seq.incrementAndGet());
+        return idGenerator;
+    }
+
+    @Bean
+    RegistrationStatsService registrationStatsService() {
+        return mock(RegistrationStatsService.class);
+    }
+
+    @Bean
+    OutboxPublisher outboxPublisher() {
+        return mock(OutboxPublisher.class);
+    }
+}
@@ -0,0 +1,117 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.elderly.assistant.catalog.HospitalCatalog;
+import com.elderly.assistant.entity.HospitalInfo;
+import com.elderly.assistant.entity.ReserveOrder;
+import com.elderly.assistant.mapper.HospitalInfoMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+
+/**
+ * 数据库扣减号源的吞吐和延迟：多家医院、多线程同时挂号，超出号源的请求被拒绝
+ * 手动运行：mvn test -Dtest=RegistrationThroughputBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringJUnitConfig(RegistrationTestConfig.class)
+@TestPropertySource(properties = "hospital.quota.redis-enabled=false")
+class RegistrationThroughputBenchmarkTest {
+
+    private static final int HOSPITALS = 20;
+    private static final int DAILY_QUOTA = 300;
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS = 10_000;
+
+    @Autowired
+    private HospitalRegistrationService hospitalRegistrationService;
+    @Autowired
+    private HospitalInfoMapper hospitalInfoMapper;
+    @Autowired
+    private ReserveOrderMapper reserveOrderMapper;
+    @Autowired
+    private HospitalCatalog hospitalCatalog;
+
+    @Test
+    void bookingThroughput() throws Exception {
+        String date = LocalDate.now().plusDays(1).toString();
+        for (int i = 0; i < HOSPITALS; i++) {
+            HospitalInfo hospital = new HospitalInfo();
+            hospital.setHospitalId("BENCH_" + i);
+            hospital.setHospitalName("BENCH_" + i);
+            hospital.setAddress("测试地址");
+            hospital.setLongitude(116.4);
+            hospital.setLatitude(39.9);
+            hospital.setDepartments("内科");
+            hospital.setDailyQuota(DAILY_QUOTA);
+            hospital.setAvailableQuota(null);
+            hospital.setStatus("enabled");
+            hospitalInfoMapper.insert(hospital);
+        }
+        hospitalCatalog.refresh();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        long[] latencies = new long[ATTEMPTS];
+        for (int i = 0; i < ATTEMPTS; i++) {
+            int index = i;
+            ReserveOrder order = new ReserveOrder();
+            order.setUserId("U" + i);
+            order.setHospitalId("BENCH_" + (i % HOSPITALS));
+            order.setDepartment("内科");
+            order.setReserveDate(date);
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long begin = System.nanoTime();
+                try {
+                    if (hospitalRegistrationService.createRegistration(order)) {
+                        succeeded.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    // 号源已满
+                }
+                latencies[index] = System.nanoTime() - begin;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - begin;
+
+        Arrays.sort(latencies);
+        System.out.printf("挂号 %d 次（%d 线程，%d 家医院 x %d 号）：成功 %d，%.0f 次/秒，p50 %.2fms，p99 %.2fms%n",
+                ATTEMPTS, THREADS, HOSPITALS, DAILY_QUOTA, succeeded.get(),
+                ATTEMPTS * 1e9 / elapsed, latencies[ATTEMPTS / 2] / 1e6, latencies[ATTEMPTS * 99 / 100] / 1e6);
+
+        assertEquals(HOSPITALS * DAILY_QUOTA, succeeded.get());
+        for (int i = 0; i < HOSPITALS; i++) {
+            long booked = reserveOrderMapper.selectCount(new LambdaQueryWrapper<ReserveOrder>()
+                    .eq(ReserveOrder::getHospitalId, "BENCH_" + i)
+                    .eq(ReserveOrder::getReserveDate, date)
+                    .eq(ReserveOrder::getStatus, "已预约"));
+            assertEquals(DAILY_QUOTA, booked);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.elderly.assistant.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.elderly.assistant.entity.OutboxEvent;
+import com.elderly.assistant.entity.PaymentItem;
+import com.elderly.assistant.mapper.PaymentMapper;
+import com.elderly.assistant.mapper.ReserveOrderMapper;
+import com.elderly.assistant.support.StatementCounter;
+
+/**
+ * 状态更新只发一条条件 UPDATE（用 {@link StatementCounter} 统计语句数），
+ * 事件处理在订单已归档时回退到归档表
+ */
+@SpringJUnitConfig(RegistrationTestConfig.class)
+@TestPropertySource(properties = "hospital.quota.redis-enabled=false")
+class SingleStatementUpdateTest {
+
+    @Autowired
+    private StatementCounter statementCounter;
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private PaymentMapper paymentMapper;
+    @Autowired
+    private HospitalRegistrationService hospitalRegistrationService;
+    @Autowired
+    private ReserveOrderMapper reserveOrderMapper;
+    @Autowired
+    private RegistrationEventHandler registrationEventHandler;
+    @Autowired
+    private RegistrationStatsService registrationStatsService;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void markAsPaidIsOneUpdateAndKeepsAmount() {
+        PaymentItem item = new PaymentItem();
+        item.setItemId("PAY_SINGLE");
+        item.setUserId("U1");
+        item.setItemType("水费");
+        item.setAccount("ACC");
+        item.setAmount(new BigDecimal("88.50"));
+        assertTrue(paymentService.createPaymentItem(item));
+
+        statementCounter.reset();
+        assertTrue(paymentService.markAsPaid("PAY_SINGLE"));
+        assertEquals(1, statementCounter.count(), () -> statementCounter.statements().toString());
+        assertTrue(statementCounter.statements().get(0).startsWith("UPDATE PAYMENT_CONFIG"));
+
+        PaymentItem paid = paymentMapper.selectById("PAY_SINGLE");
+        assertEquals("已缴清", paid.getStatus());
+        assertEquals(0, new BigDecimal("88.50").compareTo(paid.getAmount()));
+
+        // 重复缴费：UPDATE 没有更新到，再查一次确认项目存在
+        statementCounter.reset();
+        assertTrue(paymentService.markAsPaid("PAY_SINGLE"));
+        assertEquals(2, statementCounter.count());
+    }
+
+    @Test
+    void cancelAndCompleteAreOneUpdateEach() {
+        insertOrder("RESERVE_ORDER", "ORDER_SINGLE_CANCEL", "已预约");
+        insertOrder("RESERVE_ORDER", "ORDER_SINGLE_COMPLETE", "已预约");
+
+        statementCounter.reset();
+        assertTrue(hospitalRegistrationService.cancelRegistration("ORDER_SINGLE_CANCEL"));
+        assertEquals(1, statementCounter.count(), () -> statementCounter.statements().toString());
+
+        statementCounter.reset();
+        assertTrue(hospitalRegistrationService.completeRegistration("ORDER_SINGLE_COMPLETE"));
+        assertEquals(1, statementCounter.count(), () -> statementCounter.statements().toString());
+
+        assertEquals("已取消", reserveOrderMapper.selectById("ORDER_SINGLE_CANCEL").getStatus());
+        assertEquals("已完成", reserveOrderMapper.selectById("ORDER_SINGLE_COMPLETE").getStatus());
+    }
+
+    @Test
+    void eventForArchivedOrderIsHandled() {
+        insertOrder("RESERVE_ORDER_ARCHIVE", "ORDER_SINGLE_ARCHIVED", "已取消");
+
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(RegistrationEventHandler.REGISTRATION_CANCELLED);
+        event.setAggregateId("ORDER_SINGLE_ARCHIVED");
+        event.setPayload("{\"fromStatus\":\"已预约\"}");
+        registrationEventHandler.handle(event);
+
+        verify(registrationStatsService).onStatusChange("U_ARCHIVED", "已预约",
+                RegistrationStatsService.STATUS_CANCELLED);
+    }
+
+    private void insertOrder(String table, String orderId, String status) {
+        String archiveColumn = table.endsWith("ARCHIVE") ? ", archive_time" : "";
+        String archiveValue = table.endsWith("ARCHIVE") ? ", 0" : "";
+        new JdbcTemplate(dataSource).update("INSERT INTO " + table + " (order_id, user_id, hospital_id, "
+                + "hospital_name, department, reserve_date, time_slot, status, create_time" + archiveColumn + ") "
+                + "VALUES (?, 'U_ARCHIVED', 'H1', 'H1', '内科', ?, 'AM', ?, ?" + archiveValue + ")",
+                orderId, LocalDate.now().minusDays(200).toString(), status, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,52 @@
+package com.elderly.assistant.support;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+
+/**
+ * 统计 SQL 语句数：拦截 StatementHandler.prepare，记录当前线程发出的每条 SQL
+ * 用法：reset() 后调用被测方法，再用 count()/statements() 断言语句数
+ * 只统计调用线程，后台线程（发件箱投递、写线程）发出的语句不计入
+ */
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+public class StatementCounter implements Interceptor {
+
+    private final ThreadLocal<List<String>> statements = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        StatementHandler handler = (StatementHandler) invocation.getTarget();
+        statements.get().add(handler.getBoundSql().getSql().replaceAll("\\s+", " ").trim());
+        return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+    public void reset() {
+        statements.get().clear();
+    }
+
+    public int count() {
+        return statements.get().size();
+    }
+
+    public List<String> statements() {
+        return new ArrayList<>(statements.get());
+    }
+}
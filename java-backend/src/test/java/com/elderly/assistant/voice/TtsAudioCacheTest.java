@@ -0,0 +1,157 @@
+package com.elderly.assistant.voice;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 语音合成缓存：内存层按字节数做 LRU；磁盘先写临时文件再改名，重启后可读；
+ * 未 commit 的边写边缓存项对读者不可见；磁盘超过容量时按最后访问时间淘汰
+ */
+class TtsAudioCacheTest {
+
+    private static final long MAX_MEMORY_BYTES = 40;
+
+    @TempDir
+    Path dir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TtsAudioCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = newCache();
+    }
+
+    @Test
+    void memoryLayerEvictsLeastRecentlyUsedByBytes() {
+        for (String key : List.of("aa1", "aa2", "aa3", "aa4")) {
+            cache.put(key, audio(10));
+        }
+        // 访问 aa1 后 aa2 成为最久未用，再放入 10 字节时只淘汰 aa2
+        assertNotNull(cache.getFromMemory("aa1"));
+        cache.put("aa5", audio(10));
+
+        assertNull(cache.getFromMemory("aa2"));
+        for (String key : List.of("aa1", "aa3", "aa4", "aa5")) {
+            assertNotNull(cache.getFromMemory(key), key);
+        }
+        assertEquals(40L, ReflectionTestUtils.getField(cache, "memoryBytes"));
+
+        // 超过内存容量四分之一的音频只落盘
+        cache.put("aa6", audio(11));
+        assertNull(cache.getFromMemory("aa6"));
+        assertNotNull(cache.getFromMemory("aa1"));
+        // 被淘汰的仍可从磁盘读回
+        assertArrayEquals(audio(10), cache.get("aa2"));
+        assertEquals(1.0, meterRegistry.counter("voice.tts.cache", "result", "disk").count());
+    }
+
+    @Test
+    void diskWriteLeavesNoTempFileAndSurvivesRestart() throws IOException {
+        byte[] audio = "mp3-bytes".getBytes(StandardCharsets.UTF_8);
+        String key = TtsAudioCache.key("您好", "zh", 0);
+
+        cache.put(key, audio);
+
+        assertArrayEquals(audio, Files.readAllBytes(cache.file(key)));
+        assertEquals(List.of(), tmpFiles());
+
+        // 重启后内存为空，从磁盘读回并放入内存
+        TtsAudioCache restarted = newCache();
+        assertNull(restarted.getFromMemory(key));
+        assertArrayEquals(audio, restarted.get(key));
+        assertArrayEquals(audio, restarted.getFromMemory(key));
+        assertEquals(1.0, meterRegistry.counter("voice.tts.cache", "result", "disk").count());
+    }
+
+    @Test
+    void pendingEntryIsInvisibleUntilCommit() throws IOException {
+        String key = TtsAudioCache.key("挂号", "zh", 0);
+        byte[] audio = "partial".getBytes(StandardCharsets.UTF_8);
+
+        try (TtsAudioCache.PendingEntry entry = cache.newEntry(key)) {
+            entry.stream().write(audio);
+            assertFalse(cache.contains(key));
+            assertNull(cache.cachedFile(key));
+            assertNull(cache.get(key));
+            // 客户端中途断开，未 commit
+        }
+        assertFalse(cache.contains(key));
+        assertEquals(List.of(), tmpFiles());
+
+        try (TtsAudioCache.PendingEntry entry = cache.newEntry(key)) {
+            entry.stream().write(audio);
+            entry.commit();
+        }
+        assertTrue(cache.contains(key));
+        assertArrayEquals(audio, Files.readAllBytes(cache.cachedFile(key)));
+        assertEquals(List.of(), tmpFiles());
+    }
+
+    @Test
+    void trimDiskEvictsByLastAccessTime() throws IOException {
+        ReflectionTestUtils.setField(cache, "maxDiskBytes", 25L);
+        long now = System.currentTimeMillis();
+        String[] keys = {"bb1", "bb2", "bb3"};
+        for (int i = 0; i < keys.length; i++) {
+            cache.put(keys[i], audio(10));
+            Files.setLastModifiedTime(cache.file(keys[i]), FileTime.fromMillis(now - (3 - i) * 60_000L));
+        }
+        // bb1 写入最早，但刚被访问过；bb2 成为最久未访问
+        assertNotNull(cache.cachedFile("bb1"));
+        // 进程异常退出留下的临时文件：过期的清理，新的保留
+        Path staleTmp = Files.createTempFile(cache.file("bb1").getParent(), "bb9", ".tmp");
+        Files.setLastModifiedTime(staleTmp, FileTime.fromMillis(now - 2 * 3600 * 1000L));
+        Path freshTmp = Files.createTempFile(cache.file("bb1").getParent(), "bb8", ".tmp");
+
+        cache.trimDisk();
+
+        assertTrue(Files.exists(cache.file("bb1")));
+        assertFalse(Files.exists(cache.file("bb2")));
+        assertTrue(Files.exists(cache.file("bb3")));
+        assertFalse(Files.exists(staleTmp));
+        assertTrue(Files.exists(freshTmp));
+    }
+
+    private TtsAudioCache newCache() {
+        TtsAudioCache created = new TtsAudioCache(meterRegistry);
+        ReflectionTestUtils.setField(created, "dir", dir.toString());
+        ReflectionTestUtils.setField(created, "maxMemoryBytes", MAX_MEMORY_BYTES);
+        ReflectionTestUtils.setField(created, "maxDiskBytes", 1L << 20);
+        created.init();
+        return created;
+    }
+
+    private List<Path> tmpFiles() throws IOException {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            return stream.filter(path -> path.toString().endsWith(".tmp")).collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] audio(int length) {
+        byte[] audio = new byte[length];
+        audio[0] = (byte) length;
+        return audio;
+    }
+}
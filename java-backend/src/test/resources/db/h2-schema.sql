@@ -0,0 +1,97 @@
+-- 集成测试用 H2 表结构（MySQL 兼容模式），列与 database/init_database.sql 保持一致，省略外键
+-- H2 的索引名在整个库内唯一，同名索引需改名
+
+CREATE TABLE HOSPITAL_INFO (
+    hospital_id VARCHAR(50) PRIMARY KEY,
+    hospital_name VARCHAR(100) NOT NULL,
+    hospital_level VARCHAR(20),
+    hospital_type VARCHAR(20),
+    address VARCHAR(200) NOT NULL,
+    phone VARCHAR(20),
+    emergency_phone VARCHAR(20),
+    longitude DOUBLE NOT NULL,
+    latitude DOUBLE NOT NULL,
+    departments TEXT,
+    daily_quota INT DEFAULT 100,
+    available_quota INT DEFAULT 100,
+    opening_hours VARCHAR(100),
+    status VARCHAR(20) DEFAULT 'enabled'
+);
+
+CREATE TABLE RESERVE_ORDER (
+    order_id VARCHAR(50) PRIMARY KEY,
+    user_id VARCHAR(50) NOT NULL,
+    hospital_id VARCHAR(50) NOT NULL,
+    hospital_name VARCHAR(100) NOT NULL,
+    department VARCHAR(50) NOT NULL,
+    reserve_date VARCHAR(20) NOT NULL,
+    time_slot VARCHAR(10) NOT NULL DEFAULT 'DAY',
+    status VARCHAR(20) DEFAULT '已预约',
+    create_time BIGINT NOT NULL,
+    INDEX idx_user_create(user_id, create_time),
+    INDEX idx_hospital_date_status(hospital_id, reserve_date, status),
+    INDEX idx_reserve_date(reserve_date)
+);
+
+CREATE TABLE SLOT_INVENTORY (
+    hospital_id VARCHAR(50) NOT NULL,
+    slot_date VARCHAR(20) NOT NULL,
+    department VARCHAR(50) NOT NULL DEFAULT '',
+    time_slot VARCHAR(10) NOT NULL,
+    capacity INT NOT NULL,
+    booked INT NOT NULL DEFAULT 0,
+    update_time BIGINT NOT NULL,
+    PRIMARY KEY (hospital_id, slot_date, department, time_slot)
+);
+
+CREATE TABLE USER_BASE (
+    user_id VARCHAR(50) PRIMARY KEY,
+    user_name VARCHAR(50) NOT NULL,
+    user_age INT DEFAULT 0,
+    phone VARCHAR(200) NOT NULL,
+    dialect_type VARCHAR(20) DEFAULT 'zh',
+    avatar_url VARCHAR(200),
+    create_time BIGINT NOT NULL,
+    update_time BIGINT DEFAULT 0
+);
+
+CREATE TABLE RESERVE_ORDER_ARCHIVE (
+    order_id VARCHAR(50) PRIMARY KEY,
+    user_id VARCHAR(50) NOT NULL,
+    hospital_id VARCHAR(50) NOT NULL,
+    hospital_name VARCHAR(100) NOT NULL,
+    department VARCHAR(50) NOT NULL,
+    reserve_date VARCHAR(20) NOT NULL,
+    time_slot VARCHAR(10) NOT NULL DEFAULT 'DAY',
+    status VARCHAR(20) DEFAULT '已预约',
+    create_time BIGINT NOT NULL,
+    archive_time BIGINT NOT NULL,
+    INDEX idx_archive_user_create(user_id, create_time)
+);
+
+CREATE TABLE PAYMENT_CONFIG (
+    config_id VARCHAR(50) PRIMARY KEY,
+    user_id VARCHAR(50) NOT NULL,
+    payment_type VARCHAR(20) NOT NULL,
+    account_number VARCHAR(200) NOT NULL,
+    family_id VARCHAR(50),
+    amount DECIMAL(10,2) DEFAULT 0,
+    due_date VARCHAR(20),
+    status VARCHAR(20) DEFAULT 'pending',
+    create_time BIGINT NOT NULL,
+    update_time BIGINT DEFAULT 0,
+    last_pay_time BIGINT
+);
+
+CREATE TABLE OUTBOX_EVENT (
+    event_id BIGINT PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,
+    aggregate_id VARCHAR(50),
+    payload TEXT,
+    status VARCHAR(10) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_time BIGINT NOT NULL,
+    last_error VARCHAR(500),
+    create_time BIGINT NOT NULL,
+    INDEX idx_status_next(status, next_attempt_time)
+);